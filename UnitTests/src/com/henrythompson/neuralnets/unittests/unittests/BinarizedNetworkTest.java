@@ -0,0 +1,125 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.BinarizedNetwork;
+import com.henrythompson.neuralnets.BitPacking;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.Synapse;
+import com.henrythompson.neuralnets.Weights;
+import com.henrythompson.neuralnets.layers.ThresholdLayer;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class BinarizedNetworkTest {
+    private static final double[][] AND_WEIGHTS = {{1}, {1}, {-1}};
+    private static final double[][] OR_WEIGHTS = {{1}, {1}, {0}};
+
+    @Test
+    public void binarizedAndNetwork() throws Exception {
+        NeuralNetwork network = new PerceptronBuilder(2, 1).setWeights(AND_WEIGHTS).create();
+        assertTruthTable(new BinarizedNetwork(network, true), new double[]{0, 0, 0, 1});
+        assertTruthTable(new BinarizedNetwork(network, false), new double[]{0, 0, 0, 1});
+    }
+
+    @Test
+    public void binarizedOrNetwork() throws Exception {
+        NeuralNetwork network = new PerceptronBuilder(2, 1).setWeights(OR_WEIGHTS).create();
+        assertTruthTable(new BinarizedNetwork(network, true), new double[]{0, 1, 1, 1});
+        assertTruthTable(new BinarizedNetwork(network, false), new double[]{0, 1, 1, 1});
+    }
+
+    @Test
+    public void exactWeightsMatchNetwork() throws Exception {
+        NeuralNetwork network = createThresholdNetwork(100, 70, 5);
+        BinarizedNetwork binarized = new BinarizedNetwork(network, false);
+        Random random = new Random(7);
+
+        for (int n = 0; n < 20; n++) {
+            double[] input = new double[100];
+
+            for (int i = 0; i < input.length; i++) {
+                input[i] = random.nextBoolean() ? 1 : 0;
+            }
+
+            Assert.assertArrayEquals("Exact weights should give the same output as the network",
+                    network.processInput(input), binarized.processInput(input), 0.0);
+        }
+    }
+
+    @Test
+    public void binarizedWeightsWithEqualMagnitudeMatchNetwork() throws Exception {
+        NeuralNetwork network = createThresholdNetwork(100, 70, 5);
+
+        for (Synapse synapse : network.getSynapses()) {
+            Weights weights = (Weights) synapse.getWeights();
+
+            for (int to = 0; to < weights.getToLayerSize(); to++) {
+                for (int from = 0; from < weights.getFromLayerSize(); from++) {
+                    weights.setWeight(from, to, weights.getWeight(from, to) >= 0 ? 0.25 : -0.25);
+                }
+
+                weights.setBias(to, weights.getBias(to) + 0.125);
+            }
+        }
+
+        BinarizedNetwork binarized = new BinarizedNetwork(network, true);
+        Random random = new Random(11);
+
+        for (int n = 0; n < 20; n++) {
+            double[] input = new double[100];
+
+            for (int i = 0; i < input.length; i++) {
+                input[i] = random.nextBoolean() ? 1 : 0;
+            }
+
+            long[] packedInput = new long[BitPacking.words(100)];
+            long[] packedOutput = new long[BitPacking.words(5)];
+            BitPacking.pack(input, packedInput);
+            binarized.processPackedInput(packedInput, packedOutput);
+
+            double[] output = new double[5];
+            BitPacking.unpack(packedOutput, output);
+
+            Assert.assertArrayEquals("Binarized weights of equal magnitude should give the same output as the network",
+                    network.processInput(input), output, 0.0);
+        }
+    }
+
+    @Test
+    public void networkWithoutThresholdLayersDisallowed() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(3, 2).create();
+
+        try {
+            new BinarizedNetwork(network, true);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("BinarizedNetwork should not allow layers other than threshold layers");
+    }
+
+    private void assertTruthTable(BinarizedNetwork network, double[] expected) {
+        for (int i = 0; i < 4; i++) {
+            double[] input = new double[]{i % 2, i < 2 ? 0 : 1};
+            Assert.assertEquals("Output for input " + i + " should match the truth table",
+                    expected[i], network.processInput(input)[0], 0.0);
+        }
+    }
+
+    private NeuralNetwork createThresholdNetwork(int inputs, int hidden, int outputs) {
+        ThresholdLayer input = new ThresholdLayer(inputs);
+        ThresholdLayer hiddenLayer = new ThresholdLayer(hidden);
+        ThresholdLayer output = new ThresholdLayer(outputs);
+
+        ArrayList<Synapse> synapses = new ArrayList<>();
+        synapses.add(new Synapse(input, hiddenLayer, new Weights(inputs, hidden)));
+        synapses.add(new Synapse(hiddenLayer, output, new Weights(hidden, outputs)));
+        synapses.forEach(s -> s.randomiseWeights(1));
+
+        return new NeuralNetwork(synapses);
+    }
+}
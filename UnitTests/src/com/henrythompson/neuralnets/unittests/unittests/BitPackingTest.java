@@ -0,0 +1,62 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.BitPacking;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BitPackingTest {
+
+    @Test
+    public void testPack() throws Exception {
+        Assert.assertEquals("Method pack should set a bit for each value greater than zero",
+                0b1001L, BitPacking.pack(new double[]{0.5, -0.5, 0, 1}));
+
+        double[] values = new double[64];
+        values[63] = 1;
+        Assert.assertEquals("Method pack should use all 64 bits", Long.MIN_VALUE, BitPacking.pack(values));
+    }
+
+    @Test
+    public void packDisallowsTooManyValues() throws Exception {
+        try {
+            BitPacking.pack(new double[65]);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("BitPacking should not allow more than 64 values to be packed");
+    }
+
+    @Test
+    public void testUnpack() throws Exception {
+        double[] values = new double[5];
+        BitPacking.unpack(0b10110L, values);
+
+        Assert.assertArrayEquals("Method unpack should write each bit as 0 or 1",
+                new double[]{0, 1, 1, 0, 1}, values, 0.0);
+    }
+
+    @Test
+    public void testMask() throws Exception {
+        Assert.assertEquals("Method mask should set the lowest bits", 0b111L, BitPacking.mask(3));
+        Assert.assertEquals("Method mask should set no bits for an empty layer", 0L, BitPacking.mask(0));
+        Assert.assertEquals("Method mask should set all 64 bits for a full long", -1L, BitPacking.mask(64));
+    }
+
+    @Test
+    public void testPackIntoWords() throws Exception {
+        double[] values = new double[70];
+        values[0] = 1;
+        values[64] = 1;
+        values[69] = 0.5;
+
+        long[] bits = new long[]{-1, -1};
+        BitPacking.pack(values, bits);
+        Assert.assertArrayEquals("Method pack should spread the bits across words", new long[]{1, 0b100001L}, bits);
+
+        double[] unpacked = new double[70];
+        BitPacking.unpack(bits, unpacked);
+        values[69] = 1;
+        Assert.assertArrayEquals("Method unpack should restore each bit from its word", values, unpacked, 0.0);
+    }
+}
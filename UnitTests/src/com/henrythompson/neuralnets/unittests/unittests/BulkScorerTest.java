@@ -0,0 +1,63 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.BulkScorer;
+import com.henrythompson.neuralnets.InferenceModel;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class BulkScorerTest {
+    private static double[][] createInputs(int count, int size) {
+        double[][] inputs = new double[count][size];
+
+        for (int b = 0; b < count; b++) {
+            for (int i = 0; i < size; i++) {
+                inputs[b][i] = Math.sin(b * size + i);
+            }
+        }
+
+        return inputs;
+    }
+
+    @Test
+    public void scoreReturnsOutputsInInputOrder() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            BulkScorer scorer = new BulkScorer(new InferenceModel(network), pool, 3);
+            double[][] inputs = createInputs(1000, 35);
+            double[][] outputs = scorer.score(inputs);
+
+            Assert.assertEquals("There should be one output per input", inputs.length, outputs.length);
+
+            for (int b = 0; b < inputs.length; b++) {
+                Assert.assertArrayEquals("Output " + b + " should be the output for input " + b,
+                        network.processInput(inputs[b]), outputs[b], 1E-12);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void scoreHandlesEmptyBatch() throws Exception {
+        BulkScorer scorer = new BulkScorer(new InferenceModel(new PerceptronBuilder(6, 3).create()));
+        Assert.assertEquals("An empty batch should give no outputs", 0, scorer.score(new double[0][]).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsNonPositiveThreshold() throws Exception {
+        new BulkScorer(new InferenceModel(new PerceptronBuilder(6, 3).create()), ForkJoinPool.commonPool(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scoreRejectsTooFewOutputs() throws Exception {
+        BulkScorer scorer = new BulkScorer(new InferenceModel(new PerceptronBuilder(6, 3).create()));
+        scorer.score(createInputs(4, 6), new double[3][3]);
+    }
+}
@@ -0,0 +1,101 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.DirectWeights;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.Weights;
+import com.henrythompson.neuralnets.importexport.NeuralNetworkExporter;
+import com.henrythompson.neuralnets.importexport.NeuralNetworkImporter;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+public class DirectWeightsTest {
+
+    @Test
+    public void weightsWithNegativeSizeDisallowed() throws Exception {
+        try {
+            new DirectWeights(-1, -1);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("DirectWeights should not allow instantiation with negative sizes");
+    }
+
+    @Test
+    public void testSetAndGetWeightAndBias() throws Exception {
+        DirectWeights weights = new DirectWeights(3, 4);
+        weights.setWeight(2, 1, 0.5);
+        weights.setBias(3, -0.5);
+
+        Assert.assertEquals("Weight should be set to 0.5", 0.5, weights.getWeight(2, 1), 0.0);
+        Assert.assertEquals("Bias should be set to -0.5", -0.5, weights.getBias(3), 0.0);
+        Assert.assertEquals("Other weights should be unaffected", 0.0, weights.getWeight(1, 2), 0.0);
+    }
+
+    @Test
+    public void getWeightDisallowsIndicesWhichAreTooLarge() {
+        DirectWeights weights = new DirectWeights(3, 3);
+
+        try {
+            weights.getWeight(0, 3);
+        } catch (IndexOutOfBoundsException e) {
+            return;
+        }
+
+        Assert.fail("DirectWeights should disallow getting a weight at an index which is too large");
+    }
+
+    @Test
+    public void testAdjustWeight() throws Exception {
+        DirectWeights weights = new DirectWeights(3, 3);
+        weights.adjustWeight(1, 2, -0.5);
+        weights.adjustWeight(1, 2, -0.25);
+
+        Assert.assertEquals("Method adjustWeight should adjust weight correctly", -0.75, weights.getWeight(1, 2), 0.0);
+    }
+
+    @Test
+    public void kernelsMatchWeights() throws Exception {
+        double[][] values = {{1, 2}, {3, 4}, {5, 6}, {-1, -2}};
+        Weights expected = new Weights(values);
+        DirectWeights actual = new DirectWeights(new Weights(values));
+
+        expected.adjustByOuterProduct(0.5, new double[]{1, 2, 0}, new double[]{2, -1});
+        actual.adjustByOuterProduct(0.5, new double[]{1, 2, 0}, new double[]{2, -1});
+
+        double[] expectedResult = new double[2];
+        double[] actualResult = new double[2];
+        expected.multiply(new double[]{1, 0.5, -1}, expectedResult);
+        actual.multiply(new double[]{1, 0.5, -1}, actualResult);
+        Assert.assertArrayEquals("Method multiply should match Weights", expectedResult, actualResult, 1E-12);
+
+        double[] expectedTransposed = new double[3];
+        double[] actualTransposed = new double[3];
+        expected.multiplyTransposed(new double[]{1, -0.5}, expectedTransposed);
+        actual.multiplyTransposed(new double[]{1, -0.5}, actualTransposed);
+        Assert.assertArrayEquals("Method multiplyTransposed should match Weights",
+                expectedTransposed, actualTransposed, 1E-12);
+    }
+
+    @Test
+    public void importerFillsDirectWeights() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(4, 2).addLayer(3).create();
+        StringWriter writer = new StringWriter();
+        new NeuralNetworkExporter(network, writer).export();
+
+        byte[] xml = writer.toString().getBytes(StandardCharsets.UTF_8);
+        NeuralNetwork imported = new NeuralNetworkImporter(new ByteArrayInputStream(xml), DirectWeights::new).importNetwork();
+
+        Assert.assertTrue("Importer should use the weights factory provided",
+                imported.getSynapse(1).getWeights() instanceof DirectWeights);
+
+        double[] input = new double[]{0.5, -0.5, 0.5, 0.5};
+        Assert.assertArrayEquals("Imported network should produce the same output",
+                network.processInput(input), imported.processInput(input), 1E-12);
+    }
+}
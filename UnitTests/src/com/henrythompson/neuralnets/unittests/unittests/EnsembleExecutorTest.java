@@ -0,0 +1,134 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.EnsembleExecutor;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.VectorMath;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class EnsembleExecutorTest {
+    private static double[] createInput(int size, int seed) {
+        double[] input = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            input[i] = Math.sin(seed * size + i);
+        }
+
+        return input;
+    }
+
+    private static List<NeuralNetwork> createNetworks() {
+        return Arrays.asList(
+                new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create(),
+                new MultiClassifierNetworkBuilder(35, 26).addLayer(12).addLayer(8).create(),
+                new MultiClassifierNetworkBuilder(35, 26).create());
+    }
+
+    @Test
+    public void processInputMatchesEachNetwork() throws Exception {
+        List<NeuralNetwork> networks = createNetworks();
+        EnsembleExecutor ensemble = new EnsembleExecutor(networks);
+        int[] classes = new int[networks.size()];
+
+        for (int seed = 0; seed < 5; seed++) {
+            double[] input = createInput(35, seed);
+            double[][] outputs = ensemble.processInput(input);
+            ensemble.classify(input, classes);
+
+            for (int n = 0; n < networks.size(); n++) {
+                Assert.assertArrayEquals("Output of network " + n + " should match the network",
+                        networks.get(n).processInput(input), outputs[n], 1E-12);
+                Assert.assertEquals("Class chosen by network " + n + " should match the network",
+                        networks.get(n).classify(input), classes[n]);
+            }
+        }
+    }
+
+    @Test
+    public void averageOutputAveragesEachNetwork() throws Exception {
+        List<NeuralNetwork> networks = createNetworks();
+        EnsembleExecutor ensemble = new EnsembleExecutor(networks);
+        double[] input = createInput(35, 3);
+        double[] expected = new double[26];
+
+        for (NeuralNetwork network : networks) {
+            double[] output = network.processInput(input);
+
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] += output[i] / networks.size();
+            }
+        }
+
+        Assert.assertArrayEquals("Average output should be the mean of each network's output",
+                expected, ensemble.averageOutput(input), 1E-12);
+    }
+
+    @Test
+    public void majorityVoteChoosesMostCommonClass() throws Exception {
+        NeuralNetwork first = new PerceptronBuilder(2, 3).useSigmoidOutputLayer(true).create();
+        NeuralNetwork second = new PerceptronBuilder(2, 3).useSigmoidOutputLayer(true).create();
+        NeuralNetwork third = new PerceptronBuilder(2, 3).useSigmoidOutputLayer(true).create();
+
+        first.getSynapse(0).getWeights().setBias(2, 5);
+        second.getSynapse(0).getWeights().setBias(1, 5);
+        third.getSynapse(0).getWeights().setBias(2, 5);
+
+        EnsembleExecutor ensemble = new EnsembleExecutor(Arrays.asList(first, second, third));
+        Assert.assertEquals("Two of three networks choose class 2", 2, ensemble.majorityVote(new double[2]));
+
+        double[] average = ensemble.averageOutput(new double[2]);
+        Assert.assertEquals("Averaged outputs should agree with the vote", 2, VectorMath.argmax(average, average.length));
+    }
+
+    @Test
+    public void classifyBatchMatchesEachNetwork() throws Exception {
+        // The second ensemble's inputs are too many to be packed
+        List<List<NeuralNetwork>> ensembles = Arrays.asList(createNetworks(), Arrays.asList(
+                new PerceptronBuilder(70, 3).useSigmoidOutputLayer(true).create(),
+                new PerceptronBuilder(70, 3).create()));
+
+        for (List<NeuralNetwork> networks : ensembles) {
+            int inputSize = networks.get(0).getInputLayer().size();
+            double[][] inputs = new double[7][];
+
+            for (int b = 0; b < inputs.length; b++) {
+                inputs[b] = createInput(inputSize, b);
+            }
+
+            int[][] classes = new EnsembleExecutor(networks).classifyBatch(inputs);
+
+            for (int n = 0; n < networks.size(); n++) {
+                Assert.assertArrayEquals("Classes chosen by network " + n + " should match the network",
+                        networks.get(n).classifyBatch(inputs), classes[n]);
+            }
+        }
+    }
+
+    @Test
+    public void canShareInputLayerChecksTypeAndSize() throws Exception {
+        Assert.assertTrue("Networks with matching input layers should share one",
+                EnsembleExecutor.canShareInputLayer(createNetworks()));
+        Assert.assertFalse("Networks with different input sizes should not share one",
+                EnsembleExecutor.canShareInputLayer(Arrays.asList(
+                        new PerceptronBuilder(6, 3).create(), new PerceptronBuilder(5, 3).create())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsDifferentInputSizes() throws Exception {
+        new EnsembleExecutor(Arrays.asList(
+                new MultiClassifierNetworkBuilder(35, 26).create(),
+                new MultiClassifierNetworkBuilder(30, 26).create()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void majorityVoteRejectsDifferentOutputSizes() throws Exception {
+        new EnsembleExecutor(Arrays.asList(
+                new MultiClassifierNetworkBuilder(35, 26).create(),
+                new MultiClassifierNetworkBuilder(35, 10).create())).majorityVote(new double[35]);
+    }
+}
@@ -0,0 +1,84 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.ExecutionPlan;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.Synapse;
+import com.henrythompson.neuralnets.Weights;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class ExecutionPlanTest {
+    /** A MockLayer which counts how many times its activation function is performed */
+    private static class CountingLayer extends MockLayer {
+        private int mActivations;
+
+        CountingLayer(int size) {
+            super(size);
+        }
+
+        @Override
+        public double[] activationFunction(double[] netInputs) {
+            mActivations++;
+            return super.activationFunction(netInputs);
+        }
+
+        int getActivations() {
+            return mActivations;
+        }
+    }
+
+    @Test
+    public void runEvaluatesEachLayerOnce() throws Exception {
+        CountingLayer input = new CountingLayer(2);
+        CountingLayer hidden = new CountingLayer(3);
+        CountingLayer output = new CountingLayer(2);
+
+        ArrayList<Synapse> synapses = new ArrayList<>();
+        synapses.add(new Synapse(input, hidden, new Weights(2, 3)));
+        synapses.add(new Synapse(hidden, output, new Weights(3, 2)));
+
+        new NeuralNetwork(synapses).processInput(new double[]{1, 2});
+
+        Assert.assertEquals("Input layer should be evaluated once", 1, input.getActivations());
+        Assert.assertEquals("Hidden layer should be evaluated once", 1, hidden.getActivations());
+        Assert.assertEquals("Output layer should be evaluated once", 1, output.getActivations());
+    }
+
+    @Test
+    public void runMatchesOutputListeners() throws Exception {
+        MockLayer input = new MockLayer(2);
+        MockLayer hidden = new MockLayer(3);
+        MockLayer output = new MockLayer(2);
+
+        ArrayList<Synapse> synapses = new ArrayList<>();
+        synapses.add(new Synapse(input, hidden, new Weights(new double[][]{{1, 2, 3}, {-1, 0, 1}, {0.5, 0.5, 0.5}})));
+        synapses.add(new Synapse(hidden, output, new Weights(new double[][]{{1, 0}, {0, 1}, {1, 1}, {0, -1}})));
+
+        ExecutionPlan plan = new ExecutionPlan(synapses);
+        double[] planned = plan.run(new double[]{1, 2}).clone();
+
+        input.processInput(new double[]{1, 2});
+
+        Assert.assertArrayEquals("Plan should give the same output as notifying the output listeners",
+                output.getLastOutput(), planned, 0.0);
+        Assert.assertEquals("Plan should hold every layer", 3, plan.getLayerCount());
+        Assert.assertSame("Zeroth layer should be the input layer", input, plan.getLayer(0));
+    }
+
+    @Test
+    public void brokenChainDisallowed() throws Exception {
+        ArrayList<Synapse> synapses = new ArrayList<>();
+        synapses.add(new Synapse(new MockLayer(2), new MockLayer(3), new Weights(2, 3)));
+        synapses.add(new Synapse(new MockLayer(3), new MockLayer(2), new Weights(3, 2)));
+
+        try {
+            new ExecutionPlan(synapses);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("ExecutionPlan should not allow synapses which do not form a chain");
+    }
+}
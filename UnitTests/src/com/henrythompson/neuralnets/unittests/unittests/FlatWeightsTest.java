@@ -0,0 +1,230 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.FlatWeights;
+import com.henrythompson.neuralnets.Weights;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FlatWeightsTest {
+
+    @Test
+    public void weightsWithNegativeSizeDisallowed() throws Exception {
+        try {
+            new FlatWeights(-1, -1);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("FlatWeights should not allow instantiation with negative sizes");
+    }
+
+    @Test
+    public void testSetAndGetWeight() throws Exception {
+        FlatWeights weights = new FlatWeights(3, 4);
+        weights.setWeight(2, 1, 0.5);
+
+        Assert.assertEquals("Weight should be set to 0.5", 0.5, weights.getWeight(2, 1), 0.0);
+        Assert.assertEquals("Other weights should be unaffected", 0.0, weights.getWeight(1, 2), 0.0);
+    }
+
+    @Test
+    public void testSetAndGetBias() throws Exception {
+        FlatWeights weights = new FlatWeights(3, 4);
+        weights.setBias(3, 0.5);
+
+        Assert.assertEquals("Bias should be set to 0.5", 0.5, weights.getBias(3), 0.0);
+        Assert.assertEquals("Bias should be held as the final from neuron weight",
+                0.5, weights.getWeight(3, 3), 0.0);
+    }
+
+    @Test
+    public void getWeightDisallowsIndicesWhichAreTooLarge() {
+        FlatWeights weights = new FlatWeights(3, 3);
+
+        try {
+            weights.getWeight(0, 3);
+        } catch (IndexOutOfBoundsException e) {
+            return;
+        }
+
+        Assert.fail("FlatWeights should disallow getting a weight at an index which is too large");
+    }
+
+    @Test
+    public void getBiasDisallowsNegativeIndices() {
+        FlatWeights weights = new FlatWeights(3, 3);
+
+        try {
+            weights.getBias(-1);
+        } catch (IndexOutOfBoundsException e) {
+            return;
+        }
+
+        Assert.fail("FlatWeights should disallow getting a bias at an index which is negative");
+    }
+
+    @Test
+    public void testAdjustWeight() throws Exception {
+        FlatWeights weights = new FlatWeights(3, 3);
+        weights.adjustWeight(1, 2, -0.5);
+        weights.adjustWeight(1, 2, -0.25);
+
+        Assert.assertEquals("Method adjustWeight should adjust weight correctly", -0.75, weights.getWeight(1, 2), 0.0);
+    }
+
+    @Test
+    public void testLayerSizes() throws Exception {
+        FlatWeights weights = new FlatWeights(3, 4);
+
+        Assert.assertEquals("Method getFromLayerSize should return supplied from layer size",
+                3, weights.getFromLayerSize());
+        Assert.assertEquals("Method getToLayerSize should return supplied to layer size",
+                4, weights.getToLayerSize());
+    }
+
+    @Test
+    public void arrayConstructorMatchesWeights() throws Exception {
+        double[][] values = {{1, 2}, {3, 4}, {5, 6}, {-1, -2}};
+        Weights expected = new Weights(values);
+        FlatWeights actual = new FlatWeights(values);
+
+        assertSameWeights(expected, actual);
+    }
+
+    @Test
+    public void copyConstructorMatchesWeights() throws Exception {
+        Weights expected = new Weights(4, 3);
+        expected.randomize(1.0);
+
+        assertSameWeights(expected, new FlatWeights(expected));
+    }
+
+    @Test
+    public void testToNeuronWeights() throws Exception {
+        FlatWeights weights = new FlatWeights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[] row = new double[3];
+
+        weights.getToNeuronWeights(1, row);
+        Assert.assertArrayEquals("getToNeuronWeights should return all weights into the neuron",
+                new double[]{2, 4, 6}, row, 0.0);
+
+        weights.setToNeuronWeights(1, new double[]{7, 8, 9});
+        Assert.assertEquals("setToNeuronWeights should set all weights into the neuron", 8, weights.getWeight(1, 1), 0.0);
+        Assert.assertEquals("setToNeuronWeights should not alter the bias", -2, weights.getBias(1), 0.0);
+    }
+
+    @Test
+    public void testFromNeuronWeights() throws Exception {
+        FlatWeights weights = new FlatWeights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[] column = new double[2];
+
+        weights.getFromNeuronWeights(2, column);
+        Assert.assertArrayEquals("getFromNeuronWeights should return all weights out of the neuron",
+                new double[]{5, 6}, column, 0.0);
+
+        weights.setFromNeuronWeights(3, new double[]{0.5, 0.25});
+        Assert.assertEquals("setFromNeuronWeights on the final index should set the biases", 0.25, weights.getBias(1), 0.0);
+    }
+
+    @Test
+    public void testRandomize() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            FlatWeights weights = new FlatWeights(1, 2);
+            double amplitude = 3 * Math.random();
+            weights.randomize(amplitude);
+
+            Assert.assertNotEquals("Weights should (statistically) not be exactly zero",
+                    weights.getWeight(0, 0), 0.0, 0.0);
+            Assert.assertTrue("Weights should be less than amplitude", Math.abs(weights.getWeight(0, 1)) < amplitude);
+            Assert.assertTrue("Biases should be less than amplitude", Math.abs(weights.getBias(1)) < amplitude);
+        }
+    }
+
+    @Test
+    public void testMultiply() throws Exception {
+        FlatWeights weights = new FlatWeights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[] netInputs = new double[]{9, 9};
+
+        weights.multiply(new double[]{1, 0.5, -1}, netInputs);
+        Assert.assertArrayEquals("Method multiply should weight and sum the inputs, then add the biases",
+                new double[]{-3.5, -4.0}, netInputs, 1E-12);
+    }
+
+    @Test
+    public void testMultiplyBatch() throws Exception {
+        FlatWeights weights = new FlatWeights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[][] netInputs = new double[][]{{9, 9}, {9, 9}, {9, 9}};
+
+        weights.multiplyBatch(new double[][]{{1, 0.5, -1}, {0, 0, 0}, {7, 7, 7}}, netInputs, 2);
+        Assert.assertArrayEquals("Method multiplyBatch should multiply the first sample",
+                new double[]{-3.5, -4.0}, netInputs[0], 1E-12);
+        Assert.assertArrayEquals("Method multiplyBatch should multiply the second sample",
+                new double[]{-1, -2}, netInputs[1], 1E-12);
+        Assert.assertArrayEquals("Method multiplyBatch should ignore samples beyond the batch size",
+                new double[]{9, 9}, netInputs[2], 0.0);
+    }
+
+    @Test
+    public void testMultiplyPacked() throws Exception {
+        FlatWeights weights = new FlatWeights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[] netInputs = new double[]{9, 9};
+
+        weights.multiplyPacked(0b101L, netInputs);
+        Assert.assertArrayEquals("Method multiplyPacked should add the weights of each set bit to the biases",
+                new double[]{5, 6}, netInputs, 1E-12);
+    }
+
+    @Test
+    public void testMultiplyTransposed() throws Exception {
+        FlatWeights weights = new FlatWeights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[] result = new double[]{9, 9, 9};
+
+        weights.multiplyTransposed(new double[]{1, -0.5}, result);
+        Assert.assertArrayEquals("Method multiplyTransposed should ignore the biases",
+                new double[]{0, 1, 2}, result, 1E-12);
+    }
+
+    @Test
+    public void testAdjustByOuterProduct() throws Exception {
+        FlatWeights weights = new FlatWeights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+
+        weights.adjustByOuterProduct(0.5, new double[]{1, 2, 0}, new double[]{2, -1});
+        Assert.assertEquals("Weight should be adjusted by scale * from * to", 2.0, weights.getWeight(0, 0), 1E-12);
+        Assert.assertEquals("Weight should be adjusted by scale * from * to", 3.0, weights.getWeight(1, 1), 1E-12);
+        Assert.assertEquals("Weight should be unchanged when from value is zero", 6.0, weights.getWeight(2, 1), 1E-12);
+        Assert.assertEquals("Bias should be adjusted by scale * to", -2.5, weights.getBias(1), 1E-12);
+    }
+
+    private void assertSameWeights(Weights expected, FlatWeights actual) {
+        Assert.assertEquals("From layer sizes should match", expected.getFromLayerSize(), actual.getFromLayerSize());
+        Assert.assertEquals("To layer sizes should match", expected.getToLayerSize(), actual.getToLayerSize());
+
+        for (int to = 0; to < expected.getToLayerSize(); to++) {
+            for (int from = 0; from < expected.getFromLayerSize(); from++) {
+                Assert.assertEquals("Weights should match", expected.getWeight(from, to), actual.getWeight(from, to), 0.0);
+            }
+
+            Assert.assertEquals("Biases should match", expected.getBias(to), actual.getBias(to), 0.0);
+        }
+    }
+
+    @Test
+    public void testModificationCount() throws Exception {
+        FlatWeights weights = new FlatWeights(2, 2);
+        long count = weights.getModificationCount();
+
+        weights.setWeight(0, 1, 0.5);
+        Assert.assertTrue("Setting a weight should increase the modification count",
+                weights.getModificationCount() > count);
+
+        count = weights.getModificationCount();
+        weights.adjustByOuterProduct(0.1, new double[]{1, 2}, new double[]{1, 1});
+        Assert.assertTrue("Adjusting by an outer product should increase the modification count",
+                weights.getModificationCount() > count);
+
+        count = weights.getModificationCount();
+        weights.multiply(new double[]{1, 2}, new double[2]);
+        Assert.assertEquals("Multiplying should not change the modification count",
+                count, weights.getModificationCount());
+    }
+}
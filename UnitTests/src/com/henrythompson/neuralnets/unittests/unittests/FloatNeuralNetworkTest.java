@@ -0,0 +1,104 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.FloatNeuralNetwork;
+import com.henrythompson.neuralnets.FloatWeights;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.importexport.NeuralNetworkExporter;
+import com.henrythompson.neuralnets.importexport.NeuralNetworkImporter;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+public class FloatNeuralNetworkTest {
+
+    @Test
+    public void outputMatchesDoublePrecisionNetwork() throws Exception {
+        NeuralNetwork network = createNetwork();
+        FloatNeuralNetwork floatNetwork = new FloatNeuralNetwork(network);
+
+        for (int i = 0; i < 20; i++) {
+            double[] input = randomInput();
+            assertOutputsMatch(network.processInput(input), floatNetwork.processInput(toFloats(input)));
+        }
+    }
+
+    @Test
+    public void processInputRejectsIncorrectlySizedInput() throws Exception {
+        FloatNeuralNetwork network = new FloatNeuralNetwork(createNetwork());
+
+        try {
+            network.processInput(new float[4]);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("FloatNeuralNetwork should throw IllegalArgumentException when input of incorrect length processed");
+    }
+
+    @Test
+    public void importFloatNetworkMatchesExportedNetwork() throws Exception {
+        NeuralNetwork network = createNetwork();
+        StringWriter writer = new StringWriter();
+        new NeuralNetworkExporter(network, writer).export();
+
+        byte[] xml = writer.toString().getBytes(StandardCharsets.UTF_8);
+        FloatNeuralNetwork imported = new NeuralNetworkImporter(new ByteArrayInputStream(xml)).importFloatNetwork();
+
+        Assert.assertEquals("Imported network should have the same input size", 5, imported.getInputSize());
+        Assert.assertEquals("Imported network should have the same output size", 3, imported.getOutputSize());
+
+        double[] input = randomInput();
+        assertOutputsMatch(network.processInput(input), imported.processInput(toFloats(input)));
+    }
+
+    @Test
+    public void floatWeightsAreShared() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(5, 3)
+                .addLayer(4)
+                .setWeightsFactory(FloatWeights::new)
+                .create();
+
+        Assert.assertSame("Existing FloatWeights should be shared rather than copied",
+                network.getSynapse(0).getWeights(), new FloatNeuralNetwork(network).getWeights(0));
+    }
+
+    private NeuralNetwork createNetwork() {
+        return new MultiClassifierNetworkBuilder(5, 3)
+                .addLayer(4)
+                .setRandomizationAmplitude(1.0)
+                .create();
+    }
+
+    private double[] randomInput() {
+        double[] input = new double[5];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = Math.random() - 0.5;
+        }
+
+        return input;
+    }
+
+    private float[] toFloats(double[] values) {
+        float[] result = new float[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+
+        return result;
+    }
+
+    private void assertOutputsMatch(double[] expected, float[] actual) {
+        Assert.assertEquals("Outputs should have the same length", expected.length, actual.length);
+
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals("Single-precision output should closely match double-precision output",
+                    expected[i], actual[i], 1E-5);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.FloatWeights;
+import com.henrythompson.neuralnets.Weights;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FloatWeightsTest {
+
+    @Test
+    public void weightsWithNegativeSizeDisallowed() throws Exception {
+        try {
+            new FloatWeights(-1, -1);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("FloatWeights should not allow instantiation with negative sizes");
+    }
+
+    @Test
+    public void testSetAndGetWeight() throws Exception {
+        FloatWeights weights = new FloatWeights(3, 4);
+        weights.setWeight(2, 1, 0.1);
+
+        Assert.assertEquals("Weight should be rounded to single precision", 0.1f, weights.getWeight(2, 1), 0.0);
+        Assert.assertEquals("Other weights should be unaffected", 0.0, weights.getWeight(1, 2), 0.0);
+    }
+
+    @Test
+    public void testSetAndGetBias() throws Exception {
+        FloatWeights weights = new FloatWeights(3, 4);
+        weights.setBias(3, 0.5);
+
+        Assert.assertEquals("Bias should be set to 0.5", 0.5, weights.getBias(3), 0.0);
+    }
+
+    @Test
+    public void getBiasDisallowsIndicesWhichAreTooLarge() {
+        FloatWeights weights = new FloatWeights(3, 3);
+
+        try {
+            weights.getBias(3);
+        } catch (IndexOutOfBoundsException e) {
+            return;
+        }
+
+        Assert.fail("FloatWeights should disallow getting a bias at an index which is too large");
+    }
+
+    @Test
+    public void copyConstructorRoundsWeights() throws Exception {
+        Weights original = new Weights(new double[][]{{0.1, 2}, {3, 4}, {-0.3, -2}});
+        FloatWeights copy = new FloatWeights(original);
+
+        Assert.assertEquals("Copied weights should be rounded to single precision", 0.1f, copy.getWeight(0, 0), 0.0);
+        Assert.assertEquals("Copied biases should be rounded to single precision", -0.3f, copy.getBias(0), 0.0);
+        Assert.assertEquals("Copied weights should keep their position", 4, copy.getWeight(1, 1), 0.0);
+    }
+
+    @Test
+    public void testFloatMultiply() throws Exception {
+        FloatWeights weights = new FloatWeights(new Weights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}}));
+        float[] netInputs = new float[2];
+
+        weights.multiply(new float[]{1, 0.5f, -1}, netInputs);
+        Assert.assertArrayEquals("Method multiply should weight and sum the inputs, then add the biases",
+                new float[]{-3.5f, -4.0f}, netInputs, 1E-6f);
+    }
+
+    @Test
+    public void testDoubleKernelsMatchWeights() throws Exception {
+        double[][] values = {{1, 2}, {3, 4}, {5, 6}, {-1, -2}};
+        Weights expected = new Weights(values);
+        FloatWeights actual = new FloatWeights(new Weights(values));
+
+        double[] expectedResult = new double[2];
+        double[] actualResult = new double[2];
+        expected.multiply(new double[]{1, 0.5, -1}, expectedResult);
+        actual.multiply(new double[]{1, 0.5, -1}, actualResult);
+        Assert.assertArrayEquals("Method multiply should match Weights", expectedResult, actualResult, 1E-6);
+
+        expected.adjustByOuterProduct(0.5, new double[]{1, 2, 0}, new double[]{2, -1});
+        actual.adjustByOuterProduct(0.5, new double[]{1, 2, 0}, new double[]{2, -1});
+
+        double[] expectedTransposed = new double[3];
+        double[] actualTransposed = new double[3];
+        expected.multiplyTransposed(new double[]{1, -0.5}, expectedTransposed);
+        actual.multiplyTransposed(new double[]{1, -0.5}, actualTransposed);
+        Assert.assertArrayEquals("Methods adjustByOuterProduct and multiplyTransposed should match Weights",
+                expectedTransposed, actualTransposed, 1E-6);
+        Assert.assertEquals("Biases should be adjusted to match Weights", expected.getBias(1), actual.getBias(1), 1E-6);
+    }
+}
@@ -0,0 +1,192 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.InferenceContext;
+import com.henrythompson.neuralnets.InferenceModel;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class InferenceModelTest {
+    private static double[] createInput(int size, int seed) {
+        double[] input = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            input[i] = Math.sin(seed * size + i);
+        }
+
+        return input;
+    }
+
+    /**
+     * Creates a model and processes an input with it on the calling thread,
+     * so that the thread caches a context for it
+     * @return A weak reference to the model, which is otherwise unreachable
+     */
+    private static WeakReference<InferenceModel> useModelOnThisThread() {
+        InferenceModel model = new InferenceModel(new PerceptronBuilder(6, 3).useSigmoidOutputLayer(true).create());
+        model.processInput(createInput(6, 0));
+
+        return new WeakReference<>(model);
+    }
+
+    @Test
+    public void processInputMatchesNetwork() throws Exception {
+        NeuralNetwork threshold = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        NeuralNetwork sigmoid = new PerceptronBuilder(6, 3).useSigmoidOutputLayer(true).create();
+        InferenceModel thresholdModel = new InferenceModel(threshold);
+        InferenceModel sigmoidModel = new InferenceModel(sigmoid);
+
+        for (int seed = 0; seed < 5; seed++) {
+            double[] input = createInput(35, seed);
+            Assert.assertArrayEquals("Model should give the same output as the threshold network",
+                    threshold.processInput(input), thresholdModel.processInput(input), 1E-12);
+
+            input = createInput(6, seed);
+            Assert.assertArrayEquals("Model should give the same output as the sigmoid network",
+                    sigmoid.processInput(input), sigmoidModel.processInput(input), 1E-12);
+        }
+    }
+
+    @Test
+    public void modelIsUnaffectedByLaterTraining() throws Exception {
+        NeuralNetwork network = new PerceptronBuilder(6, 3).useSigmoidOutputLayer(true).create();
+        InferenceModel model = new InferenceModel(network);
+        double[] input = createInput(6, 1);
+        double[] expected = network.processInput(input);
+
+        network.getSynapse(0).getWeights().randomize(5);
+
+        Assert.assertArrayEquals("Changing the network's weights should not change the model",
+                expected, model.processInput(input), 1E-12);
+    }
+
+    @Test
+    public void callerOwnedContextMatchesThreadContext() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(10, 4).addLayer(8).create();
+        InferenceModel model = new InferenceModel(network);
+        InferenceContext context = model.newContext();
+        double[] output = new double[model.getOutputSize()];
+        double[] input = createInput(10, 2);
+
+        model.processInput(input, output, context);
+
+        Assert.assertArrayEquals("A caller-owned context should give the same output as the thread's own context",
+                model.processInput(input), output, 0.0);
+    }
+
+    @Test
+    public void processBatchMatchesProcessInput() throws Exception {
+        NeuralNetwork threshold = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        NeuralNetwork sigmoid = new PerceptronBuilder(6, 3).useSigmoidOutputLayer(true).create();
+
+        for (NeuralNetwork network : new NeuralNetwork[]{threshold, sigmoid}) {
+            InferenceModel model = new InferenceModel(network);
+            InferenceContext context = model.newContext();
+            int inputSize = model.getInputSize();
+
+            // The second batch is larger than the first so the buffers must grow
+            for (int batchSize : new int[]{3, 7}) {
+                double[][] inputs = new double[batchSize + 1][];
+                double[][] outputs = new double[batchSize + 1][model.getOutputSize()];
+
+                for (int b = 0; b < inputs.length; b++) {
+                    inputs[b] = createInput(inputSize, b + batchSize);
+                }
+
+                model.processBatch(inputs, outputs, batchSize, context);
+
+                for (int b = 0; b < batchSize; b++) {
+                    Assert.assertArrayEquals("Each output in the batch should match processing its input alone",
+                            model.processInput(inputs[b]), outputs[b], 1E-12);
+                }
+
+                Assert.assertArrayEquals("Inputs beyond the batch size should be left alone",
+                        new double[model.getOutputSize()], outputs[batchSize], 0);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void processInputRejectsOtherModelsContext() throws Exception {
+        NeuralNetwork network = new PerceptronBuilder(6, 3).create();
+        InferenceModel model = new InferenceModel(network);
+        InferenceContext other = new InferenceModel(network).newContext();
+
+        model.processInput(new double[6], new double[3], other);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void processInputRejectsWrongSize() throws Exception {
+        new InferenceModel(new PerceptronBuilder(6, 3).create()).processInput(new double[5]);
+    }
+
+    @Test
+    public void threadsShareOneModel() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        InferenceModel model = new InferenceModel(network);
+        double[][] expected = new double[16][];
+
+        for (int seed = 0; seed < expected.length; seed++) {
+            expected[seed] = network.processInput(createInput(35, seed));
+        }
+
+        AtomicReference<AssertionError> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int repeat = 0; repeat < 200; repeat++) {
+                    for (int seed = 0; seed < expected.length; seed++) {
+                        try {
+                            Assert.assertArrayEquals("Each thread should see the same output",
+                                    expected[seed], model.processInput(createInput(35, seed)), 1E-12);
+                        } catch (AssertionError e) {
+                            failure.set(e);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    @Test
+    public void classifyMatchesNetwork() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        InferenceModel model = new InferenceModel(network);
+        InferenceContext context = model.newContext();
+
+        for (int seed = 0; seed < 5; seed++) {
+            double[] input = createInput(35, seed);
+            Assert.assertEquals("Model should classify in the same way as the network",
+                    network.classify(input), model.classify(input));
+            Assert.assertEquals("A caller-owned context should classify in the same way",
+                    network.classify(input), model.classify(input, context));
+        }
+    }
+
+    @Test
+    public void modelIsCollectableWhileThreadWhichUsedItLives() throws Exception {
+        WeakReference<InferenceModel> model = useModelOnThisThread();
+
+        for (int attempt = 0; attempt < 100 && model.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        Assert.assertNull("A thread's cached context should not keep its model reachable", model.get());
+    }
+}
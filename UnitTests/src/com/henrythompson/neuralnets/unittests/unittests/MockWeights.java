@@ -1,7 +1,6 @@
 package com.henrythompson.neuralnets.unittests.unittests;
 
 import com.henrythompson.neuralnets.IWeights;
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 public class MockWeights implements IWeights {
     private final int mFromLayerSize;
@@ -21,7 +20,7 @@ public class MockWeights implements IWeights {
 
     @Override
     public void setWeight(int fromNeuronIndex, int toNeuronIndex, double weight) {
-        throw new NotImplementedException();
+        throw new UnsupportedOperationException();
     }
 
     @Override
@@ -31,12 +30,12 @@ public class MockWeights implements IWeights {
 
     @Override
     public void setBias(int toNeuronIndex, double bias) {
-        throw new NotImplementedException();
+        throw new UnsupportedOperationException();
     }
 
     @Override
     public void adjustWeight(int fromIndex, int toIndex, double delta) {
-        throw new NotImplementedException();
+        throw new UnsupportedOperationException();
     }
 
     @Override
@@ -1,11 +1,16 @@
 package com.henrythompson.neuralnets.unittests.unittests;
 
+import com.henrythompson.neuralnets.BitPacking;
 import com.henrythompson.neuralnets.NeuralNetwork;
 import com.henrythompson.neuralnets.Synapse;
+import com.henrythompson.neuralnets.VectorMath;
 import com.henrythompson.neuralnets.layers.AbstractLayer;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 
 public class NeuralNetworkTest {
@@ -122,4 +127,173 @@ public class NeuralNetworkTest {
                 layers, holder.network.getLayers());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void processPackedInputMatchesProcessInput() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        double[] input = new double[35];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i % 3 == 0 ? 0.5 : -0.5;
+        }
+
+        double[] expected = network.processInput(input).clone();
+
+        Assert.assertTrue("Network with threshold input layer should support packed input", network.supportsPackedInput());
+        Assert.assertArrayEquals("Packed input should give the same output as the unpacked input",
+                expected, network.processPackedInput(BitPacking.pack(input)), 1E-12);
+    }
+
+    @Test
+    public void processPackedInputDisallowedWithoutThresholdInputLayer() throws Exception {
+        NeuralNetwork network = createNeuralNetwork().network;
+
+        try {
+            network.processPackedInput(0b101L);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("NeuralNetwork should not allow packed input unless the input layer is a threshold layer");
+    }
+
+    @Test
+    public void processPackedInputRejectsBitsBeyondInputLayer() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+
+        try {
+            network.processPackedInput(0b101L | 1L << 35);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("NeuralNetwork should not allow a packed input with a bit beyond the input layer");
+    }
+
+    @Test
+    public void processInputIntoBufferAllocatesNothing() throws Exception {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(40).create();
+        double[] input = new double[35];
+        double[] output = new double[26];
+
+        for (int i = 0; i < 20000; i++) {
+            input[i % 35] = i % 3 == 0 ? 0.5 : -0.5;
+            network.processInput(input, output);
+        }
+
+        int calls = 10000;
+        long before = threads.getThreadAllocatedBytes(thread);
+
+        for (int i = 0; i < calls; i++) {
+            input[i % 35] = i % 3 == 0 ? 0.5 : -0.5;
+            network.processInput(input, output);
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        Assert.assertTrue("processInput into a buffer should not allocate once warmed up, but allocated "
+                + allocated + " bytes over " + calls + " calls", allocated < calls);
+    }
+
+    @Test
+    public void processBatchMatchesProcessInput() throws Exception {
+        assertBatchMatches(new MultiClassifierNetworkBuilder(35, 26).addLayer(20).addLayer(10).create(), 35);
+        assertBatchMatches(new PerceptronBuilder(6, 3).useSigmoidOutputLayer(true).create(), 6);
+    }
+
+    private void assertBatchMatches(NeuralNetwork network, int inputSize) {
+        double[][] inputs = new double[5][inputSize];
+
+        for (int b = 0; b < inputs.length; b++) {
+            for (int i = 0; i < inputSize; i++) {
+                inputs[b][i] = Math.sin(b * inputSize + i);
+            }
+        }
+
+        double[][] outputs = network.processBatch(inputs);
+
+        for (int b = 0; b < inputs.length; b++) {
+            Assert.assertArrayEquals("Batch output " + b + " should match processing the input alone",
+                    network.processInput(inputs[b]), outputs[b], 1E-12);
+        }
+    }
+
+    @Test
+    public void classifyMatchesLargestOutput() throws Exception {
+        NeuralNetwork softmax = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        NeuralNetwork threshold = new PerceptronBuilder(6, 3).create();
+        threshold.getSynapse(0).getWeights().randomize(1);
+
+        double[][] softmaxInputs = new double[10][35];
+        double[][] thresholdInputs = new double[10][6];
+
+        for (int b = 0; b < 10; b++) {
+            for (int i = 0; i < 35; i++) {
+                softmaxInputs[b][i] = Math.sin(b * 35 + i);
+            }
+
+            for (int i = 0; i < 6; i++) {
+                thresholdInputs[b][i] = Math.cos(b * 6 + i);
+            }
+        }
+
+        int[] softmaxClasses = softmax.classifyBatch(softmaxInputs);
+        int[] thresholdClasses = threshold.classifyBatch(thresholdInputs);
+
+        for (int b = 0; b < 10; b++) {
+            double[] output = softmax.processInput(softmaxInputs[b]);
+            Assert.assertEquals("Classify should find the largest softmax output",
+                    VectorMath.argmax(output, output.length), softmax.classify(softmaxInputs[b]));
+            Assert.assertEquals("Batch classification should match classify",
+                    softmax.classify(softmaxInputs[b]), softmaxClasses[b]);
+
+            output = threshold.processInput(thresholdInputs[b]);
+            Assert.assertEquals("Classify should find the largest threshold output",
+                    VectorMath.argmax(output, output.length), threshold.classify(thresholdInputs[b]));
+            Assert.assertEquals("Batch classification should match classify",
+                    threshold.classify(thresholdInputs[b]), thresholdClasses[b]);
+        }
+    }
+
+    @Test
+    public void topKReturnsLargestOutputs() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        double[] input = new double[35];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = Math.sin(i);
+        }
+
+        double[] output = network.processInput(input);
+        double[] scores = new double[3];
+        int[] top = network.topK(input, 3);
+
+        Assert.assertArrayEquals("topK with scores should find the same neurons as without",
+                top, network.topK(input, 3, scores));
+        Assert.assertEquals("The first neuron should be the class", network.classify(input), top[0]);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("Each score should be the output of its neuron", output[top[i]], scores[i], 1E-12);
+        }
+
+        Assert.assertTrue("Scores should be in descending order", scores[0] >= scores[1] && scores[1] >= scores[2]);
+
+        for (int j = 0; j < output.length; j++) {
+            if (j != top[0] && j != top[1] && j != top[2]) {
+                Assert.assertTrue("No other output should be larger than the third", output[j] <= scores[2]);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void topKRejectsTooLargeK() throws Exception {
+        new PerceptronBuilder(6, 3).create().topK(new double[6], 4);
+    }
+}
@@ -0,0 +1,116 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.FlatWeights;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.PredictionCache;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class PredictionCacheTest {
+    private static NeuralNetwork createNetwork() {
+        NeuralNetwork network = new PerceptronBuilder(4, 3).useSigmoidOutputLayer(true).create();
+        network.getSynapse(0).getWeights().randomize(1);
+
+        return network;
+    }
+
+    @Test
+    public void processInputCachesOutputs() throws Exception {
+        NeuralNetwork network = createNetwork();
+        PredictionCache cache = new PredictionCache(network, 10);
+        double[] input = new double[]{1, 0, 0.5, -1};
+        double[] expected = network.processInput(input);
+
+        Assert.assertArrayEquals("First output should come from the network", expected, cache.processInput(input), 0.0);
+
+        double[] cached = cache.processInput(new double[]{1, 0, 0.5, -1});
+        Assert.assertArrayEquals("Repeated input should give the same output", expected, cached, 0.0);
+        Assert.assertEquals("Repeated input should be a hit", 1, cache.getHitCount());
+        Assert.assertEquals("First input should be a miss", 1, cache.getMissCount());
+
+        cached[0] = 42;
+        input[0] = 7;
+        Assert.assertArrayEquals("Modifying returned outputs and inputs should not affect the cache",
+                expected, cache.processInput(new double[]{1, 0, 0.5, -1}), 0.0);
+        Assert.assertEquals("Unmodified input should still be a hit", 2, cache.getHitCount());
+    }
+
+    @Test
+    public void processInputEvictsLeastRecentlyUsed() throws Exception {
+        PredictionCache cache = new PredictionCache(createNetwork(), 2);
+        double[] a = new double[]{1, 0, 0, 0};
+        double[] b = new double[]{0, 1, 0, 0};
+        double[] c = new double[]{0, 0, 1, 0};
+
+        cache.processInput(a);
+        cache.processInput(b);
+        cache.processInput(a);
+        cache.processInput(c);
+
+        Assert.assertEquals("Cache should not grow beyond its maximum size", 2, cache.size());
+
+        cache.processInput(a);
+        Assert.assertEquals("Recently used input should still be cached", 2, cache.getHitCount());
+
+        cache.processInput(b);
+        Assert.assertEquals("Least recently used input should have been evicted", 4, cache.getMissCount());
+    }
+
+    @Test
+    public void processInputExpiresOldOutputs() throws Exception {
+        PredictionCache cache = new PredictionCache(createNetwork(), 10, 1, TimeUnit.NANOSECONDS);
+        double[] input = new double[]{1, 0, 0, 0};
+
+        cache.processInput(input);
+        Thread.sleep(1);
+        cache.processInput(input);
+
+        Assert.assertEquals("Expired output should not be a hit", 0, cache.getHitCount());
+        Assert.assertEquals("Expired output should be recalculated", 2, cache.getMissCount());
+    }
+
+    @Test
+    public void processInputInvalidatedByModifiedWeights() throws Exception {
+        NeuralNetwork network = createNetwork();
+        PredictionCache cache = new PredictionCache(network, 10);
+        double[] input = new double[]{1, 0, 0.5, -1};
+
+        cache.processInput(input);
+        network.getSynapse(0).getWeights().adjustWeight(0, 0, 3);
+
+        Assert.assertArrayEquals("Modifying weights should invalidate the cache",
+                network.processInput(input), cache.processInput(input), 0.0);
+        Assert.assertEquals("Output after modification should be a miss", 2, cache.getMissCount());
+
+        network.getSynapse(0).setWeights(new FlatWeights(network.getSynapse(0).getWeights()));
+        cache.processInput(input);
+        Assert.assertEquals("Replacing weights should invalidate the cache", 3, cache.getMissCount());
+    }
+
+    @Test
+    public void processInputDoesNotCacheWithUntrackedWeights() throws Exception {
+        NeuralNetwork network = createNetwork();
+        network.getSynapse(0).setWeights(new MockWeights(4, 3));
+        PredictionCache cache = new PredictionCache(network, 10);
+        double[] input = new double[]{1, 0, 0.5, -1};
+
+        cache.processInput(input);
+        cache.processInput(input);
+
+        Assert.assertEquals("Weights which do not count modifications should never give a hit", 0, cache.getHitCount());
+        Assert.assertEquals("Nothing should be cached for weights which do not count modifications", 0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsEmptyCache() throws Exception {
+        new PredictionCache(createNetwork(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsNonPositiveTimeToLive() throws Exception {
+        new PredictionCache(createNetwork(), 10, 0, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,110 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.BitPacking;
+import com.henrythompson.neuralnets.SparseWeights;
+import com.henrythompson.neuralnets.Weights;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SparseWeightsTest {
+    /** Three from neurons, two to neurons. The final row holds the biases. */
+    private static final double[][] VALUES = {{1, 0.01}, {0, 4}, {-5, 0}, {-1, -2}};
+
+    @Test
+    public void weightsBelowThresholdArePruned() throws Exception {
+        SparseWeights weights = new SparseWeights(new Weights(VALUES), 0.1);
+
+        Assert.assertEquals("Only weights above the threshold should be stored", 3, weights.getNonZeroCount());
+        Assert.assertEquals("Pruned weights should be zero", 0.0, weights.getWeight(0, 1), 0.0);
+        Assert.assertEquals("Stored weights should be kept", -5.0, weights.getWeight(2, 0), 0.0);
+        Assert.assertEquals("Biases should always be kept", -2.0, weights.getBias(1), 0.0);
+    }
+
+    @Test
+    public void settingPrunedWeightDisallowed() throws Exception {
+        SparseWeights weights = new SparseWeights(new Weights(VALUES), 0.1);
+        weights.setWeight(0, 1, 0);
+
+        try {
+            weights.setWeight(0, 1, 0.5);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("SparseWeights should not allow a pruned weight to be set to a non-zero value");
+    }
+
+    @Test
+    public void testSetAndAdjustWeight() throws Exception {
+        SparseWeights weights = new SparseWeights(new Weights(VALUES), 0);
+        weights.setWeight(1, 1, 0.5);
+        weights.adjustWeight(1, 1, 0.25);
+        weights.adjustWeight(3, 0, 1);
+
+        Assert.assertEquals("Stored weight should be set and adjusted", 0.75, weights.getWeight(1, 1), 0.0);
+        Assert.assertEquals("Bias should be adjusted using the extra from index", 0.0, weights.getBias(0), 0.0);
+    }
+
+    @Test
+    public void kernelsMatchPrunedDenseWeights() throws Exception {
+        Weights dense = new Weights(VALUES);
+        dense.setWeight(0, 1, 0);
+        SparseWeights sparse = new SparseWeights(new Weights(VALUES), 0.1);
+
+        double[] expected = new double[2];
+        double[] actual = new double[2];
+        dense.multiply(new double[]{1, 0.5, -1}, expected);
+        sparse.multiply(new double[]{1, 0.5, -1}, actual);
+        Assert.assertArrayEquals("Method multiply should match the pruned dense weights", expected, actual, 1E-12);
+
+        double[] expectedTransposed = new double[3];
+        double[] actualTransposed = new double[]{7, 7, 7};
+        dense.multiplyTransposed(new double[]{1, -0.5}, expectedTransposed);
+        sparse.multiplyTransposed(new double[]{1, -0.5}, actualTransposed);
+        Assert.assertArrayEquals("Method multiplyTransposed should match the pruned dense weights",
+                expectedTransposed, actualTransposed, 1E-12);
+
+        double[] expectedPacked = new double[2];
+        double[] actualPacked = new double[]{7, 7};
+        dense.multiplyPacked(BitPacking.pack(new double[]{1, 0, 1}), expectedPacked);
+        sparse.multiplyPacked(BitPacking.pack(new double[]{1, 0, 1}), actualPacked);
+        Assert.assertArrayEquals("Method multiplyPacked should match the pruned dense weights",
+                expectedPacked, actualPacked, 1E-12);
+    }
+
+    @Test
+    public void rejectedWriteDoesNotCountAsModification() throws Exception {
+        SparseWeights weights = new SparseWeights(new Weights(VALUES), 0.1);
+        long count = weights.getModificationCount();
+
+        try {
+            weights.setWeight(0, 1, 0.5);
+            Assert.fail("Setting a pruned weight should be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            weights.setBias(5, 1);
+            Assert.fail("Setting the bias of a missing neuron should be rejected");
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+
+        Assert.assertEquals("Rejected writes should not count as modifications", count, weights.getModificationCount());
+
+        weights.adjustWeight(0, 0, 1);
+        Assert.assertTrue("Successful writes should count as modifications", weights.getModificationCount() > count);
+    }
+
+    @Test
+    public void adjustByOuterProductLeavesPrunedWeightsAtZero() throws Exception {
+        SparseWeights weights = new SparseWeights(new Weights(VALUES), 0.1);
+        weights.adjustByOuterProduct(0.5, new double[]{1, 2, 3}, new double[]{2, -1});
+
+        Assert.assertEquals("Pruned weights should remain zero", 0.0, weights.getWeight(0, 1), 0.0);
+        Assert.assertEquals("Stored weights should be adjusted", 2.0, weights.getWeight(0, 0), 1E-12);
+        Assert.assertEquals("Stored weights should be adjusted", 3.0, weights.getWeight(1, 1), 1E-12);
+        Assert.assertEquals("Biases should be adjusted", -2.5, weights.getBias(1), 1E-12);
+    }
+}
@@ -89,4 +89,26 @@ public class SynapseTest {
         Assert.assertEquals("getWeights should return supplied weights",
                 weights, synapse.getWeights());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSetWeights() throws Exception {
+        Synapse synapse = new Synapse(new MockLayer(3), new MockLayer(4), new MockWeights(3, 4));
+        MockWeights weights = new MockWeights(3, 4);
+        synapse.setWeights(weights);
+
+        Assert.assertEquals("getWeights should return the weights set", weights, synapse.getWeights());
+    }
+
+    @Test
+    public void setWeightsDisallowsInconsistentSize() throws Exception {
+        Synapse synapse = new Synapse(new MockLayer(3), new MockLayer(4), new MockWeights(3, 4));
+
+        try {
+            synapse.setWeights(new MockWeights(3, 5));
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("Method setWeights should not allow weights inconsistent with the sizes of the layers");
+    }
+}
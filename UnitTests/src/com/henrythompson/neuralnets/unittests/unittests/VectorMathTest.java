@@ -0,0 +1,73 @@
+package com.henrythompson.neuralnets.unittests.unittests;
+
+import com.henrythompson.neuralnets.VectorMath;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VectorMathTest {
+
+    @Test
+    public void testDot() throws Exception {
+        double[] a = new double[]{9, 1, 2, 3, 4, 5, 6, 7};
+        double[] b = new double[]{1, 1, 1, 1, 1, 1, 2};
+
+        Assert.assertEquals("Method dot should sum the products of the elements, including the remainder",
+                35.0, VectorMath.dot(a, 1, b, 0, 7), 1E-12);
+        Assert.assertEquals("Method dot should return zero for empty vectors", 0.0, VectorMath.dot(a, 0, b, 0, 0), 0.0);
+    }
+
+    @Test
+    public void testAxpy() throws Exception {
+        double[] x = new double[]{1, 2, 3};
+        double[] y = new double[]{0, 10, 10, 10, 10};
+
+        VectorMath.axpy(-2, x, 0, y, 1, 3);
+        Assert.assertArrayEquals("Method axpy should add the scaled vector onto the target",
+                new double[]{0, 8, 6, 4, 10}, y, 0.0);
+    }
+
+    @Test
+    public void testSum() throws Exception {
+        Assert.assertEquals("Method sum should sum the first n elements",
+                15.0, VectorMath.sum(new double[]{1, 2, 3, 4, 5, 100}, 5), 0.0);
+    }
+
+    @Test
+    public void testScale() throws Exception {
+        double[] values = new double[]{1, 2, 3};
+        VectorMath.scale(values, 2, 0.5);
+
+        Assert.assertArrayEquals("Method scale should only scale the first n elements",
+                new double[]{0.5, 1, 3}, values, 0.0);
+    }
+
+    @Test
+    public void testSigmoid() throws Exception {
+        double[] values = new double[]{0.1, 2.0, -1.2};
+        VectorMath.sigmoid(values, values, 3);
+
+        Assert.assertArrayEquals("Method sigmoid should work in place",
+                new double[]{0.52498, 0.88080, 0.23148}, values, 5E-5);
+    }
+
+    @Test
+    public void testArgmax() throws Exception {
+        Assert.assertEquals("Method argmax should find the largest of the first n elements",
+                1, VectorMath.argmax(new double[]{-3, 2, -1, 2, 9}, 4));
+    }
+
+    @Test
+    public void testTopK() throws Exception {
+        int[] indices = new int[3];
+        VectorMath.topK(new double[]{0.5, -2, 4, 0.5, 3, 1, 100}, 6, indices);
+
+        Assert.assertArrayEquals("Method topK should find the k largest of the first n elements, largest first",
+                new int[]{2, 4, 5}, indices);
+
+        indices = new int[2];
+        VectorMath.topK(new double[]{-1, 0.5, 0.5, 0.5}, 4, indices);
+
+        Assert.assertArrayEquals("Method topK should order equal elements by their index",
+                new int[]{1, 2}, indices);
+    }
+}
@@ -189,4 +189,79 @@ public class WeightsTest {
             Assert.assertTrue("Weights should be less than amplitude", Math.abs(weights.getWeight(0, 1)) < amplitude);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMultiply() throws Exception {
+        Weights weights = new Weights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[] netInputs = new double[]{9, 9};
+
+        weights.multiply(new double[]{1, 0.5, -1}, netInputs);
+        Assert.assertArrayEquals("Method multiply should weight and sum the inputs, then add the biases",
+                new double[]{-3.5, -4.0}, netInputs, 1E-12);
+    }
+
+    @Test
+    public void testMultiplyBatch() throws Exception {
+        Weights weights = new Weights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[][] netInputs = new double[][]{{9, 9}, {9, 9}, {9, 9}};
+
+        weights.multiplyBatch(new double[][]{{1, 0.5, -1}, {0, 0, 0}, {7, 7, 7}}, netInputs, 2);
+        Assert.assertArrayEquals("Method multiplyBatch should multiply the first sample",
+                new double[]{-3.5, -4.0}, netInputs[0], 1E-12);
+        Assert.assertArrayEquals("Method multiplyBatch should multiply the second sample",
+                new double[]{-1, -2}, netInputs[1], 1E-12);
+        Assert.assertArrayEquals("Method multiplyBatch should ignore samples beyond the batch size",
+                new double[]{9, 9}, netInputs[2], 0.0);
+    }
+
+    @Test
+    public void testMultiplyPacked() throws Exception {
+        Weights weights = new Weights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[] netInputs = new double[]{9, 9};
+
+        weights.multiplyPacked(0b101L, netInputs);
+        Assert.assertArrayEquals("Method multiplyPacked should add the weights of each set bit to the biases",
+                new double[]{5, 6}, netInputs, 1E-12);
+    }
+
+    @Test
+    public void testMultiplyTransposed() throws Exception {
+        Weights weights = new Weights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+        double[] result = new double[]{9, 9, 9};
+
+        weights.multiplyTransposed(new double[]{1, -0.5}, result);
+        Assert.assertArrayEquals("Method multiplyTransposed should ignore the biases",
+                new double[]{0, 1, 2}, result, 1E-12);
+    }
+
+    @Test
+    public void testAdjustByOuterProduct() throws Exception {
+        Weights weights = new Weights(new double[][]{{1, 2}, {3, 4}, {5, 6}, {-1, -2}});
+
+        weights.adjustByOuterProduct(0.5, new double[]{1, 2, 0}, new double[]{2, -1});
+        Assert.assertEquals("Weight should be adjusted by scale * from * to", 2.0, weights.getWeight(0, 0), 1E-12);
+        Assert.assertEquals("Weight should be adjusted by scale * from * to", 3.0, weights.getWeight(1, 1), 1E-12);
+        Assert.assertEquals("Weight should be unchanged when from value is zero", 6.0, weights.getWeight(2, 1), 1E-12);
+        Assert.assertEquals("Bias should be adjusted by scale * to", -2.5, weights.getBias(1), 1E-12);
+    }
+
+    @Test
+    public void testModificationCount() throws Exception {
+        Weights weights = new Weights(2, 2);
+        long count = weights.getModificationCount();
+
+        weights.setWeight(0, 1, 0.5);
+        Assert.assertTrue("Setting a weight should increase the modification count",
+                weights.getModificationCount() > count);
+
+        count = weights.getModificationCount();
+        weights.adjustByOuterProduct(0.1, new double[]{1, 2}, new double[]{1, 1});
+        Assert.assertTrue("Adjusting by an outer product should increase the modification count",
+                weights.getModificationCount() > count);
+
+        count = weights.getModificationCount();
+        weights.multiply(new double[]{1, 2}, new double[2]);
+        Assert.assertEquals("Multiplying should not change the modification count",
+                count, weights.getModificationCount());
+    }
+}
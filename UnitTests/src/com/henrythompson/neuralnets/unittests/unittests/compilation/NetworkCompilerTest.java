@@ -0,0 +1,79 @@
+package com.henrythompson.neuralnets.unittests.unittests.compilation;
+
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.Synapse;
+import com.henrythompson.neuralnets.Weights;
+import com.henrythompson.neuralnets.compilation.CompiledNetwork;
+import com.henrythompson.neuralnets.compilation.NetworkCompiler;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import com.henrythompson.neuralnets.networkbuilders.XORNetworkBuilder;
+import com.henrythompson.neuralnets.layers.LinearLayer;
+import com.henrythompson.neuralnets.unittests.unittests.MockLayer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class NetworkCompilerTest {
+    private static void assertMatches(String message, NeuralNetwork network, CompiledNetwork compiled, int inputSize) {
+        Assert.assertEquals(message + ": input size", inputSize, compiled.getInputSize());
+        Assert.assertEquals(message + ": output size", network.getOutputLayer().size(), compiled.getOutputSize());
+
+        for (int seed = 0; seed < 8; seed++) {
+            double[] input = new double[inputSize];
+
+            for (int i = 0; i < inputSize; i++) {
+                input[i] = Math.sin(seed * inputSize + i);
+            }
+
+            Assert.assertArrayEquals(message, network.processInput(input), compiled.processInput(input), 1E-12);
+        }
+    }
+
+    @Test
+    public void compiledNetworkMatchesNetwork() throws Exception {
+        NeuralNetwork xor = new XORNetworkBuilder().create();
+        NeuralNetwork threshold = new PerceptronBuilder(6, 3).create();
+        NeuralNetwork sigmoid = new PerceptronBuilder(6, 3).useSigmoidOutputLayer(true).create();
+        NeuralNetwork softmax = new MultiClassifierNetworkBuilder(8, 4).addLayer(5).create();
+
+        threshold.getSynapse(0).getWeights().randomize(1);
+
+        assertMatches("Compiled XOR network should match", xor, new NetworkCompiler(xor).compile(), 2);
+        assertMatches("Compiled threshold perceptron should match", threshold, new NetworkCompiler(threshold).compile(), 6);
+        assertMatches("Compiled sigmoid perceptron should match", sigmoid, new NetworkCompiler(sigmoid).compile(), 6);
+        assertMatches("Compiled softmax network should match", softmax, new NetworkCompiler(softmax).compile(), 8);
+    }
+
+    @Test
+    public void compiledNetworkIsUnaffectedByLaterTraining() throws Exception {
+        NeuralNetwork network = new XORNetworkBuilder().create();
+        CompiledNetwork compiled = new NetworkCompiler(network).compile();
+        double[] input = new double[]{1, 0};
+        double[] expected = network.processInput(input);
+
+        network.getSynapse(0).getWeights().randomize(5);
+
+        Assert.assertArrayEquals("Changing the network's weights should not change the compiled network",
+                expected, compiled.processInput(input), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compiledNetworkRejectsWrongSize() throws Exception {
+        new NetworkCompiler(new XORNetworkBuilder().create()).compile().processInput(new double[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compileRejectsLargeNetwork() throws Exception {
+        new NetworkCompiler(new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create()).compile();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compileRejectsUnknownLayer() throws Exception {
+        ArrayList<Synapse> synapses = new ArrayList<>();
+        synapses.add(new Synapse(new LinearLayer(2), new MockLayer(2), new Weights(2, 2)));
+
+        new NetworkCompiler(new NeuralNetwork(synapses)).compile();
+    }
+}
@@ -0,0 +1,84 @@
+package com.henrythompson.neuralnets.unittests.unittests.compression;
+
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.Synapse;
+import com.henrythompson.neuralnets.Weights;
+import com.henrythompson.neuralnets.compression.LowRankCompressor;
+import com.henrythompson.neuralnets.compression.LowRankWeights;
+import com.henrythompson.neuralnets.layers.LinearLayer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.function.ToDoubleFunction;
+
+public class LowRankCompressorTest {
+
+    @Test
+    public void compressChoosesLowestAccurateRank() throws Exception {
+        // Every weight into neuron j is (j + 1) times the weight into neuron 0, so rank 1 is exact
+        Weights weights = new Weights(20, 10);
+
+        for (int from = 0; from < 20; from++) {
+            for (int to = 0; to < 10; to++) {
+                weights.setWeight(from, to, (to + 1) * Math.sin(from));
+            }
+        }
+
+        NeuralNetwork network = createNetwork(weights);
+        double[] expected = network.processInput(input()).clone();
+
+        int[] ranks = new LowRankCompressor(network, accuracy(expected), 1E-9).compress();
+
+        Assert.assertArrayEquals("Rank 1 should be chosen for rank 1 weights", new int[]{1}, ranks);
+        Assert.assertTrue("Weights should be replaced", network.getSynapse(0).getWeights() instanceof LowRankWeights);
+    }
+
+    @Test
+    public void compressLeavesSynapseWhenNoRankIsAccurate() throws Exception {
+        Weights weights = new Weights(20, 10);
+        weights.randomize(1);
+
+        NeuralNetwork network = createNetwork(weights);
+        double[] expected = network.processInput(input()).clone();
+
+        int[] ranks = new LowRankCompressor(network, accuracy(expected), 1E-9).compress();
+
+        Assert.assertArrayEquals("No rank should be chosen for random weights", new int[]{0}, ranks);
+        Assert.assertSame("Original weights should be restored", weights, network.getSynapse(0).getWeights());
+    }
+
+    /**
+     * @return An accuracy function which is the negative of the largest difference
+     * between the output of the network and the output expected
+     */
+    private ToDoubleFunction<NeuralNetwork> accuracy(double[] expected) {
+        return network -> {
+            double[] output = network.processInput(input());
+            double error = 0;
+
+            for (int i = 0; i < output.length; i++) {
+                error = Math.max(error, Math.abs(output[i] - expected[i]));
+            }
+
+            return -error;
+        };
+    }
+
+    private double[] input() {
+        double[] input = new double[20];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = Math.cos(i);
+        }
+
+        return input;
+    }
+
+    private NeuralNetwork createNetwork(Weights weights) {
+        ArrayList<Synapse> synapses = new ArrayList<>();
+        synapses.add(new Synapse(new LinearLayer(20), new LinearLayer(10), weights));
+
+        return new NeuralNetwork(synapses);
+    }
+}
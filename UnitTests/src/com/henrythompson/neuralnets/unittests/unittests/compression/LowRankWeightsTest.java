@@ -0,0 +1,92 @@
+package com.henrythompson.neuralnets.unittests.unittests.compression;
+
+import com.henrythompson.neuralnets.BitPacking;
+import com.henrythompson.neuralnets.Weights;
+import com.henrythompson.neuralnets.compression.LowRankWeights;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LowRankWeightsTest {
+    /** Three from neurons, two to neurons. The final row holds the biases. */
+    private static final double[][] VALUES = {{1, 2}, {3, 4}, {5, 6}, {-1, -2}};
+
+    /** A matrix whose weights are all multiples of {1, 2, 3}, so rank 1 is exact */
+    private static final double[][] RANK_ONE_VALUES = {{1, -2}, {2, -4}, {3, -6}, {0.5, 0.25}};
+
+    @Test
+    public void fullRankMatchesDenseWeights() throws Exception {
+        Weights dense = new Weights(VALUES);
+        LowRankWeights lowRank = new LowRankWeights(dense, 2);
+
+        double[] expected = new double[2];
+        double[] actual = new double[2];
+        dense.multiply(new double[]{1, 0.5, -1}, expected);
+        lowRank.multiply(new double[]{1, 0.5, -1}, actual);
+        Assert.assertArrayEquals("Method multiply should match the dense weights at full rank", expected, actual, 1E-10);
+
+        double[] expectedTransposed = new double[3];
+        double[] actualTransposed = new double[]{9, 9, 9};
+        dense.multiplyTransposed(new double[]{1, -0.5}, expectedTransposed);
+        lowRank.multiplyTransposed(new double[]{1, -0.5}, actualTransposed);
+        Assert.assertArrayEquals("Method multiplyTransposed should match the dense weights at full rank",
+                expectedTransposed, actualTransposed, 1E-10);
+    }
+
+    @Test
+    public void batchAndPackedKernelsMatchDenseWeights() throws Exception {
+        Weights dense = new Weights(VALUES);
+        LowRankWeights lowRank = new LowRankWeights(dense, 2);
+        double[][] inputs = {{1, 0.5, -1}, {0, 0, 0}, {1, 0, 1}};
+        double[][] netInputs = new double[inputs.length][2];
+        lowRank.multiplyBatch(inputs, netInputs, inputs.length);
+
+        for (int b = 0; b < inputs.length; b++) {
+            double[] expected = new double[2];
+            dense.multiply(inputs[b], expected);
+
+            Assert.assertArrayEquals("Method multiplyBatch should match the dense weights at full rank",
+                    expected, netInputs[b], 1E-10);
+        }
+
+        double[] expected = new double[2];
+        double[] packed = new double[2];
+        dense.multiply(inputs[2], expected);
+        lowRank.multiplyPacked(BitPacking.pack(inputs[2]), packed);
+
+        Assert.assertArrayEquals("Method multiplyPacked should match the dense weights at full rank",
+                expected, packed, 1E-10);
+    }
+
+    @Test
+    public void rankOneApproximationOfRankOneWeights() throws Exception {
+        LowRankWeights weights = new LowRankWeights(new Weights(RANK_ONE_VALUES), 1);
+
+        Assert.assertEquals("Rank should be as requested", 1, weights.getRank());
+        Assert.assertEquals("Weight should be reconstructed exactly", -6.0, weights.getWeight(2, 1), 1E-10);
+        Assert.assertEquals("Bias should be copied", 0.25, weights.getBias(1), 0.0);
+    }
+
+    @Test
+    public void rankOutOfRangeDisallowed() throws Exception {
+        try {
+            new LowRankWeights(new Weights(VALUES), 3);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        Assert.fail("LowRankWeights should not allow a rank larger than the smaller layer");
+    }
+
+    @Test
+    public void modifyingWeightsDisallowed() throws Exception {
+        LowRankWeights weights = new LowRankWeights(new Weights(VALUES), 1);
+
+        try {
+            weights.setBias(0, 1);
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+
+        Assert.fail("LowRankWeights should not allow weights to be modified");
+    }
+}
@@ -0,0 +1,32 @@
+package com.henrythompson.neuralnets.unittests.unittests.compression;
+
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.compression.NetworkQuantizer;
+import com.henrythompson.neuralnets.compression.QuantizedWeights;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NetworkQuantizerTest {
+
+    @Test
+    public void quantizeReplacesEveryWeights() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(40).create();
+        double[] input = new double[35];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i % 3 == 0 ? 1 : 0;
+        }
+
+        double[] expected = network.processInput(input).clone();
+        long saved = new NetworkQuantizer(network).quantize();
+
+        Assert.assertTrue("Every synapse should hold quantized weights",
+                network.getSynapses().stream().allMatch(s -> s.getWeights() instanceof QuantizedWeights));
+        Assert.assertEquals("Quantizing should save seven bytes per weight less the row scales",
+                (36 * 40 + 41 * 26) * 8 - (35 * 40 + 40 * 16 + 40 * 26 + 26 * 16), saved);
+        Assert.assertArrayEquals("Quantized network should give similar outputs",
+                expected, network.processInput(input), 0.01);
+        Assert.assertEquals("Quantizing twice should save nothing more", 0, new NetworkQuantizer(network).quantize());
+    }
+}
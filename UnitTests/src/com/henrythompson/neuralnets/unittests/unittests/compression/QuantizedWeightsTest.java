@@ -0,0 +1,84 @@
+package com.henrythompson.neuralnets.unittests.unittests.compression;
+
+import com.henrythompson.neuralnets.BitPacking;
+import com.henrythompson.neuralnets.Weights;
+import com.henrythompson.neuralnets.compression.QuantizedWeights;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QuantizedWeightsTest {
+    /** Three from neurons, two to neurons. The final row holds the biases. */
+    private static final double[][] VALUES = {{1.27, 0.3}, {-0.5, -0.6}, {0.01, 0.2}, {-1, 0.25}};
+
+    @Test
+    public void weightsAreRoundedToScaledIntegers() throws Exception {
+        QuantizedWeights weights = new QuantizedWeights(new Weights(VALUES));
+
+        Assert.assertEquals("Largest weight in a row should be exact", 1.27, weights.getWeight(0, 0), 1E-12);
+        Assert.assertEquals("Weights should be rounded to a multiple of the row scale", -0.5, weights.getWeight(1, 0), 1E-12);
+        Assert.assertEquals("Weights should be rounded to a multiple of the row scale", 0.01, weights.getWeight(2, 0), 1E-12);
+        Assert.assertEquals("Each row should have its own scale", 0.6 / 127 * 42, weights.getWeight(2, 1), 1E-12);
+        Assert.assertEquals("Biases should be kept in full precision", 0.25, weights.getBias(1), 0.0);
+    }
+
+    @Test
+    public void multiplyApproximatesDenseWeights() throws Exception {
+        Weights dense = new Weights(VALUES);
+        QuantizedWeights quantized = new QuantizedWeights(dense);
+        double[] input = new double[]{0.9, 0.1, -0.45};
+
+        double[] expected = new double[2];
+        double[] actual = new double[2];
+        dense.multiply(input, expected);
+        quantized.multiply(input, actual);
+
+        Assert.assertArrayEquals("Quantized net inputs should be close to the dense ones", expected, actual, 0.01);
+    }
+
+    @Test
+    public void multiplyWithZeroInputGivesBiases() throws Exception {
+        QuantizedWeights weights = new QuantizedWeights(new Weights(VALUES));
+        double[] netInputs = new double[2];
+        weights.multiply(new double[3], netInputs);
+
+        Assert.assertArrayEquals("Net inputs should equal the biases when every input is zero",
+                new double[]{-1, 0.25}, netInputs, 0.0);
+    }
+
+    @Test
+    public void batchAndPackedKernelsMatchMultiply() throws Exception {
+        QuantizedWeights weights = new QuantizedWeights(new Weights(VALUES));
+        double[][] inputs = {{0.9, 0.1, -0.45}, {0, 0, 0}, {1, 0, 1}, {-2, 3, 0.5}};
+        double[][] batchNetInputs = new double[inputs.length][2];
+        weights.multiplyBatch(inputs, batchNetInputs, inputs.length);
+
+        for (int b = 0; b < inputs.length; b++) {
+            double[] expected = new double[2];
+            weights.multiply(inputs[b], expected);
+
+            Assert.assertArrayEquals("Method multiplyBatch should match multiply for each sample",
+                    expected, batchNetInputs[b], 1E-12);
+        }
+
+        double[] expected = new double[2];
+        double[] packed = new double[2];
+        weights.multiply(inputs[2], expected);
+        weights.multiplyPacked(BitPacking.pack(inputs[2]), packed);
+
+        Assert.assertArrayEquals("Method multiplyPacked should match multiply for binary inputs",
+                expected, packed, 1E-12);
+    }
+
+    @Test
+    public void modifyingWeightsDisallowed() throws Exception {
+        QuantizedWeights weights = new QuantizedWeights(new Weights(VALUES));
+
+        try {
+            weights.adjustWeight(0, 0, 0.1);
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+
+        Assert.fail("QuantizedWeights should not allow weights to be modified");
+    }
+}
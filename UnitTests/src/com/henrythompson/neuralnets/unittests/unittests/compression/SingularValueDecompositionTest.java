@@ -0,0 +1,82 @@
+package com.henrythompson.neuralnets.unittests.unittests.compression;
+
+import com.henrythompson.neuralnets.compression.SingularValueDecomposition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SingularValueDecompositionTest {
+
+    @Test
+    public void decompositionReconstructsTallMatrix() throws Exception {
+        assertReconstructs(randomMatrix(9, 4));
+    }
+
+    @Test
+    public void decompositionReconstructsWideMatrix() throws Exception {
+        assertReconstructs(randomMatrix(3, 8));
+    }
+
+    @Test
+    public void singularValuesOfDiagonalMatrix() throws Exception {
+        double[][] matrix = {{1, 0, 0}, {0, -3, 0}, {0, 0, 2}};
+
+        Assert.assertArrayEquals("Singular values should be the magnitudes of the diagonal in descending order",
+                new double[]{3, 2, 1}, new SingularValueDecomposition(matrix).getSingularValues(), 1E-12);
+    }
+
+    @Test
+    public void singularVectorsAreOrthonormal() throws Exception {
+        SingularValueDecomposition svd = new SingularValueDecomposition(randomMatrix(7, 5));
+        double[][] v = svd.getV();
+
+        for (int p = 0; p < 5; p++) {
+            for (int q = 0; q < 5; q++) {
+                double dot = 0;
+
+                for (int i = 0; i < v.length; i++) {
+                    dot += v[i][p] * v[i][q];
+                }
+
+                Assert.assertEquals("Right singular vectors should be orthonormal", p == q ? 1 : 0, dot, 1E-10);
+            }
+        }
+    }
+
+    private void assertReconstructs(double[][] matrix) {
+        SingularValueDecomposition svd = new SingularValueDecomposition(matrix);
+        double[][] u = svd.getU();
+        double[] s = svd.getSingularValues();
+        double[][] v = svd.getV();
+
+        for (int k = 1; k < s.length; k++) {
+            Assert.assertTrue("Singular values should be in descending order", s[k - 1] >= s[k]);
+        }
+
+        for (int i = 0; i < matrix.length; i++) {
+            for (int j = 0; j < matrix[i].length; j++) {
+                double value = 0;
+
+                for (int k = 0; k < s.length; k++) {
+                    value += u[i][k] * s[k] * v[j][k];
+                }
+
+                Assert.assertEquals("U S V^T should reconstruct the matrix", matrix[i][j], value, 1E-10);
+            }
+        }
+    }
+
+    private double[][] randomMatrix(int rows, int columns) {
+        Random random = new Random(rows * 31 + columns);
+        double[][] matrix = new double[rows][columns];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                matrix[i][j] = random.nextDouble() * 2 - 1;
+            }
+        }
+
+        return matrix;
+    }
+}
@@ -39,4 +39,10 @@ public class LinearLayerTest {
         LinearLayer layer = new LinearLayer(3);
         Assert.assertEquals("Name of LinearLayer should be 'linear'", "linear", layer.typeName());
     }
+
+    @Test
+    public void isOrderPreserving() {
+        LinearLayer layer = new LinearLayer(3);
+        Assert.assertTrue("LinearLayer should be order preserving", layer.isOrderPreserving());
+    }
 }
@@ -28,4 +28,10 @@ public class SigmoidLayerTest {
         SigmoidLayer layer = new SigmoidLayer(3);
         Assert.assertEquals("Name of SigmoidLayer should be 'sigmoid'", "sigmoid", layer.typeName());
     }
+
+    @Test
+    public void isOrderPreserving() {
+        SigmoidLayer layer = new SigmoidLayer(3);
+        Assert.assertTrue("SigmoidLayer should be order preserving", layer.isOrderPreserving());
+    }
 }
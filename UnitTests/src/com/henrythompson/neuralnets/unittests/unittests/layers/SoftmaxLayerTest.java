@@ -28,5 +28,10 @@ public class SoftmaxLayerTest {
         SoftmaxLayer layer = new SoftmaxLayer(3);
         Assert.assertEquals("Name of SoftmaxLayer should be 'softmax'", "softmax", layer.typeName());
     }
-}
 
+    @Test
+    public void isOrderPreserving() {
+        SoftmaxLayer layer = new SoftmaxLayer(3);
+        Assert.assertTrue("SoftmaxLayer should be order preserving", layer.isOrderPreserving());
+    }
+}
@@ -28,4 +28,10 @@ public class ThresholdLayerTest {
         ThresholdLayer layer = new ThresholdLayer(3);
         Assert.assertEquals("Name of ThresholdLayer should be 'threshold'", "threshold", layer.typeName());
     }
+
+    @Test
+    public void isOrderPreserving() {
+        ThresholdLayer layer = new ThresholdLayer(3);
+        Assert.assertFalse("ThresholdLayer should not be order preserving", layer.isOrderPreserving());
+    }
 }
@@ -0,0 +1,144 @@
+package com.henrythompson.neuralnets.unittests.unittests.serving;
+
+import com.henrythompson.neuralnets.serving.AdmissionController;
+import com.henrythompson.neuralnets.serving.AdmissionPermit;
+import com.henrythompson.neuralnets.serving.RequestRejectedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionControllerTest {
+    @Test
+    public void admitsUpToMaxConcurrency() throws Exception {
+        AdmissionController controller = new AdmissionController(2, 0, 1, TimeUnit.SECONDS);
+
+        AdmissionPermit first = controller.acquire();
+        AdmissionPermit second = controller.acquire();
+
+        try {
+            Assert.assertEquals("Both requests should be running", 2, controller.getActiveCount());
+            Assert.assertEquals("Both requests should be counted as accepted", 2, controller.getAcceptedCount());
+        } finally {
+            first.close();
+            second.close();
+        }
+
+        Assert.assertEquals("No requests should be running once the permits are closed",
+                0, controller.getActiveCount());
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 0, 1, TimeUnit.SECONDS);
+
+        try (AdmissionPermit permit = controller.acquire()) {
+            try {
+                controller.acquire();
+                Assert.fail("A request should be rejected when it cannot run and may not wait");
+            } catch (RequestRejectedException e) {
+                Assert.assertEquals("Request should be rejected because the queue is full",
+                        RequestRejectedException.Reason.QUEUE_FULL, e.getReason());
+            }
+        }
+
+        Assert.assertEquals("Rejection should be counted as shed", 1, controller.getShedCount());
+        Assert.assertEquals("Queue should be empty after the rejection", 0, controller.getQueueLength());
+    }
+
+    @Test
+    public void rejectsAfterWaitingForDeadline() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 20, TimeUnit.MILLISECONDS);
+
+        try (AdmissionPermit permit = controller.acquire()) {
+            long start = System.nanoTime();
+
+            try {
+                controller.acquire();
+                Assert.fail("A request should be rejected if it is not admitted by the deadline");
+            } catch (RequestRejectedException e) {
+                Assert.assertEquals("Request should be rejected as timed out",
+                        RequestRejectedException.Reason.TIMED_OUT, e.getReason());
+            }
+
+            Assert.assertTrue("Request should wait for the deadline",
+                    System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        }
+
+        Assert.assertEquals("Rejection should be counted as timed out", 1, controller.getTimedOutCount());
+        Assert.assertEquals("Request which waited should not be counted as shed", 0, controller.getShedCount());
+    }
+
+    @Test
+    public void rejectsWithoutWaitingWhenPredictedWaitExceedsDeadline() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 10, 20, TimeUnit.MILLISECONDS);
+
+        // Teaches the controller that requests take far longer than the deadline
+        AdmissionPermit slow = controller.acquire();
+        Thread.sleep(100);
+        slow.close();
+
+        Assert.assertTrue("Average service time should reflect the slow request",
+                controller.getAverageServiceTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        try (AdmissionPermit permit = controller.acquire()) {
+            long start = System.nanoTime();
+
+            try {
+                controller.acquire();
+                Assert.fail("A request should be rejected if it is expected to miss the deadline");
+            } catch (RequestRejectedException e) {
+                Assert.assertEquals("Request should be rejected for its predicted wait",
+                        RequestRejectedException.Reason.DEADLINE_EXCEEDED, e.getReason());
+            }
+
+            Assert.assertTrue("Request should be rejected without waiting for the deadline",
+                    System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(20));
+        }
+
+        Assert.assertEquals("Rejection should be counted as shed", 1, controller.getShedCount());
+    }
+
+    @Test
+    public void waitingRequestIsAdmittedWhenPermitIsClosed() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 5, TimeUnit.SECONDS);
+        AdmissionPermit first = controller.acquire();
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                // Close the permit at once
+            }
+
+            first.close();
+        });
+        releaser.start();
+
+        try (AdmissionPermit second = controller.acquire()) {
+            Assert.assertEquals("Waiting request should be admitted", 2, controller.getAcceptedCount());
+        } finally {
+            releaser.join();
+        }
+    }
+
+    @Test
+    public void closingPermitTwiceReleasesOnce() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 0, 1, TimeUnit.SECONDS);
+
+        AdmissionPermit permit = controller.acquire();
+        permit.close();
+        permit.close();
+
+        AdmissionPermit next = controller.acquire();
+
+        try {
+            controller.acquire();
+            Assert.fail("Closing a permit twice should not free a second permit");
+        } catch (RequestRejectedException e) {
+            // Expected
+        } finally {
+            next.close();
+        }
+    }
+}
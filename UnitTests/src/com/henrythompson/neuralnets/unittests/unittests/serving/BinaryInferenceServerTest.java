@@ -0,0 +1,255 @@
+package com.henrythompson.neuralnets.unittests.unittests.serving;
+
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import com.henrythompson.neuralnets.serving.AdmissionController;
+import com.henrythompson.neuralnets.serving.AdmissionPermit;
+import com.henrythompson.neuralnets.serving.BinaryInferenceClient;
+import com.henrythompson.neuralnets.serving.BinaryInferenceServer;
+import com.henrythompson.neuralnets.serving.ModelRegistry;
+import com.henrythompson.neuralnets.serving.Prediction;
+import com.henrythompson.neuralnets.serving.RequestRejectedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class BinaryInferenceServerTest {
+    private static NeuralNetwork createNetwork() {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        network.getSynapse(0).getWeights().randomize(1);
+        network.getSynapse(1).getWeights().randomize(1);
+
+        return network;
+    }
+
+    private static BinaryInferenceServer startServer(NeuralNetwork network) throws IOException {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("ocr", 1, network);
+
+        BinaryInferenceServer server = new BinaryInferenceServer(registry, 0);
+        server.start();
+
+        return server;
+    }
+
+    private static double[] createInput(int seed) {
+        double[] input = new double[35];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = Math.sin(seed * 35 + i);
+        }
+
+        return input;
+    }
+
+    @Test
+    public void predictMatchesNetwork() throws Exception {
+        NeuralNetwork network = createNetwork();
+        BinaryInferenceServer server = startServer(network);
+
+        try (BinaryInferenceClient client = new BinaryInferenceClient(server.getPort())) {
+            for (int seed = 0; seed < 5; seed++) {
+                double[] expected = network.processInput(createInput(seed));
+                Prediction prediction = client.predict("ocr", createInput(seed));
+
+                Assert.assertArrayEquals("Output should match the network", expected, prediction.getOutput(), 1E-12);
+                Assert.assertEquals("Argmax should match the network",
+                        network.classify(createInput(seed)), prediction.getArgmax());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void pipelinedRequestsAreAnsweredInOrder() throws Exception {
+        NeuralNetwork network = createNetwork();
+        BinaryInferenceServer server = startServer(network);
+
+        // Enough requests that they cannot all fit in the initial buffers
+        double[][] inputs = new double[2000][];
+
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = createInput(i);
+        }
+
+        try (BinaryInferenceClient client = new BinaryInferenceClient(server.getPort())) {
+            List<CompletableFuture<Prediction>> futures = client.submitAll("ocr", inputs);
+
+            for (int i = 0; i < inputs.length; i++) {
+                Assert.assertArrayEquals("Each pipelined request should get its own output",
+                        network.processInput(inputs[i]), futures.get(i).get(5, TimeUnit.SECONDS).getOutput(), 1E-12);
+            }
+
+            Assert.assertEquals("No requests should be left pending", 0, client.getPendingCount());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void errorsAreReturnedPerRequest() throws Exception {
+        BinaryInferenceServer server = startServer(createNetwork());
+
+        try (BinaryInferenceClient client = new BinaryInferenceClient(server.getPort())) {
+            CompletableFuture<Prediction> missing = client.submit("missing", createInput(0));
+            CompletableFuture<Prediction> wrongSize = client.submit("ocr", new double[3]);
+            CompletableFuture<Prediction> valid = client.submit("ocr", createInput(1));
+
+            try {
+                missing.get(5, TimeUnit.SECONDS);
+                Assert.fail("Request for an unknown model should fail");
+            } catch (ExecutionException e) {
+                Assert.assertTrue("Unknown model should be reported as a bad argument",
+                        e.getCause() instanceof IllegalArgumentException);
+            }
+
+            try {
+                wrongSize.get(5, TimeUnit.SECONDS);
+                Assert.fail("Request with the wrong input size should fail");
+            } catch (ExecutionException e) {
+                Assert.assertTrue("Wrong input size should be reported as a bad argument",
+                        e.getCause() instanceof IllegalArgumentException);
+            }
+
+            Assert.assertEquals("Failed requests should not affect later ones on the connection",
+                    26, valid.get(5, TimeUnit.SECONDS).getOutput().length);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void stoppingServerFailsPendingRequests() throws Exception {
+        BinaryInferenceServer server = startServer(createNetwork());
+        BinaryInferenceClient client = new BinaryInferenceClient(server.getPort());
+
+        try {
+            client.predict("ocr", createInput(0));
+            server.stop();
+
+            try {
+                // The first request may be written before the client notices
+                // the connection has closed, in which case its future fails
+                client.submit("ocr", createInput(1)).get(5, TimeUnit.SECONDS);
+                client.submit("ocr", createInput(2)).get(5, TimeUnit.SECONDS);
+                Assert.fail("Requests should fail once the server has stopped");
+            } catch (IOException e) {
+                // Expected
+            } catch (ExecutionException e) {
+                Assert.assertTrue("Requests should fail with an IOException",
+                        e.getCause() instanceof IOException);
+            }
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void rejectedRequestsReportTheirReason() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("ocr", 1, createNetwork());
+
+        AdmissionController admission = new AdmissionController(1, 0, 1, TimeUnit.SECONDS);
+        registry.setAdmissionController("ocr", admission);
+
+        BinaryInferenceServer server = new BinaryInferenceServer(registry, 0);
+        server.start();
+
+        try (BinaryInferenceClient client = new BinaryInferenceClient(server.getPort())) {
+            // Holding the only permit leaves no room for the request
+            try (AdmissionPermit permit = admission.acquire()) {
+                client.predict("ocr", createInput(0));
+                Assert.fail("Request should be rejected while the model is saturated");
+            } catch (RequestRejectedException e) {
+                Assert.assertEquals("Rejection should carry its reason",
+                        RequestRejectedException.Reason.QUEUE_FULL, e.getReason());
+            }
+
+            Assert.assertEquals("Request should succeed once the permit is free",
+                    26, client.predict("ocr", createInput(0)).getOutput().length);
+            Assert.assertEquals("Server should close its permit after the request", 0, admission.getActiveCount());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Answers the first request sent to a server socket with a frame holding
+     * the request's ID followed by the given bytes
+     */
+    private static Thread answerWith(ServerSocket serverSocket, byte[] afterId) {
+        Thread thread = new Thread(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                byte[] request = new byte[Integer.reverseBytes(in.readInt())];
+                in.readFully(request);
+
+                ByteBuffer response = ByteBuffer.allocate(4 + 8 + afterId.length).order(ByteOrder.LITTLE_ENDIAN);
+                response.putInt(8 + afterId.length);
+                response.put(request, 0, 8);
+                response.put(afterId);
+
+                OutputStream out = socket.getOutputStream();
+                out.write(response.array());
+                out.flush();
+
+                // Keep the connection open so only the malformed frame can fail it
+                Thread.sleep(10000);
+            } catch (IOException | InterruptedException e) {
+                // The test has finished with the connection
+            }
+        });
+
+        thread.setDaemon(true);
+        thread.start();
+
+        return thread;
+    }
+
+    private static void assertMalformedResponseFailsClient(byte[] afterId) throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread server = answerWith(serverSocket, afterId);
+
+            try (BinaryInferenceClient client = new BinaryInferenceClient(serverSocket.getLocalPort())) {
+                try {
+                    client.submit("ocr", createInput(0)).get(5, TimeUnit.SECONDS);
+                    Assert.fail("Request answered by a malformed frame should fail");
+                } catch (ExecutionException e) {
+                    Assert.assertTrue("Malformed frame should be reported as a connection failure",
+                            e.getCause() instanceof IOException);
+                }
+
+                try {
+                    client.submit("ocr", createInput(1));
+                    Assert.fail("Client should refuse requests once the connection has failed");
+                } catch (IOException e) {
+                    // Expected
+                }
+            } finally {
+                server.interrupt();
+            }
+        }
+    }
+
+    @Test
+    public void unknownRejectionReasonFailsConnection() throws Exception {
+        assertMalformedResponseFailsClient(new byte[]{4, 99});
+    }
+
+    @Test
+    public void truncatedResponseFailsConnection() throws Exception {
+        assertMalformedResponseFailsClient(new byte[0]);
+    }
+}
@@ -0,0 +1,272 @@
+package com.henrythompson.neuralnets.unittests.unittests.serving;
+
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import com.henrythompson.neuralnets.serving.AdmissionController;
+import com.henrythompson.neuralnets.serving.AdmissionPermit;
+import com.henrythompson.neuralnets.serving.InferenceServer;
+import com.henrythompson.neuralnets.serving.ModelRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class InferenceServerTest {
+    private static NeuralNetwork createNetwork() {
+        NeuralNetwork network = new PerceptronBuilder(3, 2).useSigmoidOutputLayer(true).create();
+        network.getSynapse(0).getWeights().randomize(1);
+
+        return network;
+    }
+
+    private static InferenceServer startServer(NeuralNetwork network) throws IOException {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("gate", 4, network);
+
+        InferenceServer server = new InferenceServer(registry, 0);
+        server.start();
+
+        return server;
+    }
+
+    private static HttpURLConnection post(InferenceServer server, String path, String contentType, byte[] body)
+            throws IOException {
+        URL url = new URL("http://localhost:" + server.getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", contentType);
+        connection.setDoOutput(true);
+
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body);
+        }
+
+        return connection;
+    }
+
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+
+        while ((read = input.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+
+        input.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void jsonRequestReturnsOutputAndArgmax() throws Exception {
+        NeuralNetwork network = createNetwork();
+        InferenceServer server = startServer(network);
+
+        try {
+            double[] expected = network.processInput(new double[]{1, 0.5, -1});
+            int argmax = expected[0] >= expected[1] ? 0 : 1;
+
+            HttpURLConnection connection = post(server, InferenceServer.PREDICT_PATH + "gate",
+                    InferenceServer.JSON_CONTENT_TYPE,
+                    "{\"input\": [1, 0.5, -1]}".getBytes(StandardCharsets.UTF_8));
+
+            Assert.assertEquals("JSON request should succeed", 200, connection.getResponseCode());
+
+            String response = new String(read(connection.getInputStream()), StandardCharsets.UTF_8);
+
+            Assert.assertTrue("Response should name the model", response.contains("\"model\":\"gate\""));
+            Assert.assertTrue("Response should give the version", response.contains("\"version\":4"));
+            int outputStart = response.indexOf("\"output\":[") + "\"output\":[".length();
+            String[] outputs = response.substring(outputStart, response.indexOf(']', outputStart)).split(",");
+
+            Assert.assertEquals("Response should give both outputs", 2, outputs.length);
+            Assert.assertEquals("First output should match", expected[0], Double.parseDouble(outputs[0]), 1E-12);
+            Assert.assertEquals("Second output should match", expected[1], Double.parseDouble(outputs[1]), 1E-12);
+            Assert.assertTrue("Response should give the argmax", response.contains("\"argmax\":" + argmax));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void binaryRequestReturnsOutputAndArgmax() throws Exception {
+        NeuralNetwork network = createNetwork();
+        InferenceServer server = startServer(network);
+
+        try {
+            double[] input = new double[]{-0.25, 1, 0};
+            double[] expected = network.processInput(input);
+
+            ByteBuffer request = ByteBuffer.allocate(input.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+            request.asDoubleBuffer().put(input);
+
+            HttpURLConnection connection = post(server, InferenceServer.PREDICT_PATH + "gate",
+                    InferenceServer.BINARY_CONTENT_TYPE, request.array());
+
+            Assert.assertEquals("Binary request should succeed", 200, connection.getResponseCode());
+
+            ByteBuffer response = ByteBuffer.wrap(read(connection.getInputStream())).order(ByteOrder.LITTLE_ENDIAN);
+
+            Assert.assertEquals("Response should hold the argmax and both outputs", 4 + 2 * 8, response.remaining());
+            Assert.assertEquals("Argmax should be the largest output", expected[0] >= expected[1] ? 0 : 1,
+                    response.getInt());
+            Assert.assertEquals("First output should match", expected[0], response.getDouble(), 1E-12);
+            Assert.assertEquals("Second output should match", expected[1], response.getDouble(), 1E-12);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void badInputIsRejected() throws Exception {
+        InferenceServer server = startServer(createNetwork());
+
+        try {
+            HttpURLConnection wrongSize = post(server, InferenceServer.PREDICT_PATH + "gate",
+                    InferenceServer.JSON_CONTENT_TYPE, "[1, 2]".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals("Input of the wrong size should be rejected", 400, wrongSize.getResponseCode());
+
+            HttpURLConnection notNumbers = post(server, InferenceServer.PREDICT_PATH + "gate",
+                    InferenceServer.JSON_CONTENT_TYPE, "[1, \"a\", 2]".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals("Input which is not numeric should be rejected", 400, notNumbers.getResponseCode());
+
+            HttpURLConnection partialDouble = post(server, InferenceServer.PREDICT_PATH + "gate",
+                    InferenceServer.BINARY_CONTENT_TYPE, new byte[20]);
+            Assert.assertEquals("Raw input which is not whole doubles should be rejected",
+                    400, partialDouble.getResponseCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void oversizedBodyIsRejected() throws Exception {
+        InferenceServer server = startServer(createNetwork());
+
+        try {
+            HttpURLConnection binary = post(server, InferenceServer.PREDICT_PATH + "gate",
+                    InferenceServer.BINARY_CONTENT_TYPE, new byte[1 << 12]);
+            Assert.assertEquals("Raw input larger than the input layer should be rejected",
+                    413, binary.getResponseCode());
+
+            HttpURLConnection json = post(server, InferenceServer.PREDICT_PATH + "gate",
+                    InferenceServer.JSON_CONTENT_TYPE, new byte[1 << 12]);
+            Assert.assertEquals("JSON far larger than any input should be rejected", 413, json.getResponseCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void unknownModelIsNotFound() throws Exception {
+        InferenceServer server = startServer(createNetwork());
+
+        try {
+            HttpURLConnection connection = post(server, InferenceServer.PREDICT_PATH + "missing",
+                    InferenceServer.JSON_CONTENT_TYPE, "[1, 2, 3]".getBytes(StandardCharsets.UTF_8));
+
+            Assert.assertEquals("Unknown model should not be found", 404, connection.getResponseCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void modelsAreListed() throws Exception {
+        InferenceServer server = startServer(createNetwork());
+
+        try {
+            URL url = new URL("http://localhost:" + server.getPort() + InferenceServer.MODELS_PATH);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+            Assert.assertEquals("Listing models should succeed", 200, connection.getResponseCode());
+            Assert.assertEquals("Deployed model should be listed", "{\"models\":[{\"name\":\"gate\",\"version\":4}]}",
+                    new String(read(connection.getInputStream()), StandardCharsets.UTF_8));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void rejectedRequestIsServiceUnavailable() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("gate", 4, createNetwork());
+
+        AdmissionController admission = new AdmissionController(1, 0, 1, TimeUnit.SECONDS);
+        registry.setAdmissionController("gate", admission);
+
+        InferenceServer server = new InferenceServer(registry, 0);
+        server.start();
+
+        try {
+            // Holding the only permit leaves no room for the request
+            try (AdmissionPermit permit = admission.acquire()) {
+                HttpURLConnection connection = post(server, InferenceServer.PREDICT_PATH + "gate",
+                        InferenceServer.JSON_CONTENT_TYPE, "[1, 2, 3]".getBytes(StandardCharsets.UTF_8));
+
+                Assert.assertEquals("Rejected request should be unavailable", 503, connection.getResponseCode());
+                Assert.assertNotNull("Rejected request should say when to retry",
+                        connection.getHeaderField("Retry-After"));
+            }
+
+            HttpURLConnection connection = post(server, InferenceServer.PREDICT_PATH + "gate",
+                    InferenceServer.JSON_CONTENT_TYPE, "[1, 2, 3]".getBytes(StandardCharsets.UTF_8));
+
+            Assert.assertEquals("Request should succeed once the permit is free", 200, connection.getResponseCode());
+            Assert.assertEquals("Server should close its permit after the request", 0, admission.getActiveCount());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void modelUndeployedWhileWaitingIsNotFound() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("gate", 4, createNetwork());
+
+        AdmissionController admission = new AdmissionController(1, 1, 5, TimeUnit.SECONDS);
+        registry.setAdmissionController("gate", admission);
+
+        InferenceServer server = new InferenceServer(registry, 0);
+        server.start();
+        ExecutorService client = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Integer> responseCode;
+
+            // Holding the only permit keeps the request waiting after its body has been read
+            try (AdmissionPermit permit = admission.acquire()) {
+                responseCode = client.submit(() -> post(server, InferenceServer.PREDICT_PATH + "gate",
+                        InferenceServer.JSON_CONTENT_TYPE, "[1, 2, 3]".getBytes(StandardCharsets.UTF_8))
+                        .getResponseCode());
+
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+                while (admission.getQueueLength() == 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+
+                Assert.assertEquals("Request should be waiting to be admitted", 1, admission.getQueueLength());
+                registry.undeploy("gate");
+            }
+
+            Assert.assertEquals("Model undeployed while the request waited should not be found",
+                    404, (int) responseCode.get(5, TimeUnit.SECONDS));
+        } finally {
+            client.shutdownNow();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.henrythompson.neuralnets.unittests.unittests.serving;
+
+import com.henrythompson.neuralnets.serving.MappedRing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MappedRingTest {
+    private static File createFile() throws Exception {
+        File file = File.createTempFile("ring", ".ring");
+        file.deleteOnExit();
+
+        return file;
+    }
+
+    @Test
+    public void vectorsArePolledInOrder() throws Exception {
+        try (MappedRing ring = MappedRing.create(createFile(), 4, 3)) {
+            double[] vector = new double[3];
+
+            Assert.assertEquals("Empty ring should have nothing to poll", -1, ring.poll(vector));
+
+            // Enough vectors that the ring wraps around several times
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue("Ring should have room", ring.offer(100 + i, new double[]{i, -i, i * 0.5}));
+                Assert.assertEquals("Ring should hold one vector", 1, ring.size());
+                Assert.assertEquals("Vector should carry its sequence number", 100 + i, ring.poll(vector));
+                Assert.assertArrayEquals("Vector should be copied exactly", new double[]{i, -i, i * 0.5}, vector, 0);
+            }
+        }
+    }
+
+    @Test
+    public void offerFailsWhenFull() throws Exception {
+        try (MappedRing ring = MappedRing.create(createFile(), 2, 1)) {
+            Assert.assertTrue("First vector should fit", ring.offer(0, new double[]{1}));
+            Assert.assertTrue("Second vector should fit", ring.offer(1, new double[]{2}));
+            Assert.assertFalse("Third vector should not fit", ring.offer(2, new double[]{3}));
+            Assert.assertEquals("Ring should be full", 2, ring.size());
+
+            ring.poll(new double[1]);
+            Assert.assertTrue("Polling should make room", ring.offer(2, new double[]{3}));
+        }
+    }
+
+    @Test
+    public void openedRingSharesMemory() throws Exception {
+        File file = createFile();
+
+        try (MappedRing producer = MappedRing.create(file, 8, 2); MappedRing consumer = MappedRing.open(file)) {
+            Assert.assertEquals("Capacity should be read from the file", 8, consumer.getCapacity());
+            Assert.assertEquals("Vector length should be read from the file", 2, consumer.getVectorLength());
+
+            producer.offer(7, new double[]{1.5, 2.5});
+            double[] vector = new double[2];
+
+            Assert.assertEquals("Consumer should see the producer's vector", 7, consumer.poll(vector));
+            Assert.assertArrayEquals("Consumer should see the producer's values", new double[]{1.5, 2.5}, vector, 0);
+        }
+    }
+
+    @Test
+    public void takeTimesOutWhenEmpty() throws Exception {
+        try (MappedRing ring = MappedRing.create(createFile(), 2, 1)) {
+            Assert.assertEquals("Take should give up once the timeout passes",
+                    -1, ring.take(new double[1], 10, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void timedOfferTimesOutWhenFull() throws Exception {
+        try (MappedRing ring = MappedRing.create(createFile(), 2, 1)) {
+            Assert.assertTrue("Vector should fit", ring.offer(0, new double[]{1}, 10, TimeUnit.MILLISECONDS));
+            ring.offer(1, new double[]{2});
+
+            Assert.assertFalse("Offer should give up once the timeout passes",
+                    ring.offer(2, new double[]{3}, 10, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createRejectsCapacityWhichIsNotPowerOfTwo() throws Exception {
+        MappedRing.create(createFile(), 3, 1);
+    }
+
+    @Test
+    public void threadsPassEveryVectorIntact() throws Exception {
+        File file = createFile();
+        int count = 100000;
+
+        try (MappedRing producer = MappedRing.create(file, 64, 4); MappedRing consumer = MappedRing.open(file)) {
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread producerThread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        producer.put(i, new double[]{i, i + 1, i + 2, i + 3});
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            producerThread.start();
+
+            double[] vector = new double[4];
+
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals("Vectors should arrive in order", i, consumer.take(vector, 5, TimeUnit.SECONDS));
+                Assert.assertArrayEquals("Vector should never be seen half written",
+                        new double[]{i, i + 1, i + 2, i + 3}, vector, 0);
+            }
+
+            producerThread.join();
+
+            if (failure.get() != null) {
+                throw new AssertionError("Producer should not fail", failure.get());
+            }
+        }
+    }
+}
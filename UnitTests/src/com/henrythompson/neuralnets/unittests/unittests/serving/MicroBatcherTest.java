@@ -0,0 +1,138 @@
+package com.henrythompson.neuralnets.unittests.unittests.serving;
+
+import com.henrythompson.neuralnets.InferenceContext;
+import com.henrythompson.neuralnets.InferenceModel;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import com.henrythompson.neuralnets.serving.MicroBatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class MicroBatcherTest {
+    private static InferenceModel createModel() {
+        NeuralNetwork network = new PerceptronBuilder(5, 3).useSigmoidOutputLayer(true).create();
+        network.getSynapse(0).getWeights().randomize(1);
+
+        return new InferenceModel(network);
+    }
+
+    private static double[] createInput(int seed) {
+        double[] input = new double[5];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = Math.sin(seed * 5 + i);
+        }
+
+        return input;
+    }
+
+    @Test
+    public void outputsMatchModel() throws Exception {
+        InferenceModel model = createModel();
+        List<CompletableFuture<double[]>> futures = new ArrayList<>();
+
+        try (MicroBatcher batcher = new MicroBatcher(model, 4, 1, TimeUnit.MILLISECONDS)) {
+            for (int i = 0; i < 10; i++) {
+                futures.add(batcher.submit(createInput(i)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                Assert.assertArrayEquals("Each output should match running the model on its input alone",
+                        model.processInput(createInput(i)), futures.get(i).get(5, TimeUnit.SECONDS), 1E-12);
+            }
+        }
+    }
+
+    @Test
+    public void fullBatchRunsWithoutWaitingForDelay() throws Exception {
+        try (MicroBatcher batcher = new MicroBatcher(createModel(), 8, 1, TimeUnit.HOURS)) {
+            List<CompletableFuture<double[]>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++) {
+                futures.add(batcher.submit(createInput(i)));
+            }
+
+            for (CompletableFuture<double[]> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+            Assert.assertEquals("All the inputs should have been run in one batch", 1, batcher.getBatchCount());
+            Assert.assertEquals("The batch should have been full", 1, batcher.getBatchSizeCounts()[7]);
+            Assert.assertEquals("Average batch size should be the full size", 8, batcher.getAverageBatchSize(), 0);
+            Assert.assertTrue("Queue depth should have been recorded", batcher.getMaxQueueDepth() >= 1);
+        }
+    }
+
+    @Test
+    public void partialBatchRunsAfterDelay() throws Exception {
+        try (MicroBatcher batcher = new MicroBatcher(createModel(), 8, 20, TimeUnit.MILLISECONDS)) {
+            CompletableFuture<double[]> future = batcher.submit(createInput(0));
+
+            Assert.assertEquals("Output should be returned once the delay has passed",
+                    3, future.get(5, TimeUnit.SECONDS).length);
+            Assert.assertEquals("A single input should have been run", 1, batcher.getRequestCount());
+            Assert.assertEquals("Nothing should be left waiting", 0, batcher.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void closeRunsSubmittedInputs() throws Exception {
+        MicroBatcher batcher = new MicroBatcher(createModel(), 8, 1, TimeUnit.HOURS);
+        CompletableFuture<double[]> future = batcher.submit(createInput(0));
+        batcher.close();
+
+        Assert.assertTrue("Input submitted before closing should have been run", future.isDone());
+        Assert.assertFalse("Input submitted before closing should have succeeded",
+                future.isCompletedExceptionally());
+
+        try {
+            batcher.submit(createInput(1));
+            Assert.fail("Submitting to a closed batcher should fail");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void deadBatchingThreadFailsLaterInputs() throws Exception {
+        NeuralNetwork network = new PerceptronBuilder(5, 3).useSigmoidOutputLayer(true).create();
+        InferenceModel model = new InferenceModel(network) {
+            @Override
+            public void processBatch(double[][] inputs, double[][] outputs, int batchSize, InferenceContext context) {
+                throw new AssertionError("Simulated failure of the batching thread");
+            }
+        };
+
+        MicroBatcher batcher = new MicroBatcher(model, 4, 1, TimeUnit.MILLISECONDS);
+
+        try {
+            batcher.submit(createInput(0)).get(5, TimeUnit.SECONDS);
+            Assert.fail("Input in the failed batch should have failed");
+        } catch (ExecutionException e) {
+            // Expected
+        }
+
+        // Once the thread has died, a later input must fail rather than wait forever
+        try {
+            batcher.submit(createInput(1)).get(5, TimeUnit.SECONDS);
+            Assert.fail("Input submitted after the batching thread died should have failed");
+        } catch (IllegalStateException | ExecutionException e) {
+            // Expected
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void submitRejectsWrongSize() throws Exception {
+        try (MicroBatcher batcher = new MicroBatcher(createModel(), 4, 1, TimeUnit.MILLISECONDS)) {
+            batcher.submit(new double[4]);
+        }
+    }
+}
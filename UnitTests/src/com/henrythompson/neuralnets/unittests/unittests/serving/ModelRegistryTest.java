@@ -0,0 +1,204 @@
+package com.henrythompson.neuralnets.unittests.unittests.serving;
+
+import com.henrythompson.neuralnets.InferenceModel;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.importexport.NeuralNetworkExporter;
+import com.henrythompson.neuralnets.networkbuilders.PerceptronBuilder;
+import com.henrythompson.neuralnets.serving.AdmissionController;
+import com.henrythompson.neuralnets.serving.ModelLease;
+import com.henrythompson.neuralnets.serving.ModelRegistry;
+import com.henrythompson.neuralnets.serving.ModelVersion;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ModelRegistryTest {
+    private static NeuralNetwork createNetwork() {
+        NeuralNetwork network = new PerceptronBuilder(4, 2).useSigmoidOutputLayer(true).create();
+        network.getSynapse(0).getWeights().randomize(1);
+
+        return network;
+    }
+
+    @Test
+    public void deployImportsExportedNetwork() throws Exception {
+        NeuralNetwork network = createNetwork();
+        StringWriter writer = new StringWriter();
+        new NeuralNetworkExporter(network, writer).export();
+
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("ocr", 1, new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)));
+
+        double[] input = new double[]{1, 0.5, 0, -1};
+
+        try (ModelLease lease = registry.acquire("ocr")) {
+            Assert.assertEquals("Lease should hold the deployed version", 1, lease.getVersion());
+            Assert.assertArrayEquals("Imported model should match the exported network",
+                    network.processInput(input), lease.getModel().processInput(input), 1E-9);
+        }
+    }
+
+    @Test
+    public void deploySwapsWithoutDisturbingLeases() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        ModelVersion first = registry.deploy("ocr", 1, createNetwork());
+        ModelLease oldLease = registry.acquire("ocr");
+
+        ModelVersion second = registry.deploy("ocr", 2, createNetwork());
+
+        Assert.assertEquals("New version should be current", 2, registry.getVersion("ocr"));
+        Assert.assertFalse("Old version should not be released while leased", first.isReleased());
+        Assert.assertNotNull("Old lease should still hold its model", oldLease.getModel());
+
+        try (ModelLease newLease = registry.acquire("ocr")) {
+            Assert.assertEquals("New leases should hold the new version", 2, newLease.getVersion());
+        }
+
+        oldLease.close();
+        oldLease.close();
+
+        Assert.assertTrue("Old version should be released once its lease is closed", first.isReleased());
+        Assert.assertFalse("Current version should not be released", second.isReleased());
+        Assert.assertEquals("Only the registry should hold the current version", 1, second.getReferenceCount());
+    }
+
+    @Test
+    public void swappedOutModelIsCollectable() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("ocr", 1, createNetwork());
+
+        // A worker which outlives the swap, like the threads of a server
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+
+        try {
+            WeakReference<InferenceModel> first = worker.submit(() -> {
+                try (ModelLease lease = registry.acquire("ocr")) {
+                    lease.getModel().processInput(new double[4]);
+                    return new WeakReference<>(lease.getModel());
+                }
+            }).get();
+
+            registry.deploy("ocr", 2, createNetwork());
+
+            for (int attempt = 0; attempt < 100 && first.get() != null; attempt++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+
+            Assert.assertNull("Old version should be collectable once swapped out and its lease closed",
+                    first.get());
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    public void acquireByVersion() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("ocr", 3, createNetwork());
+
+        try (ModelLease lease = registry.acquire("ocr", 3)) {
+            Assert.assertEquals("Lease should hold the version requested", 3, lease.getVersion());
+        }
+
+        try {
+            registry.acquire("ocr", 2);
+            Assert.fail("Acquiring a version which is not deployed should fail");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deployRejectsOlderVersion() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("ocr", 2, createNetwork());
+        registry.deploy("ocr", 2, createNetwork());
+    }
+
+    @Test
+    public void undeployStopsServing() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        ModelVersion version = registry.deploy("ocr", 1, createNetwork());
+        registry.deploy("gate", 1, createNetwork());
+
+        Assert.assertEquals("Both models should be listed", 2, registry.getNames().size());
+        Assert.assertTrue("Undeploying a deployed model should succeed", registry.undeploy("ocr"));
+        Assert.assertFalse("Undeploying twice should do nothing", registry.undeploy("ocr"));
+        Assert.assertTrue("Undeployed version should be released", version.isReleased());
+        Assert.assertEquals("Only the remaining model should be listed",
+                Collections.singleton("gate"), registry.getNames());
+        Assert.assertEquals("Undeployed model should have no version", -1, registry.getVersion("ocr"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void acquireRejectsUnknownName() throws Exception {
+        new ModelRegistry().acquire("missing");
+    }
+
+    @Test
+    public void acquireNeverSeesReleasedVersion() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("ocr", 1, createNetwork());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                double[] input = new double[4];
+
+                while (running.get()) {
+                    try (ModelLease lease = registry.acquire("ocr")) {
+                        lease.getModel().processInput(input);
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            });
+            readers[t].start();
+        }
+
+        for (int version = 2; version < 200; version++) {
+            registry.deploy("ocr", version, createNetwork());
+        }
+
+        running.set(false);
+
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError("Inference should never fail during a swap", failure.get());
+        }
+    }
+
+    @Test
+    public void admissionControllerOutlivesRedeploys() throws Exception {
+        ModelRegistry registry = new ModelRegistry();
+        registry.deploy("ocr", 1, createNetwork());
+
+        AdmissionController controller = new AdmissionController(4, 16, 100, TimeUnit.MILLISECONDS);
+        registry.setAdmissionController("ocr", controller);
+        registry.deploy("ocr", 2, createNetwork());
+
+        Assert.assertSame("Controller should apply to later versions",
+                controller, registry.getAdmissionController("ocr"));
+        Assert.assertNull("Other models should not be limited", registry.getAdmissionController("other"));
+
+        registry.setAdmissionController("ocr", null);
+        Assert.assertNull("Setting null should remove the controller", registry.getAdmissionController("ocr"));
+    }
+}
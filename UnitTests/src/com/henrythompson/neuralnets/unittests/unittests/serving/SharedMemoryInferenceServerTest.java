@@ -0,0 +1,156 @@
+package com.henrythompson.neuralnets.unittests.unittests.serving;
+
+import com.henrythompson.neuralnets.InferenceModel;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.networkbuilders.MultiClassifierNetworkBuilder;
+import com.henrythompson.neuralnets.serving.SharedMemoryInferenceClient;
+import com.henrythompson.neuralnets.serving.SharedMemoryInferenceServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+public class SharedMemoryInferenceServerTest {
+    private static File createDirectory() throws Exception {
+        File directory = Files.createTempDirectory("rings").toFile();
+        directory.deleteOnExit();
+
+        return directory;
+    }
+
+    private static void delete(File directory) {
+        new File(directory, SharedMemoryInferenceServer.REQUEST_RING_FILE).delete();
+        new File(directory, SharedMemoryInferenceServer.RESPONSE_RING_FILE).delete();
+        directory.delete();
+    }
+
+    private static double[] createInput(int seed) {
+        double[] input = new double[35];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = Math.sin(seed * 35 + i);
+        }
+
+        return input;
+    }
+
+    @Test
+    public void predictMatchesModel() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        network.getSynapse(0).getWeights().randomize(1);
+        network.getSynapse(1).getWeights().randomize(1);
+
+        InferenceModel model = new InferenceModel(network);
+        File directory = createDirectory();
+        SharedMemoryInferenceServer server = new SharedMemoryInferenceServer(model, directory, 16);
+        server.start();
+
+        try (SharedMemoryInferenceClient client = new SharedMemoryInferenceClient(directory)) {
+            Assert.assertEquals("Client should see the model's input size", 35, client.getInputSize());
+            Assert.assertEquals("Client should see the model's output size", 26, client.getOutputSize());
+
+            double[] output = new double[26];
+
+            for (int seed = 0; seed < 5; seed++) {
+                int argmax = client.predict(createInput(seed), output, 5, TimeUnit.SECONDS);
+
+                Assert.assertArrayEquals("Output should match the model",
+                        model.processInput(createInput(seed)), output, 1E-12);
+                Assert.assertEquals("Argmax should match the model", model.classify(createInput(seed)), argmax);
+            }
+        } finally {
+            server.stop();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void submittedInputsAreAnsweredInOrder() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        InferenceModel model = new InferenceModel(network);
+        File directory = createDirectory();
+        SharedMemoryInferenceServer server = new SharedMemoryInferenceServer(model, directory, 64);
+        server.start();
+
+        try (SharedMemoryInferenceClient client = new SharedMemoryInferenceClient(directory)) {
+            double[] output = new double[26];
+
+            // Fewer than the capacity, so the server can batch them without
+            // the client having to read any outputs first
+            for (int seed = 0; seed < 50; seed++) {
+                Assert.assertEquals("Inputs should be numbered in order", seed, client.submit(createInput(seed)));
+            }
+
+            for (int seed = 0; seed < 50; seed++) {
+                Assert.assertEquals("Outputs should arrive in order",
+                        seed, client.receive(output, 5, TimeUnit.SECONDS));
+                Assert.assertArrayEquals("Each output should match its input",
+                        model.processInput(createInput(seed)), output, 1E-12);
+            }
+        } finally {
+            server.stop();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void predictDiscardsOutputsOfEarlierInputs() throws Exception {
+        NeuralNetwork network = new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create();
+        network.getSynapse(0).getWeights().randomize(1);
+
+        InferenceModel model = new InferenceModel(network);
+        File directory = createDirectory();
+        SharedMemoryInferenceServer server = new SharedMemoryInferenceServer(model, directory, 16);
+        server.start();
+
+        try (SharedMemoryInferenceClient client = new SharedMemoryInferenceClient(directory)) {
+            double[] output = new double[26];
+
+            // Outputs which are never received, as if their predictions had timed out
+            for (int seed = 0; seed < 3; seed++) {
+                client.submit(createInput(seed));
+            }
+
+            for (int seed = 3; seed < 6; seed++) {
+                client.predict(createInput(seed), output, 5, TimeUnit.SECONDS);
+
+                Assert.assertArrayEquals("Predict should skip earlier outputs and return its own",
+                        model.processInput(createInput(seed)), output, 1E-12);
+            }
+        } finally {
+            server.stop();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void timedSubmitGivesUpWhenRingIsFull() throws Exception {
+        InferenceModel model = new InferenceModel(new MultiClassifierNetworkBuilder(35, 26).addLayer(20).create());
+        File directory = createDirectory();
+
+        // Never started, so nothing empties the request ring
+        SharedMemoryInferenceServer server = new SharedMemoryInferenceServer(model, directory, 4);
+
+        try (SharedMemoryInferenceClient client = new SharedMemoryInferenceClient(directory)) {
+            for (int seed = 0; seed < 4; seed++) {
+                Assert.assertEquals("Inputs should be sent while there is room",
+                        seed, client.submit(createInput(seed), 10, TimeUnit.MILLISECONDS));
+            }
+
+            Assert.assertEquals("Submit should give up once the timeout passes",
+                    -1, client.submit(createInput(4), 10, TimeUnit.MILLISECONDS));
+
+            try {
+                client.predict(createInput(4), new double[26], 10, TimeUnit.MILLISECONDS);
+                Assert.fail("Predict should fail rather than wait for room forever");
+            } catch (IllegalStateException e) {
+                // Expected
+            }
+        } finally {
+            server.stop();
+            delete(directory);
+        }
+    }
+}
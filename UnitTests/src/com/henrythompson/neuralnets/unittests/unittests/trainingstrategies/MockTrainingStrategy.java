@@ -4,7 +4,6 @@ import com.henrythompson.neuralnets.NeuralNetwork;
 import com.henrythompson.neuralnets.Synapse;
 import com.henrythompson.neuralnets.TrainingSample;
 import com.henrythompson.neuralnets.trainingstrategies.AbstractTrainingStrategy;
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 public class MockTrainingStrategy extends AbstractTrainingStrategy {
     private int mTrainCallCount = 0;
@@ -21,7 +20,7 @@ public class MockTrainingStrategy extends AbstractTrainingStrategy {
 
     @Override
     public double[] getOutputErrorGradients(double[] actualOutput, TrainingSample sample) {
-        throw new NotImplementedException();
+        throw new UnsupportedOperationException();
     }
 
     @Override
@@ -0,0 +1,299 @@
+package com.henrythompson.neuralnets;
+
+import com.henrythompson.neuralnets.layers.AbstractLayer;
+import com.henrythompson.neuralnets.layers.ThresholdLayer;
+
+import java.util.List;
+
+/**
+ * A copy of a trained {@link NeuralNetwork} whose layers after the input layer
+ * are all {@link ThresholdLayer}s, such as the perceptrons created by
+ * {@code PerceptronBuilder}, which can only be used to process inputs. Since
+ * every neuron outputs either 0 or 1, the output of each layer is packed into
+ * bit vectors as described in {@link BitPacking}, and each input is treated
+ * as binary in the same way, i.e. as 1 if it is greater than 0.
+ *
+ * The weights can be kept exactly, in which case the net input to each neuron
+ * is its bias plus the weights from each from neuron whose bit is set. They
+ * can instead be binarized: each weight into a neuron is then replaced by its
+ * sign multiplied by the mean magnitude of that neuron's weights, alpha. Packing
+ * the signs into bit vectors allows each weighted sum to be calculated with an
+ * XNOR and {@link Long#bitCount} per 64 weights. Writing x<sub>i</sub> for the
+ * input bits, s<sub>i</sub> for the sign bits and n for the number of inputs,
+ *
+ * <pre>  net = alpha * (2 * bitCount(~(x ^ s)) - n + S) / 2 + bias</pre>
+ *
+ * where S is the sum of the signs, each +1 or -1. The binarized weights give
+ * identical results whenever every weight into a neuron has the same magnitude,
+ * as in the AND and OR networks.
+ *
+ * The buffers holding the outputs of each layer are allocated once when the
+ * network is created, so an instance must not be used by more than one thread
+ * at a time.
+ */
+public class BinarizedNetwork {
+    /** The synapses of the network, where the zeroth synapse connects the
+     * input layer to the one immediately following it */
+    private final PackedSynapse[] mSynapses;
+
+    /** The packed outputs of each layer, where the zeroth element holds
+     * the packed input */
+    private final long[][] mOutputs;
+
+    /** The number of neurons in the input layer */
+    private final int mInputSize;
+
+    /** The number of neurons in the output layer */
+    private final int mOutputSize;
+
+    /**
+     * Creates a binary copy of a network
+     * @param network The network to copy. Every layer except the input layer
+     *                must be a {@code ThresholdLayer}.
+     * @param binarizeWeights {@code true} if the weights should be binarized
+     *                        so that layers are evaluated using XNOR and
+     *                        bit counts; {@code false} if they should be kept
+     *                        exactly
+     */
+    public BinarizedNetwork(NeuralNetwork network, boolean binarizeWeights) {
+        List<AbstractLayer> layers = network.getLayers();
+        List<Synapse> synapses = network.getSynapses();
+
+        for (int i = 1; i < layers.size(); i++) {
+            if (!(layers.get(i) instanceof ThresholdLayer)) {
+                throw new IllegalArgumentException("Every layer after the input layer must be a threshold layer");
+            }
+        }
+
+        mSynapses = new PackedSynapse[synapses.size()];
+        mOutputs = new long[layers.size()][];
+        mInputSize = layers.get(0).size();
+        mOutputSize = layers.get(layers.size() - 1).size();
+
+        for (int i = 0; i < mSynapses.length; i++) {
+            mSynapses[i] = new PackedSynapse(synapses.get(i).getWeights(), binarizeWeights);
+        }
+
+        for (int i = 0; i < mOutputs.length; i++) {
+            mOutputs[i] = new long[BitPacking.words(layers.get(i).size())];
+        }
+    }
+
+    /**
+     * Feeds the given input through the network.
+     * @param input The value to feed to the input layer of the network. Each
+     *              value greater than 0 is treated as 1; all others as 0.
+     * @return A new array holding the output from the output layer of the
+     * network, where every element is either 0 or 1.
+     */
+    public double[] processInput(double[] input) {
+        if (input.length != mInputSize) {
+            throw new IllegalArgumentException("Length of input must match size of input layer");
+        }
+
+        BitPacking.pack(input, mOutputs[0]);
+        evaluate();
+
+        double[] output = new double[mOutputSize];
+        BitPacking.unpack(mOutputs[mOutputs.length - 1], output);
+
+        return output;
+    }
+
+    /**
+     * Feeds an input packed by {@link BitPacking#pack(double[], long[])}
+     * through the network
+     * @param input The packed input
+     * @param output The array into which the packed output of the output
+     *               layer is copied. Its length must be at least
+     *               {@code BitPacking.words(getOutputSize())}.
+     */
+    public void processPackedInput(long[] input, long[] output) {
+        long[] packedInput = mOutputs[0];
+
+        if (input.length < packedInput.length) {
+            throw new IllegalArgumentException("Packed input is too short for the size of the input layer");
+        }
+
+        System.arraycopy(input, 0, packedInput, 0, packedInput.length);
+        packedInput[packedInput.length - 1] &= lastWordMask(mInputSize);
+        evaluate();
+
+        long[] result = mOutputs[mOutputs.length - 1];
+        System.arraycopy(result, 0, output, 0, result.length);
+    }
+
+    /**
+     * @return The number of neurons in the input layer
+     */
+    public int getInputSize() {
+        return mInputSize;
+    }
+
+    /**
+     * @return The number of neurons in the output layer
+     */
+    public int getOutputSize() {
+        return mOutputSize;
+    }
+
+    /**
+     * Feeds the packed input held in mOutputs[0] through every synapse
+     */
+    private void evaluate() {
+        for (int i = 0; i < mSynapses.length; i++) {
+            mSynapses[i].evaluate(mOutputs[i], mOutputs[i + 1]);
+        }
+    }
+
+    /**
+     * @param size The number of bits packed into an array of {@code long}s
+     * @return A mask with a bit set for each bit of the final {@code long}
+     * which is in use
+     */
+    private static long lastWordMask(int size) {
+        int remainder = size % BitPacking.MAX_BITS;
+        return remainder == 0 ? -1L : (1L << remainder) - 1;
+    }
+
+    /**
+     * The weights of a single synapse, held either exactly or binarized,
+     * which calculates the packed output of a threshold layer from the packed
+     * output of the layer before it
+     */
+    private static final class PackedSynapse {
+        /** The number of neurons in the from layer */
+        private final int mFromLayerSize;
+
+        /** The number of neurons in the to layer */
+        private final int mToLayerSize;
+
+        /** The number of {@code long}s holding the output of the from layer */
+        private final int mWords;
+
+        /** The bias of each neuron in the to layer */
+        private final double[] mBiases;
+
+        /** The exact weights, one row of mFromLayerSize per neuron in the to
+         * layer, or {@code null} if the weights are binarized */
+        private final double[] mWeights;
+
+        /** The packed sign bits of the binarized weights, one row of mWords
+         * per neuron in the to layer, where a set bit represents +1 and an
+         * unset bit -1. {@code null} if the weights are exact. */
+        private final long[] mSigns;
+
+        /** The mean magnitude of the weights into each neuron in the to layer */
+        private final double[] mScales;
+
+        /** The sum of the signs of the weights into each neuron in the to layer */
+        private final int[] mSignSums;
+
+        /** A mask of the bits in use in the final word of each row */
+        private final long mLastWordMask;
+
+        PackedSynapse(IWeights weights, boolean binarize) {
+            mFromLayerSize = weights.getFromLayerSize();
+            mToLayerSize = weights.getToLayerSize();
+            mWords = BitPacking.words(mFromLayerSize);
+            mLastWordMask = lastWordMask(mFromLayerSize);
+            mBiases = new double[mToLayerSize];
+
+            for (int to = 0; to < mToLayerSize; to++) {
+                mBiases[to] = weights.getBias(to);
+            }
+
+            if (binarize) {
+                mWeights = null;
+                mSigns = new long[mWords * mToLayerSize];
+                mScales = new double[mToLayerSize];
+                mSignSums = new int[mToLayerSize];
+                binarize(weights);
+            } else {
+                mWeights = new double[mFromLayerSize * mToLayerSize];
+                mSigns = null;
+                mScales = null;
+                mSignSums = null;
+
+                for (int to = 0; to < mToLayerSize; to++) {
+                    for (int from = 0; from < mFromLayerSize; from++) {
+                        mWeights[to * mFromLayerSize + from] = weights.getWeight(from, to);
+                    }
+                }
+            }
+        }
+
+        private void binarize(IWeights weights) {
+            for (int to = 0; to < mToLayerSize; to++) {
+                double magnitude = 0;
+                int positive = 0;
+
+                for (int from = 0; from < mFromLayerSize; from++) {
+                    double weight = weights.getWeight(from, to);
+                    magnitude += Math.abs(weight);
+
+                    if (weight >= 0) {
+                        mSigns[to * mWords + from / BitPacking.MAX_BITS] |= 1L << from;
+                        positive++;
+                    }
+                }
+
+                mScales[to] = mFromLayerSize > 0 ? magnitude / mFromLayerSize : 0;
+                mSignSums[to] = 2 * positive - mFromLayerSize;
+            }
+        }
+
+        /**
+         * Calculates the packed output of the to layer
+         * @param input The packed output of the from layer
+         * @param output The array into which the packed output of the to
+         *               layer is written
+         */
+        void evaluate(long[] input, long[] output) {
+            for (int w = 0; w < output.length; w++) {
+                output[w] = 0;
+            }
+
+            for (int to = 0; to < mToLayerSize; to++) {
+                double net = mSigns != null ? binarizedNetInput(input, to) : exactNetInput(input, to);
+
+                if (net > 0) {
+                    output[to / BitPacking.MAX_BITS] |= 1L << to;
+                }
+            }
+        }
+
+        private double exactNetInput(long[] input, int to) {
+            double sum = mBiases[to];
+            int row = to * mFromLayerSize;
+
+            for (int w = 0; w < mWords; w++) {
+                int offset = row + w * BitPacking.MAX_BITS;
+
+                for (long bits = input[w]; bits != 0; bits &= bits - 1) {
+                    sum += mWeights[offset + Long.numberOfTrailingZeros(bits)];
+                }
+            }
+
+            return sum;
+        }
+
+        private double binarizedNetInput(long[] input, int to) {
+            int row = to * mWords;
+            int matches = 0;
+
+            for (int w = 0; w < mWords - 1; w++) {
+                matches += Long.bitCount(~(input[w] ^ mSigns[row + w]));
+            }
+
+            if (mWords > 0) {
+                matches += Long.bitCount(~(input[mWords - 1] ^ mSigns[row + mWords - 1]) & mLastWordMask);
+            }
+
+            // The number of set inputs with a positive weight less the number with a negative weight
+            int signedCount = (2 * matches - mFromLayerSize + mSignSums[to]) / 2;
+
+            return mScales[to] * signedCount + mBiases[to];
+        }
+    }
+}
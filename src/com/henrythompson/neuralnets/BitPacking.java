@@ -0,0 +1,114 @@
+package com.henrythompson.neuralnets;
+
+/**
+ * Converts between the outputs of a layer whose neurons only ever output 0 or
+ * 1, such as a {@link com.henrythompson.neuralnets.layers.ThresholdLayer}, and
+ * a single {@code long} holding one bit per neuron. A layer of up to 64
+ * neurons can then be passed around without an array, and the net inputs it
+ * produces calculated by {@link IWeights#multiplyPacked} without any
+ * multiplications. Larger layers can be packed into an array of {@code long}s,
+ * the i<sup>th</sup> neuron being held in bit i % 64 of element i / 64.
+ *
+ * @author Henry Thompson
+ */
+public final class BitPacking {
+    /** The largest number of values which can be packed into a {@code long} */
+    public static final int MAX_BITS = Long.SIZE;
+
+    private BitPacking() {
+    }
+
+    /**
+     * Packs a vector into a {@code long}, setting the i<sup>th</sup> bit if the
+     * i<sup>th</sup> value is greater than 0. This matches the output a
+     * {@code ThresholdLayer} would give for the same input.
+     * @param values The values to pack. There must be no more than 64.
+     * @return The packed bits
+     */
+    public static long pack(double[] values) {
+        if (values.length > MAX_BITS) {
+            throw new IllegalArgumentException("No more than " + MAX_BITS + " values can be packed into a long");
+        }
+
+        long bits = 0;
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] > 0) {
+                bits |= 1L << i;
+            }
+        }
+
+        return bits;
+    }
+
+    /**
+     * Unpacks bits packed by {@link #pack} into a vector of 0s and 1s
+     * @param bits The packed bits
+     * @param values The array into which each bit is written as 0 or 1.
+     *               Its length gives the number of bits to unpack.
+     */
+    public static void unpack(long bits, double[] values) {
+        if (values.length > MAX_BITS) {
+            throw new IllegalArgumentException("No more than " + MAX_BITS + " values can be unpacked from a long");
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (bits >>> i) & 1;
+        }
+    }
+
+    /**
+     * @param size The number of values packed into a {@code long}, which must
+     *             be no more than 64
+     * @return A mask with the lowest {@code size} bits set, i.e. those which
+     * may be set in a {@code long} holding that many values
+     */
+    public static long mask(int size) {
+        return size == MAX_BITS ? -1L : (1L << size) - 1;
+    }
+
+    /**
+     * @param size The number of values to be packed
+     * @return The number of {@code long}s required to hold that many bits
+     */
+    public static int words(int size) {
+        return (size + MAX_BITS - 1) / MAX_BITS;
+    }
+
+    /**
+     * Packs a vector of any length into an array of {@code long}s, setting the
+     * bit for each value greater than 0
+     * @param values The values to pack
+     * @param bits The array into which the bits are packed. Its length must be
+     *             at least {@code words(values.length)}; any existing bits are
+     *             overwritten.
+     */
+    public static void pack(double[] values, long[] bits) {
+        int words = words(values.length);
+
+        for (int w = 0; w < words; w++) {
+            long word = 0;
+            int end = Math.min(values.length - w * MAX_BITS, MAX_BITS);
+
+            for (int i = 0; i < end; i++) {
+                if (values[w * MAX_BITS + i] > 0) {
+                    word |= 1L << i;
+                }
+            }
+
+            bits[w] = word;
+        }
+    }
+
+    /**
+     * Unpacks bits packed by {@link #pack(double[], long[])} into a vector of 0s and 1s
+     * @param bits The packed bits
+     * @param values The array into which each bit is written as 0 or 1.
+     *               Its length gives the number of bits to unpack.
+     */
+    public static void unpack(long[] bits, double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (bits[i / MAX_BITS] >>> i) & 1;
+        }
+    }
+}
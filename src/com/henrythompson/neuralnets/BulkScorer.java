@@ -0,0 +1,114 @@
+package com.henrythompson.neuralnets;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Feeds a large number of inputs through an {@link InferenceModel} using every
+ * thread of a {@link ForkJoinPool}. The inputs are split in half repeatedly
+ * until each piece is no larger than a threshold, and each piece is then
+ * processed by whichever worker picks it up, using that worker's own
+ * {@link InferenceContext}. The outputs are written in the same order as
+ * the inputs, whichever order the pieces finish in.
+ */
+public class BulkScorer {
+    /** The number of inputs processed by one task when none is specified */
+    public static final int DEFAULT_THRESHOLD = 64;
+
+    /** The model through which inputs are fed */
+    private final InferenceModel mModel;
+
+    /** The pool whose workers process the inputs */
+    private final ForkJoinPool mPool;
+
+    /** The largest number of inputs processed by one task without splitting it */
+    private final int mThreshold;
+
+    /**
+     * Creates a scorer which uses the common pool, which has one worker per core
+     * @param model The model through which inputs are fed
+     */
+    public BulkScorer(InferenceModel model) {
+        this(model, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param model The model through which inputs are fed
+     * @param pool The pool whose workers process the inputs
+     * @param threshold The largest number of inputs processed by one task
+     *                  without splitting it further
+     */
+    public BulkScorer(InferenceModel model, ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("The threshold should be at least 1");
+        }
+
+        mModel = model;
+        mPool = pool;
+        mThreshold = threshold;
+    }
+
+    /**
+     * Feeds every input through the model
+     * @param inputs The values to feed to the input layer of the model
+     * @return A new array holding the output of the model for each input,
+     * in the same order as the inputs
+     */
+    public double[][] score(double[][] inputs) {
+        double[][] outputs = new double[inputs.length][mModel.getOutputSize()];
+        score(inputs, outputs);
+
+        return outputs;
+    }
+
+    /**
+     * Feeds every input through the model, writing the outputs into existing
+     * arrays. This blocks until every input has been processed.
+     * @param inputs The values to feed to the input layer of the model
+     * @param outputs The arrays into which the output for each input is copied,
+     *                where outputs[i] receives the output for inputs[i]
+     */
+    public void score(double[][] inputs, double[][] outputs) {
+        if (outputs.length < inputs.length) {
+            throw new IllegalArgumentException("There must be an output array for each input");
+        }
+
+        mPool.invoke(new ScoringTask(inputs, outputs, 0, inputs.length));
+    }
+
+    /** Processes the inputs in a range, splitting it in two if it is too large */
+    private class ScoringTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[][] mInputs;
+        private final double[][] mOutputs;
+
+        /** The index of the first input in the range */
+        private final int mStart;
+
+        /** The index after the last input in the range */
+        private final int mEnd;
+
+        ScoringTask(double[][] inputs, double[][] outputs, int start, int end) {
+            mInputs = inputs;
+            mOutputs = outputs;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= mThreshold) {
+                // The model gives each worker thread its own context, which is
+                // reused by every task the worker runs
+                for (int i = mStart; i < mEnd; i++) {
+                    mModel.processInput(mInputs[i], mOutputs[i]);
+                }
+            } else {
+                int middle = (mStart + mEnd) >>> 1;
+                invokeAll(new ScoringTask(mInputs, mOutputs, mStart, middle),
+                        new ScoringTask(mInputs, mOutputs, middle, mEnd));
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.henrythompson.neuralnets;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Holds the connection weights between two layers of neurons outside of the
+ * Java heap, in a direct buffer. Large networks held this way do not add to
+ * the amount of heap the garbage collector must trace or copy, so they do not
+ * lengthen its pauses. The memory is released when this object is garbage
+ * collected.
+ *
+ * The weights are laid out in the same way as {@link FlatWeights}, one
+ * contiguous row per neuron in the to layer followed by its bias. Since every
+ * weight is written through {@link #setWeight} and {@link #setBias}, passing
+ * {@code DirectWeights::new} to {@code NeuralNetworkImporter} parses each
+ * weight straight into off-heap memory.
+ *
+ * @author Henry Thompson
+ */
+public class DirectWeights implements IWeights {
+    /** Holds the weights between layers. The connection weight
+     * between the i<sup>th</sup> neuron in the from layer and the
+     * j<sup>th</sup> neuron in the to layer is found at
+     * j * mStride + i. The bias of the j<sup>th</sup> neuron in
+     * the to layer is found at j * mStride + mFromLayerSize.
+     */
+    private final DoubleBuffer mWeights;
+
+    /** The number of neurons in the from layer */
+    private final int mFromLayerSize;
+
+    /** The number of neurons in the to layer */
+    private final int mToLayerSize;
+
+    /** The length of each row in mWeights, i.e. the number of neurons
+     * in the from layer plus one for the bias */
+    private final int mStride;
+
+    /** The number of times these weights have been modified */
+    private long mModificationCount;
+
+    /** Instantiates a new, zeroed set of weights between two layers
+     *
+     * @param fromLayerSize The number of neurons in the layer the synapse is connected from.
+     * @param toLayerSize The number of neurons in the layer the synapse is connected to.
+     */
+    public DirectWeights(int fromLayerSize, int toLayerSize) {
+        if (fromLayerSize < 0 || toLayerSize < 0) {
+            throw new IllegalArgumentException("The size of both the fromLayer and toLayer should be positive");
+        }
+
+        long bytes = (long) (fromLayerSize + 1) * toLayerSize * Double.BYTES;
+
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The weights matrix is too large to be held in a single direct buffer");
+        }
+
+        mFromLayerSize = fromLayerSize;
+        mToLayerSize = toLayerSize;
+        mStride = fromLayerSize + 1;
+        mWeights = ByteBuffer.allocateDirect((int) bytes)
+                .order(ByteOrder.nativeOrder())
+                .asDoubleBuffer();
+    }
+
+    /**
+     * Instantiates a new set of weights holding a copy of the values
+     * held in another set of weights
+     * @param weights The weights to copy
+     */
+    public DirectWeights(IWeights weights) {
+        this(weights.getFromLayerSize(), weights.getToLayerSize());
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            int row = to * mStride;
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                mWeights.put(row + from, weights.getWeight(from, to));
+            }
+
+            mWeights.put(row + mFromLayerSize, weights.getBias(to));
+        }
+    }
+
+    @Override
+    public double getBias(int toNeuronIndex) {
+        return mWeights.get(index(mFromLayerSize, toNeuronIndex));
+    }
+
+    @Override
+    public void setWeight(int fromNeuronIndex, int toNeuronIndex, double weight) {
+        mModificationCount++;
+        mWeights.put(index(fromNeuronIndex, toNeuronIndex), weight);
+    }
+
+    @Override
+    public double getWeight(int fromNeuronIndex, int toNeuronIndex) {
+        return mWeights.get(index(fromNeuronIndex, toNeuronIndex));
+    }
+
+    @Override
+    public void setBias(int toNeuronIndex, double bias) {
+        mModificationCount++;
+        mWeights.put(index(mFromLayerSize, toNeuronIndex), bias);
+    }
+
+    @Override
+    public void adjustWeight(int fromIndex, int toIndex, double delta) {
+        mModificationCount++;
+        int i = index(fromIndex, toIndex);
+        mWeights.put(i, mWeights.get(i) + delta);
+    }
+
+    @Override
+    public long getModificationCount() {
+        return mModificationCount;
+    }
+
+    @Override
+    public int getFromLayerSize() {
+        return mFromLayerSize;
+    }
+
+    @Override
+    public int getToLayerSize() {
+        return mToLayerSize;
+    }
+
+    @Override
+    public void randomize(final double amplitude) {
+        mModificationCount++;
+        double upperBound = Math.abs(amplitude);
+        double lowerBound = -upperBound;
+        double range = upperBound - lowerBound;
+
+        for (int i = 0; i < mWeights.capacity(); i++) {
+            mWeights.put(i, lowerBound + Math.random() * range);
+        }
+    }
+
+    @Override
+    public void multiply(double[] fromValues, double[] netInputs) {
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double sum = mWeights.get(row + mFromLayerSize);
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                sum += fromValues[from] * mWeights.get(row + from);
+            }
+
+            netInputs[to] = sum;
+        }
+    }
+
+    @Override
+    public void multiplyTransposed(double[] toValues, double[] result) {
+        for (int from = 0; from < mFromLayerSize; from++) {
+            result[from] = 0;
+        }
+
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double delta = toValues[to];
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                result[from] += delta * mWeights.get(row + from);
+            }
+        }
+    }
+
+    @Override
+    public void adjustByOuterProduct(double scale, double[] fromValues, double[] toValues) {
+        mModificationCount++;
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double delta = scale * toValues[to];
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                mWeights.put(row + from, mWeights.get(row + from) + delta * fromValues[from]);
+            }
+
+            mWeights.put(row + mFromLayerSize, mWeights.get(row + mFromLayerSize) + delta);
+        }
+    }
+
+    /**
+     * @return The position in mWeights of the weight between the specified neurons
+     */
+    private int index(int fromNeuronIndex, int toNeuronIndex) {
+        if (fromNeuronIndex < 0 || fromNeuronIndex > mFromLayerSize) {
+            throw new IndexOutOfBoundsException("From neuron index " + fromNeuronIndex + " out of range");
+        }
+
+        if (toNeuronIndex < 0 || toNeuronIndex >= mToLayerSize) {
+            throw new IndexOutOfBoundsException("To neuron index " + toNeuronIndex + " out of range");
+        }
+
+        return toNeuronIndex * mStride + fromNeuronIndex;
+    }
+}
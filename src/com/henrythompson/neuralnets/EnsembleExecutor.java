@@ -0,0 +1,379 @@
+package com.henrythompson.neuralnets;
+
+import com.henrythompson.neuralnets.layers.AbstractLayer;
+import com.henrythompson.neuralnets.layers.ThresholdLayer;
+
+import java.util.List;
+
+/**
+ * Processes an input through several networks at once. The networks must all
+ * have input layers of the same type and size, but may differ in every other
+ * layer. The weights of the first synapse of every network are stacked into
+ * one wide set of {@link FlatWeights}, so each input is read once to
+ * calculate the net inputs to the first hidden layer of every network,
+ * rather than once per network. The rest of each network is then evaluated
+ * separately.
+ *
+ * On top of this, the networks can be used as an ensemble: either each
+ * network votes for the class with its largest output, or their outputs are
+ * averaged. Both require every network to have the same number of outputs.
+ *
+ * The weights are copied when the executor is created, in the same way as by
+ * {@link InferenceModel}, so later training of the networks does not affect
+ * it. The buffers holding the output of each layer are allocated once, so an
+ * instance must not be used by more than one thread at a time.
+ */
+public class EnsembleExecutor {
+    /** The layers of each network, where mLayers[n][0] is the input layer
+     * shared by every network */
+    private final AbstractLayer[][] mLayers;
+
+    /** The weights of every synapse of each network after the first, where
+     * mWeights[n][i] connects mLayers[n][i + 1] to mLayers[n][i + 2] */
+    private final IWeights[][] mWeights;
+
+    /** The weights of the first synapse of every network, stacked so that the
+     * rows for network n start at mOffsets[n] */
+    private final FlatWeights mFirstWeights;
+
+    /** The index of the first row of mFirstWeights belonging to each network */
+    private final int[] mOffsets;
+
+    /** {@code true} if the input layer is a threshold layer small enough
+     * for its output to be packed into a {@code long} */
+    private final boolean mPackInputs;
+
+    /** The output of the shared input layer */
+    private final double[] mInputOutput;
+
+    /** The net inputs to the first hidden layer of every network */
+    private final double[] mFirstNetInputs;
+
+    /** The output of each layer of each network, indexed as mOutputs[n][layer] */
+    private final double[][][] mOutputs;
+
+    /** The net inputs to each layer of each network, indexed in the same way
+     * as mOutputs */
+    private final double[][][] mNetInputs;
+
+    /**
+     * @param networks The networks to process inputs through, whose input
+     *                 layers must all be of the same type and size
+     */
+    public EnsembleExecutor(List<NeuralNetwork> networks) {
+        if (networks.isEmpty()) {
+            throw new IllegalArgumentException("An ensemble must have at least one network");
+        }
+
+        if (!canShareInputLayer(networks)) {
+            throw new IllegalArgumentException("The input layers of every network must be of the same type and size");
+        }
+
+        int count = networks.size();
+        AbstractLayer inputLayer = networks.get(0).getInputLayer();
+        int inputSize = inputLayer.size();
+
+        mLayers = new AbstractLayer[count][];
+        mWeights = new IWeights[count][];
+        mOffsets = new int[count + 1];
+        mOutputs = new double[count][][];
+        mNetInputs = new double[count][][];
+
+        for (int n = 0; n < count; n++) {
+            ExecutionPlan plan = networks.get(n).getExecutionPlan();
+            int layerCount = plan.getLayerCount();
+            mLayers[n] = new AbstractLayer[layerCount];
+            mWeights[n] = new IWeights[layerCount - 2];
+            mOutputs[n] = new double[layerCount][];
+            mNetInputs[n] = new double[layerCount][];
+
+            for (int i = 0; i < layerCount; i++) {
+                mLayers[n][i] = plan.getLayer(i);
+                mOutputs[n][i] = new double[mLayers[n][i].size()];
+                mNetInputs[n][i] = new double[mLayers[n][i].size()];
+            }
+
+            for (int i = 0; i < mWeights[n].length; i++) {
+                IWeights weights = plan.getSynapse(i + 1).getWeights();
+                mWeights[n][i] = weights.isReadOnly() ? weights : new FlatWeights(weights);
+            }
+
+            mOffsets[n + 1] = mOffsets[n] + mLayers[n][1].size();
+        }
+
+        mFirstWeights = new FlatWeights(inputSize, mOffsets[count]);
+
+        for (int n = 0; n < count; n++) {
+            IWeights weights = networks.get(n).getSynapse(0).getWeights();
+
+            for (int to = 0; to < weights.getToLayerSize(); to++) {
+                for (int from = 0; from < inputSize; from++) {
+                    mFirstWeights.setWeight(from, mOffsets[n] + to, weights.getWeight(from, to));
+                }
+
+                mFirstWeights.setBias(mOffsets[n] + to, weights.getBias(to));
+            }
+        }
+
+        mPackInputs = inputLayer instanceof ThresholdLayer && inputSize <= BitPacking.MAX_BITS;
+        mInputOutput = new double[inputSize];
+        mFirstNetInputs = new double[mOffsets[count]];
+    }
+
+    /**
+     * @param networks Some networks
+     * @return {@code true} if the networks' input layers are all of the same
+     * type and size, so that they can be processed by one executor
+     */
+    public static boolean canShareInputLayer(List<NeuralNetwork> networks) {
+        if (networks.isEmpty()) {
+            return false;
+        }
+
+        AbstractLayer inputLayer = networks.get(0).getInputLayer();
+
+        for (NeuralNetwork network : networks) {
+            AbstractLayer networkInputLayer = network.getInputLayer();
+
+            if (networkInputLayer.getClass() != inputLayer.getClass() || networkInputLayer.size() != inputLayer.size()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Feeds an input through every network
+     * @param input The value to feed to the input layer of every network
+     * @return A new array holding the output of each network, in the same
+     * order as the networks were given
+     */
+    public double[][] processInput(double[] input) {
+        runFirstSynapse(input);
+
+        double[][] outputs = new double[mLayers.length][];
+
+        for (int n = 0; n < mLayers.length; n++) {
+            int last = mLayers[n].length - 1;
+            mLayers[n][last].activate(runNetInputs(n), mOutputs[n][last]);
+            outputs[n] = mOutputs[n][last].clone();
+        }
+
+        return outputs;
+    }
+
+    /**
+     * Finds the output neuron with the largest output of every network for an
+     * input, in the same way as {@link NeuralNetwork#classify}
+     * @param input The value to feed to the input layer of every network
+     * @param classes The array into which the class chosen by each network
+     *                is written, in the same order as the networks were given
+     */
+    public void classify(double[] input, int[] classes) {
+        runFirstSynapse(input);
+
+        for (int n = 0; n < mLayers.length; n++) {
+            classes[n] = classify(n);
+        }
+    }
+
+    /**
+     * Classifies a batch of inputs with every network, in the same way as
+     * {@link NeuralNetwork#classifyBatch}. The stacked first synapse is applied
+     * to the whole batch at once, and so is each later synapse of each network,
+     * so every weight is read once per batch rather than once per input.
+     * @param inputs The values to feed to the input layer of every network
+     * @return The class chosen by each network for each input, indexed as
+     * [network][input], with the networks in the order they were given
+     */
+    public int[][] classifyBatch(double[][] inputs) {
+        int batchSize = inputs.length;
+        double[][] firstNetInputs = new double[batchSize][mFirstNetInputs.length];
+
+        for (double[] input : inputs) {
+            if (input.length != mInputOutput.length) {
+                throw new IllegalArgumentException("Length of each input must match size of input layer");
+            }
+        }
+
+        if (mPackInputs) {
+            for (int b = 0; b < batchSize; b++) {
+                mFirstWeights.multiplyPacked(BitPacking.pack(inputs[b]), firstNetInputs[b]);
+            }
+        } else {
+            double[][] inputOutputs = new double[batchSize][mInputOutput.length];
+
+            for (int b = 0; b < batchSize; b++) {
+                mLayers[0][0].activate(inputs[b], inputOutputs[b]);
+            }
+
+            mFirstWeights.multiplyBatch(inputOutputs, firstNetInputs, batchSize);
+        }
+
+        int[][] classes = new int[mLayers.length][batchSize];
+
+        for (int n = 0; n < mLayers.length; n++) {
+            AbstractLayer[] layers = mLayers[n];
+            int last = layers.length - 1;
+            double[][] netInputs = new double[batchSize][layers[1].size()];
+
+            for (int b = 0; b < batchSize; b++) {
+                System.arraycopy(firstNetInputs[b], mOffsets[n], netInputs[b], 0, layers[1].size());
+            }
+
+            for (int i = 1; i < last; i++) {
+                double[][] outputs = new double[batchSize][layers[i].size()];
+                double[][] nextNetInputs = new double[batchSize][layers[i + 1].size()];
+
+                for (int b = 0; b < batchSize; b++) {
+                    layers[i].activate(netInputs[b], outputs[b]);
+                }
+
+                mWeights[n][i - 1].multiplyBatch(outputs, nextNetInputs, batchSize);
+                netInputs = nextNetInputs;
+            }
+
+            int outputSize = layers[last].size();
+            double[] output = layers[last].isOrderPreserving() ? null : new double[outputSize];
+
+            for (int b = 0; b < batchSize; b++) {
+                double[] scores = netInputs[b];
+
+                if (output != null) {
+                    layers[last].activate(scores, output);
+                    scores = output;
+                }
+
+                classes[n][b] = VectorMath.argmax(scores, outputSize);
+            }
+        }
+
+        return classes;
+    }
+
+    /**
+     * Predicts the class of an input by letting each network vote for the
+     * class with its largest output
+     * @param input The value to feed to the input layer of every network
+     * @return The class with the most votes, or the lowest numbered of them
+     * if several have the same number of votes
+     */
+    public int majorityVote(double[] input) {
+        int[] votes = new int[getOutputSize()];
+        runFirstSynapse(input);
+
+        for (int n = 0; n < mLayers.length; n++) {
+            votes[classify(n)]++;
+        }
+
+        int best = 0;
+
+        for (int i = 1; i < votes.length; i++) {
+            if (votes[i] > votes[best]) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Averages the outputs of every network for an input. When each network
+     * has a {@code SoftmaxLayer} as its output layer, this gives the average
+     * of the probabilities each assigns to every class.
+     * @param input The value to feed to the input layer of every network
+     * @return A new array holding the mean of each output over the networks
+     */
+    public double[] averageOutput(double[] input) {
+        double[] average = new double[getOutputSize()];
+        runFirstSynapse(input);
+
+        for (int n = 0; n < mLayers.length; n++) {
+            int last = mLayers[n].length - 1;
+            mLayers[n][last].activate(runNetInputs(n), mOutputs[n][last]);
+            VectorMath.add(mOutputs[n][last], 0, average, 0, average.length);
+        }
+
+        VectorMath.scale(average, average.length, 1.0 / mLayers.length);
+        return average;
+    }
+
+    /**
+     * @return The number of networks in the ensemble
+     */
+    public int getNetworkCount() {
+        return mLayers.length;
+    }
+
+    /**
+     * @return The number of outputs of every network
+     * @throws IllegalStateException If the networks have different numbers of outputs
+     */
+    public int getOutputSize() {
+        int outputSize = mOutputs[0][mOutputs[0].length - 1].length;
+
+        for (double[][] outputs : mOutputs) {
+            if (outputs[outputs.length - 1].length != outputSize) {
+                throw new IllegalStateException("Every network must have the same number of outputs");
+            }
+        }
+
+        return outputSize;
+    }
+
+    /**
+     * Calculates the net inputs to the first hidden layer of every network
+     * @param input The value to feed to the input layer of every network
+     */
+    private void runFirstSynapse(double[] input) {
+        if (input.length != mInputOutput.length) {
+            throw new IllegalArgumentException("Length of input must match size of input layer");
+        }
+
+        if (mPackInputs) {
+            mFirstWeights.multiplyPacked(BitPacking.pack(input), mFirstNetInputs);
+        } else {
+            mLayers[0][0].activate(input, mInputOutput);
+            mFirstWeights.multiply(mInputOutput, mFirstNetInputs);
+        }
+    }
+
+    /**
+     * Evaluates every layer of a network after the input layer except its
+     * output layer, once {@link #runFirstSynapse} has been called
+     * @param network The index of the network
+     * @return The net inputs to the output layer of the network
+     */
+    private double[] runNetInputs(int network) {
+        AbstractLayer[] layers = mLayers[network];
+        double[][] netInputs = mNetInputs[network];
+        double[][] outputs = mOutputs[network];
+
+        System.arraycopy(mFirstNetInputs, mOffsets[network], netInputs[1], 0, netInputs[1].length);
+
+        for (int i = 1; i < layers.length - 1; i++) {
+            layers[i].activate(netInputs[i], outputs[i]);
+            mWeights[network][i - 1].multiply(outputs[i], netInputs[i + 1]);
+        }
+
+        return netInputs[layers.length - 1];
+    }
+
+    /**
+     * @param network The index of the network
+     * @return The output neuron of the network with the largest output, once
+     * {@link #runFirstSynapse} has been called
+     */
+    private int classify(int network) {
+        int last = mLayers[network].length - 1;
+        double[] scores = runNetInputs(network);
+
+        if (!mLayers[network][last].isOrderPreserving()) {
+            mLayers[network][last].activate(scores, mOutputs[network][last]);
+            scores = mOutputs[network][last];
+        }
+
+        return VectorMath.argmax(scores, scores.length);
+    }
+}
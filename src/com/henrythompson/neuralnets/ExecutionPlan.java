@@ -0,0 +1,229 @@
+package com.henrythompson.neuralnets;
+
+import com.henrythompson.neuralnets.layers.AbstractLayer;
+import com.henrythompson.neuralnets.layers.ThresholdLayer;
+
+import java.util.List;
+
+/**
+ * The order in which the layers and synapses of a feed-forward network are
+ * evaluated to process an input. The plan is built once from the chain of
+ * synapses, and then evaluates each layer exactly once per input by walking
+ * through them in order, rather than relying on each layer notifying its
+ * {@link OutputListener}s, which recurses once per layer and evaluates a
+ * layer again every time processing is started from it.
+ *
+ * Each layer keeps its output as its last output, so a network processed
+ * through its plan can be trained in the same way as one processed through
+ * its listeners.
+ */
+public class ExecutionPlan {
+    /** The layers in the order in which they are evaluated, where the zeroth
+     * layer is the input layer */
+    private final AbstractLayer[] mLayers;
+
+    /** The synapses in the order in which they are evaluated, where the
+     * i<sup>th</sup> synapse connects mLayers[i] to mLayers[i + 1] */
+    private final Synapse[] mSynapses;
+
+    /** {@code true} if the input layer is a threshold layer small enough
+     * for its output to be packed into a {@code long} */
+    private final boolean mPackInputs;
+
+    /** The outputs of each layer for each sample of the last batch, indexed
+     * as [layer][sample]. These buffers grow to fit the largest batch run. */
+    private final double[][][] mBatchOutputs;
+
+    /** The net inputs to each layer for each sample of the last batch,
+     * indexed in the same way as mBatchOutputs */
+    private final double[][][] mBatchNetInputs;
+
+    /**
+     * Builds the plan for a chain of synapses
+     * @param synapses The synapses of the network, in order, where the from
+     *                 layer of each is the to layer of the one before it
+     */
+    public ExecutionPlan(List<Synapse> synapses) {
+        if (synapses.isEmpty()) {
+            throw new IllegalArgumentException("A network must have at least one synapse");
+        }
+
+        mSynapses = synapses.toArray(new Synapse[synapses.size()]);
+        mLayers = new AbstractLayer[mSynapses.length + 1];
+        mLayers[0] = mSynapses[0].getFromLayer();
+
+        for (int i = 0; i < mSynapses.length; i++) {
+            if (mSynapses[i].getFromLayer() != mLayers[i]) {
+                throw new IllegalArgumentException("The from layer of each synapse must be the to layer of the one before it");
+            }
+
+            mLayers[i + 1] = mSynapses[i].getToLayer();
+        }
+
+        mPackInputs = mLayers[0] instanceof ThresholdLayer && mLayers[0].size() <= BitPacking.MAX_BITS;
+        mBatchOutputs = new double[mLayers.length][0][];
+        mBatchNetInputs = new double[mLayers.length][0][];
+    }
+
+    /**
+     * Evaluates every layer of the network in turn
+     * @param input The value to feed to the input layer of the network
+     * @return The output of the output layer, which is the same array as its
+     * last output and is overwritten by the next input
+     */
+    public double[] run(double[] input) {
+        return runFrom(0, mLayers[0].evaluate(input), mSynapses.length);
+    }
+
+    /**
+     * Evaluates every layer of the network except the output layer, and
+     * calculates the net inputs to the output layer. This is all that is
+     * needed to classify an input when the output layer is order preserving.
+     * The last output of the output layer is not updated.
+     * @param input The value to feed to the input layer of the network
+     * @return The net inputs to the output layer, which are overwritten by the
+     * next input
+     * @see AbstractLayer#isOrderPreserving()
+     */
+    public double[] runNetInputs(double[] input) {
+        int last = mSynapses.length - 1;
+        return mSynapses[last].calculateNetInputs(runFrom(0, mLayers[0].evaluate(input), last));
+    }
+
+    /**
+     * Evaluates every layer after the input layer, given the output of the
+     * input layer packed by {@link BitPacking#pack}
+     * @param input The packed output of the input layer
+     * @return The output of the output layer, which is the same array as its
+     * last output and is overwritten by the next input
+     */
+    public double[] runPacked(long input) {
+        return runFrom(1, mLayers[1].evaluate(mSynapses[0].calculatePackedNetInputs(input)), mSynapses.length);
+    }
+
+    /**
+     * Evaluates every layer of the network for a batch of inputs. The weights of
+     * each synapse are applied to the whole batch at once, so that each weight is
+     * read from memory once per batch rather than once per input. When the input
+     * layer is a small enough threshold layer, each input is packed into a
+     * {@code long} for the first synapse as in {@link #runPacked}.
+     *
+     * The last output of each layer is not updated, so this should not be used
+     * while training.
+     * @param inputs The inputs to feed to the input layer of the network
+     * @param outputs The arrays into which the output of the output layer for
+     *                each input is copied
+     */
+    public void runBatch(double[][] inputs, double[][] outputs) {
+        int batchSize = inputs.length;
+        int last = mLayers.length - 1;
+        double[][] netInputs = runBatchNetInputs(inputs);
+        double[][] result = mBatchOutputs[last];
+        int outputSize = mLayers[last].size();
+
+        for (int b = 0; b < batchSize; b++) {
+            mLayers[last].activate(netInputs[b], result[b]);
+            System.arraycopy(result[b], 0, outputs[b], 0, outputSize);
+        }
+    }
+
+    /**
+     * Evaluates every layer of the network except the output layer for a batch
+     * of inputs, in the same way as {@link #runBatch}, and calculates the net
+     * inputs to the output layer for each input
+     * @param inputs The inputs to feed to the input layer of the network
+     * @return The net inputs to the output layer for each input, where the
+     * i<sup>th</sup> array is for the i<sup>th</sup> input. There may be more
+     * arrays than inputs. The arrays are overwritten by the next batch.
+     */
+    public double[][] runBatchNetInputs(double[][] inputs) {
+        int batchSize = inputs.length;
+        int inputSize = mLayers[0].size();
+
+        for (double[] input : inputs) {
+            if (input.length != inputSize) {
+                throw new IllegalArgumentException("Length of each input must match size of input layer");
+            }
+        }
+
+        ensureBatchCapacity(batchSize);
+
+        if (mPackInputs) {
+            IWeights weights = mSynapses[0].getWeights();
+
+            for (int b = 0; b < batchSize; b++) {
+                weights.multiplyPacked(BitPacking.pack(inputs[b]), mBatchNetInputs[1][b]);
+            }
+        } else {
+            for (int b = 0; b < batchSize; b++) {
+                mLayers[0].activate(inputs[b], mBatchOutputs[0][b]);
+            }
+
+            mSynapses[0].getWeights().multiplyBatch(mBatchOutputs[0], mBatchNetInputs[1], batchSize);
+        }
+
+        for (int i = 1; i < mSynapses.length; i++) {
+            for (int b = 0; b < batchSize; b++) {
+                mLayers[i].activate(mBatchNetInputs[i][b], mBatchOutputs[i][b]);
+            }
+
+            mSynapses[i].getWeights().multiplyBatch(mBatchOutputs[i], mBatchNetInputs[i + 1], batchSize);
+        }
+
+        return mBatchNetInputs[mLayers.length - 1];
+    }
+
+    /**
+     * @return The number of layers in the network, including the input and output layers
+     */
+    public int getLayerCount() {
+        return mLayers.length;
+    }
+
+    /**
+     * @param index The position of the layer in the plan, where 0 is the input layer
+     * @return The layer evaluated at that position
+     */
+    public AbstractLayer getLayer(int index) {
+        return mLayers[index];
+    }
+
+    /**
+     * @param index The position of the synapse in the plan, where 0 is the synapse
+     *              from the input layer
+     * @return The synapse evaluated at that position
+     */
+    public Synapse getSynapse(int index) {
+        return mSynapses[index];
+    }
+
+    /**
+     * Evaluates every layer after the one specified
+     * @param layer The index of the layer which has already been evaluated
+     * @param output The output of that layer
+     * @param end The index of the last layer to evaluate
+     * @return The output of the last layer evaluated
+     */
+    private double[] runFrom(int layer, double[] output, int end) {
+        for (int i = layer; i < end; i++) {
+            output = mLayers[i + 1].evaluate(mSynapses[i].calculateNetInputs(output));
+        }
+
+        return output;
+    }
+
+    /**
+     * Grows the batch buffers, if necessary, so that they hold at least the
+     * number of samples specified
+     */
+    private void ensureBatchCapacity(int batchSize) {
+        if (mBatchOutputs[0].length >= batchSize) {
+            return;
+        }
+
+        for (int i = 0; i < mLayers.length; i++) {
+            mBatchOutputs[i] = new double[batchSize][mLayers[i].size()];
+            mBatchNetInputs[i] = new double[batchSize][mLayers[i].size()];
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.henrythompson.neuralnets;
+
+/**
+ * Holds the connection weights between two layers of neurons in a single
+ * contiguous array. Unlike {@link Weights}, which stores one array per
+ * neuron in the from layer, the weights here are laid out one row per
+ * neuron in the to layer: every weight feeding into the i<sup>th</sup>
+ * to neuron is stored next to each other, followed by that neuron's bias.
+ * This means that the weighted sum calculated for each neuron during the
+ * forward pass reads through memory sequentially.
+ *
+ * @author Henry Thompson
+ */
+public class FlatWeights implements IWeights {
+    /** Holds the weights between layers. The connection weight
+     * between the i<sup>th</sup> neuron in the from layer and the
+     * j<sup>th</sup> neuron in the to layer is found at
+     * mWeights[j * mStride + i]. The bias of the j<sup>th</sup>
+     * neuron in the to layer is found at mWeights[j * mStride + mFromLayerSize].
+     */
+    private final double[] mWeights;
+
+    /** The number of neurons in the from layer */
+    private final int mFromLayerSize;
+
+    /** The number of neurons in the to layer */
+    private final int mToLayerSize;
+
+    /** The length of each row in mWeights, i.e. the number of neurons
+     * in the from layer plus one for the bias */
+    private final int mStride;
+
+    /** The number of times these weights have been modified */
+    private long mModificationCount;
+
+    /** Instantiates a new set of weights between two layers
+     *
+     * @param fromLayerSize The number of neurons in the layer the synapse is connected from.
+     *                      1 will always be added to this in the size of each row for the
+     *                      biases.
+     * @param toLayerSize The number of neurons in the layer the synapse is connected to.
+     */
+    public FlatWeights(int fromLayerSize, int toLayerSize) {
+        if (fromLayerSize < 0 || toLayerSize < 0) {
+            throw new IllegalArgumentException("The size of both the fromLayer and toLayer should be positive");
+        }
+
+        mFromLayerSize = fromLayerSize;
+        mToLayerSize = toLayerSize;
+        mStride = fromLayerSize + 1;
+        mWeights = new double[mStride * toLayerSize];
+    }
+
+    /**
+     * Instantiates a new set of weights between two layers, copying the
+     * values from a 2-Dimensional array in the same format as accepted by
+     * {@link Weights#Weights(double[][])}. There <b>must</b> be an extra row
+     * in the from layer array (the first array) to represent the biases for
+     * each neuron in the to layer.
+     *
+     * @param weights The weights between the two layers
+     */
+    public FlatWeights(double[][] weights) {
+        this(weights.length - 1, weights[0].length);
+
+        for (int from = 0; from <= mFromLayerSize; from++) {
+            for (int to = 0; to < mToLayerSize; to++) {
+                mWeights[to * mStride + from] = weights[from][to];
+            }
+        }
+    }
+
+    /**
+     * Instantiates a new set of weights holding a copy of the values
+     * held in another set of weights
+     * @param weights The weights to copy
+     */
+    public FlatWeights(IWeights weights) {
+        this(weights.getFromLayerSize(), weights.getToLayerSize());
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            int row = to * mStride;
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                mWeights[row + from] = weights.getWeight(from, to);
+            }
+
+            mWeights[row + mFromLayerSize] = weights.getBias(to);
+        }
+    }
+
+    @Override
+    public double getBias(int toNeuronIndex) {
+        checkToIndex(toNeuronIndex);
+        return mWeights[toNeuronIndex * mStride + mFromLayerSize];
+    }
+
+    @Override
+    public void setWeight(int fromNeuronIndex, int toNeuronIndex, double weight) {
+        mModificationCount++;
+        mWeights[index(fromNeuronIndex, toNeuronIndex)] = weight;
+    }
+
+    @Override
+    public double getWeight(int fromNeuronIndex, int toNeuronIndex) {
+        return mWeights[index(fromNeuronIndex, toNeuronIndex)];
+    }
+
+    @Override
+    public void setBias(int toNeuronIndex, double bias) {
+        mModificationCount++;
+        checkToIndex(toNeuronIndex);
+        mWeights[toNeuronIndex * mStride + mFromLayerSize] = bias;
+    }
+
+    @Override
+    public void adjustWeight(int fromIndex, int toIndex, double delta) {
+        mModificationCount++;
+        mWeights[index(fromIndex, toIndex)] += delta;
+    }
+
+    @Override
+    public long getModificationCount() {
+        return mModificationCount;
+    }
+
+    @Override
+    public int getFromLayerSize() {
+        return mFromLayerSize;
+    }
+
+    @Override
+    public int getToLayerSize() {
+        return mToLayerSize;
+    }
+
+    @Override
+    public void randomize(final double amplitude) {
+        mModificationCount++;
+        double upperBound = Math.abs(amplitude);
+        double lowerBound = -upperBound;
+        double range = upperBound - lowerBound;
+
+        for (int i = 0; i < mWeights.length; i++) {
+            mWeights[i] = lowerBound + Math.random() * range;
+        }
+    }
+
+    @Override
+    public void multiply(double[] fromValues, double[] netInputs) {
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            netInputs[to] = VectorMath.dot(mWeights, row, fromValues, 0, mFromLayerSize)
+                    + mWeights[row + mFromLayerSize];
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer for each of a
+     * batch of outputs of the from layer. The row of weights into each to
+     * neuron is applied to every sample before moving on to the next row, so
+     * that each row is read from memory once per batch.
+     * @param fromValues The outputs of the from layer, one array per sample
+     * @param netInputs The arrays into which the net inputs for each sample
+     *                  are written
+     * @param batchSize The number of samples to process
+     */
+    @Override
+    public void multiplyBatch(double[][] fromValues, double[][] netInputs, int batchSize) {
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double bias = mWeights[row + mFromLayerSize];
+
+            for (int b = 0; b < batchSize; b++) {
+                netInputs[b][to] = VectorMath.dot(mWeights, row, fromValues[b], 0, mFromLayerSize) + bias;
+            }
+        }
+    }
+
+    @Override
+    public void multiplyPacked(long fromBits, double[] netInputs) {
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double sum = mWeights[row + mFromLayerSize];
+
+            for (long bits = fromBits; bits != 0; bits &= bits - 1) {
+                sum += mWeights[row + Long.numberOfTrailingZeros(bits)];
+            }
+
+            netInputs[to] = sum;
+        }
+    }
+
+    @Override
+    public void multiplyTransposed(double[] toValues, double[] result) {
+        for (int from = 0; from < mFromLayerSize; from++) {
+            result[from] = 0;
+        }
+
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            VectorMath.axpy(toValues[to], mWeights, row, result, 0, mFromLayerSize);
+        }
+    }
+
+    @Override
+    public void adjustByOuterProduct(double scale, double[] fromValues, double[] toValues) {
+        mModificationCount++;
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double delta = scale * toValues[to];
+            VectorMath.axpy(delta, fromValues, 0, mWeights, row, mFromLayerSize);
+
+            // The bias neuron always outputs 1
+            mWeights[row + mFromLayerSize] += delta;
+        }
+    }
+
+    /**
+     * Copies the weights of every connection into the specified neuron in the
+     * to layer. Since these are stored contiguously this is a single copy.
+     * @param toNeuronIndex The index of the neuron in the to layer
+     * @param result The array into which the weights should be copied. Its
+     * length must be at least the size of the from layer; the weight from the
+     * i<sup>th</sup> neuron in the from layer is placed at result[i].
+     */
+    public void getToNeuronWeights(int toNeuronIndex, double[] result) {
+        checkToIndex(toNeuronIndex);
+        System.arraycopy(mWeights, toNeuronIndex * mStride, result, 0, mFromLayerSize);
+    }
+
+    /**
+     * Sets the weights of every connection into the specified neuron in the
+     * to layer.
+     * @param toNeuronIndex The index of the neuron in the to layer
+     * @param weights The weights to set, where weights[i] is the weight from
+     * the i<sup>th</sup> neuron in the from layer
+     */
+    public void setToNeuronWeights(int toNeuronIndex, double[] weights) {
+        mModificationCount++;
+        checkToIndex(toNeuronIndex);
+        System.arraycopy(weights, 0, mWeights, toNeuronIndex * mStride, mFromLayerSize);
+    }
+
+    /**
+     * Copies the weights of every connection out of the specified neuron in
+     * the from layer.
+     * @param fromNeuronIndex The index of the neuron in the from layer. Passing
+     * the size of the from layer retrieves the biases.
+     * @param result The array into which the weights should be copied. Its
+     * length must be at least the size of the to layer; the weight to the
+     * j<sup>th</sup> neuron in the to layer is placed at result[j].
+     */
+    public void getFromNeuronWeights(int fromNeuronIndex, double[] result) {
+        checkFromIndex(fromNeuronIndex);
+
+        for (int to = 0, i = fromNeuronIndex; to < mToLayerSize; to++, i += mStride) {
+            result[to] = mWeights[i];
+        }
+    }
+
+    /**
+     * Sets the weights of every connection out of the specified neuron in
+     * the from layer.
+     * @param fromNeuronIndex The index of the neuron in the from layer. Passing
+     * the size of the from layer sets the biases.
+     * @param weights The weights to set, where weights[j] is the weight to the
+     * j<sup>th</sup> neuron in the to layer
+     */
+    public void setFromNeuronWeights(int fromNeuronIndex, double[] weights) {
+        mModificationCount++;
+        checkFromIndex(fromNeuronIndex);
+
+        for (int to = 0, i = fromNeuronIndex; to < mToLayerSize; to++, i += mStride) {
+            mWeights[i] = weights[to];
+        }
+    }
+
+    /**
+     * @return The position in mWeights of the weight between the specified neurons
+     */
+    private int index(int fromNeuronIndex, int toNeuronIndex) {
+        checkFromIndex(fromNeuronIndex);
+        checkToIndex(toNeuronIndex);
+        return toNeuronIndex * mStride + fromNeuronIndex;
+    }
+
+    private void checkFromIndex(int fromNeuronIndex) {
+        if (fromNeuronIndex < 0 || fromNeuronIndex > mFromLayerSize) {
+            throw new IndexOutOfBoundsException("From neuron index " + fromNeuronIndex + " out of range");
+        }
+    }
+
+    private void checkToIndex(int toNeuronIndex) {
+        if (toNeuronIndex < 0 || toNeuronIndex >= mToLayerSize) {
+            throw new IndexOutOfBoundsException("To neuron index " + toNeuronIndex + " out of range");
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.henrythompson.neuralnets;
+
+/**
+ * Holds the connection weights between two layers of neurons in single
+ * precision. The weights are laid out in the same way as {@link FlatWeights},
+ * one contiguous row per neuron in the to layer followed by its bias, but each
+ * is stored as a {@code float}. This halves the memory that must be read for
+ * every input processed, which is what limits the speed of inference, at the
+ * cost of precision that trained networks rarely need.
+ *
+ * Values passed in as {@code double} are rounded to the nearest {@code float}.
+ * The {@code float} overloads of {@link #multiply(float[], float[])} are used
+ * by {@link FloatNeuralNetwork}.
+ *
+ * @author Henry Thompson
+ */
+public class FloatWeights implements IWeights {
+    /** Holds the weights between layers. The connection weight
+     * between the i<sup>th</sup> neuron in the from layer and the
+     * j<sup>th</sup> neuron in the to layer is found at
+     * mWeights[j * mStride + i]. The bias of the j<sup>th</sup>
+     * neuron in the to layer is found at mWeights[j * mStride + mFromLayerSize].
+     */
+    private final float[] mWeights;
+
+    /** The number of neurons in the from layer */
+    private final int mFromLayerSize;
+
+    /** The number of neurons in the to layer */
+    private final int mToLayerSize;
+
+    /** The length of each row in mWeights, i.e. the number of neurons
+     * in the from layer plus one for the bias */
+    private final int mStride;
+
+    /** The number of times these weights have been modified */
+    private long mModificationCount;
+
+    /** Instantiates a new set of weights between two layers
+     *
+     * @param fromLayerSize The number of neurons in the layer the synapse is connected from.
+     * @param toLayerSize The number of neurons in the layer the synapse is connected to.
+     */
+    public FloatWeights(int fromLayerSize, int toLayerSize) {
+        if (fromLayerSize < 0 || toLayerSize < 0) {
+            throw new IllegalArgumentException("The size of both the fromLayer and toLayer should be positive");
+        }
+
+        mFromLayerSize = fromLayerSize;
+        mToLayerSize = toLayerSize;
+        mStride = fromLayerSize + 1;
+        mWeights = new float[mStride * toLayerSize];
+    }
+
+    /**
+     * Instantiates a new set of weights holding a copy of the values
+     * held in another set of weights, rounded to single precision
+     * @param weights The weights to copy
+     */
+    public FloatWeights(IWeights weights) {
+        this(weights.getFromLayerSize(), weights.getToLayerSize());
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            int row = to * mStride;
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                mWeights[row + from] = (float) weights.getWeight(from, to);
+            }
+
+            mWeights[row + mFromLayerSize] = (float) weights.getBias(to);
+        }
+    }
+
+    @Override
+    public double getBias(int toNeuronIndex) {
+        return mWeights[index(mFromLayerSize, toNeuronIndex)];
+    }
+
+    @Override
+    public void setWeight(int fromNeuronIndex, int toNeuronIndex, double weight) {
+        mModificationCount++;
+        mWeights[index(fromNeuronIndex, toNeuronIndex)] = (float) weight;
+    }
+
+    @Override
+    public double getWeight(int fromNeuronIndex, int toNeuronIndex) {
+        return mWeights[index(fromNeuronIndex, toNeuronIndex)];
+    }
+
+    @Override
+    public void setBias(int toNeuronIndex, double bias) {
+        mModificationCount++;
+        mWeights[index(mFromLayerSize, toNeuronIndex)] = (float) bias;
+    }
+
+    @Override
+    public void adjustWeight(int fromIndex, int toIndex, double delta) {
+        mModificationCount++;
+        mWeights[index(fromIndex, toIndex)] += (float) delta;
+    }
+
+    @Override
+    public long getModificationCount() {
+        return mModificationCount;
+    }
+
+    @Override
+    public int getFromLayerSize() {
+        return mFromLayerSize;
+    }
+
+    @Override
+    public int getToLayerSize() {
+        return mToLayerSize;
+    }
+
+    @Override
+    public void randomize(final double amplitude) {
+        mModificationCount++;
+        double upperBound = Math.abs(amplitude);
+        double lowerBound = -upperBound;
+        double range = upperBound - lowerBound;
+
+        for (int i = 0; i < mWeights.length; i++) {
+            mWeights[i] = (float) (lowerBound + Math.random() * range);
+        }
+    }
+
+    @Override
+    public void multiply(double[] fromValues, double[] netInputs) {
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double sum = mWeights[row + mFromLayerSize];
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                sum += fromValues[from] * mWeights[row + from];
+            }
+
+            netInputs[to] = sum;
+        }
+    }
+
+    @Override
+    public void multiplyTransposed(double[] toValues, double[] result) {
+        for (int from = 0; from < mFromLayerSize; from++) {
+            result[from] = 0;
+        }
+
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double delta = toValues[to];
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                result[from] += delta * mWeights[row + from];
+            }
+        }
+    }
+
+    @Override
+    public void adjustByOuterProduct(double scale, double[] fromValues, double[] toValues) {
+        mModificationCount++;
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            double delta = scale * toValues[to];
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                mWeights[row + from] += (float) (delta * fromValues[from]);
+            }
+
+            mWeights[row + mFromLayerSize] += (float) delta;
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer entirely
+     * in single precision
+     * @param fromValues The output of each neuron in the from layer
+     * @param netInputs The array into which the net input to each neuron
+     * in the to layer is written
+     */
+    public void multiply(float[] fromValues, float[] netInputs) {
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mStride) {
+            netInputs[to] = VectorMath.dot(mWeights, row, fromValues, 0, mFromLayerSize)
+                    + mWeights[row + mFromLayerSize];
+        }
+    }
+
+    /**
+     * @return The position in mWeights of the weight between the specified neurons
+     */
+    private int index(int fromNeuronIndex, int toNeuronIndex) {
+        if (fromNeuronIndex < 0 || fromNeuronIndex > mFromLayerSize) {
+            throw new IndexOutOfBoundsException("From neuron index " + fromNeuronIndex + " out of range");
+        }
+
+        if (toNeuronIndex < 0 || toNeuronIndex >= mToLayerSize) {
+            throw new IndexOutOfBoundsException("To neuron index " + toNeuronIndex + " out of range");
+        }
+
+        return toNeuronIndex * mStride + fromNeuronIndex;
+    }
+}
@@ -88,4 +88,143 @@ public interface IWeights {
      * whose value lies between amplitude and -amplitude
      */
     void randomize(double amplitude);
+
+    /**
+     * @return {@code true} if these weights can never be modified, so that they
+     * may be shared between threads without being copied. Implementations whose
+     * every modifying method throws an {@code UnsupportedOperationException}
+     * should override this.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * @return A count which increases every time these weights are modified,
+     * so that anything derived from them, such as cached outputs, can tell
+     * whether it is out of date. Weights which cannot be modified return 0.
+     * Weights which can be modified but do not track their modifications
+     * return a negative value, in which case anything derived from them must
+     * assume they may have changed at any time. Every modifiable
+     * implementation should override this.
+     */
+    default long getModificationCount() {
+        return isReadOnly() ? 0 : -1;
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer, by weighting
+     * each output of the from layer, summing the results and adding the bias.
+     * Implementations should override this to avoid a call per weight.
+     * @param fromValues The output of each neuron in the from layer
+     * @param netInputs The array into which the net input to each neuron in
+     * the to layer is written. Any existing values are overwritten.
+     */
+    default void multiply(double[] fromValues, double[] netInputs) {
+        int fromLayerSize = getFromLayerSize();
+        int toLayerSize = getToLayerSize();
+
+        for (int to = 0; to < toLayerSize; to++) {
+            double sum = getBias(to);
+
+            for (int from = 0; from < fromLayerSize; from++) {
+                sum += fromValues[from] * getWeight(from, to);
+            }
+
+            netInputs[to] = sum;
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer for each of a
+     * batch of outputs of the from layer. This gives the same result as calling
+     * {@link #multiply(double[], double[])} for each output in turn, but
+     * implementations should override it to read each weight once for the
+     * whole batch rather than once per output, keeping it in cache.
+     * @param fromValues The outputs of the from layer, one array per sample
+     * @param netInputs The arrays into which the net inputs for each sample are
+     *                  written. Any existing values are overwritten.
+     * @param batchSize The number of samples to process, starting from the zeroth
+     */
+    default void multiplyBatch(double[][] fromValues, double[][] netInputs, int batchSize) {
+        for (int b = 0; b < batchSize; b++) {
+            multiply(fromValues[b], netInputs[b]);
+        }
+    }
+
+    /**
+     * Multiplies a value for each neuron in the to layer by the transpose of
+     * these weights, giving a weighted sum for each neuron in the from layer.
+     * This is used to propagate error gradients back through the synapse. The
+     * biases play no part in this.
+     * @param toValues A value for each neuron in the to layer
+     * @param result The array into which the weighted sum for each neuron in
+     * the from layer is written. Any existing values are overwritten.
+     */
+    default void multiplyTransposed(double[] toValues, double[] result) {
+        int fromLayerSize = getFromLayerSize();
+        int toLayerSize = getToLayerSize();
+
+        for (int from = 0; from < fromLayerSize; from++) {
+            double sum = 0;
+
+            for (int to = 0; to < toLayerSize; to++) {
+                sum += getWeight(from, to) * toValues[to];
+            }
+
+            result[from] = sum;
+        }
+    }
+
+    /**
+     * Adjusts every weight by the scaled outer product of a value for each
+     * neuron in the from layer and a value for each neuron in the to layer.
+     * The weight between the i<sup>th</sup> from neuron and j<sup>th</sup> to
+     * neuron is adjusted by {@code scale * fromValues[i] * toValues[j]}. The
+     * biases are adjusted as though their from neuron had the value 1.
+     * @param scale The amount by which each product should be scaled
+     * @param fromValues A value for each neuron in the from layer
+     * @param toValues A value for each neuron in the to layer
+     */
+    default void adjustByOuterProduct(double scale, double[] fromValues, double[] toValues) {
+        int fromLayerSize = getFromLayerSize();
+        int toLayerSize = getToLayerSize();
+
+        for (int from = 0; from <= fromLayerSize; from++) {
+            double z = scale * (from != fromLayerSize ? fromValues[from] : 1);
+
+            for (int to = 0; to < toLayerSize; to++) {
+                adjustWeight(from, to, z * toValues[to]);
+            }
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer when every
+     * neuron in the from layer outputs either 0 or 1, as packed by
+     * {@link BitPacking#pack}. The net input to each neuron is its bias plus
+     * the weights from each from neuron whose bit is set, so no
+     * multiplications are needed.
+     * @param fromBits The output of each neuron in the from layer, where the
+     *                 i<sup>th</sup> bit is set if the i<sup>th</sup> neuron
+     *                 outputs 1. There must be no more than 64 from neurons,
+     *                 and no bit at or above the number of from neurons may
+     *                 be set; implementations do not check this, so callers
+     *                 must mask their input with {@link BitPacking#mask}.
+     * @param netInputs The array into which the net input to each neuron in
+     * the to layer is written. Any existing values are overwritten.
+     */
+    default void multiplyPacked(long fromBits, double[] netInputs) {
+        int toLayerSize = getToLayerSize();
+
+        for (int to = 0; to < toLayerSize; to++) {
+            double sum = getBias(to);
+
+            for (long bits = fromBits; bits != 0; bits &= bits - 1) {
+                sum += getWeight(Long.numberOfTrailingZeros(bits), to);
+            }
+
+            netInputs[to] = sum;
+        }
+    }
 }
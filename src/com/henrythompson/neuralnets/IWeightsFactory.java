@@ -0,0 +1,19 @@
+package com.henrythompson.neuralnets;
+
+/**
+ * Creates the {@code IWeights} used to hold the connection weights of a
+ * synapse. This allows network builders and importers to be told which
+ * implementation of {@code IWeights} they should use, for example
+ * {@code Weights::new} or {@code FlatWeights::new}.
+ *
+ * @author Henry Thompson
+ */
+public interface IWeightsFactory {
+    /**
+     * Creates a new, zeroed set of weights between two layers
+     * @param fromLayerSize The number of neurons in the layer the synapse is connected from
+     * @param toLayerSize The number of neurons in the layer the synapse is connected to
+     * @return The new set of weights
+     */
+    IWeights create(int fromLayerSize, int toLayerSize);
+}
@@ -0,0 +1,109 @@
+package com.henrythompson.neuralnets;
+
+/**
+ * Holds the net inputs and outputs of each layer while an {@link InferenceModel}
+ * processes an input. A context belongs to the model which created it and must
+ * not be used by more than one thread at a time, but it may be reused for any
+ * number of inputs so that processing them allocates no memory.
+ */
+public final class InferenceContext {
+    /** The ID of the model this context was created for. The context holds
+     * the ID rather than the model itself, so that a context cached in a
+     * thread local never keeps its model, and the model's weights, reachable
+     * from the thread. */
+    private final long mModelId;
+
+    /** The output of each layer, where the zeroth element is the output of
+     * the input layer */
+    private final double[][] mOutputs;
+
+    /** The net inputs to each layer, indexed in the same way as mOutputs */
+    private final double[][] mNetInputs;
+
+    /** The number of neurons in each layer, used to size the batch buffers */
+    private final int[] mLayerSizes;
+
+    /** The outputs of each layer for each sample of a batch, indexed as
+     * [layer][sample]. These buffers grow to fit the largest batch run. */
+    private final double[][][] mBatchOutputs;
+
+    /** The net inputs to each layer for each sample of a batch, indexed in
+     * the same way as mBatchOutputs */
+    private final double[][][] mBatchNetInputs;
+
+    /**
+     * @param modelId The ID of the model this context is created for
+     * @param layerSizes The number of neurons in each layer of the model
+     */
+    InferenceContext(long modelId, int[] layerSizes) {
+        mModelId = modelId;
+        mLayerSizes = layerSizes;
+        mOutputs = new double[layerSizes.length][];
+        mNetInputs = new double[layerSizes.length][];
+        mBatchOutputs = new double[layerSizes.length][0][];
+        mBatchNetInputs = new double[layerSizes.length][0][];
+
+        for (int i = 0; i < layerSizes.length; i++) {
+            mOutputs[i] = new double[layerSizes[i]];
+            mNetInputs[i] = new double[layerSizes[i]];
+        }
+    }
+
+    /**
+     * @param model A model
+     * @return {@code true} if this context was created for that model
+     */
+    public boolean belongsTo(InferenceModel model) {
+        return model.getId() == mModelId;
+    }
+
+    /**
+     * @param layer The index of the layer, where 0 is the input layer
+     * @return The buffer holding the output of that layer
+     */
+    double[] getOutput(int layer) {
+        return mOutputs[layer];
+    }
+
+    /**
+     * @param layer The index of the layer, where 0 is the input layer
+     * @return The buffer holding the net inputs to that layer
+     */
+    double[] getNetInputs(int layer) {
+        return mNetInputs[layer];
+    }
+
+    /**
+     * @param layer The index of the layer, where 0 is the input layer
+     * @return The buffers holding the output of that layer for each sample of
+     * a batch, where there are at least as many as the last capacity ensured
+     */
+    double[][] getBatchOutputs(int layer) {
+        return mBatchOutputs[layer];
+    }
+
+    /**
+     * @param layer The index of the layer, where 0 is the input layer
+     * @return The buffers holding the net inputs to that layer for each sample
+     * of a batch, where there are at least as many as the last capacity ensured
+     */
+    double[][] getBatchNetInputs(int layer) {
+        return mBatchNetInputs[layer];
+    }
+
+    /**
+     * Grows the batch buffers of every layer to hold at least the given
+     * number of samples
+     * @param batchSize The number of samples in the batch
+     */
+    void ensureBatchCapacity(int batchSize) {
+        if (mBatchOutputs[0].length >= batchSize) {
+            return;
+        }
+
+        for (int i = 0; i < mLayerSizes.length; i++) {
+            mBatchOutputs[i] = new double[batchSize][mLayerSizes[i]];
+            mBatchNetInputs[i] = new double[batchSize][mLayerSizes[i]];
+        }
+    }
+}
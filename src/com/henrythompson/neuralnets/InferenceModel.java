@@ -0,0 +1,291 @@
+package com.henrythompson.neuralnets;
+
+import com.henrythompson.neuralnets.layers.AbstractLayer;
+import com.henrythompson.neuralnets.layers.ThresholdLayer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable copy of a trained {@link NeuralNetwork} which can only be used
+ * to process inputs, and which can be shared between any number of threads.
+ * A {@code NeuralNetwork} keeps the output of each layer inside the layer
+ * itself, so it can only process one input at a time. This model instead
+ * keeps those outputs in an {@link InferenceContext}, of which each thread
+ * has its own, so the weights need only be loaded once however many threads
+ * are processing inputs.
+ *
+ * A context can be passed to each call explicitly, which suits callers that
+ * manage their own worker threads. Otherwise each thread lazily creates a
+ * context of its own the first time it uses the model.
+ *
+ * The weights of each synapse are copied when the model is created, so
+ * training the original network afterwards does not affect the model. Weights
+ * which are read-only, such as compressed weights, are shared rather than copied.
+ */
+public class InferenceModel {
+    /** The ID given to the next model created */
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    /** Identifies this model to the contexts created for it */
+    private final long mId = NEXT_ID.getAndIncrement();
+
+    /** The layers in the order in which they are evaluated, where the zeroth
+     * layer is the input layer. Only their activation functions are used. */
+    private final AbstractLayer[] mLayers;
+
+    /** The weights of each synapse, where the i<sup>th</sup> element
+     * connects mLayers[i] to mLayers[i + 1] */
+    private final IWeights[] mWeights;
+
+    /** The number of neurons in each layer */
+    private final int[] mLayerSizes;
+
+    /** {@code true} if the input layer is a threshold layer small enough
+     * for its output to be packed into a {@code long} */
+    private final boolean mPackInputs;
+
+    /** The context used by each thread which does not supply its own. A
+     * context does not refer back to its model, so once the model is no longer
+     * used its weights can be collected even while threads which used it live. */
+    private final ThreadLocal<InferenceContext> mContexts;
+
+    /**
+     * Creates a model from a network
+     * @param network The network to copy
+     */
+    public InferenceModel(NeuralNetwork network) {
+        ExecutionPlan plan = network.getExecutionPlan();
+
+        mLayers = new AbstractLayer[plan.getLayerCount()];
+        mWeights = new IWeights[mLayers.length - 1];
+        mLayerSizes = new int[mLayers.length];
+
+        for (int i = 0; i < mLayers.length; i++) {
+            mLayers[i] = plan.getLayer(i);
+            mLayerSizes[i] = mLayers[i].size();
+        }
+
+        for (int i = 0; i < mWeights.length; i++) {
+            IWeights weights = plan.getSynapse(i).getWeights();
+            mWeights[i] = weights.isReadOnly() ? weights : new FlatWeights(weights);
+        }
+
+        mPackInputs = mLayers[0] instanceof ThresholdLayer && mLayerSizes[0] <= BitPacking.MAX_BITS;
+        mContexts = ThreadLocal.withInitial(this::newContext);
+    }
+
+    /**
+     * Creates a new context in which this model can process inputs. Each
+     * context must only be used by one thread at a time.
+     * @return The new context
+     */
+    public InferenceContext newContext() {
+        return new InferenceContext(mId, mLayerSizes);
+    }
+
+    /**
+     * Feeds an input through the model using the calling thread's own context
+     * @param input The value to feed to the input layer
+     * @return A new array holding the output of the output layer
+     */
+    public double[] processInput(double[] input) {
+        double[] output = new double[getOutputSize()];
+        processInput(input, output, mContexts.get());
+
+        return output;
+    }
+
+    /**
+     * Feeds an input through the model using the calling thread's own context,
+     * writing the output into an existing array. Once the thread has processed
+     * its first input, the model itself allocates no memory.
+     * @param input The value to feed to the input layer
+     * @param output The array into which the output of the output layer is
+     *               copied. Its length must be at least the size of the output layer.
+     */
+    public void processInput(double[] input, double[] output) {
+        processInput(input, output, mContexts.get());
+    }
+
+    /**
+     * Feeds an input through the model using a context supplied by the caller,
+     * writing the output into an existing array. The model itself allocates
+     * no memory.
+     * @param input The value to feed to the input layer
+     * @param output The array into which the output of the output layer is
+     *               copied. Its length must be at least the size of the output layer.
+     * @param context A context created by {@link #newContext()} on this model,
+     *                which is not being used by any other thread
+     */
+    public void processInput(double[] input, double[] output, InferenceContext context) {
+        int last = mLayers.length - 1;
+        double[] layerOutput = context.getOutput(last);
+
+        mLayers[last].activate(runNetInputs(input, context), layerOutput);
+        System.arraycopy(layerOutput, 0, output, 0, getOutputSize());
+    }
+
+    /**
+     * Finds the output neuron with the largest output for an input using the
+     * calling thread's own context, in the same way as {@link NeuralNetwork#classify}
+     * @param input The value to feed to the input layer
+     * @return The index of the output neuron with the largest output
+     */
+    public int classify(double[] input) {
+        return classify(input, mContexts.get());
+    }
+
+    /**
+     * Finds the output neuron with the largest output for an input using a
+     * context supplied by the caller. The activation function of the output
+     * layer is skipped when it is order preserving.
+     * @param input The value to feed to the input layer
+     * @param context A context created by {@link #newContext()} on this model,
+     *                which is not being used by any other thread
+     * @return The index of the output neuron with the largest output, or of the
+     * first of them if several are equally large
+     */
+    public int classify(double[] input, InferenceContext context) {
+        int last = mLayers.length - 1;
+        double[] scores = runNetInputs(input, context);
+
+        if (!mLayers[last].isOrderPreserving()) {
+            mLayers[last].activate(scores, context.getOutput(last));
+            scores = context.getOutput(last);
+        }
+
+        return VectorMath.argmax(scores, scores.length);
+    }
+
+    /**
+     * Feeds a batch of inputs through the model using the calling thread's
+     * own context, in the same way as {@link NeuralNetwork#processBatch}
+     * @param inputs The values to feed to the input layer
+     * @param outputs The arrays into which the output of the output layer for
+     *                each input is copied
+     * @param batchSize The number of inputs to process, starting from the zeroth
+     */
+    public void processBatch(double[][] inputs, double[][] outputs, int batchSize) {
+        processBatch(inputs, outputs, batchSize, mContexts.get());
+    }
+
+    /**
+     * Feeds a batch of inputs through the model using a context supplied by
+     * the caller. The weights of each synapse are applied to the whole batch
+     * at once, so that each weight is read from memory once per batch rather
+     * than once per input. Once the context has held a batch this large, the
+     * model itself allocates no memory.
+     * @param inputs The values to feed to the input layer
+     * @param outputs The arrays into which the output of the output layer for
+     *                each input is copied. The length of each must be at least
+     *                the size of the output layer.
+     * @param batchSize The number of inputs to process, starting from the zeroth
+     * @param context A context created by {@link #newContext()} on this model,
+     *                which is not being used by any other thread
+     */
+    public void processBatch(double[][] inputs, double[][] outputs, int batchSize, InferenceContext context) {
+        if (batchSize > inputs.length || batchSize > outputs.length) {
+            throw new IllegalArgumentException("The batch size must not exceed the number of inputs or outputs");
+        }
+
+        if (!context.belongsTo(this)) {
+            throw new IllegalArgumentException("The context must have been created by this model");
+        }
+
+        for (int b = 0; b < batchSize; b++) {
+            if (inputs[b].length != mLayerSizes[0]) {
+                throw new IllegalArgumentException("Length of each input must match size of input layer");
+            }
+        }
+
+        context.ensureBatchCapacity(batchSize);
+
+        if (mPackInputs) {
+            double[][] netInputs = context.getBatchNetInputs(1);
+
+            for (int b = 0; b < batchSize; b++) {
+                mWeights[0].multiplyPacked(BitPacking.pack(inputs[b]), netInputs[b]);
+            }
+        } else {
+            double[][] inputOutputs = context.getBatchOutputs(0);
+
+            for (int b = 0; b < batchSize; b++) {
+                mLayers[0].activate(inputs[b], inputOutputs[b]);
+            }
+
+            mWeights[0].multiplyBatch(inputOutputs, context.getBatchNetInputs(1), batchSize);
+        }
+
+        for (int i = 1; i < mWeights.length; i++) {
+            double[][] netInputs = context.getBatchNetInputs(i);
+            double[][] layerOutputs = context.getBatchOutputs(i);
+
+            for (int b = 0; b < batchSize; b++) {
+                mLayers[i].activate(netInputs[b], layerOutputs[b]);
+            }
+
+            mWeights[i].multiplyBatch(layerOutputs, context.getBatchNetInputs(i + 1), batchSize);
+        }
+
+        int last = mLayers.length - 1;
+        double[][] netInputs = context.getBatchNetInputs(last);
+        double[][] layerOutputs = context.getBatchOutputs(last);
+
+        for (int b = 0; b < batchSize; b++) {
+            mLayers[last].activate(netInputs[b], layerOutputs[b]);
+            System.arraycopy(layerOutputs[b], 0, outputs[b], 0, mLayerSizes[last]);
+        }
+    }
+
+    /**
+     * Evaluates every layer except the output layer, and calculates the net
+     * inputs to the output layer
+     * @return The net inputs to the output layer, held in the context
+     */
+    private double[] runNetInputs(double[] input, InferenceContext context) {
+        if (input.length != mLayerSizes[0]) {
+            throw new IllegalArgumentException("Length of input must match size of input layer");
+        }
+
+        if (!context.belongsTo(this)) {
+            throw new IllegalArgumentException("The context must have been created by this model");
+        }
+
+        if (mPackInputs) {
+            mWeights[0].multiplyPacked(BitPacking.pack(input), context.getNetInputs(1));
+        } else {
+            double[] inputOutput = context.getOutput(0);
+            mLayers[0].activate(input, inputOutput);
+            mWeights[0].multiply(inputOutput, context.getNetInputs(1));
+        }
+
+        for (int i = 1; i < mWeights.length; i++) {
+            double[] layerOutput = context.getOutput(i);
+            mLayers[i].activate(context.getNetInputs(i), layerOutput);
+            mWeights[i].multiply(layerOutput, context.getNetInputs(i + 1));
+        }
+
+        return context.getNetInputs(mLayers.length - 1);
+    }
+
+    /**
+     * @return The ID which identifies this model to its contexts
+     */
+    long getId() {
+        return mId;
+    }
+
+    /**
+     * @return The number of neurons in the input layer
+     */
+    public int getInputSize() {
+        return mLayerSizes[0];
+    }
+
+    /**
+     * @return The number of neurons in the output layer
+     */
+    public int getOutputSize() {
+        return mLayerSizes[mLayerSizes.length - 1];
+    }
+}
@@ -1,6 +1,7 @@
 package com.henrythompson.neuralnets;
 
 import com.henrythompson.neuralnets.layers.AbstractLayer;
+import com.henrythompson.neuralnets.layers.ThresholdLayer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,6 +18,9 @@ public class NeuralNetwork {
     /** The AbstractLayers comprising this network */
     private final List<AbstractLayer> mLayers;
 
+    /** The order in which the layers are evaluated to process an input */
+    private final ExecutionPlan mPlan;
+
     /**
      * @param synapses The synapses holding the AbstractLayers which form this neural network.
      *                 The synapses must be in order, where the 0th synapse holds the input
@@ -29,17 +33,196 @@ public class NeuralNetwork {
     public NeuralNetwork(List<Synapse> synapses) {
         mSynapses = synapses;
         mLayers = extractLayers();
+        mPlan = new ExecutionPlan(synapses);
     }
 
     /**
      * Feeds the given input through the neural network.
      * @param input The value to feed to the input layer of the network.
-     * @return The output from the output layer of the network.
+     * @return A new array holding the output from the output layer of the network.
      */
     public double[] processInput(double[] input) {
-        mSynapses.get(0).getFromLayer().processInput(input);
-        getInputLayer().processInput(input);
-        return getOutputLayer().getLastOutput();
+        double[] output = new double[getOutputLayer().size()];
+        processInput(input, output);
+
+        return output;
+    }
+
+    /**
+     * Feeds the given input through the neural network, writing the output into
+     * an existing array. Each layer is evaluated exactly once, in the order given
+     * by the network's {@link ExecutionPlan}. Every layer and synapse reuses its
+     * own buffers, so once each has processed its first input no memory is allocated.
+     * @param input The value to feed to the input layer of the network.
+     * @param output The array into which the output from the output layer is
+     *               copied. Its length must be at least the size of the output layer.
+     */
+    public void processInput(double[] input, double[] output) {
+        double[] result = mPlan.run(input);
+        System.arraycopy(result, 0, output, 0, result.length);
+    }
+
+    /**
+     * Feeds a batch of inputs through the neural network. The weights of each
+     * synapse are applied to the whole batch at once, which is faster than
+     * processing each input in turn with {@link #processInput}. The last
+     * output of each layer is not updated, so this should not be used while
+     * training.
+     * @param inputs The values to feed to the input layer of the network
+     * @return A new array holding the output from the output layer for each
+     * input, in the same order as the inputs
+     */
+    public double[][] processBatch(double[][] inputs) {
+        double[][] outputs = new double[inputs.length][getOutputLayer().size()];
+        processBatch(inputs, outputs);
+
+        return outputs;
+    }
+
+    /**
+     * Feeds a batch of inputs through the neural network, writing the outputs
+     * into existing arrays
+     * @param inputs The values to feed to the input layer of the network
+     * @param outputs The arrays into which the output from the output layer for
+     *                each input is copied. There must be at least as many as there
+     *                are inputs, and each must be at least the size of the output layer.
+     * @see #processBatch(double[][])
+     */
+    public void processBatch(double[][] inputs, double[][] outputs) {
+        mPlan.runBatch(inputs, outputs);
+    }
+
+    /**
+     * Finds the output neuron with the largest output for an input, i.e. the
+     * most likely class when each output neuron represents a class. When the
+     * output layer is order preserving, such as a {@code SoftmaxLayer}, its
+     * activation function cannot change which neuron is largest, so it is
+     * skipped and the net inputs are compared instead. The last output of the
+     * output layer is then not updated, so this should not be used while training.
+     * @param input The value to feed to the input layer of the network
+     * @return The index of the output neuron with the largest output, or of the
+     * first of them if several are equally large
+     * @see AbstractLayer#isOrderPreserving()
+     */
+    public int classify(double[] input) {
+        double[] scores = getOutputLayer().isOrderPreserving() ? mPlan.runNetInputs(input) : mPlan.run(input);
+        return VectorMath.argmax(scores, scores.length);
+    }
+
+    /**
+     * Classifies a batch of inputs in the same way as {@link #classify}, applying
+     * the weights of each synapse to the whole batch at once as in {@link #processBatch}
+     * @param inputs The values to feed to the input layer of the network
+     * @return The index of the output neuron with the largest output for each
+     * input, in the same order as the inputs
+     */
+    public int[] classifyBatch(double[][] inputs) {
+        AbstractLayer outputLayer = getOutputLayer();
+        int outputSize = outputLayer.size();
+        int[] classes = new int[inputs.length];
+        double[][] netInputs = mPlan.runBatchNetInputs(inputs);
+        double[] output = outputLayer.isOrderPreserving() ? null : new double[outputSize];
+
+        for (int b = 0; b < classes.length; b++) {
+            double[] scores = netInputs[b];
+
+            if (output != null) {
+                outputLayer.activate(scores, output);
+                scores = output;
+            }
+
+            classes[b] = VectorMath.argmax(scores, outputSize);
+        }
+
+        return classes;
+    }
+
+    /**
+     * Finds the output neurons with the k largest outputs for an input. The
+     * activation function of the output layer is skipped in the same way as
+     * in {@link #classify}.
+     * @param input The value to feed to the input layer of the network
+     * @param k The number of neurons to find, between 1 and the size of the output layer
+     * @return The indices of the k neurons with the largest outputs, largest first
+     */
+    public int[] topK(double[] input, int k) {
+        int[] indices = createTopKIndices(k);
+        double[] scores = getOutputLayer().isOrderPreserving() ? mPlan.runNetInputs(input) : mPlan.run(input);
+        VectorMath.topK(scores, scores.length, indices);
+
+        return indices;
+    }
+
+    /**
+     * Finds the output neurons with the k largest outputs for an input, along
+     * with those outputs. Since the outputs are needed, the activation function
+     * of the output layer is always performed.
+     * @param input The value to feed to the input layer of the network
+     * @param k The number of neurons to find, between 1 and the size of the output layer
+     * @param scores The array into which the output of each of the k neurons is
+     *               written, in the same order as the indices returned
+     * @return The indices of the k neurons with the largest outputs, largest first
+     */
+    public int[] topK(double[] input, int k, double[] scores) {
+        int[] indices = createTopKIndices(k);
+        double[] output = mPlan.run(input);
+        VectorMath.topK(output, output.length, indices);
+
+        for (int i = 0; i < k; i++) {
+            scores[i] = output[indices[i]];
+        }
+
+        return indices;
+    }
+
+    private int[] createTopKIndices(int k) {
+        if (k < 1 || k > getOutputLayer().size()) {
+            throw new IllegalArgumentException("k must be between 1 and the size of the output layer");
+        }
+
+        return new int[k];
+    }
+
+    /**
+     * Feeds an input packed by {@link BitPacking#pack} through the neural network.
+     * Since a {@code ThresholdLayer} outputs 1 for exactly those inputs whose bit
+     * is set, the input layer is bypassed and the packed bits are passed straight
+     * to the first synapse. The result is the same as calling {@link #processInput}
+     * with the unpacked input, except that the input layer's last output is not
+     * updated, so this should not be used while training.
+     * @param input The packed input. The network must support packed inputs,
+     *              and no bit at or above the size of the input layer may be set.
+     * @return A new array holding the output from the output layer of the network.
+     * @see #supportsPackedInput()
+     */
+    public double[] processPackedInput(long input) {
+        if (!supportsPackedInput()) {
+            throw new IllegalArgumentException("Packed inputs require a threshold input layer of at most "
+                    + BitPacking.MAX_BITS + " neurons");
+        }
+
+        if ((input & ~BitPacking.mask(getInputLayer().size())) != 0) {
+            throw new IllegalArgumentException("Packed input has bits set beyond the size of the input layer");
+        }
+
+        return mPlan.runPacked(input).clone();
+    }
+
+    /**
+     * @return {@code true} if inputs to this network may be packed into a {@code long}
+     * and passed to {@link #processPackedInput}; i.e. if the input layer is a
+     * {@code ThresholdLayer} of no more than 64 neurons.
+     */
+    public boolean supportsPackedInput() {
+        AbstractLayer inputLayer = getInputLayer();
+        return inputLayer instanceof ThresholdLayer && inputLayer.size() <= BitPacking.MAX_BITS;
+    }
+
+    /**
+     * @return The order in which the layers of this network are evaluated
+     */
+    public ExecutionPlan getExecutionPlan() {
+        return mPlan;
     }
 
     /**
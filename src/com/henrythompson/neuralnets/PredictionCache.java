@@ -0,0 +1,222 @@
+package com.henrythompson.neuralnets;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the outputs of a {@link NeuralNetwork} for recently processed
+ * inputs, so that an input which recurs, such as a common glyph in OCR, is
+ * only fed through the network once. Inputs are looked up by the hash of
+ * their values and then compared in full, so two different inputs never
+ * share an output.
+ *
+ * The cache holds at most a fixed number of outputs, discarding the least
+ * recently used when it is full, and optionally discards outputs once they
+ * reach a maximum age. Every output is discarded as soon as the weights of
+ * any synapse in the network are modified or replaced, e.g. while the
+ * network is being retrained. If the weights of any synapse can be modified
+ * but do not count their modifications, nothing is cached, since the cache
+ * could not tell when its outputs were out of date.
+ *
+ * Like the network itself, a cache must not be used by more than one thread
+ * at a time.
+ */
+public class PredictionCache {
+    /** The network whose outputs are cached */
+    private final NeuralNetwork mNetwork;
+
+    /** The largest number of outputs held */
+    private final int mMaxSize;
+
+    /** The age in nanoseconds at which an output is discarded, or
+     * {@code Long.MAX_VALUE} if outputs never expire */
+    private final long mTimeToLive;
+
+    /** The cached outputs in order of use, least recently used first */
+    private final LinkedHashMap<Key, Entry> mEntries;
+
+    /** The weights of each synapse when the cached outputs were calculated */
+    private final IWeights[] mWeights;
+
+    /** The modification count of each of mWeights when the cached outputs
+     * were calculated */
+    private final long[] mModificationCounts;
+
+    /** Set if the modifications of every one of mWeights are counted, so
+     * that outputs may be cached */
+    private boolean mCanCache;
+
+    private long mHitCount;
+    private long mMissCount;
+
+    /**
+     * Creates a cache whose outputs never expire
+     * @param network The network whose outputs are cached
+     * @param maxSize The largest number of outputs held
+     */
+    public PredictionCache(NeuralNetwork network, int maxSize) {
+        this(network, maxSize, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param network The network whose outputs are cached
+     * @param maxSize The largest number of outputs held
+     * @param timeToLive The age at which an output is discarded
+     * @param unit The unit of {@code timeToLive}
+     */
+    public PredictionCache(NeuralNetwork network, int maxSize, long timeToLive, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one output");
+        }
+
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("The time to live should be positive");
+        }
+
+        mNetwork = network;
+        mMaxSize = maxSize;
+        mTimeToLive = unit.toNanos(timeToLive);
+
+        List<Synapse> synapses = network.getSynapses();
+        mWeights = new IWeights[synapses.size()];
+        mModificationCounts = new long[synapses.size()];
+
+        mEntries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > mMaxSize;
+            }
+        };
+
+        recordWeights();
+    }
+
+    /**
+     * Returns the output of the network for an input, feeding it through the
+     * network only if its output is not already cached
+     * @param input The value to feed to the input layer of the network
+     * @return A new array holding the output of the output layer
+     */
+    public double[] processInput(double[] input) {
+        if (haveWeightsChanged()) {
+            clear();
+            recordWeights();
+        }
+
+        long now = System.nanoTime();
+        Key key = new Key(input);
+        Entry entry = mEntries.get(key);
+
+        if (entry != null && now - entry.mCreated < mTimeToLive) {
+            mHitCount++;
+            return entry.mOutput.clone();
+        }
+
+        mMissCount++;
+
+        // The key keeps its own copy so the caller may reuse the input array
+        double[] output = mNetwork.processInput(input);
+
+        if (mCanCache) {
+            mEntries.put(new Key(input.clone()), new Entry(output.clone(), now));
+        }
+
+        return output;
+    }
+
+    /** Discards every cached output */
+    public void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * @return The number of outputs currently cached, including any which
+     * have expired but not yet been discarded
+     */
+    public int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @return The number of inputs whose output was found in the cache
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return The number of inputs which had to be fed through the network
+     */
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return {@code true} if the weights of any synapse have been modified or
+     * replaced since the cached outputs were calculated
+     */
+    private boolean haveWeightsChanged() {
+        for (int i = 0; i < mWeights.length; i++) {
+            IWeights weights = mNetwork.getSynapse(i).getWeights();
+
+            long count = weights.getModificationCount();
+
+            if (weights != mWeights[i] || count < 0 || count != mModificationCounts[i]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void recordWeights() {
+        mCanCache = true;
+
+        for (int i = 0; i < mWeights.length; i++) {
+            mWeights[i] = mNetwork.getSynapse(i).getWeights();
+            mModificationCounts[i] = mWeights[i].getModificationCount();
+
+            if (mModificationCounts[i] < 0) {
+                mCanCache = false;
+            }
+        }
+    }
+
+    /** An input, compared by its values */
+    private static class Key {
+        private final double[] mInput;
+        private final int mHash;
+
+        Key(double[] input) {
+            mInput = input;
+            mHash = Arrays.hashCode(input);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && mHash == ((Key) other).mHash
+                    && Arrays.equals(mInput, ((Key) other).mInput);
+        }
+    }
+
+    /** A cached output and the time at which it was calculated */
+    private static class Entry {
+        private final double[] mOutput;
+        private final long mCreated;
+
+        Entry(double[] output, long created) {
+            mOutput = output;
+            mCreated = created;
+        }
+    }
+}
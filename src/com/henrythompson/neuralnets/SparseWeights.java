@@ -0,0 +1,290 @@
+package com.henrythompson.neuralnets;
+
+import java.util.Arrays;
+
+/**
+ * Holds the connection weights between two layers of neurons when most of
+ * them are zero, such as after a network has been pruned. Only the non-zero
+ * weights are stored, in compressed sparse row form with one row per neuron
+ * in the to layer, so that processing an input takes time and memory
+ * proportional to the number of non-zero weights rather than to the product
+ * of the sizes of the two layers. The biases are always stored.
+ *
+ * The positions of the non-zero weights are fixed when the weights are
+ * created. Training only ever adjusts the weights which are stored, so a
+ * pruned connection stays pruned, and setting a pruned connection to
+ * anything other than zero is not allowed.
+ *
+ * @author Henry Thompson
+ */
+public class SparseWeights implements IWeights {
+    /** The index in mColumns and mValues at which the weights into each
+     * neuron in the to layer start. The weights into the j<sup>th</sup>
+     * neuron in the to layer are found between mRowStart[j] inclusive and
+     * mRowStart[j + 1] exclusive. */
+    private final int[] mRowStart;
+
+    /** The index of the from neuron of each stored weight, in ascending order
+     * within each row */
+    private final int[] mColumns;
+
+    /** The value of each stored weight */
+    private final double[] mValues;
+
+    /** The bias of each neuron in the to layer */
+    private final double[] mBiases;
+
+    /** The number of neurons in the from layer */
+    private final int mFromLayerSize;
+
+    /** The number of neurons in the to layer */
+    private final int mToLayerSize;
+
+    /** The number of times these weights have been modified */
+    private long mModificationCount;
+
+    /**
+     * Instantiates a new set of sparse weights holding every weight in
+     * another set of weights whose magnitude is greater than a threshold.
+     * Every other weight is pruned. All of the biases are kept.
+     * @param weights The weights to copy
+     * @param threshold Weights whose magnitude is less than or equal to this
+     *                  are pruned. Passing 0 keeps every non-zero weight.
+     */
+    public SparseWeights(IWeights weights, double threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The threshold should not be negative");
+        }
+
+        mFromLayerSize = weights.getFromLayerSize();
+        mToLayerSize = weights.getToLayerSize();
+        mRowStart = new int[mToLayerSize + 1];
+        mBiases = new double[mToLayerSize];
+
+        int count = 0;
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            for (int from = 0; from < mFromLayerSize; from++) {
+                if (Math.abs(weights.getWeight(from, to)) > threshold) {
+                    count++;
+                }
+            }
+        }
+
+        mColumns = new int[count];
+        mValues = new double[count];
+
+        int i = 0;
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            mRowStart[to] = i;
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                double weight = weights.getWeight(from, to);
+
+                if (Math.abs(weight) > threshold) {
+                    mColumns[i] = from;
+                    mValues[i] = weight;
+                    i++;
+                }
+            }
+
+            mBiases[to] = weights.getBias(to);
+        }
+
+        mRowStart[mToLayerSize] = i;
+    }
+
+    /**
+     * @return The number of weights which are stored, not including the biases
+     */
+    public int getNonZeroCount() {
+        return mValues.length;
+    }
+
+    @Override
+    public double getBias(int toNeuronIndex) {
+        checkToIndex(toNeuronIndex);
+        return mBiases[toNeuronIndex];
+    }
+
+    @Override
+    public void setWeight(int fromNeuronIndex, int toNeuronIndex, double weight) {
+        if (fromNeuronIndex == mFromLayerSize) {
+            setBias(toNeuronIndex, weight);
+            return;
+        }
+
+        int i = find(fromNeuronIndex, toNeuronIndex);
+
+        if (i >= 0) {
+            mValues[i] = weight;
+            mModificationCount++;
+        } else if (weight != 0) {
+            throw new IllegalArgumentException("The connection from neuron " + fromNeuronIndex
+                    + " to neuron " + toNeuronIndex + " has been pruned so must remain zero");
+        }
+    }
+
+    @Override
+    public double getWeight(int fromNeuronIndex, int toNeuronIndex) {
+        if (fromNeuronIndex == mFromLayerSize) {
+            return getBias(toNeuronIndex);
+        }
+
+        int i = find(fromNeuronIndex, toNeuronIndex);
+        return i >= 0 ? mValues[i] : 0;
+    }
+
+    @Override
+    public void setBias(int toNeuronIndex, double bias) {
+        checkToIndex(toNeuronIndex);
+        mBiases[toNeuronIndex] = bias;
+        mModificationCount++;
+    }
+
+    @Override
+    public void adjustWeight(int fromIndex, int toIndex, double delta) {
+        setWeight(fromIndex, toIndex, getWeight(fromIndex, toIndex) + delta);
+    }
+
+    @Override
+    public long getModificationCount() {
+        return mModificationCount;
+    }
+
+    @Override
+    public int getFromLayerSize() {
+        return mFromLayerSize;
+    }
+
+    @Override
+    public int getToLayerSize() {
+        return mToLayerSize;
+    }
+
+    /**
+     * Sets each stored weight and bias to be a random value within a range
+     * of -amplitude to amplitude. Pruned weights remain zero.
+     * @param amplitude Each weight will be set to a random weight
+     * whose value lies between amplitude and -amplitude
+     */
+    @Override
+    public void randomize(final double amplitude) {
+        mModificationCount++;
+        double upperBound = Math.abs(amplitude);
+        double lowerBound = -upperBound;
+        double range = upperBound - lowerBound;
+
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] = lowerBound + Math.random() * range;
+        }
+
+        for (int i = 0; i < mBiases.length; i++) {
+            mBiases[i] = lowerBound + Math.random() * range;
+        }
+    }
+
+    @Override
+    public void multiply(double[] fromValues, double[] netInputs) {
+        for (int to = 0; to < mToLayerSize; to++) {
+            double sum = mBiases[to];
+            int end = mRowStart[to + 1];
+
+            for (int i = mRowStart[to]; i < end; i++) {
+                sum += mValues[i] * fromValues[mColumns[i]];
+            }
+
+            netInputs[to] = sum;
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer when every
+     * neuron in the from layer outputs either 0 or 1, as described in
+     * {@link IWeights#multiplyPacked}. Each row's stored weights are visited
+     * once and kept if their from neuron's bit is set, so pruned weights cost
+     * nothing.
+     * @param fromBits The output of each neuron in the from layer, where the
+     *                 i<sup>th</sup> bit is set if the i<sup>th</sup> neuron
+     *                 outputs 1. There must be no more than 64 from neurons.
+     * @param netInputs The array into which the net input to each neuron in
+     * the to layer is written. Any existing values are overwritten.
+     */
+    @Override
+    public void multiplyPacked(long fromBits, double[] netInputs) {
+        for (int to = 0; to < mToLayerSize; to++) {
+            double sum = mBiases[to];
+            int end = mRowStart[to + 1];
+
+            for (int i = mRowStart[to]; i < end; i++) {
+                if ((fromBits & (1L << mColumns[i])) != 0) {
+                    sum += mValues[i];
+                }
+            }
+
+            netInputs[to] = sum;
+        }
+    }
+
+    @Override
+    public void multiplyTransposed(double[] toValues, double[] result) {
+        for (int from = 0; from < mFromLayerSize; from++) {
+            result[from] = 0;
+        }
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            double delta = toValues[to];
+            int end = mRowStart[to + 1];
+
+            for (int i = mRowStart[to]; i < end; i++) {
+                result[mColumns[i]] += delta * mValues[i];
+            }
+        }
+    }
+
+    /**
+     * Adjusts every stored weight by the scaled outer product of a value for
+     * each neuron in the from layer and a value for each neuron in the to
+     * layer, as described in {@link IWeights#adjustByOuterProduct}. Pruned
+     * weights are left at zero.
+     * @param scale The amount by which each product should be scaled
+     * @param fromValues A value for each neuron in the from layer
+     * @param toValues A value for each neuron in the to layer
+     */
+    @Override
+    public void adjustByOuterProduct(double scale, double[] fromValues, double[] toValues) {
+        mModificationCount++;
+        for (int to = 0; to < mToLayerSize; to++) {
+            double delta = scale * toValues[to];
+            int end = mRowStart[to + 1];
+
+            for (int i = mRowStart[to]; i < end; i++) {
+                mValues[i] += delta * fromValues[mColumns[i]];
+            }
+
+            mBiases[to] += delta;
+        }
+    }
+
+    /**
+     * @return The position in mValues of the weight between the specified
+     * neurons, or a negative number if that weight has been pruned
+     */
+    private int find(int fromNeuronIndex, int toNeuronIndex) {
+        if (fromNeuronIndex < 0 || fromNeuronIndex >= mFromLayerSize) {
+            throw new IndexOutOfBoundsException("From neuron index " + fromNeuronIndex + " out of range");
+        }
+
+        checkToIndex(toNeuronIndex);
+
+        return Arrays.binarySearch(mColumns, mRowStart[toNeuronIndex],
+                mRowStart[toNeuronIndex + 1], fromNeuronIndex);
+    }
+
+    private void checkToIndex(int toNeuronIndex) {
+        if (toNeuronIndex < 0 || toNeuronIndex >= mToLayerSize) {
+            throw new IndexOutOfBoundsException("To neuron index " + toNeuronIndex + " out of range");
+        }
+    }
+}
@@ -16,7 +16,7 @@ public class Synapse implements OutputListener {
      * and the next layer. Each weight represents
      * a connection.
      */
-    private final IWeights mWeights;
+    private IWeights mWeights;
 
     /** The layer from which the connection is made */
     private final AbstractLayer mFromLayer;
@@ -30,6 +30,10 @@ public class Synapse implements OutputListener {
     /** The number of neurons in the to layer */
     private final int mToLayerSize;
 
+    /** The buffer into which the net inputs to the to layer are
+     * calculated, reused for every output of the from layer */
+    private final double[] mNetInputs;
+
     public Synapse(AbstractLayer fromLayer, AbstractLayer toLayer) {
         this(fromLayer, toLayer, new Weights(fromLayer.size(), toLayer.size()));
     }
@@ -55,6 +59,7 @@ public class Synapse implements OutputListener {
 
         mFromLayerSize = mFromLayer.size();
         mToLayerSize = mToLayer.size();
+        mNetInputs = new double[mToLayerSize];
 
         mFromLayer.addOutputListener(this);
     }
@@ -79,6 +84,18 @@ public class Synapse implements OutputListener {
         mToLayer.processInput(netInputs);
     }
 
+    /**
+     * Passes the output of the from layer to the to layer when every neuron in
+     * the from layer outputs either 0 or 1. This is equivalent to calling
+     * {@link #onOutput} with the unpacked output, but the net inputs are
+     * calculated by adding together the weights of each neuron whose bit is
+     * set rather than by multiplying every weight.
+     * @param output The output of the from layer packed by {@link BitPacking#pack}
+     */
+    public void onPackedOutput(long output) {
+        mToLayer.processInput(calculatePackedNetInputs(output));
+    }
+
     public AbstractLayer getToLayer() {
         return mToLayer;
     }
@@ -95,22 +112,52 @@ public class Synapse implements OutputListener {
      * @param output The output of the from layer to be
      * weighted and summed
      * @return The weighted, biased, summed input to each
-     * individual neuron in the to layer
+     * individual neuron in the to layer. This buffer is
+     * reused by the next call.
      */
-    private double[] calculateNetInputs(double[] output) {
-        double[] result = new double[mToLayerSize];
-
-        for (int i = 0; i < mToLayerSize; i++) {
-            for (int j = 0; j < mFromLayerSize; j++) {
-                result[i] += output[j] * mWeights.getWeight(j, i);
-            }
-            result[i] += mWeights.getBias(i);
+    public double[] calculateNetInputs(double[] output) {
+        mWeights.multiply(output, mNetInputs);
+        return mNetInputs;
+    }
+
+    /**
+     * Calculates the net input to each neuron in the to layer when every
+     * neuron in the from layer outputs either 0 or 1
+     * @param output The output of the from layer packed by {@link BitPacking#pack}.
+     *               No bit at or above the size of the from layer may be set.
+     * @return The weighted, biased, summed input to each individual neuron
+     * in the to layer. This buffer is reused by the next call.
+     */
+    public double[] calculatePackedNetInputs(long output) {
+        if (mFromLayerSize > BitPacking.MAX_BITS) {
+            throw new IllegalArgumentException("The from layer has too many neurons for its output to be packed");
+        }
+
+        if ((output & ~BitPacking.mask(mFromLayerSize)) != 0) {
+            throw new IllegalArgumentException("Packed output has bits set beyond the size of the from layer");
         }
 
-        return result;
+        mWeights.multiplyPacked(output, mNetInputs);
+        return mNetInputs;
     }
 
     public IWeights getWeights() {
         return mWeights;
     }
+
+    /**
+     * Replaces the weights of this synapse, for example with a
+     * {@link SparseWeights} copy once the network has been pruned
+     * @param weights The new weights. Their size must be consistent
+     * with the sizes of the from layer and the to layer.
+     */
+    public void setWeights(IWeights weights) {
+        if (weights.getFromLayerSize() != mFromLayerSize || weights.getToLayerSize() != mToLayerSize) {
+            throw new IllegalArgumentException("The size of the weights "
+                    + "matrix should be consistent with the sizes of the "
+                    + "input and output layers");
+        }
+
+        mWeights = weights;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,255 @@
+package com.henrythompson.neuralnets;
+
+/**
+ * The dense loops which dominate the time spent processing inputs and training
+ * a network. Each loop is written so that the JIT compiler can turn it into
+ * SIMD instructions: the element-wise loops ({@link #axpy}, the second pass of
+ * {@link #sigmoid} and {@link #scale}) have no dependencies between iterations
+ * so they are vectorised automatically, while the reductions ({@link #dot} and
+ * {@link #sum}) keep four independent partial sums so that consecutive
+ * multiply-adds do not each wait on the result of the previous one.
+ *
+ * @author Henry Thompson
+ */
+public final class VectorMath {
+    private VectorMath() {
+    }
+
+    /**
+     * Calculates the dot product of two vectors held within arrays
+     * @param a The array holding the first vector
+     * @param aOffset The index in {@code a} at which the first vector starts
+     * @param b The array holding the second vector
+     * @param bOffset The index in {@code b} at which the second vector starts
+     * @param length The number of elements in each vector
+     * @return The sum of {@code a[aOffset + i] * b[bOffset + i]} for every
+     * {@code i} less than {@code length}
+     */
+    public static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+
+        int i = 0;
+        int bound = length - 3;
+
+        for (; i < bound; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Adds a scaled vector onto another, i.e. {@code y += alpha * x}
+     * @param alpha The amount by which to scale {@code x}
+     * @param x The array holding the vector to be scaled and added
+     * @param xOffset The index in {@code x} at which the vector starts
+     * @param y The array holding the vector to be added to
+     * @param yOffset The index in {@code y} at which the vector starts
+     * @param length The number of elements in each vector
+     */
+    public static void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    /**
+     * Adds one vector onto another, i.e. {@code y += x}
+     * @param x The array holding the vector to be added
+     * @param xOffset The index in {@code x} at which the vector starts
+     * @param y The array holding the vector to be added to
+     * @param yOffset The index in {@code y} at which the vector starts
+     * @param length The number of elements in each vector
+     */
+    public static void add(double[] x, int xOffset, double[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += x[xOffset + i];
+        }
+    }
+
+    /**
+     * Multiplies every element of a vector by a constant
+     * @param values The vector to scale, which is modified in place
+     * @param length The number of elements to scale
+     * @param factor The amount by which to scale each element
+     */
+    public static void scale(double[] values, int length, double factor) {
+        for (int i = 0; i < length; i++) {
+            values[i] *= factor;
+        }
+    }
+
+    /**
+     * @param values The vector whose elements should be summed
+     * @param length The number of elements to sum
+     * @return The sum of the first {@code length} elements
+     */
+    public static double sum(double[] values, int length) {
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+
+        int i = 0;
+        int bound = length - 3;
+
+        for (; i < bound; i += 4) {
+            sum0 += values[i];
+            sum1 += values[i + 1];
+            sum2 += values[i + 2];
+            sum3 += values[i + 3];
+        }
+
+        for (; i < length; i++) {
+            sum0 += values[i];
+        }
+
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Applies the sigmoid function {@code 1 / (1 + e^-x)} to every element of
+     * a vector. The exponentials are calculated first so that the divisions can
+     * then be performed in a separate loop which can be vectorised.
+     * @param input The values to which the function should be applied
+     * @param output The array into which the results are written. This may be
+     * the same array as {@code input}.
+     * @param length The number of elements to process
+     */
+    public static void sigmoid(double[] input, double[] output, int length) {
+        for (int i = 0; i < length; i++) {
+            output[i] = Math.exp(-input[i]);
+        }
+
+        for (int i = 0; i < length; i++) {
+            output[i] = 1 / (1 + output[i]);
+        }
+    }
+
+    /**
+     * Raises e to the power of every element of a vector
+     * @param input The exponents
+     * @param output The array into which the results are written. This may be
+     * the same array as {@code input}.
+     * @param length The number of elements to process
+     */
+    public static void exp(double[] input, double[] output, int length) {
+        for (int i = 0; i < length; i++) {
+            output[i] = Math.exp(input[i]);
+        }
+    }
+
+    /**
+     * Finds the largest element of a vector
+     * @param values The vector
+     * @param length The number of elements to search, which must be at least 1
+     * @return The index of the largest element, or of the first of them if
+     * several are equally large
+     */
+    public static int argmax(double[] values, int length) {
+        int best = 0;
+
+        for (int i = 1; i < length; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Finds the k largest elements of a vector, where k is the length of
+     * {@code indices}. This takes time proportional to the length of the vector
+     * multiplied by k, which is faster than sorting for the small k typically needed.
+     * @param values The vector
+     * @param length The number of elements to search, which must be at least k
+     * @param indices The array into which the indices of the k largest elements
+     *                are written, largest first. Of equally large elements the
+     *                one with the lowest index comes first.
+     */
+    public static void topK(double[] values, int length, int[] indices) {
+        int k = indices.length;
+
+        if (k == 0) {
+            return;
+        }
+
+        for (int i = 0; i < length; i++) {
+            int found = Math.min(i, k);
+
+            if (found == k && !(values[i] > values[indices[k - 1]])) {
+                continue;
+            }
+
+            int j = Math.min(found, k - 1);
+
+            while (j > 0 && values[i] > values[indices[j - 1]]) {
+                indices[j] = indices[j - 1];
+                j--;
+            }
+
+            indices[j] = i;
+        }
+    }
+
+    /**
+     * Calculates the dot product of two single-precision vectors held within
+     * arrays. Twice as many {@code float} elements fit in each SIMD register
+     * as {@code double} elements.
+     * @param a The array holding the first vector
+     * @param aOffset The index in {@code a} at which the first vector starts
+     * @param b The array holding the second vector
+     * @param bOffset The index in {@code b} at which the second vector starts
+     * @param length The number of elements in each vector
+     * @return The sum of {@code a[aOffset + i] * b[bOffset + i]} for every
+     * {@code i} less than {@code length}
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+
+        int i = 0;
+        int bound = length - 3;
+
+        for (; i < bound; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Adds a scaled single-precision vector onto another, i.e. {@code y += alpha * x}
+     * @param alpha The amount by which to scale {@code x}
+     * @param x The array holding the vector to be scaled and added
+     * @param xOffset The index in {@code x} at which the vector starts
+     * @param y The array holding the vector to be added to
+     * @param yOffset The index in {@code y} at which the vector starts
+     * @param length The number of elements in each vector
+     */
+    public static void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+}
@@ -24,6 +24,9 @@ public class Weights implements IWeights {
      */
     private final double[][] mWeights;
 
+    /** The number of times these weights have been modified */
+    private long mModificationCount;
+
     /** Instantiates a new set of weights between two layers
      *
      * @param fromLayerSize The number of neurons in the layer the synapse is connected from.
@@ -77,6 +80,7 @@ public class Weights implements IWeights {
      */
     @Override
     public void setWeight(int fromNeuronIndex, int toNeuronIndex, double weight) {
+        mModificationCount++;
         mWeights[fromNeuronIndex][toNeuronIndex] = weight;
     }
 
@@ -103,6 +107,7 @@ public class Weights implements IWeights {
      */
     @Override
     public void setBias(int toNeuronIndex, double bias) {
+        mModificationCount++;
         mWeights[mWeights.length - 1][toNeuronIndex] = bias;
     }
 
@@ -119,9 +124,15 @@ public class Weights implements IWeights {
      */
     @Override
     public void adjustWeight(int fromIndex, int toIndex, double delta) {
+        mModificationCount++;
         mWeights[fromIndex][toIndex] += delta;
     }
 
+    @Override
+    public long getModificationCount() {
+        return mModificationCount;
+    }
+
     /**
      * @return The number of neurons in the from layer
      */
@@ -138,6 +149,115 @@ public class Weights implements IWeights {
         return mWeights[0].length;
     }
 
+    /**
+     * Calculates the net input to every neuron in the to layer. Each row of
+     * mWeights is added in turn, scaled by the output of its from neuron, so
+     * that every row is read sequentially.
+     * @param fromValues The output of each neuron in the from layer
+     * @param netInputs The array into which the net input to each neuron in
+     * the to layer is written
+     */
+    @Override
+    public void multiply(double[] fromValues, double[] netInputs) {
+        int fromLayerSize = mWeights.length - 1;
+        int toLayerSize = mWeights[0].length;
+        double[] biases = mWeights[fromLayerSize];
+
+        System.arraycopy(biases, 0, netInputs, 0, toLayerSize);
+
+        for (int from = 0; from < fromLayerSize; from++) {
+            VectorMath.axpy(fromValues[from], mWeights[from], 0, netInputs, 0, toLayerSize);
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer for each of a
+     * batch of outputs of the from layer. Each row of mWeights is added onto
+     * the net inputs of every sample before moving to the next row, so that
+     * each row is read from memory once per batch.
+     * @param fromValues The outputs of the from layer, one array per sample
+     * @param netInputs The arrays into which the net inputs for each sample
+     *                  are written
+     * @param batchSize The number of samples to process
+     */
+    @Override
+    public void multiplyBatch(double[][] fromValues, double[][] netInputs, int batchSize) {
+        int fromLayerSize = mWeights.length - 1;
+        int toLayerSize = mWeights[0].length;
+        double[] biases = mWeights[fromLayerSize];
+
+        for (int b = 0; b < batchSize; b++) {
+            System.arraycopy(biases, 0, netInputs[b], 0, toLayerSize);
+        }
+
+        for (int from = 0; from < fromLayerSize; from++) {
+            double[] row = mWeights[from];
+
+            for (int b = 0; b < batchSize; b++) {
+                VectorMath.axpy(fromValues[b][from], row, 0, netInputs[b], 0, toLayerSize);
+            }
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer when every
+     * neuron in the from layer outputs either 0 or 1. The row of mWeights
+     * belonging to each from neuron whose bit is set is added in turn.
+     * @param fromBits The output of each neuron in the from layer, one bit
+     *                 per neuron
+     * @param netInputs The array into which the net input to each neuron in
+     * the to layer is written
+     */
+    @Override
+    public void multiplyPacked(long fromBits, double[] netInputs) {
+        int fromLayerSize = mWeights.length - 1;
+        int toLayerSize = mWeights[0].length;
+
+        System.arraycopy(mWeights[fromLayerSize], 0, netInputs, 0, toLayerSize);
+
+        for (long bits = fromBits; bits != 0; bits &= bits - 1) {
+            VectorMath.add(mWeights[Long.numberOfTrailingZeros(bits)], 0, netInputs, 0, toLayerSize);
+        }
+    }
+
+    /**
+     * Multiplies a value for each neuron in the to layer by the transpose
+     * of these weights
+     * @param toValues A value for each neuron in the to layer
+     * @param result The array into which the weighted sum for each neuron
+     * in the from layer is written
+     */
+    @Override
+    public void multiplyTransposed(double[] toValues, double[] result) {
+        int fromLayerSize = mWeights.length - 1;
+        int toLayerSize = mWeights[0].length;
+
+        for (int from = 0; from < fromLayerSize; from++) {
+            result[from] = VectorMath.dot(mWeights[from], 0, toValues, 0, toLayerSize);
+        }
+    }
+
+    /**
+     * Adjusts every weight by the scaled outer product of a value for
+     * each neuron in the from layer and a value for each neuron in the
+     * to layer
+     * @param scale The amount by which each product should be scaled
+     * @param fromValues A value for each neuron in the from layer
+     * @param toValues A value for each neuron in the to layer
+     */
+    @Override
+    public void adjustByOuterProduct(double scale, double[] fromValues, double[] toValues) {
+        mModificationCount++;
+        int fromLayerSize = mWeights.length - 1;
+        int toLayerSize = mWeights[0].length;
+
+        for (int from = 0; from <= fromLayerSize; from++) {
+            // The final row holds the biases, whose from neuron always outputs 1
+            double z = scale * (from != fromLayerSize ? fromValues[from] : 1);
+            VectorMath.axpy(z, toValues, 0, mWeights[from], 0, toLayerSize);
+        }
+    }
+
     /**
      * Sets each weight to be a random value within a range of
      * -amplitude to amplitude. For example, if amplitude == 0.4
@@ -148,6 +268,7 @@ public class Weights implements IWeights {
      */
     @Override
     public void randomize(final double amplitude) {
+        mModificationCount++;
         double upperBound = Math.abs(amplitude);
         double lowerBound = -upperBound;
         double range = upperBound - lowerBound;
@@ -0,0 +1,40 @@
+package com.henrythompson.neuralnets.compilation;
+
+/**
+ * A network which has been compiled into a class of its own by
+ * {@link NetworkCompiler}. It processes inputs in the same way as the
+ * {@code NeuralNetwork} from which it was compiled, but it holds no state
+ * other than its weights, so it may be used by any number of threads at once.
+ */
+public interface CompiledNetwork {
+    /**
+     * Feeds the given input through the network
+     * @param input The value to feed to the input layer of the network
+     * @return A new array holding the output of the output layer
+     */
+    default double[] processInput(double[] input) {
+        double[] output = new double[getOutputSize()];
+        processInput(input, output);
+
+        return output;
+    }
+
+    /**
+     * Feeds the given input through the network, writing the output into an
+     * existing array. No memory is allocated.
+     * @param input The value to feed to the input layer of the network
+     * @param output The array into which the output of the output layer is
+     *               written. Its length must be at least the size of the output layer.
+     */
+    void processInput(double[] input, double[] output);
+
+    /**
+     * @return The number of neurons in the input layer
+     */
+    int getInputSize();
+
+    /**
+     * @return The number of neurons in the output layer
+     */
+    int getOutputSize();
+}
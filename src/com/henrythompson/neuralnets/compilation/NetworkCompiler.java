@@ -0,0 +1,377 @@
+package com.henrythompson.neuralnets.compilation;
+
+import com.henrythompson.neuralnets.IWeights;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.Synapse;
+import com.henrythompson.neuralnets.layers.AbstractLayer;
+import com.henrythompson.neuralnets.layers.LinearLayer;
+import com.henrythompson.neuralnets.layers.SigmoidLayer;
+import com.henrythompson.neuralnets.layers.SoftmaxLayer;
+import com.henrythompson.neuralnets.layers.ThresholdLayer;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles a small trained network into a class of its own, implementing
+ * {@link CompiledNetwork}. For networks as small as those created by
+ * {@code XORNetworkBuilder} and {@code PerceptronBuilder}, calling each layer
+ * and synapse through their interfaces and copying between their arrays costs
+ * far more than the arithmetic itself. The generated class instead calculates
+ * the output of every neuron in a single method, with each weight written
+ * into it as a constant and every loop unrolled, so that each output is held
+ * in a local variable. Weights of exactly zero are left out altogether.
+ *
+ * The class is generated as Java source, compiled in memory by the system
+ * Java compiler and loaded by a class loader of its own, so this requires a
+ * JDK rather than a JRE. Only networks whose layers are all
+ * {@link LinearLayer}s, {@link SigmoidLayer}s, {@link SoftmaxLayer}s or
+ * {@link ThresholdLayer}s can be compiled.
+ *
+ * Since the generated method grows with the number of weights, only networks
+ * with at most {@link #MAX_WEIGHTS} weights, including biases, can be
+ * compiled. HotSpot will not JIT compile a method longer than 8000 bytes of
+ * bytecode, so a larger network would be interpreted, and run far more slowly
+ * than the {@code NeuralNetwork} itself.
+ */
+public class NetworkCompiler {
+    /** The largest number of weights, including biases, which a compiled
+     * network may have. Each weight takes about ten bytes of bytecode. */
+    public static final int MAX_WEIGHTS = 512;
+
+    /** The package into which generated classes are placed */
+    private static final String PACKAGE = NetworkCompiler.class.getPackage().getName();
+
+    /** Gives each generated class a unique name */
+    private static final AtomicInteger sClassCount = new AtomicInteger();
+
+    /** The network to be compiled */
+    private final NeuralNetwork mNetwork;
+
+    /**
+     * @param network The trained network to be compiled
+     */
+    public NetworkCompiler(NeuralNetwork network) {
+        mNetwork = network;
+    }
+
+    /**
+     * Compiles the network into a class of its own. The weights are copied
+     * into the class, so changing the weights of the network afterwards does
+     * not affect it.
+     * @return An instance of the compiled class
+     * @throws IllegalArgumentException If the network has too many weights or
+     * contains a layer which cannot be compiled
+     * @throws IllegalStateException If no Java compiler is available or the
+     * generated source fails to compile
+     */
+    public CompiledNetwork compile() {
+        String className = "GeneratedNetwork" + sClassCount.incrementAndGet();
+        String source = generateSource(className);
+        Map<String, byte[]> classes = compileSource(PACKAGE + "." + className, source);
+
+        try {
+            Class<?> compiled = new GeneratedClassLoader(classes).loadClass(PACKAGE + "." + className);
+            return compiled.asSubclass(CompiledNetwork.class).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The compiled network could not be loaded", e);
+        }
+    }
+
+    /**
+     * Generates the source of a class which evaluates the network
+     * @param className The simple name of the class
+     * @return The source of the class
+     */
+    private String generateSource(String className) {
+        List<Synapse> synapses = mNetwork.getSynapses();
+        List<AbstractLayer> layers = mNetwork.getLayers();
+        int weightCount = 0;
+
+        for (Synapse synapse : synapses) {
+            IWeights weights = synapse.getWeights();
+            weightCount += (weights.getFromLayerSize() + 1) * weights.getToLayerSize();
+        }
+
+        if (weightCount > MAX_WEIGHTS) {
+            throw new IllegalArgumentException("Only networks with at most " + MAX_WEIGHTS
+                    + " weights can be compiled, but this network has " + weightCount);
+        }
+
+        for (AbstractLayer layer : layers) {
+            Class<?> type = layer.getClass();
+
+            if (type != LinearLayer.class && type != SigmoidLayer.class
+                    && type != SoftmaxLayer.class && type != ThresholdLayer.class) {
+                throw new IllegalArgumentException("Layers of type " + type.getName() + " cannot be compiled");
+            }
+        }
+
+        int inputSize = layers.get(0).size();
+        int outputSize = layers.get(layers.size() - 1).size();
+        StringBuilder source = new StringBuilder();
+
+        source.append("package ").append(PACKAGE).append(";\n\n")
+                .append("public final class ").append(className).append(" implements CompiledNetwork {\n")
+                .append("    public int getInputSize() {\n")
+                .append("        return ").append(inputSize).append(";\n")
+                .append("    }\n\n")
+                .append("    public int getOutputSize() {\n")
+                .append("        return ").append(outputSize).append(";\n")
+                .append("    }\n\n")
+                .append("    public void processInput(double[] input, double[] output) {\n")
+                .append("        if (input.length != ").append(inputSize).append(") {\n")
+                .append("            throw new IllegalArgumentException(\"Length of input must match size of input layer\");\n")
+                .append("        }\n\n");
+
+        String[] netInputs = new String[inputSize];
+
+        for (int i = 0; i < inputSize; i++) {
+            netInputs[i] = "input[" + i + "]";
+        }
+
+        appendActivation(source, layers.get(0), 0, netInputs);
+
+        for (int s = 0; s < synapses.size(); s++) {
+            IWeights weights = synapses.get(s).getWeights();
+            netInputs = new String[weights.getToLayerSize()];
+
+            for (int to = 0; to < netInputs.length; to++) {
+                StringBuilder sum = new StringBuilder(literal(weights.getBias(to)));
+
+                for (int from = 0; from < weights.getFromLayerSize(); from++) {
+                    double weight = weights.getWeight(from, to);
+
+                    if (weight != 0) {
+                        sum.append(" + ").append(literal(weight)).append(" * ").append(output(s, from));
+                    }
+                }
+
+                netInputs[to] = sum.toString();
+            }
+
+            appendActivation(source, layers.get(s + 1), s + 1, netInputs);
+        }
+
+        for (int i = 0; i < outputSize; i++) {
+            source.append("        output[").append(i).append("] = ")
+                    .append(output(layers.size() - 1, i)).append(";\n");
+        }
+
+        source.append("    }\n")
+                .append("}\n");
+
+        return source.toString();
+    }
+
+    /**
+     * Appends the statements which declare the output of each neuron in a layer
+     * @param source The source to which the statements are appended
+     * @param layer The layer whose activation function is applied
+     * @param index The position of the layer in the network
+     * @param netInputs An expression giving the net input to each neuron in the layer
+     */
+    private static void appendActivation(StringBuilder source, AbstractLayer layer, int index, String[] netInputs) {
+        if (layer instanceof SoftmaxLayer) {
+            StringBuilder sum = new StringBuilder();
+
+            for (int i = 0; i < netInputs.length; i++) {
+                source.append("        double e").append(index).append('_').append(i)
+                        .append(" = Math.exp(").append(netInputs[i]).append(");\n");
+                sum.append(i == 0 ? "" : " + ").append('e').append(index).append('_').append(i);
+            }
+
+            source.append("        double s").append(index).append(" = 1 / (").append(sum).append(");\n");
+
+            for (int i = 0; i < netInputs.length; i++) {
+                source.append("        double ").append(output(index, i)).append(" = e").append(index)
+                        .append('_').append(i).append(" * s").append(index).append(";\n");
+            }
+        } else {
+            for (int i = 0; i < netInputs.length; i++) {
+                source.append("        double ").append(output(index, i)).append(" = ");
+
+                if (layer instanceof SigmoidLayer) {
+                    source.append("1 / (1 + Math.exp(-(").append(netInputs[i]).append(")))");
+                } else if (layer instanceof ThresholdLayer) {
+                    source.append("(").append(netInputs[i]).append(") > 0 ? 1.0 : 0.0");
+                } else {
+                    source.append(netInputs[i]);
+                }
+
+                source.append(";\n");
+            }
+        }
+
+        source.append('\n');
+    }
+
+    /**
+     * @return The name of the local variable holding the output of a neuron
+     */
+    private static String output(int layer, int neuron) {
+        return "o" + layer + "_" + neuron;
+    }
+
+    /**
+     * @return A Java expression which evaluates to exactly the value given
+     */
+    private static String literal(double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+
+        String literal = Double.toString(value);
+        return literal.startsWith("-") ? "(" + literal + ")" : literal;
+    }
+
+    /**
+     * Compiles a class in memory
+     * @param className The fully qualified name of the class
+     * @param source The source of the class
+     * @return The bytecode of each class produced, keyed by its binary name
+     */
+    private static Map<String, byte[]> compileSource(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler is available; networks can only be compiled on a JDK");
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-classpath", getClassPath(), "-g:none");
+        JavaFileObject sourceFile = new SourceFile(className, source);
+
+        try (MemoryFileManager fileManager = new MemoryFileManager(
+                compiler.getStandardFileManager(diagnostics, null, null))) {
+            boolean compiled = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    Collections.singletonList(sourceFile)).call();
+
+            if (!compiled) {
+                StringBuilder message = new StringBuilder("The generated network failed to compile:");
+
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    message.append('\n').append(diagnostic.getMessage(null));
+                }
+
+                throw new IllegalStateException(message.toString());
+            }
+
+            return fileManager.getClasses();
+        } catch (IOException e) {
+            throw new IllegalStateException("The generated network could not be compiled", e);
+        }
+    }
+
+    /**
+     * @return The class path against which generated classes are compiled,
+     * which must include {@link CompiledNetwork}
+     */
+    private static String getClassPath() {
+        String classPath = System.getProperty("java.class.path");
+        CodeSource codeSource = CompiledNetwork.class.getProtectionDomain().getCodeSource();
+
+        if (codeSource != null) {
+            try {
+                classPath = Paths.get(codeSource.getLocation().toURI()) + File.pathSeparator + classPath;
+            } catch (URISyntaxException e) {
+                // Fall back to the class path of the application
+            }
+        }
+
+        return classPath;
+    }
+
+    /** The source of a generated class, held in memory */
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String mSource;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            mSource = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return mSource;
+        }
+    }
+
+    /** Keeps the class files written by the compiler in memory rather than on disk */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        /** The bytecode of each class written, keyed by its binary name */
+        private final Map<String, ByteArrayOutputStream> mClasses = new HashMap<>();
+
+        MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                JavaFileObject.Kind kind, FileObject sibling) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            mClasses.put(className, bytes);
+
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return bytes;
+                }
+            };
+        }
+
+        Map<String, byte[]> getClasses() {
+            Map<String, byte[]> classes = new HashMap<>();
+
+            for (Map.Entry<String, ByteArrayOutputStream> entry : mClasses.entrySet()) {
+                classes.put(entry.getKey(), entry.getValue().toByteArray());
+            }
+
+            return classes;
+        }
+    }
+
+    /** Defines the classes produced by compiling a generated network */
+    private static class GeneratedClassLoader extends ClassLoader {
+        private final Map<String, byte[]> mClasses;
+
+        GeneratedClassLoader(Map<String, byte[]> classes) {
+            super(CompiledNetwork.class.getClassLoader());
+            mClasses = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = mClasses.get(name);
+
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
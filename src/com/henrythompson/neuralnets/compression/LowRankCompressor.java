@@ -0,0 +1,113 @@
+package com.henrythompson.neuralnets.compression;
+
+import com.henrythompson.neuralnets.IWeights;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.Synapse;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Compresses a trained network by replacing the weights of each synapse with
+ * a {@link LowRankWeights} approximation. For each synapse in turn the
+ * smallest rank is chosen for which the accuracy of the whole network stays
+ * within a tolerance of its accuracy before compression began. A synapse is
+ * left as it is if no rank small enough to reduce the number of
+ * multiplications keeps the accuracy within the tolerance.
+ *
+ * The accuracy is measured by a function supplied by the caller, such as the
+ * {@code score} method of {@code OcrAccuracyRanker}. The network can no longer
+ * be trained once it has been compressed.
+ */
+public class LowRankCompressor {
+    /** The network to be compressed */
+    private final NeuralNetwork mNetwork;
+
+    /** Measures the accuracy of the network, where higher is better */
+    private final ToDoubleFunction<NeuralNetwork> mAccuracy;
+
+    /** The largest drop in accuracy allowed */
+    private final double mTolerance;
+
+    /**
+     * @param network The trained network to be compressed
+     * @param accuracy Measures the accuracy of the network, where higher is better
+     * @param tolerance The largest drop in accuracy allowed, in the same units
+     *                  as those returned by {@code accuracy}
+     */
+    public LowRankCompressor(NeuralNetwork network, ToDoubleFunction<NeuralNetwork> accuracy, double tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("The tolerance should not be negative");
+        }
+
+        mNetwork = network;
+        mAccuracy = accuracy;
+        mTolerance = tolerance;
+    }
+
+    /**
+     * Replaces the weights of each synapse in the network with the lowest rank
+     * approximation which keeps the accuracy of the network within the tolerance
+     * @return The rank chosen for each synapse, where the zeroth element is for
+     * the synapse from the input layer, or 0 where the synapse was left as it was
+     */
+    public int[] compress() {
+        List<Synapse> synapses = mNetwork.getSynapses();
+        int[] ranks = new int[synapses.size()];
+        double minimumAccuracy = mAccuracy.applyAsDouble(mNetwork) - mTolerance;
+
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = compress(synapses.get(i), minimumAccuracy);
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Replaces the weights of a synapse with the lowest rank approximation
+     * which keeps the accuracy of the network at or above a minimum
+     * @return The rank chosen, or 0 if the synapse was left as it was
+     */
+    private int compress(Synapse synapse, double minimumAccuracy) {
+        IWeights original = synapse.getWeights();
+        int m = original.getToLayerSize();
+        int n = original.getFromLayerSize();
+
+        // Only ranks below mn / (m + n) need fewer multiplications than the dense weights
+        int maximumRank = Math.min(Math.min(m, n), (m * n - 1) / (m + n));
+
+        if (maximumRank < 1 || original instanceof LowRankWeights) {
+            return 0;
+        }
+
+        SingularValueDecomposition decomposition = new SingularValueDecomposition(LowRankWeights.toMatrix(original));
+
+        if (!isAccurate(synapse, new LowRankWeights(original, decomposition, maximumRank), minimumAccuracy)) {
+            synapse.setWeights(original);
+            return 0;
+        }
+
+        // The accuracy is assumed to increase with the rank, so binary search
+        // for the lowest rank which is accurate enough
+        int low = 1;
+        int high = maximumRank;
+
+        while (low < high) {
+            int mid = (low + high) / 2;
+
+            if (isAccurate(synapse, new LowRankWeights(original, decomposition, mid), minimumAccuracy)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        synapse.setWeights(new LowRankWeights(original, decomposition, low));
+        return low;
+    }
+
+    private boolean isAccurate(Synapse synapse, IWeights weights, double minimumAccuracy) {
+        synapse.setWeights(weights);
+        return mAccuracy.applyAsDouble(mNetwork) >= minimumAccuracy;
+    }
+}
@@ -0,0 +1,285 @@
+package com.henrythompson.neuralnets.compression;
+
+import com.henrythompson.neuralnets.IWeights;
+import com.henrythompson.neuralnets.VectorMath;
+
+/**
+ * A read-only approximation of the connection weights between two layers of
+ * neurons as the product of two thin matrices. Writing W for the matrix whose
+ * j<sup>th</sup> row holds the weights into the j<sup>th</sup> neuron in the
+ * to layer, W is approximated by L R where L has one row of r values per
+ * neuron in the to layer and R has r rows of one value per neuron in the from
+ * layer. The net inputs are then calculated as L (R x) + b, which takes
+ * r (m + n) multiplications rather than the m n needed by the dense weights.
+ *
+ * Use {@link LowRankCompressor} to replace the weights of a trained network
+ * with a low rank approximation, or {@link #LowRankWeights(IWeights, int)}
+ * to approximate a single set of weights.
+ *
+ * @author Henry Thompson
+ */
+public class LowRankWeights implements IWeights {
+    /** The left factor, mLeft[j * mRank + k] holding the k<sup>th</sup>
+     * value for the j<sup>th</sup> neuron in the to layer */
+    private final double[] mLeft;
+
+    /** The right factor, mRight[k * mFromLayerSize + i] holding the
+     * k<sup>th</sup> value for the i<sup>th</sup> neuron in the from layer */
+    private final double[] mRight;
+
+    /** The bias of each neuron in the to layer */
+    private final double[] mBiases;
+
+    /** The number of neurons in the from layer */
+    private final int mFromLayerSize;
+
+    /** The number of neurons in the to layer */
+    private final int mToLayerSize;
+
+    /** The number of columns of the left factor and rows of the right factor */
+    private final int mRank;
+
+    /**
+     * Instantiates the best rank r approximation of a set of weights, as given
+     * by their truncated singular value decomposition
+     * @param weights The weights to approximate
+     * @param rank The rank of the approximation, between 1 and the size of the
+     *             smaller of the two layers
+     */
+    public LowRankWeights(IWeights weights, int rank) {
+        this(weights, new SingularValueDecomposition(toMatrix(weights)), rank);
+    }
+
+    /**
+     * Instantiates a rank r approximation of a set of weights from the singular
+     * value decomposition of the matrix returned by {@link #toMatrix}. This
+     * allows approximations of several ranks to be made from a single decomposition.
+     * @param weights The weights being approximated, from which the biases are copied
+     * @param decomposition The singular value decomposition of the weights
+     * @param rank The rank of the approximation, between 1 and the size of the
+     *             smaller of the two layers
+     */
+    public LowRankWeights(IWeights weights, SingularValueDecomposition decomposition, int rank) {
+        mFromLayerSize = weights.getFromLayerSize();
+        mToLayerSize = weights.getToLayerSize();
+
+        if (rank < 1 || rank > Math.min(mFromLayerSize, mToLayerSize)) {
+            throw new IllegalArgumentException("The rank must be between 1 and the size of the smaller layer");
+        }
+
+        mRank = rank;
+        mLeft = new double[mToLayerSize * rank];
+        mRight = new double[rank * mFromLayerSize];
+        mBiases = new double[mToLayerSize];
+
+        double[][] u = decomposition.getU();
+        double[] s = decomposition.getSingularValues();
+        double[][] v = decomposition.getV();
+
+        // The singular values are folded into the left factor
+        for (int to = 0; to < mToLayerSize; to++) {
+            for (int k = 0; k < rank; k++) {
+                mLeft[to * rank + k] = u[to][k] * s[k];
+            }
+
+            mBiases[to] = weights.getBias(to);
+        }
+
+        for (int k = 0; k < rank; k++) {
+            for (int from = 0; from < mFromLayerSize; from++) {
+                mRight[k * mFromLayerSize + from] = v[from][k];
+            }
+        }
+    }
+
+    /**
+     * @param weights A set of weights
+     * @return The matrix whose j<sup>th</sup> row holds the weights into the
+     * j<sup>th</sup> neuron in the to layer, not including the biases
+     */
+    public static double[][] toMatrix(IWeights weights) {
+        double[][] matrix = new double[weights.getToLayerSize()][weights.getFromLayerSize()];
+
+        for (int to = 0; to < matrix.length; to++) {
+            for (int from = 0; from < matrix[to].length; from++) {
+                matrix[to][from] = weights.getWeight(from, to);
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * @return The rank of this approximation
+     */
+    public int getRank() {
+        return mRank;
+    }
+
+    @Override
+    public double getBias(int toNeuronIndex) {
+        checkToIndex(toNeuronIndex);
+        return mBiases[toNeuronIndex];
+    }
+
+    @Override
+    public double getWeight(int fromNeuronIndex, int toNeuronIndex) {
+        if (fromNeuronIndex == mFromLayerSize) {
+            return getBias(toNeuronIndex);
+        }
+
+        if (fromNeuronIndex < 0 || fromNeuronIndex >= mFromLayerSize) {
+            throw new IndexOutOfBoundsException("From neuron index " + fromNeuronIndex + " out of range");
+        }
+
+        checkToIndex(toNeuronIndex);
+
+        double weight = 0;
+
+        for (int k = 0; k < mRank; k++) {
+            weight += mLeft[toNeuronIndex * mRank + k] * mRight[k * mFromLayerSize + fromNeuronIndex];
+        }
+
+        return weight;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public void setWeight(int fromNeuronIndex, int toNeuronIndex, double weight) {
+        throw new UnsupportedOperationException("Low rank weights cannot be modified");
+    }
+
+    @Override
+    public void setBias(int toNeuronIndex, double bias) {
+        throw new UnsupportedOperationException("Low rank weights cannot be modified");
+    }
+
+    @Override
+    public void adjustWeight(int fromIndex, int toIndex, double delta) {
+        throw new UnsupportedOperationException("Low rank weights cannot be modified");
+    }
+
+    @Override
+    public void randomize(double amplitude) {
+        throw new UnsupportedOperationException("Low rank weights cannot be modified");
+    }
+
+    @Override
+    public void adjustByOuterProduct(double scale, double[] fromValues, double[] toValues) {
+        throw new UnsupportedOperationException("Low rank weights cannot be modified");
+    }
+
+    @Override
+    public int getFromLayerSize() {
+        return mFromLayerSize;
+    }
+
+    @Override
+    public int getToLayerSize() {
+        return mToLayerSize;
+    }
+
+    @Override
+    public void multiply(double[] fromValues, double[] netInputs) {
+        double[] projected = ScratchBuffers.doubles(mRank);
+
+        for (int k = 0; k < mRank; k++) {
+            projected[k] = VectorMath.dot(mRight, k * mFromLayerSize, fromValues, 0, mFromLayerSize);
+        }
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            netInputs[to] = VectorMath.dot(mLeft, to * mRank, projected, 0, mRank) + mBiases[to];
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer for each of a
+     * batch of outputs of the from layer. Every output is first projected by
+     * the right factor and the projections are then multiplied by the left
+     * factor, so each row of each factor is read once for the whole batch.
+     * @param fromValues The outputs of the from layer, one array per sample
+     * @param netInputs The arrays into which the net inputs for each sample are
+     *                  written. Any existing values are overwritten.
+     * @param batchSize The number of samples to process, starting from the zeroth
+     */
+    @Override
+    public void multiplyBatch(double[][] fromValues, double[][] netInputs, int batchSize) {
+        // The projection of sample b starts at b * mRank
+        double[] projected = ScratchBuffers.doubles(batchSize * mRank);
+
+        for (int k = 0; k < mRank; k++) {
+            for (int b = 0; b < batchSize; b++) {
+                projected[b * mRank + k] = VectorMath.dot(mRight, k * mFromLayerSize,
+                        fromValues[b], 0, mFromLayerSize);
+            }
+        }
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            for (int b = 0; b < batchSize; b++) {
+                netInputs[b][to] = VectorMath.dot(mLeft, to * mRank, projected, b * mRank, mRank) + mBiases[to];
+            }
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer when every
+     * neuron in the from layer outputs either 0 or 1, as described in
+     * {@link IWeights#multiplyPacked}. The projection by the right factor only
+     * sums the columns whose bits are set, so the whole calculation takes
+     * r (p + m) operations for p set bits.
+     * @param fromBits The output of each neuron in the from layer, where the
+     *                 i<sup>th</sup> bit is set if the i<sup>th</sup> neuron
+     *                 outputs 1. There must be no more than 64 from neurons.
+     * @param netInputs The array into which the net input to each neuron in
+     * the to layer is written. Any existing values are overwritten.
+     */
+    @Override
+    public void multiplyPacked(long fromBits, double[] netInputs) {
+        double[] projected = ScratchBuffers.doubles(mRank);
+
+        for (int k = 0, row = 0; k < mRank; k++, row += mFromLayerSize) {
+            double sum = 0;
+
+            for (long bits = fromBits; bits != 0; bits &= bits - 1) {
+                sum += mRight[row + Long.numberOfTrailingZeros(bits)];
+            }
+
+            projected[k] = sum;
+        }
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            netInputs[to] = VectorMath.dot(mLeft, to * mRank, projected, 0, mRank) + mBiases[to];
+        }
+    }
+
+    @Override
+    public void multiplyTransposed(double[] toValues, double[] result) {
+        double[] projected = ScratchBuffers.doubles(mRank);
+
+        for (int k = 0; k < mRank; k++) {
+            projected[k] = 0;
+        }
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            VectorMath.axpy(toValues[to], mLeft, to * mRank, projected, 0, mRank);
+        }
+
+        for (int from = 0; from < mFromLayerSize; from++) {
+            result[from] = 0;
+        }
+
+        for (int k = 0; k < mRank; k++) {
+            VectorMath.axpy(projected[k], mRight, k * mFromLayerSize, result, 0, mFromLayerSize);
+        }
+    }
+
+    private void checkToIndex(int toNeuronIndex) {
+        if (toNeuronIndex < 0 || toNeuronIndex >= mToLayerSize) {
+            throw new IndexOutOfBoundsException("To neuron index " + toNeuronIndex + " out of range");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.henrythompson.neuralnets.compression;
+
+import com.henrythompson.neuralnets.IWeights;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.Synapse;
+
+/**
+ * Quantizes the weights of a trained network to 8-bit integers, replacing
+ * the weights of each of its synapses with a {@link QuantizedWeights} copy.
+ * The network can no longer be trained once it has been quantized.
+ */
+public class NetworkQuantizer {
+    /** The network to be quantized */
+    private final NeuralNetwork mNetwork;
+
+    /**
+     * @param network The trained network to be quantized
+     */
+    public NetworkQuantizer(NeuralNetwork network) {
+        mNetwork = network;
+    }
+
+    /**
+     * Replaces the weights of every synapse in the network with a quantized
+     * copy. Synapses whose weights are already quantized are left as they are.
+     * @return The number of bytes saved by quantizing the weights, assuming
+     * each weight was previously held as a {@code double}
+     */
+    public long quantize() {
+        long saved = 0;
+
+        for (Synapse synapse : mNetwork.getSynapses()) {
+            IWeights weights = synapse.getWeights();
+
+            if (!(weights instanceof QuantizedWeights)) {
+                QuantizedWeights quantized = new QuantizedWeights(weights);
+                saved += (long) (weights.getFromLayerSize() + 1) * weights.getToLayerSize() * Double.BYTES
+                        - quantized.getSizeInBytes();
+
+                synapse.setWeights(quantized);
+            }
+        }
+
+        return saved;
+    }
+}
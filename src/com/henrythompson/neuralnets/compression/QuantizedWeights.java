@@ -0,0 +1,270 @@
+package com.henrythompson.neuralnets.compression;
+
+import com.henrythompson.neuralnets.IWeights;
+
+/**
+ * A read-only copy of the connection weights between two layers of neurons
+ * in which each weight is rounded to an 8-bit integer. The weights into each
+ * neuron in the to layer are stored as one row sharing a scale, chosen so that
+ * the largest weight in the row maps onto 127, which makes the matrix around
+ * eight times smaller than when held as {@code double}s. The biases are kept
+ * in full precision.
+ *
+ * When calculating net inputs, the outputs of the from layer are themselves
+ * rounded to 8-bit integers using a scale chosen for that input, so that each
+ * weighted sum is accumulated entirely in integers. Only the final sum is
+ * scaled back and added to the bias. The activation functions of the layers
+ * are unaffected.
+ *
+ * These weights cannot be trained: every method which would change them
+ * throws an {@code UnsupportedOperationException}. Use {@link NetworkQuantizer}
+ * to quantize a network once it has been trained.
+ *
+ * @author Henry Thompson
+ */
+public class QuantizedWeights implements IWeights {
+    /** The largest magnitude an 8-bit weight or input may take */
+    private static final int MAX_QUANTIZED = 127;
+
+    /** Holds the quantized weights between layers. The connection weight
+     * between the i<sup>th</sup> neuron in the from layer and the
+     * j<sup>th</sup> neuron in the to layer is approximately
+     * mWeights[j * mFromLayerSize + i] * mScales[j].
+     */
+    private final byte[] mWeights;
+
+    /** The amount by which each quantized weight into each neuron in the
+     * to layer is multiplied to recover the original weight */
+    private final double[] mScales;
+
+    /** The bias of each neuron in the to layer */
+    private final double[] mBiases;
+
+    /** The number of neurons in the from layer */
+    private final int mFromLayerSize;
+
+    /** The number of neurons in the to layer */
+    private final int mToLayerSize;
+
+    /**
+     * Instantiates a quantized copy of a set of weights
+     * @param weights The weights to quantize
+     */
+    public QuantizedWeights(IWeights weights) {
+        mFromLayerSize = weights.getFromLayerSize();
+        mToLayerSize = weights.getToLayerSize();
+        mWeights = new byte[mFromLayerSize * mToLayerSize];
+        mScales = new double[mToLayerSize];
+        mBiases = new double[mToLayerSize];
+
+        for (int to = 0; to < mToLayerSize; to++) {
+            double largest = 0;
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                largest = Math.max(largest, Math.abs(weights.getWeight(from, to)));
+            }
+
+            double scale = largest / MAX_QUANTIZED;
+            int row = to * mFromLayerSize;
+
+            if (scale > 0) {
+                for (int from = 0; from < mFromLayerSize; from++) {
+                    mWeights[row + from] = (byte) Math.round(weights.getWeight(from, to) / scale);
+                }
+            }
+
+            mScales[to] = scale;
+            mBiases[to] = weights.getBias(to);
+        }
+    }
+
+    @Override
+    public double getBias(int toNeuronIndex) {
+        checkToIndex(toNeuronIndex);
+        return mBiases[toNeuronIndex];
+    }
+
+    @Override
+    public double getWeight(int fromNeuronIndex, int toNeuronIndex) {
+        if (fromNeuronIndex == mFromLayerSize) {
+            return getBias(toNeuronIndex);
+        }
+
+        if (fromNeuronIndex < 0 || fromNeuronIndex >= mFromLayerSize) {
+            throw new IndexOutOfBoundsException("From neuron index " + fromNeuronIndex + " out of range");
+        }
+
+        checkToIndex(toNeuronIndex);
+
+        return mWeights[toNeuronIndex * mFromLayerSize + fromNeuronIndex] * mScales[toNeuronIndex];
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public void setWeight(int fromNeuronIndex, int toNeuronIndex, double weight) {
+        throw new UnsupportedOperationException("Quantized weights cannot be modified");
+    }
+
+    @Override
+    public void setBias(int toNeuronIndex, double bias) {
+        throw new UnsupportedOperationException("Quantized weights cannot be modified");
+    }
+
+    @Override
+    public void adjustWeight(int fromIndex, int toIndex, double delta) {
+        throw new UnsupportedOperationException("Quantized weights cannot be modified");
+    }
+
+    @Override
+    public void randomize(double amplitude) {
+        throw new UnsupportedOperationException("Quantized weights cannot be modified");
+    }
+
+    @Override
+    public void adjustByOuterProduct(double scale, double[] fromValues, double[] toValues) {
+        throw new UnsupportedOperationException("Quantized weights cannot be modified");
+    }
+
+    @Override
+    public int getFromLayerSize() {
+        return mFromLayerSize;
+    }
+
+    @Override
+    public int getToLayerSize() {
+        return mToLayerSize;
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer. The outputs
+     * of the from layer are quantized to 8-bit integers so that each weighted
+     * sum can be accumulated in integer arithmetic.
+     * @param fromValues The output of each neuron in the from layer
+     * @param netInputs The array into which the net input to each neuron in
+     * the to layer is written. Any existing values are overwritten.
+     */
+    @Override
+    public void multiply(double[] fromValues, double[] netInputs) {
+        byte[] quantizedInputs = ScratchBuffers.bytes(mFromLayerSize);
+        double inputScale = quantizeInputs(fromValues, quantizedInputs, 0);
+
+        if (inputScale == 0) {
+            System.arraycopy(mBiases, 0, netInputs, 0, mToLayerSize);
+            return;
+        }
+
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mFromLayerSize) {
+            int sum = 0;
+
+            for (int from = 0; from < mFromLayerSize; from++) {
+                sum += mWeights[row + from] * quantizedInputs[from];
+            }
+
+            netInputs[to] = sum * mScales[to] * inputScale + mBiases[to];
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer for each of a
+     * batch of outputs of the from layer. Each output is quantized with its
+     * own scale, as in {@link #multiply}, and each row of weights is then
+     * read once for the whole batch.
+     * @param fromValues The outputs of the from layer, one array per sample
+     * @param netInputs The arrays into which the net inputs for each sample are
+     *                  written. Any existing values are overwritten.
+     * @param batchSize The number of samples to process, starting from the zeroth
+     */
+    @Override
+    public void multiplyBatch(double[][] fromValues, double[][] netInputs, int batchSize) {
+        byte[] quantizedInputs = ScratchBuffers.bytes(batchSize * mFromLayerSize);
+        double[] inputScales = ScratchBuffers.doubles(batchSize);
+
+        for (int b = 0; b < batchSize; b++) {
+            inputScales[b] = quantizeInputs(fromValues[b], quantizedInputs, b * mFromLayerSize);
+        }
+
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mFromLayerSize) {
+            for (int b = 0, offset = 0; b < batchSize; b++, offset += mFromLayerSize) {
+                int sum = 0;
+
+                for (int from = 0; from < mFromLayerSize; from++) {
+                    sum += mWeights[row + from] * quantizedInputs[offset + from];
+                }
+
+                netInputs[b][to] = sum * mScales[to] * inputScales[b] + mBiases[to];
+            }
+        }
+    }
+
+    /**
+     * Calculates the net input to every neuron in the to layer when every
+     * neuron in the from layer outputs either 0 or 1, as described in
+     * {@link IWeights#multiplyPacked}. The quantized weights from each neuron
+     * whose bit is set are summed as integers, so the row scale is applied
+     * only once per neuron.
+     * @param fromBits The output of each neuron in the from layer, where the
+     *                 i<sup>th</sup> bit is set if the i<sup>th</sup> neuron
+     *                 outputs 1. There must be no more than 64 from neurons.
+     * @param netInputs The array into which the net input to each neuron in
+     * the to layer is written. Any existing values are overwritten.
+     */
+    @Override
+    public void multiplyPacked(long fromBits, double[] netInputs) {
+        for (int to = 0, row = 0; to < mToLayerSize; to++, row += mFromLayerSize) {
+            int sum = 0;
+
+            for (long bits = fromBits; bits != 0; bits &= bits - 1) {
+                sum += mWeights[row + Long.numberOfTrailingZeros(bits)];
+            }
+
+            netInputs[to] = sum * mScales[to] + mBiases[to];
+        }
+    }
+
+    /**
+     * Rounds an output of the from layer to 8-bit integers, using a scale
+     * which maps its largest magnitude onto 127
+     * @param fromValues The output of each neuron in the from layer
+     * @param quantizedInputs The array into which the quantized values are written
+     * @param offset The index in {@code quantizedInputs} of the first value
+     * @return The scale by which the quantized values are multiplied to recover
+     * the output, or 0 if every value is zero, in which case nothing is written
+     */
+    private double quantizeInputs(double[] fromValues, byte[] quantizedInputs, int offset) {
+        double largest = 0;
+
+        for (int from = 0; from < mFromLayerSize; from++) {
+            largest = Math.max(largest, Math.abs(fromValues[from]));
+        }
+
+        if (largest == 0) {
+            return 0;
+        }
+
+        double inputScale = largest / MAX_QUANTIZED;
+
+        for (int from = 0; from < mFromLayerSize; from++) {
+            quantizedInputs[offset + from] = (byte) Math.round(fromValues[from] / inputScale);
+        }
+
+        return inputScale;
+    }
+
+    /**
+     * @return The number of bytes used to hold the weights and biases,
+     * not including the overhead of the objects holding them
+     */
+    public long getSizeInBytes() {
+        return mWeights.length + (long) (mScales.length + mBiases.length) * Double.BYTES;
+    }
+
+    private void checkToIndex(int toNeuronIndex) {
+        if (toNeuronIndex < 0 || toNeuronIndex >= mToLayerSize) {
+            throw new IndexOutOfBoundsException("To neuron index " + toNeuronIndex + " out of range");
+        }
+    }
+}
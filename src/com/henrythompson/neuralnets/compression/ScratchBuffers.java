@@ -0,0 +1,54 @@
+package com.henrythompson.neuralnets.compression;
+
+/**
+ * Working arrays for the kernels of the compressed weights, so that
+ * calculating net inputs allocates nothing once a thread has warmed up.
+ *
+ * The same weights may be used by many threads at once, so each thread has
+ * its own arrays. They are held in static thread locals rather than by the
+ * weights themselves, so they never keep a set of weights reachable, and
+ * each thread holds only one array of each type however many weights it
+ * uses. An array grows to the largest length requested and is never shrunk.
+ */
+final class ScratchBuffers {
+    /** The bytes of each thread */
+    private static final ThreadLocal<byte[]> BYTES = ThreadLocal.withInitial(() -> new byte[0]);
+
+    /** The doubles of each thread */
+    private static final ThreadLocal<double[]> DOUBLES = ThreadLocal.withInitial(() -> new double[0]);
+
+    private ScratchBuffers() {
+    }
+
+    /**
+     * @param length The number of bytes needed
+     * @return The calling thread's byte array, holding at least {@code length}
+     * bytes whose values are undefined
+     */
+    static byte[] bytes(int length) {
+        byte[] bytes = BYTES.get();
+
+        if (bytes.length < length) {
+            bytes = new byte[length];
+            BYTES.set(bytes);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @param length The number of doubles needed
+     * @return The calling thread's double array, holding at least
+     * {@code length} doubles whose values are undefined
+     */
+    static double[] doubles(int length) {
+        double[] doubles = DOUBLES.get();
+
+        if (doubles.length < length) {
+            doubles = new double[length];
+            DOUBLES.set(doubles);
+        }
+
+        return doubles;
+    }
+}
@@ -0,0 +1,210 @@
+package com.henrythompson.neuralnets.compression;
+
+import java.util.Arrays;
+
+/**
+ * Calculates the singular value decomposition of a matrix, A = U S V<sup>T</sup>,
+ * using one-sided Jacobi rotations. The columns of a working copy of A are
+ * repeatedly rotated in pairs until every pair is orthogonal, at which point
+ * the length of each column is a singular value and the normalised columns
+ * form U. The rotations applied, accumulated, form V.
+ *
+ * For an m &times; n matrix with k = min(m, n), U is m &times; k, V is
+ * n &times; k, and the k singular values are sorted in descending order, so
+ * the first r columns of U and V give the best rank r approximation of A.
+ */
+public class SingularValueDecomposition {
+    /** The largest number of sweeps through every pair of columns before giving up */
+    private static final int MAX_SWEEPS = 60;
+
+    /** Two columns are treated as orthogonal once the cosine of the angle
+     * between them is smaller than this */
+    private static final double TOLERANCE = 1E-15;
+
+    /** The left singular vectors, one per column */
+    private final double[][] mU;
+
+    /** The singular values in descending order */
+    private final double[] mSingularValues;
+
+    /** The right singular vectors, one per column */
+    private final double[][] mV;
+
+    /**
+     * Decomposes a matrix
+     * @param matrix The matrix to decompose, indexed as matrix[row][column].
+     *               It is not modified.
+     */
+    public SingularValueDecomposition(double[][] matrix) {
+        int rows = matrix.length;
+        int columns = rows > 0 ? matrix[0].length : 0;
+
+        // One-sided Jacobi needs at least as many rows as columns, so a wide
+        // matrix is decomposed through its transpose: if A^T = U S V^T then A = V S U^T
+        boolean transpose = rows < columns;
+        double[][] work = transpose ? transpose(matrix) : copy(matrix);
+        int m = work.length;
+        int n = m > 0 ? work[0].length : 0;
+
+        double[][] v = new double[n][n];
+
+        for (int i = 0; i < n; i++) {
+            v[i][i] = 1;
+        }
+
+        orthogonalise(work, v);
+
+        double[] singularValues = new double[n];
+
+        for (int j = 0; j < n; j++) {
+            double norm = 0;
+
+            for (int i = 0; i < m; i++) {
+                norm += work[i][j] * work[i][j];
+            }
+
+            norm = Math.sqrt(norm);
+            singularValues[j] = norm;
+
+            if (norm > 0) {
+                for (int i = 0; i < m; i++) {
+                    work[i][j] /= norm;
+                }
+            }
+        }
+
+        Integer[] order = new Integer[n];
+
+        for (int j = 0; j < n; j++) {
+            order[j] = j;
+        }
+
+        Arrays.sort(order, (a, b) -> Double.compare(singularValues[b], singularValues[a]));
+
+        mSingularValues = new double[n];
+        double[][] left = new double[m][n];
+        double[][] right = new double[n][n];
+
+        for (int j = 0; j < n; j++) {
+            int source = order[j];
+            mSingularValues[j] = singularValues[source];
+
+            for (int i = 0; i < m; i++) {
+                left[i][j] = work[i][source];
+            }
+
+            for (int i = 0; i < n; i++) {
+                right[i][j] = v[i][source];
+            }
+        }
+
+        mU = transpose ? right : left;
+        mV = transpose ? left : right;
+    }
+
+    /**
+     * @return The left singular vectors, indexed as U[row][column], where
+     * each column is a singular vector. This is not a copy.
+     */
+    public double[][] getU() {
+        return mU;
+    }
+
+    /**
+     * @return The singular values in descending order. This is not a copy.
+     */
+    public double[] getSingularValues() {
+        return mSingularValues;
+    }
+
+    /**
+     * @return The right singular vectors, indexed as V[row][column], where
+     * each column is a singular vector. This is not a copy.
+     */
+    public double[][] getV() {
+        return mV;
+    }
+
+    /**
+     * Rotates pairs of columns of a matrix until they are all orthogonal,
+     * applying the same rotations to the columns of v
+     */
+    private static void orthogonalise(double[][] work, double[][] v) {
+        int m = work.length;
+        int n = v.length;
+
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            boolean rotated = false;
+
+            for (int p = 0; p < n - 1; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    double alpha = 0;
+                    double beta = 0;
+                    double gamma = 0;
+
+                    for (int i = 0; i < m; i++) {
+                        alpha += work[i][p] * work[i][p];
+                        beta += work[i][q] * work[i][q];
+                        gamma += work[i][p] * work[i][q];
+                    }
+
+                    if (gamma == 0 || Math.abs(gamma) <= TOLERANCE * Math.sqrt(alpha * beta)) {
+                        continue;
+                    }
+
+                    rotated = true;
+
+                    double zeta = (beta - alpha) / (2 * gamma);
+                    double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+
+                    if (zeta == 0) {
+                        t = 1;
+                    }
+
+                    double c = 1 / Math.sqrt(1 + t * t);
+                    double s = c * t;
+
+                    rotate(work, m, p, q, c, s);
+                    rotate(v, n, p, q, c, s);
+                }
+            }
+
+            if (!rotated) {
+                return;
+            }
+        }
+    }
+
+    private static void rotate(double[][] matrix, int rows, int p, int q, double c, double s) {
+        for (int i = 0; i < rows; i++) {
+            double x = matrix[i][p];
+            double y = matrix[i][q];
+            matrix[i][p] = c * x - s * y;
+            matrix[i][q] = s * x + c * y;
+        }
+    }
+
+    private static double[][] copy(double[][] matrix) {
+        double[][] result = new double[matrix.length][];
+
+        for (int i = 0; i < matrix.length; i++) {
+            result[i] = matrix[i].clone();
+        }
+
+        return result;
+    }
+
+    private static double[][] transpose(double[][] matrix) {
+        int rows = matrix.length;
+        int columns = matrix[0].length;
+        double[][] result = new double[columns][rows];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                result[j][i] = matrix[i][j];
+            }
+        }
+
+        return result;
+    }
+}
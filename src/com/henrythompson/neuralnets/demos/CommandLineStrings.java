@@ -10,6 +10,8 @@ public class CommandLineStrings {
     public static final String COMMAND_PERCEPTRON_DEMO = "PERCEPTRONDEMO";
     public static final String COMMAND_XOR_DEMO = "XORDEMO";
     public static final String COMMAND_OCR_DEMO = "OCRDEMO";
+    public static final String COMMAND_SERVE = "SERVE";
+    public static final String COMMAND_LOAD_TEST = "LOADTEST";
     public static final String COMMAND_QUIT = "QUIT";
 
     public static final Object INVALID_COMMAND_MESSAGE =
@@ -30,6 +32,20 @@ public class CommandLineStrings {
             COMMAND_CLASSIFIER_DEMO + "\t\tDemonstrates how neural networks can classify points as being within areas in a vectorspace\n" +
             COMMAND_PERCEPTRON_DEMO + "\t\tBasic demonstration of how perceptrons can classifty points about a linear line\n" +
             COMMAND_XOR_DEMO + "\t\t\t\tDemonstrates how neural networks can be used as logical XOR gates\n" +
+
+            COMMAND_SERVE +
+                    "\t\t\t\tServes an exported network over HTTP until enter is pressed. Inputs are POSTed to\n" +
+                    "\t\t\t\t\t/predict/[name], where the name is that of the network file without its extension,\n" +
+                    "\t\t\t\t\teither as JSON or as raw little-endian doubles.\n\n" +
+                    "\t\t\t\t\tArguments:\n\n" +
+                    "\t\t\t\t\t" + COMMAND_SERVE + " [networkFile] [port]\n\n" +
+
+            COMMAND_LOAD_TEST +
+                    "\t\t\t\tSends random inputs to a served network from several threads and reports the\n" +
+                    "\t\t\t\t\tthroughput and latency.\n\n" +
+                    "\t\t\t\t\tArguments:\n\n" +
+                    "\t\t\t\t\t" + COMMAND_LOAD_TEST + " [url] [inputSize] [threads] [seconds]\n\n" +
+
             COMMAND_QUIT + "\t\t\t\tQuit application";
 
     public static final String WELCOME_MESSAGE = "Type a command or 'HELP' to begin";
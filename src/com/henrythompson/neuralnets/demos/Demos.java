@@ -1,10 +1,20 @@
 package com.henrythompson.neuralnets.demos;
 
 import com.henrythompson.neuralnets.demos.ocr.OpticalCharacterRecognitionDemo;
+import com.henrythompson.neuralnets.serving.InferenceLoadGenerator;
+import com.henrythompson.neuralnets.serving.InferenceServer;
+import com.henrythompson.neuralnets.serving.ModelRegistry;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;import java.lang.String;import java.lang.System;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Controls the command-line interface from which all the demonstrations of the
@@ -20,6 +30,14 @@ public class Demos {
      * @throws IOException if the command line InputStream cannot be found.
      */
     public static void main(String[] args) throws IOException {
+        // Without this, every response of the inference server is held up by
+        // around 40ms, as described in InferenceServer. The property is only
+        // read when the first server is created, and is left alone if it has
+        // been set on the command line.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
         System.out.println(CommandLineStrings.WELCOME_MESSAGE);
         BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
 
@@ -39,6 +57,12 @@ public class Demos {
                 case CommandLineStrings.COMMAND_PERCEPTRON_DEMO:
                     new PerceptronDemo().run();
                     continue;
+                case CommandLineStrings.COMMAND_SERVE:
+                    runInferenceServer(commands, in);
+                    continue;
+                case CommandLineStrings.COMMAND_LOAD_TEST:
+                    runLoadTest(commands);
+                    continue;
                 case CommandLineStrings.COMMAND_XOR_DEMO:
                     new XORDemo().run();
                 case CommandLineStrings.COMMAND_QUIT:
@@ -67,4 +91,107 @@ public class Demos {
 
         new OpticalCharacterRecognitionDemo(outputDirectory, trainingSamplesDirectory, unseenSamplesDirectory).run();
     }
-}
\ No newline at end of file
+
+    /**
+     * Serves a network exported by {@code NeuralNetworkExporter} over HTTP
+     * until the user presses enter.
+     * @param args The arguments provided to the command line by the user. This
+     *             should include the command as well as the arguments, where the
+     *             command is the zeroth value in the string array.
+     * @param in The command line, from which the line ending the server is read
+     * @throws IOException if the command line cannot be read.
+     */
+    private static void runInferenceServer(String[] args, BufferedReader in) throws IOException {
+        int port = args.length == 3 ? parseInt(args[2], 0, 65535) : -1;
+
+        if (port < 0) {
+            System.out.println(CommandLineStrings.INVALID_COMMAND_MESSAGE);
+            return;
+        }
+
+        File networkFile = new File(args[1]);
+        String name = networkFile.getName();
+
+        if (name.contains(".")) {
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+
+        ModelRegistry registry = new ModelRegistry();
+
+        try (InputStream input = new FileInputStream(networkFile)) {
+            registry.deploy(name, 1, input);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("The network could not be loaded: " + e.getMessage());
+            return;
+        }
+
+        InferenceServer server = new InferenceServer(registry, port);
+        server.start();
+
+        System.out.println("Serving " + name + " at http://localhost:" + server.getPort()
+                + InferenceServer.PREDICT_PATH + name + ". Press enter to stop.");
+        in.readLine();
+
+        server.stop();
+        System.out.println("Server stopped");
+    }
+
+    /**
+     * Sends requests with random inputs to an inference server and reports
+     * its throughput and latency.
+     * @param args The arguments provided to the command line by the user. This
+     *             should include the command as well as the arguments, where the
+     *             command is the zeroth value in the string array.
+     * @throws IOException if the URL is malformed.
+     */
+    private static void runLoadTest(String[] args) throws IOException {
+        int inputSize = args.length == 5 ? parseInt(args[2], 1, Integer.MAX_VALUE) : -1;
+        int threads = args.length == 5 ? parseInt(args[3], 1, Integer.MAX_VALUE) : -1;
+        int seconds = args.length == 5 ? parseInt(args[4], 1, Integer.MAX_VALUE) : -1;
+
+        if (inputSize < 0 || threads < 0 || seconds < 0) {
+            System.out.println(CommandLineStrings.INVALID_COMMAND_MESSAGE);
+            return;
+        }
+
+        double[] input = new double[inputSize];
+        Random random = new Random();
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextDouble();
+        }
+
+        URL url;
+
+        try {
+            url = new URL(args[1]);
+        } catch (MalformedURLException e) {
+            System.out.println(CommandLineStrings.INVALID_COMMAND_MESSAGE);
+            return;
+        }
+
+        InferenceLoadGenerator generator = new InferenceLoadGenerator(url, input, threads, true);
+
+        try {
+            System.out.println(generator.run(seconds, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Parses a whole number typed by the user
+     * @param value The text typed
+     * @param min The smallest number allowed, which must not be negative
+     * @param max The largest number allowed
+     * @return The number, or -1 if the text is not a number in the range allowed
+     */
+    private static int parseInt(String value, int min, int max) {
+        try {
+            int number = Integer.parseInt(value);
+            return number >= min && number <= max ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.henrythompson.neuralnets.demos.ocr;
 
+import com.henrythompson.neuralnets.EnsembleExecutor;
+import com.henrythompson.neuralnets.NeuralNetwork;
 import com.henrythompson.neuralnets.TrainingSample;
 
-import java.util.Collections;import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * By seeing how many of a set of unseen samples of letters that a set of
@@ -15,42 +19,77 @@ public class OcrAccuracyRanker {
     private final List<TrainedOcrNetwork> mNetworks;
     private final List<TrainingSample> mSamples;
 
+    /** The input of each sample, so that they can be processed as one batch */
+    private final double[][] mInputs;
+
     public OcrAccuracyRanker(List<TrainedOcrNetwork> networks, List<TrainingSample> samples) {
         mNetworks = networks;
         mSamples = samples;
+        mInputs = new double[samples.size()][];
+
+        for (int i = 0; i < mInputs.length; i++) {
+            mInputs[i] = samples.get(i).getInput();
+        }
     }
 
     public void rank() {
-        mNetworks.forEach(this::testNetworkAccuracy);
+        if (!mNetworks.isEmpty()) {
+            scoreAll();
+        }
+
         Collections.sort(mNetworks, (n1, n2) -> n2.getAccuracyRating() - n1.getAccuracyRating());
     }
 
-    private void testNetworkAccuracy(TrainedOcrNetwork network) {
-        int accuracyRating = 0;
+    /**
+     * Scores every network. When the networks' input layers match, they are
+     * scored together by an {@link EnsembleExecutor} in one batched pass over
+     * the samples, so that each sample is only read once however many
+     * networks there are. Otherwise each network is scored on its own.
+     */
+    private void scoreAll() {
+        List<NeuralNetwork> networks = new ArrayList<>();
 
-        for (TrainingSample s : mSamples) {
-            if (didNetworkGuessCorrectly(network, s)) {
-                accuracyRating++;
+        for (TrainedOcrNetwork network : mNetworks) {
+            networks.add(network.getNetwork());
+        }
+
+        if (!EnsembleExecutor.canShareInputLayer(networks)) {
+            for (TrainedOcrNetwork network : mNetworks) {
+                network.setAccuracyRating(score(network.getNetwork()));
             }
+
+            return;
         }
 
-        network.setAccuracyRating(accuracyRating);
+        int[][] guesses = new EnsembleExecutor(networks).classifyBatch(mInputs);
+
+        for (int n = 0; n < guesses.length; n++) {
+            mNetworks.get(n).setAccuracyRating(countCorrect(guesses[n]));
+        }
     }
 
-    private boolean didNetworkGuessCorrectly(TrainedOcrNetwork network, TrainingSample sample) {
-        double highestProbability = -1;
-        boolean correct = false;
+    /**
+     * @param network The network to test
+     * @return The number of the unseen samples which the network
+     * correctly guesses
+     */
+    public int score(NeuralNetwork network) {
+        return countCorrect(network.classifyBatch(mInputs));
+    }
 
-        double[] expectedOutput = sample.getExpectedOutput();
-        double[] output = network.getNetwork().processInput(sample.getInput());
+    /**
+     * @param guesses The class guessed for each sample
+     * @return The number of the guesses which are correct
+     */
+    private int countCorrect(int[] guesses) {
+        int accuracyRating = 0;
 
-        for (int i = 0; i < output.length; i++) {
-            if (output[i] > highestProbability) {
-                highestProbability = output[i];
-                correct = expectedOutput[i] == 1;
+        for (int i = 0; i < guesses.length; i++) {
+            if (mSamples.get(i).getExpectedOutput()[guesses[i]] == 1) {
+                accuracyRating++;
             }
         }
 
-        return correct;
+        return accuracyRating;
     }
 }
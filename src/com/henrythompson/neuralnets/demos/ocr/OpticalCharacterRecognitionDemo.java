@@ -1,9 +1,11 @@
 package com.henrythompson.neuralnets.demos.ocr;
 
 import java.io.File;import java.io.FileNotFoundException;import java.lang.String;import java.lang.System;
-import java.util.ArrayList;import java.util.List;
+import java.util.ArrayList;import java.util.Arrays;import java.util.List;
 
 import com.henrythompson.neuralnets.*;
+import com.henrythompson.neuralnets.compression.LowRankCompressor;
+import com.henrythompson.neuralnets.compression.NetworkQuantizer;
 
 /**
  * Runs the OpticalCharacterRecognition program. The purpose of this class is so that we are able
@@ -41,12 +43,25 @@ import com.henrythompson.neuralnets.*;
  *     We order the networks by the accuracy ratings, and save these statistics to a CSV file
  *     in the output directory.
  *
+ *  4) COMPRESS NETWORKS
+ *     We replace the weights of each ranked network with the lowest rank approximation which
+ *     keeps its accuracy rating within a tolerance, and report the ranks chosen. The original
+ *     weights are then restored.
+ *
+ *  5) QUANTIZE NETWORKS
+ *     Finally, we quantize the weights of each ranked network to 8-bit integers and test it
+ *     against the unseen samples again, reporting how the accuracy rating changes.
+ *
  *  Right now this is one single program. It may be useful to separate out each section part of the
  *  process into its own command in the Command Line but for the purposes of this project where I
  *  am only interested in the final statistics produced, this is fine.
  *
  */
 public class OpticalCharacterRecognitionDemo {
+    /** The number of unseen samples by which the accuracy rating of a network may drop
+     * when its weights are replaced with a low rank approximation */
+    private static final int LOW_RANK_TOLERANCE = 1;
+
     /** The directory into which all files for statistics and the networks should be saved **/
     private final String mOutputDirectory;
 
@@ -181,10 +196,14 @@ public class OpticalCharacterRecognitionDemo {
             List<TrainedOcrNetwork> networks = new OutputtedOcrNetworksImporter(mOutputDirectory).retrieveNetworks();
 
             System.out.println("Ranking networks");
-            new OcrAccuracyRanker(networks, unseenSamples).rank();
+            OcrAccuracyRanker ranker = new OcrAccuracyRanker(networks, unseenSamples);
+            ranker.rank();
 
             System.out.println("Ranking successful");
 
+            reportLowRankAccuracy(networks, ranker);
+            reportQuantizedAccuracy(networks, ranker);
+
             return networks;
 
         } catch (FileNotFoundException e) {
@@ -192,4 +211,62 @@ public class OpticalCharacterRecognitionDemo {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Replaces the weights of each network with low rank approximations and prints
+     * the ranks chosen and how the accuracy rating changes as a result. The original
+     * weights of each network are restored afterwards.
+     * @param networks The ranked networks to compress
+     * @param ranker The ranker with which the networks were ranked
+     */
+    private void reportLowRankAccuracy(List<TrainedOcrNetwork> networks, OcrAccuracyRanker ranker) {
+        System.out.println("Compressing networks");
+
+        for (TrainedOcrNetwork network : networks) {
+            List<Synapse> synapses = network.getNetwork().getSynapses();
+            List<IWeights> original = new ArrayList<>();
+            synapses.forEach(s -> original.add(s.getWeights()));
+
+            int[] ranks = new LowRankCompressor(network.getNetwork(), ranker::score, LOW_RANK_TOLERANCE).compress();
+            int accuracyRating = ranker.score(network.getNetwork());
+
+            System.out.println("Hidden layer size " + network.getHiddenLayerSize() + ", CEE " + network.getCee()
+                    + ": ranks " + Arrays.toString(ranks) + ", accuracy rating "
+                    + network.getAccuracyRating() + " -> " + accuracyRating);
+
+            for (int i = 0; i < synapses.size(); i++) {
+                synapses.get(i).setWeights(original.get(i));
+            }
+        }
+
+        System.out.println("Compression complete");
+    }
+
+    /**
+     * Quantizes each network to 8-bit weights and prints how its accuracy rating
+     * changes as a result. The networks are modified in place, so this must only
+     * be called once they have been ranked.
+     * @param networks The ranked networks to quantize
+     * @param ranker The ranker with which the networks were ranked
+     */
+    private void reportQuantizedAccuracy(List<TrainedOcrNetwork> networks, OcrAccuracyRanker ranker) {
+        System.out.println("Quantizing networks");
+
+        int totalBefore = 0;
+        int totalAfter = 0;
+
+        for (TrainedOcrNetwork network : networks) {
+            long saved = new NetworkQuantizer(network.getNetwork()).quantize();
+            int accuracyRating = ranker.score(network.getNetwork());
+
+            System.out.println("Hidden layer size " + network.getHiddenLayerSize() + ", CEE " + network.getCee()
+                    + ": accuracy rating " + network.getAccuracyRating() + " -> " + accuracyRating
+                    + " (" + saved + " bytes saved)");
+
+            totalBefore += network.getAccuracyRating();
+            totalAfter += accuracyRating;
+        }
+
+        System.out.println("Quantization complete. Total accuracy rating " + totalBefore + " -> " + totalAfter);
+    }
+}
@@ -9,7 +9,10 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import com.henrythompson.neuralnets.FloatNeuralNetwork;
+import com.henrythompson.neuralnets.FloatWeights;
 import com.henrythompson.neuralnets.IWeights;
+import com.henrythompson.neuralnets.IWeightsFactory;
 import com.henrythompson.neuralnets.NeuralNetwork;
 import com.henrythompson.neuralnets.Synapse;
 import com.henrythompson.neuralnets.Weights;
@@ -28,9 +31,23 @@ public class NeuralNetworkImporter {
     /** The input from which the XML-based serialised data should be obtained */
     private final InputStream mInput;
 
+    /** Creates the weights into which each synapse's weights are parsed */
+    private final IWeightsFactory mWeightsFactory;
+
     /** @param input The input from which the XML-based serialised data should be obtained */
     public NeuralNetworkImporter(InputStream input) {
+        this(input, Weights::new);
+    }
+
+    /**
+     * @param input The input from which the XML-based serialised data should be obtained
+     * @param weightsFactory Creates the weights into which each synapse's weights are parsed,
+     *                       allowing the imported network to use any implementation of
+     *                       {@code IWeights}
+     */
+    public NeuralNetworkImporter(InputStream input, IWeightsFactory weightsFactory) {
         mInput = input;
+        mWeightsFactory = weightsFactory;
     }
 
     /**
@@ -39,6 +56,29 @@ public class NeuralNetworkImporter {
      * @return The neural network described by the XML found in the {@code InputStream} provided
      */
     public NeuralNetwork importNetwork() {
+        return importNetwork(mWeightsFactory);
+    }
+
+    /**
+     * Builds a single-precision copy of the neural network described by the XML found in the
+     * {@code InputStream} provided. Each weight is parsed straight into a {@code FloatWeights},
+     * regardless of the factory passed to the constructor.
+     *
+     * @return The single-precision network described by the XML, or {@code null} if it could
+     * not be imported
+     */
+    public FloatNeuralNetwork importFloatNetwork() {
+        NeuralNetwork network = importNetwork(FloatWeights::new);
+        return network != null ? new FloatNeuralNetwork(network) : null;
+    }
+
+    /**
+     * Builds the neural network described by the XML found in the {@code InputStream} provided
+     *
+     * @param weightsFactory Creates the weights into which each synapse's weights are parsed
+     * @return The neural network described by the XML found in the {@code InputStream} provided
+     */
+    private NeuralNetwork importNetwork(IWeightsFactory weightsFactory) {
         DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
 
         try {
@@ -48,7 +88,7 @@ public class NeuralNetworkImporter {
             Element root = dom.getDocumentElement();
             NodeList synapseList = root.getElementsByTagName("synapse");
 
-            return buildNeuralNetwork(synapseList);
+            return buildNeuralNetwork(synapseList, weightsFactory);
 
         } catch (ParserConfigurationException | SAXException | IOException | DOMException | NumberFormatException |
                 LayerTypeNotRecognisedException | MismatchingLayerSizeException e) {
@@ -63,16 +103,17 @@ public class NeuralNetworkImporter {
     /**
      * Constructs a NeuralNetwork from the list of synapse DOM elements in the XML
      * @param synapses The synapse DOM elements
+     * @param weightsFactory Creates the weights into which each synapse's weights are parsed
      * @return The NeuralNetwork represented by the XML
      * @throws LayerTypeNotRecognisedException If the type of any layer in the XML file is not recognised
      * @throws MismatchingLayerSizeException If the size of a layer is not matched by the number of weights
      * or biases specified in another part of the XML file
      */
-    private NeuralNetwork buildNeuralNetwork(NodeList synapses) throws LayerTypeNotRecognisedException, MismatchingLayerSizeException {
+    private NeuralNetwork buildNeuralNetwork(NodeList synapses, IWeightsFactory weightsFactory) throws LayerTypeNotRecognisedException, MismatchingLayerSizeException {
         List<LayerPlaceholder> tempLayers = new ArrayList<>();
         List<SynapsePlaceholder> tempSynapses = new ArrayList<>();
 
-        parse(synapses, tempLayers, tempSynapses);
+        parse(synapses, tempLayers, tempSynapses, weightsFactory);
 
         // Now, build the network from the placeholders
         List<AbstractLayer> layers = new ArrayList<>();
@@ -129,10 +170,12 @@ public class NeuralNetworkImporter {
      * @param synapseList The DOM elements representing the synapses of the neural network
      * @param tempLayers The list into which the temporary placeholders for each layer are to be put
      * @param tempSynapses The list into which the temporary placeholders for each synapse are to be put
+     * @param weightsFactory Creates the weights into which each synapse's weights are parsed
      * @throws MismatchingLayerSizeException If the numbers of weights to a layer are not matched in
      * the weights specified by the XML file.
      */
-    private void parse(NodeList synapseList, List<LayerPlaceholder> tempLayers, List<SynapsePlaceholder> tempSynapses) throws MismatchingLayerSizeException {
+    private void parse(NodeList synapseList, List<LayerPlaceholder> tempLayers, List<SynapsePlaceholder> tempSynapses,
+                       IWeightsFactory weightsFactory) throws MismatchingLayerSizeException {
         for (int i = 0; i < synapseList.getLength(); i++) {
             Element synapse = (Element) synapseList.item(i);
 
@@ -152,7 +195,7 @@ public class NeuralNetworkImporter {
 
             currentLayer.setSize(toSize);
 
-            IWeights weights = new Weights(fromSize, toSize);
+            IWeights weights = weightsFactory.create(fromSize, toSize);
             parseWeights(fromItems, fromSize, toSize, weights);
             parseBiases(tempSynapses, synapse, toSize, weights);
         }
@@ -26,6 +26,9 @@ public abstract class AbstractLayer {
     /** List of output listeners registered to receive any
      * outputs from this layer */
     private final List<OutputListener> mOutputListeners;
+
+    /** The output produced by the last input processed. This array is
+     * allocated on the first input and then reused for every input after it */
     private double[] mLastOutput;
 
     /** Instantiates a new AbstractLayer object with the specified
@@ -62,19 +65,41 @@ public abstract class AbstractLayer {
      * @param input The net input values of each of the neurons
      * in this layer
      * @return The output of this layer when that set of inputs
-     * was run through it
+     * was run through it. This is the same array as returned by
+     * {@link #getLastOutput()}, which is overwritten by the next
+     * input processed.
      */
     public double[] processInput(double[] input) {
+        evaluate(input);
+
+        // An indexed loop avoids allocating an iterator for every input
+        for (int i = 0; i < mOutputListeners.size(); i++) {
+            mOutputListeners.get(i).onOutput(mLastOutput);
+        }
+
+        return mLastOutput;
+    }
+
+    /** Processes the specified input without notifying the output
+     * listeners. This is used by {@link com.henrythompson.neuralnets.ExecutionPlan},
+     * which evaluates the following layers itself.
+     * @param input The net input values of each of the neurons
+     * in this layer
+     * @return The output of this layer when that set of inputs
+     * was run through it. This is the same array as returned by
+     * {@link #getLastOutput()}, which is overwritten by the next
+     * input processed.
+     */
+    public double[] evaluate(double[] input) {
         if (input.length != mSize) {
             throw new IllegalArgumentException("Length of input must match size of layer");
         }
 
-        mLastOutput = activationFunction(input);
-
-        for (OutputListener ol: mOutputListeners) {
-            ol.onOutput(mLastOutput);
+        if (mLastOutput == null) {
+            mLastOutput = new double[mSize];
         }
 
+        activate(input, mLastOutput);
         return mLastOutput;
     }
 
@@ -108,6 +133,52 @@ public abstract class AbstractLayer {
         return mErrorGradients;
     }
 
+    /**
+     * Performs the activation function, writing the output into an existing
+     * array rather than allocating a new one. Subclasses should override this;
+     * by default the result of {@link #activationFunction(double[])} is copied.
+     * @param netInputs The net input value of each neuron in this layer
+     * @param output The array into which the output of each neuron is written.
+     *               This must not be the same array as {@code netInputs}.
+     */
+    public void activate(double[] netInputs, double[] output) {
+        System.arraycopy(activationFunction(netInputs), 0, output, 0, mSize);
+    }
+
+    /**
+     * Performs the activation function in single precision, writing the
+     * output into an existing array. This is used by the single-precision
+     * inference path, {@link com.henrythompson.neuralnets.FloatNeuralNetwork}.
+     * Subclasses should override this; by default the net inputs are widened
+     * and passed through {@link #activationFunction(double[])}.
+     * @param netInputs The net input value of each neuron in this layer
+     * @param output The array into which the output of each neuron is written
+     */
+    public void activate(float[] netInputs, float[] output) {
+        double[] widened = new double[mSize];
+
+        for (int i = 0; i < mSize; i++) {
+            widened[i] = netInputs[i];
+        }
+
+        double[] result = activationFunction(widened);
+
+        for (int i = 0; i < mSize; i++) {
+            output[i] = (float) result[i];
+        }
+    }
+
+    /**
+     * @return {@code true} if the activation function never reverses the order
+     * of two net inputs, so that the neuron with the largest net input also has
+     * the largest output. The most likely class can then be found from the net
+     * inputs alone, without performing the activation function. Subclasses
+     * whose activation function is increasing should override this.
+     */
+    public boolean isOrderPreserving() {
+        return false;
+    }
+
     /** Performs the activation function on a particular net input
      * @param netInputs The net input value
      * @return The output of this neuron when this net input value
@@ -18,11 +18,21 @@ public class LinearLayer extends AbstractLayer {
     @Override
     protected double[] activationFunction(double[] netInput) {
         double[] result = new double[netInput.length];
-        System.arraycopy(netInput, 0, result, 0, netInput.length);
+        activate(netInput, result);
 
         return result;
     }
 
+    @Override
+    public void activate(double[] netInputs, double[] output) {
+        System.arraycopy(netInputs, 0, output, 0, size());
+    }
+
+    @Override
+    public void activate(float[] netInputs, float[] output) {
+        System.arraycopy(netInputs, 0, output, 0, size());
+    }
+
     @Override
     public double[] getActivationDerivative() {
         int n = getLastOutput().length;
@@ -35,6 +45,11 @@ public class LinearLayer extends AbstractLayer {
         return result;
     }
 
+    @Override
+    public boolean isOrderPreserving() {
+        return true;
+    }
+
     @Override
     public String typeName() {
         return "linear";
@@ -1,6 +1,8 @@
 package com.henrythompson.neuralnets.layers;
 
-import java.lang.Math;import java.lang.Override;import java.lang.String; /**
+import com.henrythompson.neuralnets.VectorMath;
+
+import java.lang.Override;import java.lang.String; /**
  * This class represents a layer of neurons which applies the Sigmoid function
  * to their inputs and pass the result as outputs.
  *
@@ -13,14 +15,24 @@ public class SigmoidLayer extends AbstractLayer {
 
     @Override
     protected double[] activationFunction(double[] netInput) {
+        double[] output = new double[size()];
+        activate(netInput, output);
+
+        return output;
+    }
+
+    @Override
+    public void activate(double[] netInputs, double[] output) {
+        VectorMath.sigmoid(netInputs, output, size());
+    }
+
+    @Override
+    public void activate(float[] netInputs, float[] output) {
         int n = size();
-        double[] output = new double[n];
 
         for (int k = 0; k < n; k++) {
-            output[k] = 1 / (1 + Math.exp(-netInput[k]));
+            output[k] = (float) (1 / (1 + Math.exp(-netInputs[k])));
         }
-
-        return output;
     }
 
     @Override
@@ -38,6 +50,11 @@ public class SigmoidLayer extends AbstractLayer {
         return results;
     }
 
+    @Override
+    public boolean isOrderPreserving() {
+        return true;
+    }
+
     @Override
     public String typeName() {
         return "sigmoid";
@@ -1,6 +1,8 @@
 package com.henrythompson.neuralnets.layers;
 
-import java.lang.Math;import java.lang.Override;import java.lang.String; /**
+import com.henrythompson.neuralnets.VectorMath;
+
+import java.lang.Override;import java.lang.String; /**
  * This class represents a layer of neurons which applies the Softmax function
  * to their inputs and pass the result as outputs.
  *
@@ -14,21 +16,47 @@ public class SoftmaxLayer extends AbstractLayer {
 
     @Override
     protected double[] activationFunction(double[] netInputs) {
+        double[] output = new double[size()];
+        activate(netInputs, output);
+
+        return output;
+    }
+
+    @Override
+    public void activate(double[] netInputs, double[] output) {
+        int n = size();
+
+        VectorMath.exp(netInputs, output, n);
+        VectorMath.scale(output, n, 1 / VectorMath.sum(output, n));
+    }
+
+    /**
+     * Performs the Softmax function in single precision. The largest net input
+     * is subtracted from every net input before exponentiating, which leaves
+     * the result unchanged but stops {@code float} overflowing for net inputs
+     * above about 88.
+     */
+    @Override
+    public void activate(float[] netInputs, float[] output) {
         int n = size();
+        float max = Float.NEGATIVE_INFINITY;
 
-        double sum = 0;
-        double[] output = new double[n];
+        for (int k = 0; k < n; k++) {
+            max = Math.max(max, netInputs[k]);
+        }
+
+        float sum = 0;
 
         for (int k = 0; k < n; k++) {
-            output[k] = Math.exp(netInputs[k]);
+            output[k] = (float) Math.exp(netInputs[k] - max);
             sum += output[k];
         }
-        
+
+        float reciprocal = 1 / sum;
+
         for (int k = 0; k < n; k++) {
-            output[k] = output[k] / sum;
+            output[k] *= reciprocal;
         }
-        
-        return output;
     }
 
     @Override
@@ -45,6 +73,11 @@ public class SoftmaxLayer extends AbstractLayer {
         return result;
     }
 
+    @Override
+    public boolean isOrderPreserving() {
+        return true;
+    }
+
     @Override
     public String typeName() {
         return "softmax";
@@ -15,14 +15,28 @@ public class ThresholdLayer extends AbstractLayer {
 
     @Override
     protected double[] activationFunction(double[] netInput) {
+        double[] output = new double[size()];
+        activate(netInput, output);
+
+        return output;
+    }
+
+    @Override
+    public void activate(double[] netInputs, double[] output) {
         int n = size();
-        double[] output = new double[n];
 
         for (int k = 0; k < n; k++) {
-            output[k] = netInput[k] > 0 ? 1 : 0;
+            output[k] = netInputs[k] > 0 ? 1 : 0;
         }
+    }
 
-        return output;
+    @Override
+    public void activate(float[] netInputs, float[] output) {
+        int n = size();
+
+        for (int k = 0; k < n; k++) {
+            output[k] = netInputs[k] > 0 ? 1 : 0;
+        }
     }
 
     @Override
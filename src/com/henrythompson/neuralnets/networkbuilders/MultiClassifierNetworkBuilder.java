@@ -13,6 +13,7 @@ public class MultiClassifierNetworkBuilder {
     private final List<AbstractLayer> mLayers;
     private final List<Synapse> mSynapses;
     private double mAmplitude = 0.2;
+    private IWeightsFactory mWeightsFactory = Weights::new;
 
     private int mOutputSize;
 
@@ -37,6 +38,11 @@ public class MultiClassifierNetworkBuilder {
         return this;
     }
 
+    public MultiClassifierNetworkBuilder setWeightsFactory(IWeightsFactory factory) {
+        mWeightsFactory = factory;
+        return this;
+    }
+
     public NeuralNetwork create() {
         mLayers.add(new SoftmaxLayer(mOutputSize));
         generateSynapses();
@@ -49,7 +55,8 @@ public class MultiClassifierNetworkBuilder {
             AbstractLayer input = mLayers.get(i);
             AbstractLayer output = mLayers.get(i + 1);
 
-            Synapse synapse = new Synapse(input, output);
+            IWeights weights = mWeightsFactory.create(input.size(), output.size());
+            Synapse synapse = new Synapse(input, output, weights);
             synapse.randomiseWeights(mAmplitude);
 
             mSynapses.add(synapse);
@@ -14,6 +14,7 @@ public class PerceptronBuilder {
         private boolean mUseSigmoidLayer;
 
         private IWeights mWeights;
+        private IWeightsFactory mWeightsFactory = Weights::new;
 
         private double mRndWeightAmplitude = 0.2;
 
@@ -23,7 +24,19 @@ public class PerceptronBuilder {
         }
 
         public PerceptronBuilder setWeights(double[][] weights) {
-            setWeights(new Weights(weights));
+            IWeights copy = mWeightsFactory.create(weights.length - 1, weights[0].length);
+
+            for (int from = 0; from < weights.length - 1; from++) {
+                for (int to = 0; to < weights[from].length; to++) {
+                    copy.setWeight(from, to, weights[from][to]);
+                }
+            }
+
+            for (int to = 0; to < weights[weights.length - 1].length; to++) {
+                copy.setBias(to, weights[weights.length - 1][to]);
+            }
+
+            setWeights(copy);
             return this;
         }
 
@@ -44,6 +57,11 @@ public class PerceptronBuilder {
             return this;
         }
 
+        public PerceptronBuilder setWeightsFactory(IWeightsFactory factory) {
+            mWeightsFactory = factory;
+            return this;
+        }
+
         public PerceptronBuilder setWeightRandomizationAmplitude(double amplitude) {
             mRndWeightAmplitude = amplitude;
             return this;
@@ -81,7 +99,7 @@ public class PerceptronBuilder {
             ArrayList<AbstractLayer> layers = generateLayers();
 
             if (mWeights == null) {
-                mWeights = new Weights(mInputLayerSize, mOutputLayerSize);
+                mWeights = mWeightsFactory.create(mInputLayerSize, mOutputLayerSize);
                 mWeights.randomize(mRndWeightAmplitude);
             }
 
@@ -0,0 +1,209 @@
+package com.henrythompson.neuralnets.serving;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests running a model at once, and turns requests
+ * away quickly when they would otherwise wait too long. During a burst,
+ * callers get an immediate answer that the model is busy rather than sitting
+ * behind a backlog they will give up on anyway.
+ *
+ * A request is admitted at once if fewer than the maximum number of requests
+ * are running. Otherwise it may wait, but is rejected without waiting if the
+ * queue is already full, or if the wait predicted from the recent service
+ * time and the length of the queue exceeds the deadline. A request which does
+ * wait and is still not admitted by the deadline is rejected as timed out.
+ *
+ * An admitted request holds an {@link AdmissionPermit}, which must be closed
+ * when the request finishes so that the next request can be admitted.
+ */
+public class AdmissionController {
+    /** The weight given to each new service time in the moving average */
+    private static final double SERVICE_TIME_WEIGHT = 0.1;
+
+    /** The largest number of requests which may run at once */
+    private final int mMaxConcurrency;
+
+    /** The largest number of requests which may wait to be admitted */
+    private final int mMaxQueueLength;
+
+    /** The longest a request may wait to be admitted, in nanoseconds */
+    private final long mDeadlineNanos;
+
+    /** Holds a permit for each request which may run */
+    private final Semaphore mPermits;
+
+    /** The number of requests waiting to be admitted */
+    private final AtomicInteger mQueueLength = new AtomicInteger();
+
+    /** The moving average of the time for which requests hold a permit, in
+     * nanoseconds, stored as the bits of a double */
+    private final AtomicLong mServiceTimeBits = new AtomicLong(Double.doubleToLongBits(0));
+
+    /** The number of requests admitted */
+    private final AtomicLong mAcceptedCount = new AtomicLong();
+
+    /** The number of requests rejected without waiting */
+    private final AtomicLong mShedCount = new AtomicLong();
+
+    /** The number of requests rejected after waiting for the deadline */
+    private final AtomicLong mTimedOutCount = new AtomicLong();
+
+    /**
+     * @param maxConcurrency The largest number of requests which may run at once
+     * @param maxQueueLength The largest number of requests which may wait to be
+     *                       admitted, which may be 0 to reject every request
+     *                       which cannot run at once
+     * @param deadline The longest a request may wait to be admitted
+     * @param unit The unit of {@code deadline}
+     */
+    public AdmissionController(int maxConcurrency, int maxQueueLength, long deadline, TimeUnit unit) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("At least one request must be allowed to run at once");
+        }
+
+        if (maxQueueLength < 0) {
+            throw new IllegalArgumentException("The maximum queue length must not be negative");
+        }
+
+        if (deadline < 0) {
+            throw new IllegalArgumentException("The deadline must not be negative");
+        }
+
+        mMaxConcurrency = maxConcurrency;
+        mMaxQueueLength = maxQueueLength;
+        mDeadlineNanos = unit.toNanos(deadline);
+        mPermits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * Admits a request, waiting if necessary
+     * @return A permit which must be closed when the request finishes
+     * @throws RequestRejectedException If the request is turned away
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public AdmissionPermit acquire() throws RequestRejectedException, InterruptedException {
+        // A timed attempt, unlike an untimed one, does not jump ahead of
+        // requests already waiting
+        if (mPermits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            return admit();
+        }
+
+        int position = mQueueLength.incrementAndGet();
+
+        try {
+            if (position > mMaxQueueLength) {
+                mShedCount.incrementAndGet();
+                throw new RequestRejectedException(RequestRejectedException.Reason.QUEUE_FULL,
+                        "The queue is full");
+            }
+
+            // Each request ahead in the queue, and this one, must wait for one
+            // of the running requests to finish
+            long predictedWait = (long) (position * getAverageServiceTimeNanos() / mMaxConcurrency);
+
+            if (predictedWait > mDeadlineNanos) {
+                mShedCount.incrementAndGet();
+                throw new RequestRejectedException(RequestRejectedException.Reason.DEADLINE_EXCEEDED,
+                        "The predicted wait of " + TimeUnit.NANOSECONDS.toMillis(predictedWait)
+                                + "ms exceeds the deadline");
+            }
+
+            if (!mPermits.tryAcquire(mDeadlineNanos, TimeUnit.NANOSECONDS)) {
+                mTimedOutCount.incrementAndGet();
+                throw new RequestRejectedException(RequestRejectedException.Reason.TIMED_OUT,
+                        "The request was not admitted before the deadline");
+            }
+
+            return admit();
+        } finally {
+            mQueueLength.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records a request which has taken a permit
+     * @return The permit
+     */
+    private AdmissionPermit admit() {
+        mAcceptedCount.incrementAndGet();
+        return new AdmissionPermit(this, System.nanoTime());
+    }
+
+    /**
+     * Returns the permit of a finished request and records how long it took
+     * @param serviceTimeNanos The time for which the request held its permit
+     */
+    void release(long serviceTimeNanos) {
+        while (true) {
+            long bits = mServiceTimeBits.get();
+            double average = Double.longBitsToDouble(bits);
+
+            // The first request sets the average outright, rather than
+            // having it start from zero
+            double updated = average == 0 ? serviceTimeNanos
+                    : average + SERVICE_TIME_WEIGHT * (serviceTimeNanos - average);
+
+            if (mServiceTimeBits.compareAndSet(bits, Double.doubleToLongBits(updated))) {
+                break;
+            }
+        }
+
+        mPermits.release();
+    }
+
+    /**
+     * @return The moving average of the time for which requests hold a permit,
+     * in nanoseconds, or 0 if no request has finished
+     */
+    public double getAverageServiceTimeNanos() {
+        return Double.longBitsToDouble(mServiceTimeBits.get());
+    }
+
+    /**
+     * @return The number of requests currently running
+     */
+    public int getActiveCount() {
+        return mMaxConcurrency - mPermits.availablePermits();
+    }
+
+    /**
+     * @return The number of requests currently waiting to be admitted
+     */
+    public int getQueueLength() {
+        return mQueueLength.get();
+    }
+
+    /**
+     * @return The number of requests admitted
+     */
+    public long getAcceptedCount() {
+        return mAcceptedCount.get();
+    }
+
+    /**
+     * @return The number of requests rejected without waiting, because the
+     * queue was full or the predicted wait exceeded the deadline
+     */
+    public long getShedCount() {
+        return mShedCount.get();
+    }
+
+    /**
+     * @return The number of requests rejected after waiting for the deadline
+     */
+    public long getTimedOutCount() {
+        return mTimedOutCount.get();
+    }
+
+    /**
+     * @return The longest a request may wait to be admitted, in milliseconds,
+     * rounded up
+     */
+    public long getDeadlineMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mDeadlineNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    }
+}
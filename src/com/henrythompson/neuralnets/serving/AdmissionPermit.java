@@ -0,0 +1,39 @@
+package com.henrythompson.neuralnets.serving;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Allows one request admitted by an {@link AdmissionController} to run. The
+ * permit should be closed as soon as the request finishes, ideally with
+ * try-with-resources, so that the next request can be admitted.
+ */
+public final class AdmissionPermit implements AutoCloseable {
+    /** The controller which admitted the request */
+    private final AdmissionController mController;
+
+    /** The value of {@link System#nanoTime()} when the request was admitted */
+    private final long mAdmitted;
+
+    /** Set once the permit is closed, so that closing it twice has no effect */
+    private final AtomicBoolean mClosed = new AtomicBoolean();
+
+    /**
+     * @param controller The controller which admitted the request
+     * @param admitted The value of {@link System#nanoTime()} when the request
+     *                 was admitted
+     */
+    AdmissionPermit(AdmissionController controller, long admitted) {
+        mController = controller;
+        mAdmitted = admitted;
+    }
+
+    /**
+     * Returns the permit to the controller
+     */
+    @Override
+    public void close() {
+        if (mClosed.compareAndSet(false, true)) {
+            mController.release(System.nanoTime() - mAdmitted);
+        }
+    }
+}
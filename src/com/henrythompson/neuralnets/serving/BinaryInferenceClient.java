@@ -0,0 +1,327 @@
+package com.henrythompson.neuralnets.serving;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A client for {@link BinaryInferenceServer}. Requests are pipelined: each is
+ * sent as soon as it is submitted, without waiting for the responses to
+ * earlier requests, and a thread owned by the client completes each request's
+ * future as its response arrives. A client may be shared by any number of
+ * threads.
+ */
+public class BinaryInferenceClient implements AutoCloseable {
+    /** The connection to the server */
+    private final SocketChannel mChannel;
+
+    /** The futures of the requests awaiting a response, keyed by request ID */
+    private final Map<Long, CompletableFuture<Prediction>> mPending = new ConcurrentHashMap<>();
+
+    /** The thread which reads the responses */
+    private final Thread mReader;
+
+    /** The buffer into which requests are written, guarded by mWriteLock */
+    private ByteBuffer mWriteBuffer = BinaryProtocol.allocate(BinaryProtocol.INITIAL_BUFFER_BYTES);
+
+    /** Held while writing requests, so that frames from different threads
+     * are not interleaved */
+    private final Object mWriteLock = new Object();
+
+    /** The ID of the next request, guarded by mWriteLock */
+    private long mNextId;
+
+    /** The reason the connection failed, or {@code null} while it is open */
+    private volatile IOException mFailure;
+
+    /**
+     * Connects to a server on the loopback address
+     * @param port The port on which the server is listening
+     * @throws IOException If the connection cannot be made
+     */
+    public BinaryInferenceClient(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Connects to a server
+     * @param address The address on which the server is listening
+     * @throws IOException If the connection cannot be made
+     */
+    public BinaryInferenceClient(InetSocketAddress address) throws IOException {
+        mChannel = SocketChannel.open(address);
+        mChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        mReader = new Thread(this::readResponses, "binary-inference-client");
+        mReader.setDaemon(true);
+        mReader.start();
+    }
+
+    /**
+     * Runs a model on an input, waiting for the response
+     * @param model The name under which the model is deployed
+     * @param input The value to feed to the input layer of the model
+     * @return The output of the model
+     * @throws IOException If the connection fails
+     * @throws RequestRejectedException If the model's admission controller
+     * turned the request away
+     * @throws IllegalArgumentException If no model is deployed under that
+     * name, or the input is the wrong size for it
+     */
+    public Prediction predict(String model, double[] input) throws IOException, RequestRejectedException {
+        try {
+            return submit(model, input).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RequestRejectedException) {
+                throw (RequestRejectedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Sends a request to run a model on an input, without waiting for the
+     * response
+     * @param model The name under which the model is deployed
+     * @param input The value to feed to the input layer of the model
+     * @return A future which is completed with the output of the model, or
+     * completed exceptionally with an {@code IllegalArgumentException} if no
+     * model is deployed under that name or the input is the wrong size for it,
+     * or with a {@link RequestRejectedException} if the model's admission
+     * controller turned the request away
+     * @throws IOException If the request cannot be sent
+     */
+    public CompletableFuture<Prediction> submit(String model, double[] input) throws IOException {
+        return submitAll(model, new double[][]{input}).get(0);
+    }
+
+    /**
+     * Sends requests to run a model on each of several inputs in a single
+     * write, without waiting for the responses
+     * @param model The name under which the model is deployed
+     * @param inputs The values to feed to the input layer of the model
+     * @return A future for each input, in the same order as the inputs, each
+     * completed as described by {@link #submit}
+     * @throws IOException If the requests cannot be sent
+     */
+    public List<CompletableFuture<Prediction>> submitAll(String model, double[][] inputs) throws IOException {
+        byte[] name = model.getBytes(StandardCharsets.UTF_8);
+
+        if (name.length > 0xFFFF) {
+            throw new IllegalArgumentException("The model's name is too long");
+        }
+
+        List<CompletableFuture<Prediction>> futures = new ArrayList<>(inputs.length);
+
+        synchronized (mWriteLock) {
+            checkOpen();
+            mWriteBuffer.clear();
+
+            for (double[] input : inputs) {
+                long id = mNextId++;
+                CompletableFuture<Prediction> future = new CompletableFuture<>();
+
+                // Registered before sending, so the response cannot arrive first
+                mPending.put(id, future);
+                futures.add(future);
+
+                mWriteBuffer = BinaryProtocol.ensureRemaining(mWriteBuffer,
+                        BinaryProtocol.requestFrameBytes(name, input.length));
+                BinaryProtocol.putRequest(mWriteBuffer, id, name, input);
+            }
+
+            mWriteBuffer.flip();
+
+            try {
+                while (mWriteBuffer.hasRemaining()) {
+                    mChannel.write(mWriteBuffer);
+                }
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+        }
+
+        // If the connection failed while the requests were being sent, their
+        // futures may have been registered after the pending requests were
+        // failed, so they are failed now instead
+        IOException failure = mFailure;
+
+        if (failure != null) {
+            fail(failure);
+        }
+
+        return futures;
+    }
+
+    /**
+     * Closes the connection, failing any requests still awaiting a response
+     */
+    @Override
+    public void close() {
+        try {
+            mChannel.close();
+        } catch (IOException e) {
+            // The connection is being abandoned regardless
+        }
+
+        fail(new IOException("The client has been closed"));
+    }
+
+    /**
+     * @return The number of requests sent which have not yet been answered
+     */
+    public int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * @throws IOException If the connection has failed or been closed
+     */
+    private void checkOpen() throws IOException {
+        IOException failure = mFailure;
+
+        if (failure != null) {
+            throw new IOException("The connection is closed", failure);
+        }
+    }
+
+    /**
+     * Records that the connection has failed, and fails every request still
+     * awaiting a response
+     * @param failure The reason the connection failed
+     */
+    private void fail(IOException failure) {
+        if (mFailure == null) {
+            mFailure = failure;
+        }
+
+        for (Long id : mPending.keySet()) {
+            CompletableFuture<Prediction> future = mPending.remove(id);
+
+            if (future != null) {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Reads responses and completes the future of each request answered,
+     * until the connection is closed
+     */
+    private void readResponses() {
+        ByteBuffer in = BinaryProtocol.allocate(BinaryProtocol.INITIAL_BUFFER_BYTES);
+
+        try {
+            while (mChannel.read(in) != -1) {
+                in.flip();
+                int length;
+
+                while ((length = BinaryProtocol.peekFrameLength(in)) >= 0
+                        && in.remaining() >= BinaryProtocol.LENGTH_BYTES + length) {
+                    in.position(in.position() + BinaryProtocol.LENGTH_BYTES);
+                    int end = in.position() + length;
+
+                    complete(in, end);
+                    in.position(end);
+                }
+
+                in.compact();
+
+                if (length >= 0) {
+                    in = BinaryProtocol.ensureRemaining(in, BinaryProtocol.LENGTH_BYTES + length - in.position());
+                }
+            }
+
+            fail(new IOException("The server closed the connection"));
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            // A malformed frame must not leave the thread dead with requests
+            // still waiting for it
+            fail(new IOException("The server broke the protocol", e));
+        }
+    }
+
+    /**
+     * Completes the future of the request answered by a response
+     * @param in The buffer holding the response, positioned after its length
+     * @param end The position in the buffer at which the response ends
+     * @throws IllegalArgumentException If the response is malformed, in which
+     * case the request it answers is left pending
+     */
+    private void complete(ByteBuffer in, int end) {
+        if (end - in.position() < BinaryProtocol.RESPONSE_HEADER_BYTES) {
+            throw new IllegalArgumentException("Response frame is too short");
+        }
+
+        long id = in.getLong();
+        byte status = in.get();
+
+        if (status == BinaryProtocol.STATUS_OK
+                && (end - in.position() < 4 || (end - in.position() - 4) % 8 != 0)) {
+            throw new IllegalArgumentException("Response frame does not hold a whole output");
+        }
+
+        if (status == BinaryProtocol.STATUS_REJECTED) {
+            if (end - in.position() < 1) {
+                throw new IllegalArgumentException("Response frame does not hold a rejection reason");
+            }
+
+            int ordinal = in.get(in.position());
+
+            if (ordinal < 0 || ordinal >= RequestRejectedException.Reason.values().length) {
+                throw new IllegalArgumentException("Unknown rejection reason " + ordinal);
+            }
+        }
+
+        CompletableFuture<Prediction> future = mPending.remove(id);
+
+        if (future == null) {
+            return;
+        }
+
+        if (status == BinaryProtocol.STATUS_OK) {
+            int argmax = in.getInt();
+            double[] output = new double[(end - in.position()) / 8];
+            in.asDoubleBuffer().get(output);
+
+            future.complete(new Prediction(output, argmax));
+        } else if (status == BinaryProtocol.STATUS_REJECTED) {
+            RequestRejectedException.Reason reason = RequestRejectedException.Reason.values()[in.get()];
+            byte[] message = new byte[end - in.position()];
+            in.get(message);
+
+            future.completeExceptionally(new RequestRejectedException(reason,
+                    new String(message, StandardCharsets.UTF_8)));
+        } else {
+            byte[] message = new byte[end - in.position()];
+            in.get(message);
+            String text = new String(message, StandardCharsets.UTF_8);
+
+            future.completeExceptionally(status == BinaryProtocol.STATUS_ERROR
+                    ? new IllegalStateException(text) : new IllegalArgumentException(text));
+        }
+    }
+}
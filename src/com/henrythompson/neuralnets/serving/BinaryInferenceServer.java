@@ -0,0 +1,328 @@
+package com.henrythompson.neuralnets.serving;
+
+import com.henrythompson.neuralnets.InferenceModel;
+import com.henrythompson.neuralnets.VectorMath;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the models held by a {@link ModelRegistry} for clients on the same
+ * machine, using the length-prefixed binary protocol described in
+ * {@link BinaryProtocol} rather than HTTP and JSON. Inputs and outputs travel
+ * as raw doubles, so for small networks the cost of a request is little more
+ * than that of evaluating the network.
+ *
+ * Each connection is served by its own thread taken from a cached pool.
+ * Clients may pipeline requests, sending many without waiting for the
+ * responses. The server answers every request it has already received before
+ * writing any responses, so a pipelined burst costs one write rather than one
+ * per request.
+ *
+ * If a model has an {@link AdmissionController} in the registry, each request
+ * for it must be admitted before the model is run. A request which is turned
+ * away is answered with a rejection rather than left waiting.
+ */
+public class BinaryInferenceServer {
+    /** The models served */
+    private final ModelRegistry mRegistry;
+
+    /** The channel on which connections are accepted */
+    private final ServerSocketChannel mServerChannel;
+
+    /** The threads on which connections are accepted and served */
+    private final ExecutorService mExecutor;
+
+    /** The connections currently open, so that they can be closed when the
+     * server is stopped */
+    private final Set<SocketChannel> mConnections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a server listening on the loopback address. The server does not
+     * accept connections until {@link #start()} is called.
+     * @param registry The models served
+     * @param port The port on which to listen, or 0 to choose any free port
+     * @throws IOException If the server cannot bind to the port
+     */
+    public BinaryInferenceServer(ModelRegistry registry, int port) throws IOException {
+        this(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Creates a server. The server does not accept connections until
+     * {@link #start()} is called.
+     * @param registry The models served
+     * @param address The address on which to listen
+     * @throws IOException If the server cannot bind to the address
+     */
+    public BinaryInferenceServer(ModelRegistry registry, InetSocketAddress address) throws IOException {
+        if (registry == null) {
+            throw new IllegalArgumentException("The registry must not be null");
+        }
+
+        mRegistry = registry;
+        mServerChannel = ServerSocketChannel.open().bind(address);
+        mExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("binary-inference-server-"));
+    }
+
+    /**
+     * Starts accepting connections
+     */
+    public void start() {
+        mExecutor.execute(this::acceptConnections);
+    }
+
+    /**
+     * Stops accepting connections and closes those which are open
+     */
+    public void stop() {
+        try {
+            mServerChannel.close();
+        } catch (IOException e) {
+            // The server is stopping regardless
+        }
+
+        for (SocketChannel connection : mConnections) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // The connection is being abandoned regardless
+            }
+        }
+
+        mExecutor.shutdown();
+    }
+
+    /**
+     * @return The port on which the server is listening
+     */
+    public int getPort() {
+        return mServerChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is stopped, serving each on a
+     * thread of its own
+     */
+    private void acceptConnections() {
+        while (mServerChannel.isOpen()) {
+            try {
+                SocketChannel connection = mServerChannel.accept();
+                connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                mConnections.add(connection);
+                mExecutor.execute(() -> serve(connection));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // Failing to accept one connection should not stop the server
+            }
+        }
+    }
+
+    /**
+     * Answers the requests on a connection until the client closes it, or it
+     * sends a frame which cannot be parsed
+     * @param connection The connection
+     */
+    private void serve(SocketChannel connection) {
+        ByteBuffer in = BinaryProtocol.allocate(BinaryProtocol.INITIAL_BUFFER_BYTES);
+        ByteBuffer out = BinaryProtocol.allocate(BinaryProtocol.INITIAL_BUFFER_BYTES);
+        Buffers buffers = new Buffers();
+
+        try {
+            while (connection.read(in) != -1) {
+                in.flip();
+                int length;
+
+                // Answer every complete request received so far before
+                // writing any of the responses
+                while ((length = BinaryProtocol.peekFrameLength(in)) >= 0
+                        && in.remaining() >= BinaryProtocol.LENGTH_BYTES + length) {
+                    in.position(in.position() + BinaryProtocol.LENGTH_BYTES);
+                    int end = in.position() + length;
+
+                    out = answer(in, end, out, buffers);
+                    in.position(end);
+                }
+
+                in.compact();
+
+                // Make room for the whole of the next request if it is larger
+                // than the buffer
+                if (length >= 0) {
+                    in = BinaryProtocol.ensureRemaining(in, BinaryProtocol.LENGTH_BYTES + length - in.position());
+                }
+
+                out.flip();
+
+                while (out.hasRemaining()) {
+                    connection.write(out);
+                }
+
+                out.clear();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // The client has gone away or has broken the protocol, so the
+            // connection is closed below
+        } finally {
+            mConnections.remove(connection);
+
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // The connection is being abandoned regardless
+            }
+        }
+    }
+
+    /**
+     * Answers a single request
+     * @param in The buffer holding the request, positioned after its length
+     * @param end The position in the buffer at which the request ends
+     * @param out The buffer, ready for writing, to which the response is written
+     * @param buffers The connection's reusable arrays
+     * @return The buffer written to, which may be larger than the one given
+     */
+    private ByteBuffer answer(ByteBuffer in, int end, ByteBuffer out, Buffers buffers) {
+        if (end - in.position() < BinaryProtocol.REQUEST_HEADER_BYTES) {
+            return BinaryProtocol.putError(out, -1, BinaryProtocol.STATUS_BAD_REQUEST, "The request is too short");
+        }
+
+        long id = in.getLong();
+        int nameLength = in.getShort() & 0xFFFF;
+        int inputBytes = end - in.position() - nameLength;
+
+        if (inputBytes < 0 || inputBytes % 8 != 0) {
+            return BinaryProtocol.putError(out, id, BinaryProtocol.STATUS_BAD_REQUEST,
+                    "The input must be a whole number of 8-byte doubles");
+        }
+
+        String name = buffers.readName(in, nameLength);
+        AdmissionController admission = mRegistry.getAdmissionController(name);
+        AdmissionPermit permit = null;
+        ModelLease lease;
+
+        try {
+            if (admission != null) {
+                permit = admission.acquire();
+            }
+
+            lease = mRegistry.acquire(name);
+        } catch (RequestRejectedException e) {
+            return BinaryProtocol.putRejection(out, id, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BinaryProtocol.putError(out, id, BinaryProtocol.STATUS_ERROR,
+                    "The request was interrupted while waiting to be admitted");
+        } catch (IllegalArgumentException e) {
+            if (permit != null) {
+                permit.close();
+            }
+
+            return BinaryProtocol.putError(out, id, BinaryProtocol.STATUS_NOT_FOUND, e.getMessage());
+        }
+
+        try {
+            InferenceModel model = lease.getModel();
+            double[] input = buffers.getInput(inputBytes / 8);
+            double[] output = buffers.getOutput(model.getOutputSize());
+            in.asDoubleBuffer().get(input);
+
+            model.processInput(input, output);
+
+            out = BinaryProtocol.ensureRemaining(out, BinaryProtocol.responseFrameBytes(model.getOutputSize()));
+            BinaryProtocol.putResponse(out, id, VectorMath.argmax(output, model.getOutputSize()),
+                    output, model.getOutputSize());
+
+            return out;
+        } catch (IllegalArgumentException e) {
+            return BinaryProtocol.putError(out, id, BinaryProtocol.STATUS_BAD_REQUEST, e.getMessage());
+        } catch (RuntimeException e) {
+            return BinaryProtocol.putError(out, id, BinaryProtocol.STATUS_ERROR, e.toString());
+        } finally {
+            lease.close();
+
+            if (permit != null) {
+                permit.close();
+            }
+        }
+    }
+
+    /**
+     * The arrays reused by each request on a connection, so that a stream of
+     * requests for the same model allocates nothing but the leases
+     */
+    private static final class Buffers {
+        /** The input of the last request */
+        private double[] mInput = new double[0];
+
+        /** The output of the last request */
+        private double[] mOutput = new double[0];
+
+        /** The encoded name of the model in the last request */
+        private byte[] mNameBytes = new byte[0];
+
+        /** The name of the model in the last request */
+        private String mName = "";
+
+        /**
+         * @param size The length of the input
+         * @return An array of that length
+         */
+        double[] getInput(int size) {
+            if (mInput.length != size) {
+                mInput = new double[size];
+            }
+
+            return mInput;
+        }
+
+        /**
+         * @param size The length of the output
+         * @return An array at least that long
+         */
+        double[] getOutput(int size) {
+            if (mOutput.length < size) {
+                mOutput = new double[size];
+            }
+
+            return mOutput;
+        }
+
+        /**
+         * Reads a model's name, decoding it only if it differs from the name
+         * in the last request
+         * @param in The buffer, positioned at the start of the name
+         * @param length The number of bytes in the name
+         * @return The name
+         */
+        String readName(ByteBuffer in, int length) {
+            boolean same = length == mNameBytes.length;
+
+            for (int i = 0; same && i < length; i++) {
+                same = in.get(in.position() + i) == mNameBytes[i];
+            }
+
+            if (same) {
+                in.position(in.position() + length);
+            } else {
+                mNameBytes = new byte[length];
+                in.get(mNameBytes);
+                mName = new String(mNameBytes, StandardCharsets.UTF_8);
+            }
+
+            return mName;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.henrythompson.neuralnets.serving;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The framing shared by {@link BinaryInferenceServer} and
+ * {@link BinaryInferenceClient}. Every value is little-endian, and every frame
+ * starts with an int giving the number of bytes which follow it.
+ *
+ * A request frame holds a long request ID chosen by the client, a short giving
+ * the length of the model's name, the name in UTF-8, and then the input vector
+ * as doubles filling the rest of the frame.
+ *
+ * A response frame holds the ID of the request it answers and a status byte.
+ * If the status is {@link #STATUS_OK} these are followed by the index of the
+ * largest output as an int and then the outputs as doubles filling the rest of
+ * the frame. If the status is {@link #STATUS_REJECTED} they are followed by the
+ * ordinal of the {@link RequestRejectedException.Reason} as a byte and then a
+ * description in UTF-8. Otherwise they are followed by a description of the
+ * error in UTF-8.
+ *
+ * A client may send any number of requests without waiting for their
+ * responses. The server answers the requests on each connection in the order
+ * they were sent.
+ */
+final class BinaryProtocol {
+    /** The request succeeded */
+    static final byte STATUS_OK = 0;
+
+    /** The request was malformed, or its input was the wrong size */
+    static final byte STATUS_BAD_REQUEST = 1;
+
+    /** No model is deployed under the name requested */
+    static final byte STATUS_NOT_FOUND = 2;
+
+    /** The model failed while processing the input */
+    static final byte STATUS_ERROR = 3;
+
+    /** The model's admission controller turned the request away */
+    static final byte STATUS_REJECTED = 4;
+
+    /** The number of bytes in the length which starts each frame */
+    static final int LENGTH_BYTES = 4;
+
+    /** The number of bytes in a request frame before the model's name */
+    static final int REQUEST_HEADER_BYTES = 8 + 2;
+
+    /** The number of bytes in a response frame before its body */
+    static final int RESPONSE_HEADER_BYTES = 8 + 1;
+
+    /** The largest frame accepted, which guards against a corrupt length
+     * causing a huge allocation */
+    static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    /** The initial size of each connection's buffers */
+    static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Creates a buffer in the byte order of the protocol
+     * @param capacity The capacity of the buffer
+     * @return A direct buffer, so that socket reads and writes are not copied
+     */
+    static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Makes sure a buffer which is being written to has room for more bytes
+     * @param buffer The buffer, ready for writing
+     * @param required The number of bytes which must fit after its position
+     * @return The same buffer if it already has room, or otherwise a larger
+     * buffer holding the same contents and ready for writing
+     */
+    static ByteBuffer ensureRemaining(ByteBuffer buffer, int required) {
+        if (buffer.remaining() >= required) {
+            return buffer;
+        }
+
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + required);
+        ByteBuffer larger = allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+
+        return larger;
+    }
+
+    /**
+     * Finds the length of the frame at the start of a buffer which is being
+     * read from, without moving its position
+     * @param buffer The buffer, ready for reading
+     * @return The number of bytes after the length, or -1 if the buffer does
+     * not yet hold the length
+     * @throws IllegalArgumentException If the length is negative or too large
+     */
+    static int peekFrameLength(ByteBuffer buffer) {
+        if (buffer.remaining() < LENGTH_BYTES) {
+            return -1;
+        }
+
+        int length = buffer.getInt(buffer.position());
+
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Invalid frame length " + length);
+        }
+
+        return length;
+    }
+
+    /**
+     * Writes a request frame
+     * @param buffer The buffer, ready for writing, which must have room for
+     *               {@link #requestFrameBytes} bytes
+     * @param id The ID of the request
+     * @param name The model's name encoded in UTF-8
+     * @param input The input vector
+     */
+    static void putRequest(ByteBuffer buffer, long id, byte[] name, double[] input) {
+        buffer.putInt(REQUEST_HEADER_BYTES + name.length + input.length * 8);
+        buffer.putLong(id);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+
+        for (double value : input) {
+            buffer.putDouble(value);
+        }
+    }
+
+    /**
+     * @param name The model's name encoded in UTF-8
+     * @param inputSize The length of the input vector
+     * @return The number of bytes in the request frame, including its length
+     */
+    static int requestFrameBytes(byte[] name, int inputSize) {
+        return LENGTH_BYTES + REQUEST_HEADER_BYTES + name.length + inputSize * 8;
+    }
+
+    /**
+     * Writes a successful response frame
+     * @param buffer The buffer, ready for writing, which must have room for
+     *               {@link #responseFrameBytes} bytes
+     * @param id The ID of the request answered
+     * @param argmax The index of the largest output
+     * @param output The outputs
+     * @param outputSize The number of outputs to write
+     */
+    static void putResponse(ByteBuffer buffer, long id, int argmax, double[] output, int outputSize) {
+        buffer.putInt(RESPONSE_HEADER_BYTES + 4 + outputSize * 8);
+        buffer.putLong(id);
+        buffer.put(STATUS_OK);
+        buffer.putInt(argmax);
+
+        for (int i = 0; i < outputSize; i++) {
+            buffer.putDouble(output[i]);
+        }
+    }
+
+    /**
+     * @param outputSize The number of outputs
+     * @return The number of bytes in a successful response frame, including
+     * its length
+     */
+    static int responseFrameBytes(int outputSize) {
+        return LENGTH_BYTES + RESPONSE_HEADER_BYTES + 4 + outputSize * 8;
+    }
+
+    /**
+     * Writes an unsuccessful response frame
+     * @param buffer The buffer, ready for writing
+     * @param id The ID of the request answered
+     * @param status The status of the response
+     * @param message A description of the error
+     * @return The buffer written to, which may be larger than the one given
+     */
+    static ByteBuffer putError(ByteBuffer buffer, long id, byte status, String message) {
+        byte[] bytes = (message != null ? message : "").getBytes(StandardCharsets.UTF_8);
+        buffer = ensureRemaining(buffer, LENGTH_BYTES + RESPONSE_HEADER_BYTES + bytes.length);
+
+        buffer.putInt(RESPONSE_HEADER_BYTES + bytes.length);
+        buffer.putLong(id);
+        buffer.put(status);
+        buffer.put(bytes);
+
+        return buffer;
+    }
+
+    /**
+     * Writes a response frame for a request turned away by an admission controller
+     * @param buffer The buffer, ready for writing
+     * @param id The ID of the request answered
+     * @param rejection The reason the request was turned away
+     * @return The buffer written to, which may be larger than the one given
+     */
+    static ByteBuffer putRejection(ByteBuffer buffer, long id, RequestRejectedException rejection) {
+        byte[] bytes = (rejection.getMessage() != null ? rejection.getMessage() : "").getBytes(StandardCharsets.UTF_8);
+        buffer = ensureRemaining(buffer, LENGTH_BYTES + RESPONSE_HEADER_BYTES + 1 + bytes.length);
+
+        buffer.putInt(RESPONSE_HEADER_BYTES + 1 + bytes.length);
+        buffer.putLong(id);
+        buffer.put(STATUS_REJECTED);
+        buffer.put((byte) rejection.getReason().ordinal());
+        buffer.put(bytes);
+
+        return buffer;
+    }
+}
@@ -0,0 +1,32 @@
+package com.henrythompson.neuralnets.serving;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates numbered daemon threads, so that a server which is never stopped
+ * does not keep the application alive
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+    /** The start of the name of each thread */
+    private final String mPrefix;
+
+    /** The number of threads created so far, used to name each thread */
+    private final AtomicInteger mCount = new AtomicInteger();
+
+    /**
+     * @param prefix The start of the name of each thread, to which its number
+     *               is appended
+     */
+    DaemonThreadFactory(String prefix) {
+        mPrefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, mPrefix + mCount.incrementAndGet());
+        thread.setDaemon(true);
+
+        return thread;
+    }
+}
@@ -0,0 +1,266 @@
+package com.henrythompson.neuralnets.serving;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput and latency of an {@link InferenceServer} by sending
+ * it the same request from a number of threads for a fixed length of time.
+ * Each thread waits for the response to one request before sending the next,
+ * so the number of threads is the number of requests in flight.
+ */
+public class InferenceLoadGenerator {
+    /** The URL of the model, e.g. {@code http://localhost:8080/predict/ocr} */
+    private final URL mUrl;
+
+    /** The body sent with every request */
+    private final byte[] mBody;
+
+    /** The Content-Type sent with every request */
+    private final String mContentType;
+
+    /** The number of threads sending requests */
+    private final int mThreads;
+
+    /**
+     * @param url The URL of the model, e.g. {@code http://localhost:8080/predict/ocr}
+     * @param input The input sent with every request
+     * @param threads The number of threads sending requests
+     * @param binary {@code true} to send the input as raw little-endian doubles,
+     *               or {@code false} to send it as JSON
+     */
+    public InferenceLoadGenerator(URL url, double[] input, int threads, boolean binary) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+
+        mUrl = url;
+        mThreads = threads;
+
+        if (binary) {
+            ByteBuffer buffer = ByteBuffer.allocate(input.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asDoubleBuffer().put(input);
+            mBody = buffer.array();
+            mContentType = InferenceServer.BINARY_CONTENT_TYPE;
+        } else {
+            StringBuilder json = new StringBuilder("{\"input\":");
+            JsonVectors.append(json, input);
+            json.append('}');
+            mBody = json.toString().getBytes(StandardCharsets.UTF_8);
+            mContentType = InferenceServer.JSON_CONTENT_TYPE;
+        }
+    }
+
+    /**
+     * Sends requests from every thread for a fixed length of time
+     * @param duration The length of time for which requests are sent
+     * @param unit The unit of {@code duration}
+     * @return The throughput and latency measured
+     * @throws InterruptedException If interrupted while waiting for the threads
+     */
+    public Report run(long duration, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + unit.toNanos(duration);
+        Worker[] workers = new Worker[mThreads];
+
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(end);
+            workers[i].start();
+        }
+
+        for (Worker worker : workers) {
+            worker.join();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        int requests = 0;
+        int errors = 0;
+
+        for (Worker worker : workers) {
+            requests += worker.mCount;
+            errors += worker.mErrors;
+        }
+
+        long[] latencies = new long[requests];
+        int offset = 0;
+
+        for (Worker worker : workers) {
+            System.arraycopy(worker.mLatencies, 0, latencies, offset, worker.mCount);
+            offset += worker.mCount;
+        }
+
+        Arrays.sort(latencies);
+        return new Report(requests, errors, elapsed, latencies);
+    }
+
+    /**
+     * Sends a single request
+     * @return {@code true} if the server responded with status 200
+     * @throws IOException If the request cannot be sent or the response read
+     */
+    private boolean send() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) mUrl.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", mContentType);
+        connection.setDoOutput(true);
+
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(mBody);
+        }
+
+        int status = connection.getResponseCode();
+        InputStream response = status == 200 ? connection.getInputStream() : connection.getErrorStream();
+
+        // The response is read fully so that the connection can be reused
+        if (response != null) {
+            byte[] buffer = new byte[4096];
+
+            while (response.read(buffer) != -1) {
+                // Discard the response
+            }
+
+            response.close();
+        }
+
+        return status == 200;
+    }
+
+    /**
+     * Sends requests one after another until the end time is reached,
+     * recording the latency of each
+     */
+    private class Worker extends Thread {
+        /** The value of {@link System#nanoTime()} at which to stop */
+        private final long mEnd;
+
+        /** The latency of each request in nanoseconds */
+        private long[] mLatencies = new long[1024];
+
+        /** The number of requests sent */
+        private int mCount;
+
+        /** The number of requests which failed */
+        private int mErrors;
+
+        /**
+         * @param end The value of {@link System#nanoTime()} at which to stop
+         */
+        Worker(long end) {
+            mEnd = end;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+
+            while (now < mEnd) {
+                boolean succeeded;
+
+                try {
+                    succeeded = send();
+                } catch (IOException e) {
+                    succeeded = false;
+                }
+
+                long finished = System.nanoTime();
+
+                if (mCount == mLatencies.length) {
+                    mLatencies = Arrays.copyOf(mLatencies, mCount * 2);
+                }
+
+                mLatencies[mCount++] = finished - now;
+
+                if (!succeeded) {
+                    mErrors++;
+                }
+
+                now = finished;
+            }
+        }
+    }
+
+    /**
+     * The throughput and latency measured by a run of the load generator
+     */
+    public static final class Report {
+        /** The number of requests sent */
+        private final int mRequests;
+
+        /** The number of requests which failed */
+        private final int mErrors;
+
+        /** The length of the run in nanoseconds */
+        private final long mElapsedNanos;
+
+        /** The latency of every request in nanoseconds, in ascending order */
+        private final long[] mLatencies;
+
+        /**
+         * @param requests The number of requests sent
+         * @param errors The number of requests which failed
+         * @param elapsedNanos The length of the run in nanoseconds
+         * @param latencies The latency of every request in nanoseconds, in
+         *                  ascending order
+         */
+        Report(int requests, int errors, long elapsedNanos, long[] latencies) {
+            mRequests = requests;
+            mErrors = errors;
+            mElapsedNanos = elapsedNanos;
+            mLatencies = latencies;
+        }
+
+        /**
+         * @return The number of requests sent
+         */
+        public int getRequests() {
+            return mRequests;
+        }
+
+        /**
+         * @return The number of requests which failed
+         */
+        public int getErrors() {
+            return mErrors;
+        }
+
+        /**
+         * @return The number of requests completed per second
+         */
+        public double getThroughput() {
+            return mRequests * 1E9 / mElapsedNanos;
+        }
+
+        /**
+         * @param percentile The percentile required, from 0 to 100
+         * @return The latency at that percentile in microseconds, or 0 if no
+         * requests were sent
+         */
+        public double getLatencyPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("The percentile must be between 0 and 100");
+            }
+
+            if (mLatencies.length == 0) {
+                return 0;
+            }
+
+            int index = (int) Math.ceil(percentile / 100 * mLatencies.length) - 1;
+            return mLatencies[Math.max(index, 0)] / 1E3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests (%d failed), %.1f requests/s, latency p50 %.1f us, p99 %.1f us",
+                    mRequests, mErrors, getThroughput(), getLatencyPercentile(50), getLatencyPercentile(99));
+        }
+    }
+}
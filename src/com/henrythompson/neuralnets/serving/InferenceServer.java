@@ -0,0 +1,399 @@
+package com.henrythompson.neuralnets.serving;
+
+import com.henrythompson.neuralnets.VectorMath;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A small HTTP server which runs the models held by a {@link ModelRegistry}.
+ * It accepts the following requests:
+ *
+ * {@code POST /predict/{name}} runs the model deployed under {@code name}. If
+ * the request's Content-Type is {@code application/octet-stream}, the body
+ * must be the input vector as raw little-endian doubles, and the response is
+ * the index of the largest output as a little-endian int followed by the
+ * outputs as little-endian doubles. Otherwise the body must be JSON, either an
+ * array of numbers or an object holding one in its {@code "input"} field, and
+ * the response is a JSON object with the fields {@code "model"},
+ * {@code "version"}, {@code "output"} and {@code "argmax"}.
+ *
+ * {@code GET /models} lists the name and version of every model deployed.
+ *
+ * If a model has an {@link AdmissionController} in the registry, each request
+ * must be admitted by it before the model is run, and a request which is
+ * turned away is answered at once with status 503 and a Retry-After header.
+ *
+ * Each request is handled on its own thread taken from a cached pool, so a
+ * slow client never holds up any other request. Since each model is an
+ * {@link com.henrythompson.neuralnets.InferenceModel}, any number of requests
+ * may run the same model at once. A request whose body is larger than any
+ * input to the model could need is refused with status 413 without being read
+ * in full.
+ *
+ * The JDK's HTTP server writes the headers and body of each response
+ * separately, so unless Nagle's algorithm is disabled each response waits for
+ * the client's delayed acknowledgement, costing around 40ms per request.
+ * Applications should therefore be launched with
+ * {@code -Dsun.net.httpserver.nodelay=true}, or set that property before the
+ * first server is created.
+ */
+public class InferenceServer {
+    /** The Content-Type of requests and responses holding raw vectors */
+    public static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+
+    /** The Content-Type of requests and responses holding JSON */
+    public static final String JSON_CONTENT_TYPE = "application/json";
+
+    /** The path under which each model is run, followed by its name */
+    public static final String PREDICT_PATH = "/predict/";
+
+    /** The path at which the deployed models are listed */
+    public static final String MODELS_PATH = "/models";
+
+    /** The number of bytes in each double of a raw vector */
+    private static final int DOUBLE_BYTES = 8;
+
+    /** The most bytes of JSON allowed for each value of an input, which is
+     * generous since no double needs more than 24 characters */
+    private static final int MAX_JSON_BYTES_PER_VALUE = 64;
+
+    /** The most bytes of JSON allowed besides the values of an input */
+    private static final int MAX_JSON_OVERHEAD_BYTES = 1024;
+
+    /** The models served */
+    private final ModelRegistry mRegistry;
+
+    /** The underlying HTTP server */
+    private final HttpServer mServer;
+
+    /** The threads on which requests are handled */
+    private final ExecutorService mExecutor;
+
+    /**
+     * Creates a server listening on every local address. The server does not
+     * accept requests until {@link #start()} is called.
+     * @param registry The models served
+     * @param port The port on which to listen, or 0 to choose any free port
+     * @throws IOException If the server cannot bind to the port
+     */
+    public InferenceServer(ModelRegistry registry, int port) throws IOException {
+        this(registry, new InetSocketAddress(port));
+    }
+
+    /**
+     * Creates a server. The server does not accept requests until
+     * {@link #start()} is called.
+     * @param registry The models served
+     * @param address The address on which to listen
+     * @throws IOException If the server cannot bind to the address
+     */
+    public InferenceServer(ModelRegistry registry, InetSocketAddress address) throws IOException {
+        if (registry == null) {
+            throw new IllegalArgumentException("The registry must not be null");
+        }
+
+        mRegistry = registry;
+        mServer = HttpServer.create(address, 0);
+        mExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("inference-server-"));
+
+        mServer.setExecutor(mExecutor);
+        mServer.createContext(PREDICT_PATH, this::handlePredict);
+        mServer.createContext(MODELS_PATH, this::handleModels);
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        mServer.start();
+    }
+
+    /**
+     * Stops accepting requests and stops the threads on which requests are
+     * handled once those in progress have finished
+     */
+    public void stop() {
+        mServer.stop(0);
+        mExecutor.shutdown();
+    }
+
+    /**
+     * @return The port on which the server is listening
+     */
+    public int getPort() {
+        return mServer.getAddress().getPort();
+    }
+
+    /**
+     * Runs a model on the input in a request
+     * @param exchange The request and its response
+     * @throws IOException If the request cannot be read or the response written
+     */
+    private void handlePredict(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only POST is supported");
+                return;
+            }
+
+            String name = exchange.getRequestURI().getPath().substring(PREDICT_PATH.length());
+            boolean binary = isBinary(exchange);
+            int maxBodyBytes;
+
+            try (ModelLease lease = acquireIfDeployed(name)) {
+                if (lease == null) {
+                    sendError(exchange, 404, "No model is deployed under the name " + name);
+                    return;
+                }
+
+                maxBodyBytes = getMaxBodyBytes(lease.getModel().getInputSize(), binary);
+            }
+
+            byte[] body = readBody(exchange.getRequestBody(), maxBodyBytes);
+
+            if (body == null) {
+                sendError(exchange, 413, "The request body must not exceed " + maxBodyBytes + " bytes");
+                return;
+            }
+
+            double[] input = binary ? decode(body) : JsonVectors.parse(new String(body, StandardCharsets.UTF_8));
+
+            AdmissionController admission = mRegistry.getAdmissionController(name);
+            AdmissionPermit permit = admission != null ? admission.acquire() : null;
+            String contentType;
+            byte[] response;
+
+            // The permit and lease are released before the response is sent,
+            // so that a slow client does not hold up other requests or the
+            // retirement of an old version. The model is leased again rather
+            // than while the body is read for the same reason.
+            try (ModelLease lease = acquireIfDeployed(name)) {
+                if (lease == null) {
+                    // The model was undeployed while the body was being read
+                    contentType = null;
+                    response = null;
+                } else {
+                    double[] output = lease.getModel().processInput(input);
+                    int argmax = VectorMath.argmax(output, output.length);
+
+                    if (binary) {
+                        contentType = BINARY_CONTENT_TYPE;
+                        response = encode(argmax, output);
+                    } else {
+                        StringBuilder json = new StringBuilder("{\"model\":");
+                        JsonVectors.appendString(json, lease.getName());
+                        json.append(",\"version\":").append(lease.getVersion()).append(",\"output\":");
+                        JsonVectors.append(json, output);
+                        json.append(",\"argmax\":").append(argmax).append('}');
+
+                        contentType = JSON_CONTENT_TYPE;
+                        response = json.toString().getBytes(StandardCharsets.UTF_8);
+                    }
+                }
+            } finally {
+                if (permit != null) {
+                    permit.close();
+                }
+            }
+
+            if (response == null) {
+                sendError(exchange, 404, "No model is deployed under the name " + name);
+                return;
+            }
+
+            send(exchange, 200, contentType, response);
+        } catch (RequestRejectedException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "The request was interrupted while waiting to be admitted");
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            // The details are logged rather than sent, since they describe
+            // the server's internals
+            e.printStackTrace();
+            sendError(exchange, 500, "The model failed to process the input");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Lists the deployed models
+     * @param exchange The request and its response
+     * @throws IOException If the response cannot be written
+     */
+    private void handleModels(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+
+            StringBuilder json = new StringBuilder("{\"models\":[");
+            boolean first = true;
+
+            for (String name : mRegistry.getNames()) {
+                int version = mRegistry.getVersion(name);
+
+                // Skip any model undeployed since the names were listed
+                if (version < 0) {
+                    continue;
+                }
+
+                if (!first) {
+                    json.append(',');
+                }
+
+                json.append("{\"name\":");
+                JsonVectors.appendString(json, name);
+                json.append(",\"version\":").append(version).append('}');
+                first = false;
+            }
+
+            json.append("]}");
+            send(exchange, 200, JSON_CONTENT_TYPE, json.toString().getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param exchange The request
+     * @return {@code true} if the request holds a raw vector rather than JSON
+     */
+    private static boolean isBinary(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null && contentType.startsWith(BINARY_CONTENT_TYPE);
+    }
+
+    /**
+     * @param name The name under which the model is deployed
+     * @return A lease on the current version of the model, which must be
+     * closed, or {@code null} if no model is deployed under the name
+     */
+    private ModelLease acquireIfDeployed(String name) {
+        try {
+            return mRegistry.acquire(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param inputSize The number of neurons in the model's input layer
+     * @param binary {@code true} if the request holds a raw vector rather than JSON
+     * @return The largest body a request to the model may have
+     */
+    private static int getMaxBodyBytes(int inputSize, boolean binary) {
+        long maxBodyBytes = binary ? (long) inputSize * DOUBLE_BYTES
+                : (long) inputSize * MAX_JSON_BYTES_PER_VALUE + MAX_JSON_OVERHEAD_BYTES;
+
+        return (int) Math.min(maxBodyBytes, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Reads the whole of a request's body, unless it is too large
+     * @param input The body of the request
+     * @param maxBytes The largest number of bytes the body may hold
+     * @return The bytes of the body, or {@code null} if it holds more than
+     * {@code maxBytes}, in which case the rest of it is not read
+     * @throws IOException If the body cannot be read
+     */
+    private static byte[] readBody(InputStream input, int maxBytes) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+
+        while ((read = input.read(buffer)) != -1) {
+            if (body.size() + read > maxBytes) {
+                return null;
+            }
+
+            body.write(buffer, 0, read);
+        }
+
+        return body.toByteArray();
+    }
+
+    /**
+     * Decodes a vector of raw little-endian doubles
+     * @param body The raw vector
+     * @return The vector
+     * @throws IllegalArgumentException If the body is not a whole number of doubles
+     */
+    static double[] decode(byte[] body) {
+        if (body.length % DOUBLE_BYTES != 0) {
+            throw new IllegalArgumentException("A raw vector must be a whole number of 8-byte doubles, not "
+                    + body.length + " bytes");
+        }
+
+        double[] vector = new double[body.length / DOUBLE_BYTES];
+        ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(vector);
+
+        return vector;
+    }
+
+    /**
+     * Encodes the response to a request holding a raw vector
+     * @param argmax The index of the largest output
+     * @param output The outputs
+     * @return The index as a little-endian int followed by the outputs as
+     * little-endian doubles
+     */
+    static byte[] encode(int argmax, double[] output) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + output.length * DOUBLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(argmax);
+
+        for (double value : output) {
+            buffer.putDouble(value);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Sends an error as a JSON object with a single {@code "error"} field
+     * @param exchange The request and its response
+     * @param status The HTTP status code
+     * @param message A description of the error
+     * @throws IOException If the response cannot be written
+     */
+    static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        JsonVectors.appendString(json, message != null ? message : "");
+        json.append('}');
+
+        send(exchange, status, JSON_CONTENT_TYPE, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a response
+     * @param exchange The request and its response
+     * @param status The HTTP status code
+     * @param contentType The Content-Type of the body
+     * @param body The body
+     * @throws IOException If the response cannot be written
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.henrythompson.neuralnets.serving;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the small amount of JSON used by {@link InferenceServer}:
+ * vectors of numbers, either on their own or as the {@code "input"} field of
+ * an object. This is not a general JSON parser.
+ */
+final class JsonVectors {
+    private JsonVectors() {
+    }
+
+    /**
+     * Parses a vector from either a JSON array of numbers, e.g. {@code [0, 1.5]},
+     * or an object holding one in its {@code "input"} field, e.g.
+     * {@code {"input": [0, 1.5]}}
+     * @param json The JSON to parse
+     * @return The vector
+     * @throws IllegalArgumentException If the JSON does not hold a vector
+     */
+    static double[] parse(String json) {
+        String trimmed = json.trim();
+        int start = 0;
+
+        if (trimmed.startsWith("{")) {
+            start = trimmed.indexOf("\"input\"");
+
+            if (start < 0) {
+                throw new IllegalArgumentException("The JSON object must have an \"input\" field");
+            }
+        }
+
+        int open = trimmed.indexOf('[', start);
+        int close = open < 0 ? -1 : trimmed.indexOf(']', open);
+
+        if (open < 0 || close < 0) {
+            throw new IllegalArgumentException("The input must be a JSON array of numbers");
+        }
+
+        String contents = trimmed.substring(open + 1, close).trim();
+
+        if (contents.isEmpty()) {
+            return new double[0];
+        }
+
+        String[] values = contents.split(",");
+        List<Double> vector = new ArrayList<>(values.length);
+
+        for (String value : values) {
+            try {
+                vector.add(Double.parseDouble(value.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("\"" + value.trim() + "\" is not a number");
+            }
+        }
+
+        double[] result = new double[vector.size()];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = vector.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Appends a vector as a JSON array. Values which JSON cannot represent,
+     * i.e. infinities and NaN, are written as {@code null}.
+     * @param json The JSON to which the array is appended
+     * @param vector The vector
+     */
+    static void append(StringBuilder json, double[] vector) {
+        json.append('[');
+
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+
+            if (Double.isNaN(vector[i]) || Double.isInfinite(vector[i])) {
+                json.append("null");
+            } else {
+                json.append(vector[i]);
+            }
+        }
+
+        json.append(']');
+    }
+
+    /**
+     * Appends a string as a JSON string, escaping quotes, backslashes and
+     * control characters
+     * @param json The JSON to which the string is appended
+     * @param value The string
+     */
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+
+        json.append('"');
+    }
+}
@@ -0,0 +1,445 @@
+package com.henrythompson.neuralnets.serving;
+
+import sun.misc.Unsafe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A ring buffer of fixed-length vectors held in a memory-mapped file, through
+ * which one thread can pass vectors to another thread, which may be in a
+ * different process on the same machine. Passing a vector involves no system
+ * calls: the producer copies it into the mapped memory and publishes it by
+ * advancing a counter, and the consumer watches that counter. A consumer which
+ * finds the ring empty spins for a while before parking for short periods, so
+ * under load a vector is picked up within nanoseconds while an idle consumer
+ * uses almost no CPU.
+ *
+ * Each vector is tagged with a sequence number chosen by the producer, so that
+ * responses sent back through a second ring can be matched to their requests.
+ *
+ * Exactly one thread may offer vectors and exactly one thread may poll them.
+ * Vectors are stored in the native byte order, so both processes must run on
+ * the same machine.
+ *
+ * The file is laid out as a header holding the capacity and vector length,
+ * the producer's counter and the consumer's counter, each on its own cache
+ * line so that the two sides do not contend, followed by the slots. Each slot
+ * holds a long sequence number followed by the vector's doubles.
+ */
+public final class MappedRing implements AutoCloseable {
+    /** Identifies a file as holding a ring */
+    private static final int MAGIC = 0x52494E47;
+
+    /** The size of a cache line, by which the counters are separated */
+    private static final int CACHE_LINE_BYTES = 64;
+
+    /** The offset of the header holding the magic number, capacity and vector length */
+    private static final int HEADER_OFFSET = 0;
+
+    /** The offset of the number of vectors ever offered, written by the producer */
+    private static final int HEAD_OFFSET = CACHE_LINE_BYTES;
+
+    /** The offset of the number of vectors ever polled, written by the consumer */
+    private static final int TAIL_OFFSET = 2 * CACHE_LINE_BYTES;
+
+    /** The offset of the first slot */
+    private static final int SLOTS_OFFSET = 3 * CACHE_LINE_BYTES;
+
+    /** The number of times a waiting thread checks the ring before yielding */
+    private static final int SPIN_ATTEMPTS = 1000;
+
+    /** The number of times a waiting thread yields before parking */
+    private static final int YIELD_ATTEMPTS = 100;
+
+    /** The longest a waiting thread parks before checking the ring again */
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /** Used for the ordered reads and writes of the counters, which ByteBuffer
+     * does not provide */
+    private static final Unsafe UNSAFE = loadUnsafe();
+
+    /** The offset of the first element of a double[] */
+    private static final long DOUBLE_ARRAY_BASE = UNSAFE.arrayBaseOffset(double[].class);
+
+    /** The offset of the field of {@link Buffer} holding the address of a
+     * direct buffer's memory, which is read through {@link #UNSAFE} because
+     * the JDK's own accessor is not exported from Java 9 onwards */
+    private static final long BUFFER_ADDRESS_OFFSET = loadBufferAddressOffset();
+
+    /** The file which is mapped */
+    private final RandomAccessFile mFile;
+
+    /** The mapped memory, held so that it is not unmapped while in use */
+    private final MappedByteBuffer mBuffer;
+
+    /** The address of the mapped memory */
+    private final long mAddress;
+
+    /** The number of slots, which is a power of two */
+    private final int mCapacity;
+
+    /** The number of doubles in each vector */
+    private final int mVectorLength;
+
+    /** The number of bytes in each slot */
+    private final int mSlotBytes;
+
+    /** The producer's last reading of the tail, so that it only reads the
+     * consumer's counter again when the ring appears full */
+    private long mCachedTail;
+
+    /** The consumer's last reading of the head, so that it only reads the
+     * producer's counter again when the ring appears empty */
+    private long mCachedHead;
+
+    /**
+     * @param file The file which is mapped
+     * @param buffer The mapped memory
+     * @param capacity The number of slots
+     * @param vectorLength The number of doubles in each vector
+     */
+    private MappedRing(RandomAccessFile file, MappedByteBuffer buffer, int capacity, int vectorLength) {
+        mFile = file;
+        mBuffer = buffer;
+        mAddress = addressOf(buffer);
+        mCapacity = capacity;
+        mVectorLength = vectorLength;
+        mSlotBytes = 8 + vectorLength * 8;
+        mCachedTail = UNSAFE.getLongVolatile(null, mAddress + TAIL_OFFSET);
+        mCachedHead = UNSAFE.getLongVolatile(null, mAddress + HEAD_OFFSET);
+    }
+
+    /**
+     * Creates a new, empty ring in a file, replacing anything already in it
+     * @param file The file in which the ring is held
+     * @param capacity The number of vectors the ring can hold, which must be
+     *                 a power of two
+     * @param vectorLength The number of doubles in each vector
+     * @return The ring
+     * @throws IOException If the file cannot be created or mapped
+     */
+    public static MappedRing create(File file, int capacity, int vectorLength) throws IOException {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two");
+        }
+
+        if (vectorLength < 1) {
+            throw new IllegalArgumentException("The vector length must be at least 1");
+        }
+
+        long size = SLOTS_OFFSET + (long) capacity * (8 + vectorLength * 8L);
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The ring must fit in 2GB");
+        }
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+        try {
+            randomAccessFile.setLength(0);
+            randomAccessFile.setLength(size);
+
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            MappedRing ring = new MappedRing(randomAccessFile, buffer, capacity, vectorLength);
+
+            // The magic number is written last, so a ring opened while it is
+            // being created is never seen with a partial header
+            UNSAFE.putInt(ring.mAddress + HEADER_OFFSET + 4, capacity);
+            UNSAFE.putInt(ring.mAddress + HEADER_OFFSET + 8, vectorLength);
+            UNSAFE.putOrderedLong(null, ring.mAddress + HEAD_OFFSET, 0);
+            UNSAFE.putOrderedLong(null, ring.mAddress + TAIL_OFFSET, 0);
+            UNSAFE.putIntVolatile(null, ring.mAddress + HEADER_OFFSET, MAGIC);
+
+            return ring;
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a ring created by {@link #create}, possibly in another process
+     * @param file The file in which the ring is held
+     * @return The ring
+     * @throws IOException If the file cannot be mapped or does not hold a ring
+     */
+    public static MappedRing open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+
+        try {
+            long size = randomAccessFile.length();
+
+            if (size < SLOTS_OFFSET) {
+                throw new IOException(file + " does not hold a ring");
+            }
+
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            long address = addressOf(buffer);
+
+            if (UNSAFE.getIntVolatile(null, address + HEADER_OFFSET) != MAGIC) {
+                throw new IOException(file + " does not hold a ring");
+            }
+
+            int capacity = UNSAFE.getInt(address + HEADER_OFFSET + 4);
+            int vectorLength = UNSAFE.getInt(address + HEADER_OFFSET + 8);
+
+            if (SLOTS_OFFSET + (long) capacity * (8 + vectorLength * 8L) != size) {
+                throw new IOException(file + " does not hold a complete ring");
+            }
+
+            return new MappedRing(randomAccessFile, buffer, capacity, vectorLength);
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a vector to the ring if there is room. Must only be called by the
+     * producer.
+     * @param sequence The sequence number with which the vector is tagged
+     * @param vector The vector, whose first {@link #getVectorLength()} values
+     *               are copied into the ring
+     * @return {@code true} if the vector was added, or {@code false} if the
+     * ring is full
+     */
+    public boolean offer(long sequence, double[] vector) {
+        if (vector.length < mVectorLength) {
+            throw new IllegalArgumentException("The vector must hold at least " + mVectorLength + " values");
+        }
+
+        long head = UNSAFE.getLong(mAddress + HEAD_OFFSET);
+
+        if (head - mCachedTail >= mCapacity) {
+            mCachedTail = UNSAFE.getLongVolatile(null, mAddress + TAIL_OFFSET);
+
+            if (head - mCachedTail >= mCapacity) {
+                return false;
+            }
+        }
+
+        long slot = slotAddress(head);
+        UNSAFE.putLong(slot, sequence);
+        UNSAFE.copyMemory(vector, DOUBLE_ARRAY_BASE, null, slot + 8, mVectorLength * 8L);
+
+        // The ordered write makes sure the slot is visible before the new head
+        UNSAFE.putOrderedLong(null, mAddress + HEAD_OFFSET, head + 1);
+        return true;
+    }
+
+    /**
+     * Adds a vector to the ring, waiting for room if it is full. Must only
+     * be called by the producer.
+     * @param sequence The sequence number with which the vector is tagged
+     * @param vector The vector, whose first {@link #getVectorLength()} values
+     *               are copied into the ring
+     * @throws InterruptedException If interrupted while waiting for room
+     */
+    public void put(long sequence, double[] vector) throws InterruptedException {
+        for (int attempt = 0; !offer(sequence, vector); attempt = nextAttempt(attempt)) {
+            idle(attempt);
+        }
+    }
+
+    /**
+     * Adds a vector to the ring, waiting for room if it is full, but for no
+     * longer than a timeout. Must only be called by the producer.
+     * @param sequence The sequence number with which the vector is tagged
+     * @param vector The vector, whose first {@link #getVectorLength()} values
+     *               are copied into the ring
+     * @param timeout The longest time to wait
+     * @param unit The unit of {@code timeout}
+     * @return {@code true} if the vector was added, or {@code false} if there
+     * was no room in time
+     * @throws InterruptedException If interrupted while waiting for room
+     */
+    public boolean offer(long sequence, double[] vector, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        for (int attempt = 0; !offer(sequence, vector); attempt = nextAttempt(attempt)) {
+            if (attempt >= SPIN_ATTEMPTS && System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+
+            idle(attempt);
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes the oldest vector from the ring if there is one. Must only be
+     * called by the consumer.
+     * @param vector The array into which the vector is copied, which must
+     *               hold at least {@link #getVectorLength()} values
+     * @return The sequence number of the vector, or -1 if the ring is empty
+     */
+    public long poll(double[] vector) {
+        if (vector.length < mVectorLength) {
+            throw new IllegalArgumentException("The vector must hold at least " + mVectorLength + " values");
+        }
+
+        long tail = UNSAFE.getLong(mAddress + TAIL_OFFSET);
+
+        if (tail >= mCachedHead) {
+            // The volatile read makes sure the slot is read after the head
+            mCachedHead = UNSAFE.getLongVolatile(null, mAddress + HEAD_OFFSET);
+
+            if (tail >= mCachedHead) {
+                return -1;
+            }
+        }
+
+        long slot = slotAddress(tail);
+        long sequence = UNSAFE.getLong(slot);
+        UNSAFE.copyMemory(null, slot + 8, vector, DOUBLE_ARRAY_BASE, mVectorLength * 8L);
+
+        // The ordered write makes sure the slot is read before it is released
+        UNSAFE.putOrderedLong(null, mAddress + TAIL_OFFSET, tail + 1);
+        return sequence;
+    }
+
+    /**
+     * Removes the oldest vector from the ring, waiting for one if it is empty.
+     * Must only be called by the consumer.
+     * @param vector The array into which the vector is copied, which must
+     *               hold at least {@link #getVectorLength()} values
+     * @param timeout The longest time to wait
+     * @param unit The unit of {@code timeout}
+     * @return The sequence number of the vector, or -1 if none arrived in time
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public long take(double[] vector, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long sequence;
+
+        for (int attempt = 0; (sequence = poll(vector)) < 0; attempt = nextAttempt(attempt)) {
+            // Checking the clock costs more than checking the ring, so it is
+            // only checked once spinning is over
+            if (attempt >= SPIN_ATTEMPTS && System.nanoTime() - deadline >= 0) {
+                return -1;
+            }
+
+            idle(attempt);
+        }
+
+        return sequence;
+    }
+
+    /**
+     * @return The number of vectors in the ring
+     */
+    public int size() {
+        long head = UNSAFE.getLongVolatile(null, mAddress + HEAD_OFFSET);
+        long tail = UNSAFE.getLongVolatile(null, mAddress + TAIL_OFFSET);
+
+        return (int) Math.max(0, Math.min(mCapacity, head - tail));
+    }
+
+    /**
+     * @return The number of vectors the ring can hold
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * @return The number of doubles in each vector
+     */
+    public int getVectorLength() {
+        return mVectorLength;
+    }
+
+    /**
+     * Closes the file. The memory stays mapped until the ring is garbage
+     * collected, so the ring must not be used once closed.
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+
+    /**
+     * @param count The number of vectors ever offered or polled
+     * @return The address of the slot in which the next vector is held
+     */
+    private long slotAddress(long count) {
+        return mAddress + SLOTS_OFFSET + (count & (mCapacity - 1)) * mSlotBytes;
+    }
+
+    /**
+     * Waits a little before a ring is checked again, spinning at first, then
+     * yielding, and finally parking for longer and longer periods
+     * @param attempt The number of times the ring has already been checked
+     * @throws InterruptedException If the thread has been interrupted
+     */
+    static void idle(int attempt) throws InterruptedException {
+        if (attempt < SPIN_ATTEMPTS) {
+            return;
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        if (attempt < SPIN_ATTEMPTS + YIELD_ATTEMPTS) {
+            Thread.yield();
+        } else {
+            int parks = attempt - SPIN_ATTEMPTS - YIELD_ATTEMPTS;
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(parks, 20)));
+        }
+    }
+
+    /**
+     * @param attempt The number of times a ring has already been checked
+     * @return The number after checking it once more, which stops growing
+     * rather than overflowing
+     */
+    static int nextAttempt(int attempt) {
+        return attempt < Integer.MAX_VALUE ? attempt + 1 : attempt;
+    }
+
+    /**
+     * @param buffer A buffer of mapped memory
+     * @return The address of the buffer's memory
+     */
+    private static long addressOf(MappedByteBuffer buffer) {
+        return UNSAFE.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+    }
+
+    /**
+     * @return The offset of the field of {@link Buffer} holding the address
+     * of a direct buffer's memory
+     */
+    private static long loadBufferAddressOffset() {
+        try {
+            return UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * @return The instance of {@code Unsafe}, which can only be obtained
+     * through reflection
+     */
+    private static Unsafe loadUnsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+
+            return (Unsafe) field.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.henrythompson.neuralnets.serving;
+
+import com.henrythompson.neuralnets.InferenceContext;
+import com.henrythompson.neuralnets.InferenceModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Gathers inputs submitted one at a time by concurrent callers into batches,
+ * so that they are run through an {@link InferenceModel} together and each
+ * weight is read from memory once per batch rather than once per input. This
+ * gives callers the throughput of batching without having to batch their own
+ * requests.
+ *
+ * A batch is run as soon as it holds the maximum batch size, or once the
+ * oldest input in it has waited for the maximum delay, whichever comes first.
+ * The maximum delay is therefore the most latency batching can add to any
+ * request. Batches are run one at a time on a single thread owned by the
+ * batcher, and each caller's future is completed on that thread, so callers
+ * should not do any lengthy work in a stage which is not asynchronous.
+ *
+ * If the batching thread ever dies, for instance with an
+ * {@code OutOfMemoryError}, the batcher closes itself and fails every input
+ * still waiting, so callers are never left waiting on a future which will
+ * not be completed.
+ */
+public class MicroBatcher implements AutoCloseable {
+    /** How long the batching thread waits for an input before checking
+     * whether the batcher has been closed, in milliseconds */
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    /** The model through which the inputs are run */
+    private final InferenceModel mModel;
+
+    /** The largest number of inputs run in one batch */
+    private final int mMaxBatchSize;
+
+    /** The longest time an input waits for its batch to fill, in nanoseconds */
+    private final long mMaxDelayNanos;
+
+    /** The inputs waiting to be batched, in the order they were submitted */
+    private final BlockingQueue<Request> mQueue = new LinkedBlockingQueue<>();
+
+    /** The thread which gathers and runs the batches */
+    private final Thread mThread;
+
+    /** Set once the batcher is closed, after which no inputs are accepted */
+    private volatile boolean mClosed;
+
+    /** The number of inputs run */
+    private final AtomicLong mRequestCount = new AtomicLong();
+
+    /** The number of batches run */
+    private final AtomicLong mBatchCount = new AtomicLong();
+
+    /** The largest number of inputs which have been waiting at once */
+    private final AtomicLong mMaxQueueDepth = new AtomicLong();
+
+    /** The number of batches run of each size, where the i<sup>th</sup>
+     * element counts batches of i + 1 inputs */
+    private final AtomicLongArray mBatchSizeCounts;
+
+    /**
+     * Creates a batcher and starts its batching thread
+     * @param model The model through which the inputs are run
+     * @param maxBatchSize The largest number of inputs run in one batch
+     * @param maxDelay The longest time an input waits for its batch to fill
+     * @param unit The unit of {@code maxDelay}
+     */
+    public MicroBatcher(InferenceModel model, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The maximum batch size must be at least 1");
+        }
+
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("The maximum delay must not be negative");
+        }
+
+        mModel = model;
+        mMaxBatchSize = maxBatchSize;
+        mMaxDelayNanos = unit.toNanos(maxDelay);
+        mBatchSizeCounts = new AtomicLongArray(maxBatchSize);
+
+        mThread = new Thread(this::runBatches, "micro-batcher");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Submits an input to be run in the next batch
+     * @param input The value to feed to the input layer of the model, which
+     *              must not be changed until the future is completed
+     * @return A future which is completed with the output of the output layer
+     * once the batch holding the input has been run
+     * @throws IllegalStateException If the batcher has been closed
+     */
+    public CompletableFuture<double[]> submit(double[] input) {
+        if (input.length != mModel.getInputSize()) {
+            throw new IllegalArgumentException("Length of input must match size of input layer");
+        }
+
+        if (mClosed) {
+            throw new IllegalStateException("The batcher has been closed");
+        }
+
+        Request request = new Request(input);
+        mQueue.add(request);
+
+        // If the batcher was closed while the input was being added, the input
+        // may have missed the final batch, so it is withdrawn unless it has
+        // already been taken
+        if (mClosed && mQueue.remove(request)) {
+            throw new IllegalStateException("The batcher has been closed");
+        }
+
+        // The input was waiting when it was added, even if the batching
+        // thread has already taken it
+        int depth = Math.max(1, mQueue.size());
+        long maxDepth;
+
+        while (depth > (maxDepth = mMaxQueueDepth.get())) {
+            if (mMaxQueueDepth.compareAndSet(maxDepth, depth)) {
+                break;
+            }
+        }
+
+        return request.mFuture;
+    }
+
+    /**
+     * Stops accepting inputs, runs those already submitted, and stops the
+     * batching thread. If the calling thread is interrupted while waiting for
+     * the batching thread to stop, the interrupt is preserved and any inputs
+     * not yet taken into a batch are failed rather than run.
+     */
+    @Override
+    public void close() {
+        mClosed = true;
+
+        // Wake the batching thread if it is waiting for a batch to fill
+        mThread.interrupt();
+
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Fail any input added after the batching thread took its final batch
+        failWaiting(new IllegalStateException("The batcher has been closed"));
+    }
+
+    /**
+     * Fails every input waiting to be batched
+     * @param failure The exception with which each input's future is completed
+     */
+    private void failWaiting(Exception failure) {
+        Request request;
+
+        while ((request = mQueue.poll()) != null) {
+            request.mFuture.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Gathers and runs batches until the batcher is closed and every input
+     * submitted before then has been run. If the thread dies instead, the
+     * batcher is closed and every input still waiting is failed.
+     */
+    private void runBatches() {
+        try {
+            gatherAndRunBatches();
+        } catch (Throwable e) {
+            mClosed = true;
+            failWaiting(new IllegalStateException("The batching thread has died", e));
+            throw e;
+        }
+    }
+
+    /**
+     * Gathers and runs batches until the batcher is closed and every input
+     * submitted before then has been run
+     */
+    private void gatherAndRunBatches() {
+        InferenceContext context = mModel.newContext();
+        List<Request> batch = new ArrayList<>(mMaxBatchSize);
+        double[][] inputs = new double[mMaxBatchSize][];
+        double[][] outputs = new double[mMaxBatchSize][];
+
+        while (true) {
+            try {
+                Request first = mQueue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (first != null) {
+                    batch.add(first);
+                    fillBatch(batch, first.mSubmitted + mMaxDelayNanos);
+                }
+            } catch (InterruptedException e) {
+                // Woken by close, so run whatever has been gathered
+            }
+
+            runBatch(batch, inputs, outputs, context);
+            batch.clear();
+
+            if (mClosed && mQueue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds inputs to a batch until it is full or its deadline passes. Once
+     * the batcher is closed, the deadline is ignored so that the inputs left
+     * are run without delay.
+     * @param batch The batch, which holds at least one input
+     * @param deadline The value of {@link System#nanoTime()} by which the
+     *                 batch must be run
+     * @throws InterruptedException If interrupted while waiting for an input
+     */
+    private void fillBatch(List<Request> batch, long deadline) throws InterruptedException {
+        while (batch.size() < mMaxBatchSize) {
+            // Take whatever is already waiting without blocking
+            mQueue.drainTo(batch, mMaxBatchSize - batch.size());
+
+            long remaining = deadline - System.nanoTime();
+
+            if (batch.size() == mMaxBatchSize || remaining <= 0 || mClosed) {
+                return;
+            }
+
+            Request next = mQueue.poll(remaining, TimeUnit.NANOSECONDS);
+
+            if (next == null) {
+                return;
+            }
+
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Runs a batch through the model and completes the future of each input.
+     * If the model throws an {@code Error}, the batch's futures are failed
+     * before the error is rethrown.
+     * @param batch The batch, which holds at least one input
+     * @param inputs A buffer with room for the largest batch
+     * @param outputs A buffer with room for the largest batch
+     * @param context The context of the batching thread
+     */
+    private void runBatch(List<Request> batch, double[][] inputs, double[][] outputs, InferenceContext context) {
+        int batchSize = batch.size();
+
+        if (batchSize == 0) {
+            return;
+        }
+
+        for (int b = 0; b < batchSize; b++) {
+            inputs[b] = batch.get(b).mInput;
+            outputs[b] = new double[mModel.getOutputSize()];
+        }
+
+        try {
+            mModel.processBatch(inputs, outputs, batchSize, context);
+        } catch (RuntimeException | Error e) {
+            for (Request request : batch) {
+                request.mFuture.completeExceptionally(e);
+            }
+
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+
+            return;
+        } finally {
+            mRequestCount.addAndGet(batchSize);
+            mBatchCount.incrementAndGet();
+            mBatchSizeCounts.incrementAndGet(batchSize - 1);
+        }
+
+        for (int b = 0; b < batchSize; b++) {
+            batch.get(b).mFuture.complete(outputs[b]);
+
+            // Let the buffers drop their references so the arrays can be collected
+            inputs[b] = null;
+            outputs[b] = null;
+        }
+    }
+
+    /**
+     * @return The number of inputs currently waiting to be batched
+     */
+    public int getQueueDepth() {
+        return mQueue.size();
+    }
+
+    /**
+     * @return The largest number of inputs which have been waiting at once
+     */
+    public long getMaxQueueDepth() {
+        return mMaxQueueDepth.get();
+    }
+
+    /**
+     * @return The number of inputs run
+     */
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return The number of batches run
+     */
+    public long getBatchCount() {
+        return mBatchCount.get();
+    }
+
+    /**
+     * @return The mean number of inputs in each batch run, or 0 if none
+     * have been run
+     */
+    public double getAverageBatchSize() {
+        long batches = mBatchCount.get();
+        return batches == 0 ? 0 : (double) mRequestCount.get() / batches;
+    }
+
+    /**
+     * @return The number of batches run of each size, where the i<sup>th</sup>
+     * element counts batches of i + 1 inputs
+     */
+    public long[] getBatchSizeCounts() {
+        long[] counts = new long[mBatchSizeCounts.length()];
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mBatchSizeCounts.get(i);
+        }
+
+        return counts;
+    }
+
+    /**
+     * @return The largest number of inputs run in one batch
+     */
+    public int getMaxBatchSize() {
+        return mMaxBatchSize;
+    }
+
+    /**
+     * An input waiting to be batched, and the future through which its
+     * output is returned
+     */
+    private static final class Request {
+        /** The value to feed to the input layer */
+        private final double[] mInput;
+
+        /** The value of {@link System#nanoTime()} when the input was submitted */
+        private final long mSubmitted = System.nanoTime();
+
+        /** The future completed with the output */
+        private final CompletableFuture<double[]> mFuture = new CompletableFuture<>();
+
+        /**
+         * @param input The value to feed to the input layer
+         */
+        Request(double[] input) {
+            mInput = input;
+        }
+    }
+}
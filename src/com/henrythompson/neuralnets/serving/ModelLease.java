@@ -0,0 +1,67 @@
+package com.henrythompson.neuralnets.serving;
+
+import com.henrythompson.neuralnets.InferenceModel;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A reference to one version of a model, acquired from a {@link ModelRegistry}.
+ * The version cannot be released while the lease is open, even if a newer
+ * version is deployed in the meantime, so a request holding a lease always
+ * completes against the version it started with. A lease should be closed as
+ * soon as the request is finished, ideally with try-with-resources.
+ */
+public final class ModelLease implements AutoCloseable {
+    /** The version of the model held */
+    private final ModelVersion mVersion;
+
+    /** The model itself, held so that it cannot be dropped while the lease is open */
+    private final InferenceModel mModel;
+
+    /** Set once the lease is closed, so that closing it twice has no effect */
+    private final AtomicBoolean mClosed = new AtomicBoolean();
+
+    /**
+     * @param version A version on which a reference has already been retained
+     */
+    ModelLease(ModelVersion version) {
+        mVersion = version;
+        mModel = version.getModel();
+    }
+
+    /**
+     * @return The model, which may be used by any number of threads
+     */
+    public InferenceModel getModel() {
+        if (mClosed.get()) {
+            throw new IllegalStateException("The lease has been closed");
+        }
+
+        return mModel;
+    }
+
+    /**
+     * @return The name under which the model is deployed
+     */
+    public String getName() {
+        return mVersion.getName();
+    }
+
+    /**
+     * @return The version number of the model held
+     */
+    public int getVersion() {
+        return mVersion.getVersion();
+    }
+
+    /**
+     * Gives up the reference to the version, releasing it if it has since
+     * been retired and this was the last lease on it
+     */
+    @Override
+    public void close() {
+        if (mClosed.compareAndSet(false, true)) {
+            mVersion.release();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.henrythompson.neuralnets.serving;
+
+import com.henrythompson.neuralnets.InferenceModel;
+import com.henrythompson.neuralnets.NeuralNetwork;
+import com.henrythompson.neuralnets.importexport.NeuralNetworkImporter;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the models being served, each deployed under a name and a version
+ * number. Deploying a new version of a model replaces the current version
+ * atomically: requests which start afterwards use the new version, while
+ * requests already holding a {@link ModelLease} on the old version carry on
+ * using it undisturbed. The old version is released once its last lease is
+ * closed. Neither deploying nor acquiring a model ever takes a lock, so
+ * inference is never blocked by a redeployment.
+ *
+ * Each model is held as an {@link InferenceModel}, so a single lease may be
+ * shared by any number of threads.
+ */
+public class ModelRegistry {
+    /** The current version of each model, keyed by name. The reference holds
+     * {@code null} once a model has been undeployed. */
+    private final ConcurrentHashMap<String, AtomicReference<ModelVersion>> mModels = new ConcurrentHashMap<>();
+
+    /** The admission controller of each model which has one, keyed by name */
+    private final ConcurrentHashMap<String, AdmissionController> mAdmissionControllers = new ConcurrentHashMap<>();
+
+    /**
+     * Imports a network serialised by {@code NeuralNetworkExporter} and deploys
+     * it as the current version of a model
+     * @param name The name under which the model is deployed
+     * @param version The version number, which must be greater than that of
+     *                the version currently deployed under the same name
+     * @param input The input from which the serialised network is read
+     * @return The version deployed
+     */
+    public ModelVersion deploy(String name, int version, InputStream input) {
+        NeuralNetwork network = new NeuralNetworkImporter(input).importNetwork();
+
+        if (network == null) {
+            throw new IllegalArgumentException("Version " + version + " of " + name + " could not be imported");
+        }
+
+        return deploy(name, version, network);
+    }
+
+    /**
+     * Deploys a network as the current version of a model. The weights are
+     * copied, so the network may continue to be trained afterwards.
+     * @param name The name under which the model is deployed
+     * @param version The version number, which must be greater than that of
+     *                the version currently deployed under the same name
+     * @param network The network to deploy
+     * @return The version deployed
+     */
+    public ModelVersion deploy(String name, int version, NeuralNetwork network) {
+        ModelVersion deployed = new ModelVersion(name, version, new InferenceModel(network));
+        AtomicReference<ModelVersion> current = mModels.computeIfAbsent(name, key -> new AtomicReference<>());
+
+        while (true) {
+            ModelVersion previous = current.get();
+
+            if (previous != null && previous.getVersion() >= version) {
+                throw new IllegalArgumentException("Version " + version + " of " + name
+                        + " is not newer than the deployed version " + previous.getVersion());
+            }
+
+            if (current.compareAndSet(previous, deployed)) {
+                if (previous != null) {
+                    previous.release();
+                }
+
+                return deployed;
+            }
+        }
+    }
+
+    /**
+     * Stops serving a model. Requests already holding a lease on it carry on
+     * using it until they close their lease.
+     * @param name The name under which the model is deployed
+     * @return {@code true} if a model was deployed under that name
+     */
+    public boolean undeploy(String name) {
+        AtomicReference<ModelVersion> current = mModels.get(name);
+        ModelVersion previous = current != null ? current.getAndSet(null) : null;
+
+        if (previous == null) {
+            return false;
+        }
+
+        previous.release();
+        return true;
+    }
+
+    /**
+     * Acquires a lease on the current version of a model
+     * @param name The name under which the model is deployed
+     * @return A lease which must be closed once the request is finished
+     */
+    public ModelLease acquire(String name) {
+        AtomicReference<ModelVersion> current = mModels.get(name);
+
+        while (true) {
+            ModelVersion version = current != null ? current.get() : null;
+
+            if (version == null) {
+                throw new IllegalArgumentException("No model is deployed under the name " + name);
+            }
+
+            // Retaining only fails if the version was replaced and released
+            // since it was read, in which case the new version is tried
+            if (version.tryRetain()) {
+                return new ModelLease(version);
+            }
+        }
+    }
+
+    /**
+     * Acquires a lease on a particular version of a model, which must be the
+     * version currently deployed
+     * @param name The name under which the model is deployed
+     * @param version The version number required
+     * @return A lease which must be closed once the request is finished
+     */
+    public ModelLease acquire(String name, int version) {
+        ModelLease lease = acquire(name);
+
+        if (lease.getVersion() != version) {
+            lease.close();
+            throw new IllegalArgumentException("Version " + version + " of " + name + " is not deployed");
+        }
+
+        return lease;
+    }
+
+    /**
+     * Limits the requests which servers run on a model. The limit applies to
+     * every version deployed under the name, including later versions.
+     * @param name The name under which the model is deployed
+     * @param controller The controller which admits requests, or {@code null}
+     *                   to remove the limit
+     */
+    public void setAdmissionController(String name, AdmissionController controller) {
+        if (controller == null) {
+            mAdmissionControllers.remove(name);
+        } else {
+            mAdmissionControllers.put(name, controller);
+        }
+    }
+
+    /**
+     * @param name The name under which the model is deployed
+     * @return The controller which admits requests to the model, or
+     * {@code null} if requests to it are not limited
+     */
+    public AdmissionController getAdmissionController(String name) {
+        return mAdmissionControllers.get(name);
+    }
+
+    /**
+     * @param name The name under which the model is deployed
+     * @return The number of the version currently deployed, or -1 if no model
+     * is deployed under that name
+     */
+    public int getVersion(String name) {
+        AtomicReference<ModelVersion> current = mModels.get(name);
+        ModelVersion version = current != null ? current.get() : null;
+
+        return version != null ? version.getVersion() : -1;
+    }
+
+    /**
+     * @return The names of every model currently deployed, in alphabetical order
+     */
+    public Set<String> getNames() {
+        Set<String> names = new TreeSet<>();
+
+        for (Map.Entry<String, AtomicReference<ModelVersion>> entry : mModels.entrySet()) {
+            if (entry.getValue().get() != null) {
+                names.add(entry.getKey());
+            }
+        }
+
+        return names;
+    }
+}
@@ -0,0 +1,106 @@
+package com.henrythompson.neuralnets.serving;
+
+import com.henrythompson.neuralnets.InferenceModel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One version of a model held by a {@link ModelRegistry}. A version is
+ * reference counted: the registry holds one reference for as long as the
+ * version is deployed, and each {@link ModelLease} holds another for as long
+ * as it is open. Once the count reaches zero the version is released, and its
+ * model is dropped so that its weights can be garbage collected.
+ */
+public final class ModelVersion {
+    /** The name under which the model is deployed */
+    private final String mName;
+
+    /** The version number of the model */
+    private final int mVersion;
+
+    /** The number of references held, where 0 means the version is released */
+    private final AtomicInteger mReferenceCount = new AtomicInteger(1);
+
+    /** The model itself, or {@code null} once the version is released */
+    private volatile InferenceModel mModel;
+
+    /**
+     * Creates a version holding the single reference of the registry
+     * @param name The name under which the model is deployed
+     * @param version The version number of the model
+     * @param model The model itself
+     */
+    ModelVersion(String name, int version, InferenceModel model) {
+        mName = name;
+        mVersion = version;
+        mModel = model;
+    }
+
+    /**
+     * @return The name under which the model is deployed
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return The version number of the model
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * @return The number of references held, including the registry's own
+     * while the version is deployed
+     */
+    public int getReferenceCount() {
+        return mReferenceCount.get();
+    }
+
+    /**
+     * @return {@code true} once the version has been retired and every lease
+     * on it has been closed
+     */
+    public boolean isReleased() {
+        return mReferenceCount.get() == 0;
+    }
+
+    /**
+     * @return The model, or {@code null} once the version has been released
+     */
+    InferenceModel getModel() {
+        return mModel;
+    }
+
+    /**
+     * Adds a reference, unless the version has already been released
+     * @return {@code true} if the reference was added
+     */
+    boolean tryRetain() {
+        while (true) {
+            int count = mReferenceCount.get();
+
+            if (count == 0) {
+                return false;
+            }
+
+            if (mReferenceCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes a reference, releasing the version if it was the last
+     */
+    void release() {
+        int count = mReferenceCount.decrementAndGet();
+
+        if (count == 0) {
+            mModel = null;
+        } else if (count < 0) {
+            throw new IllegalStateException("Version " + mVersion + " of " + mName + " was released too many times");
+        }
+    }
+}
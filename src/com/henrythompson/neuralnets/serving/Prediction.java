@@ -0,0 +1,36 @@
+package com.henrythompson.neuralnets.serving;
+
+/**
+ * The answer to a request made by a {@link BinaryInferenceClient}
+ */
+public final class Prediction {
+    /** The output of the model's output layer */
+    private final double[] mOutput;
+
+    /** The index of the largest output */
+    private final int mArgmax;
+
+    /**
+     * @param output The output of the model's output layer
+     * @param argmax The index of the largest output
+     */
+    Prediction(double[] output, int argmax) {
+        mOutput = output;
+        mArgmax = argmax;
+    }
+
+    /**
+     * @return The output of the model's output layer
+     */
+    public double[] getOutput() {
+        return mOutput;
+    }
+
+    /**
+     * @return The index of the largest output, or of the first of them if
+     * several are equally large
+     */
+    public int getArgmax() {
+        return mArgmax;
+    }
+}
@@ -0,0 +1,42 @@
+package com.henrythompson.neuralnets.serving;
+
+/**
+ * Thrown by an {@link AdmissionController} when a request is turned away
+ * rather than being left to wait behind a backlog
+ */
+public class RequestRejectedException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reasons a request may be rejected
+     */
+    public enum Reason {
+        /** As many requests as allowed were already waiting */
+        QUEUE_FULL,
+
+        /** The request would have been expected to wait longer than the deadline */
+        DEADLINE_EXCEEDED,
+
+        /** The request waited for the deadline without being admitted */
+        TIMED_OUT
+    }
+
+    /** Why the request was rejected */
+    private final Reason mReason;
+
+    /**
+     * @param reason Why the request was rejected
+     * @param message A description of the rejection
+     */
+    public RequestRejectedException(Reason reason, String message) {
+        super(message);
+        mReason = reason;
+    }
+
+    /**
+     * @return Why the request was rejected
+     */
+    public Reason getReason() {
+        return mReason;
+    }
+}
@@ -0,0 +1,170 @@
+package com.henrythompson.neuralnets.serving;
+
+import com.henrythompson.neuralnets.VectorMath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The producer's side of a {@link SharedMemoryInferenceServer}. Inputs may be
+ * submitted without waiting for their outputs, so that the server can batch
+ * them, and the outputs then received in the same order.
+ *
+ * Because each ring has one producer and one consumer, a client must only be
+ * used by one thread, and only one client may be connected to a server.
+ *
+ * The server waits for room in the response ring before taking more inputs.
+ * A client which submits more inputs than the two rings can hold together
+ * without receiving any outputs will therefore wait forever in
+ * {@link #submit(double[])}, since the server is waiting for it to receive.
+ * Clients which cannot bound how far ahead they submit should use
+ * {@link #submit(double[], long, TimeUnit)} and receive outputs whenever it
+ * times out.
+ */
+public class SharedMemoryInferenceClient implements AutoCloseable {
+    /** The ring to which inputs are written */
+    private final MappedRing mRequests;
+
+    /** The ring from which outputs are read */
+    private final MappedRing mResponses;
+
+    /** The sequence number of the next input */
+    private long mNextSequence;
+
+    /**
+     * Opens the rings created by a server
+     * @param directory The directory in which the server created its rings
+     * @throws IOException If the rings cannot be opened
+     */
+    public SharedMemoryInferenceClient(File directory) throws IOException {
+        mRequests = MappedRing.open(new File(directory, SharedMemoryInferenceServer.REQUEST_RING_FILE));
+
+        try {
+            mResponses = MappedRing.open(new File(directory, SharedMemoryInferenceServer.RESPONSE_RING_FILE));
+        } catch (IOException | RuntimeException e) {
+            mRequests.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends an input to the server without waiting for its output, waiting
+     * only if the request ring is full. This waits forever if both rings are
+     * full, so outputs must be received before too many inputs are submitted.
+     * @param input The value to feed to the input layer of the model
+     * @return The sequence number of the input, which its output will carry
+     * @throws InterruptedException If interrupted while waiting for room
+     */
+    public long submit(double[] input) throws InterruptedException {
+        checkInput(input);
+
+        long sequence = mNextSequence++;
+        mRequests.put(sequence, input);
+
+        return sequence;
+    }
+
+    /**
+     * Sends an input to the server without waiting for its output, waiting
+     * for no longer than a timeout if the request ring is full
+     * @param input The value to feed to the input layer of the model
+     * @param timeout The longest time to wait for room
+     * @param unit The unit of {@code timeout}
+     * @return The sequence number of the input, which its output will carry,
+     * or -1 if there was no room in time and the input was not sent
+     * @throws InterruptedException If interrupted while waiting for room
+     */
+    public long submit(double[] input, long timeout, TimeUnit unit) throws InterruptedException {
+        checkInput(input);
+
+        if (!mRequests.offer(mNextSequence, input, timeout, unit)) {
+            return -1;
+        }
+
+        return mNextSequence++;
+    }
+
+    /**
+     * @param input An input to be sent to the server
+     * @throws IllegalArgumentException If the input is the wrong size for the model
+     */
+    private void checkInput(double[] input) {
+        if (input.length != mRequests.getVectorLength()) {
+            throw new IllegalArgumentException("Length of input must match size of input layer");
+        }
+    }
+
+    /**
+     * Receives the output for the oldest input whose output has not yet been
+     * received
+     * @param output The array into which the output is copied
+     * @param timeout The longest time to wait
+     * @param unit The unit of {@code timeout}
+     * @return The sequence number of the input, or -1 if no output arrived in time
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public long receive(double[] output, long timeout, TimeUnit unit) throws InterruptedException {
+        return mResponses.take(output, timeout, unit);
+    }
+
+    /**
+     * Sends an input to the server and waits for its output. The outputs of
+     * any earlier inputs which have not been received, such as those of
+     * earlier calls which timed out, are discarded as they arrive.
+     * @param input The value to feed to the input layer of the model
+     * @param output The array into which the output is copied
+     * @param timeout The longest time to wait, both for room to send the
+     *                input and for its output
+     * @param unit The unit of {@code timeout}
+     * @return The index of the largest output
+     * @throws InterruptedException If interrupted while waiting
+     * @throws IllegalStateException If the input could not be sent or no
+     * output arrived in time
+     */
+    public int predict(double[] input, double[] output, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long sequence = submit(input, timeout, unit);
+
+        if (sequence < 0) {
+            throw new IllegalStateException("There was no room to send the input");
+        }
+
+        long received;
+
+        do {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            received = receive(output, remaining, TimeUnit.NANOSECONDS);
+        } while (received >= 0 && received < sequence);
+
+        if (received != sequence) {
+            throw new IllegalStateException("No output was received for input " + sequence);
+        }
+
+        return VectorMath.argmax(output, getOutputSize());
+    }
+
+    /**
+     * @return The number of neurons in the model's input layer
+     */
+    public int getInputSize() {
+        return mRequests.getVectorLength();
+    }
+
+    /**
+     * @return The number of neurons in the model's output layer
+     */
+    public int getOutputSize() {
+        return mResponses.getVectorLength();
+    }
+
+    /**
+     * Closes the rings
+     * @throws IOException If the rings cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        mRequests.close();
+        mResponses.close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.henrythompson.neuralnets.serving;
+
+import com.henrythompson.neuralnets.InferenceContext;
+import com.henrythompson.neuralnets.InferenceModel;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs a model for a producer in another process on the same machine, passing
+ * inputs and outputs through a pair of {@link MappedRing}s rather than a
+ * socket, so that no system calls are made per request. The producer writes
+ * inputs to the request ring and reads outputs, tagged with the same sequence
+ * numbers, from the response ring, using a {@link SharedMemoryInferenceClient}.
+ *
+ * The server creates both rings when it is constructed, and the client opens
+ * them afterwards. The server runs on a single thread of its own. Whenever it
+ * finds several inputs waiting, it takes up to a whole batch of them and runs
+ * them through the model together.
+ */
+public class SharedMemoryInferenceServer {
+    /** The name of the file holding the ring of inputs */
+    public static final String REQUEST_RING_FILE = "requests.ring";
+
+    /** The name of the file holding the ring of outputs */
+    public static final String RESPONSE_RING_FILE = "responses.ring";
+
+    /** The largest number of inputs run through the model together */
+    private static final int MAX_BATCH_SIZE = 32;
+
+    /** The model through which the inputs are run */
+    private final InferenceModel mModel;
+
+    /** The ring from which inputs are read */
+    private final MappedRing mRequests;
+
+    /** The ring to which outputs are written */
+    private final MappedRing mResponses;
+
+    /** The thread which reads inputs and writes outputs */
+    private final Thread mThread;
+
+    /** Cleared when the server is stopped */
+    private volatile boolean mRunning;
+
+    /**
+     * Creates a server and the rings through which it is reached. The server
+     * does not read any inputs until {@link #start()} is called.
+     * @param model The model through which the inputs are run
+     * @param directory The directory in which the rings are created, which
+     *                  should be on a memory-backed file system such as /dev/shm
+     * @param capacity The number of vectors each ring can hold, which must be
+     *                 a power of two
+     * @throws IOException If the rings cannot be created
+     */
+    public SharedMemoryInferenceServer(InferenceModel model, File directory, int capacity) throws IOException {
+        mModel = model;
+        mRequests = MappedRing.create(new File(directory, REQUEST_RING_FILE), capacity, model.getInputSize());
+
+        try {
+            mResponses = MappedRing.create(new File(directory, RESPONSE_RING_FILE), capacity, model.getOutputSize());
+        } catch (IOException | RuntimeException e) {
+            mRequests.close();
+            throw e;
+        }
+
+        mThread = new Thread(this::serve, "shared-memory-inference-server");
+        mThread.setDaemon(true);
+    }
+
+    /**
+     * Starts reading inputs
+     */
+    public void start() {
+        mRunning = true;
+        mThread.start();
+    }
+
+    /**
+     * Stops reading inputs and closes the rings
+     * @throws InterruptedException If interrupted while waiting for the
+     * server's thread to stop
+     * @throws IOException If the rings cannot be closed
+     */
+    public void stop() throws InterruptedException, IOException {
+        mRunning = false;
+        mThread.interrupt();
+        mThread.join();
+
+        mRequests.close();
+        mResponses.close();
+    }
+
+    /**
+     * Reads inputs and writes outputs until the server is stopped
+     */
+    private void serve() {
+        InferenceContext context = mModel.newContext();
+        double[][] inputs = new double[MAX_BATCH_SIZE][mModel.getInputSize()];
+        double[][] outputs = new double[MAX_BATCH_SIZE][mModel.getOutputSize()];
+        long[] sequences = new long[MAX_BATCH_SIZE];
+
+        try {
+            int attempt = 0;
+
+            while (mRunning) {
+                int batchSize = 0;
+
+                while (batchSize < MAX_BATCH_SIZE && (sequences[batchSize] = mRequests.poll(inputs[batchSize])) >= 0) {
+                    batchSize++;
+                }
+
+                if (batchSize == 0) {
+                    MappedRing.idle(attempt);
+                    attempt = MappedRing.nextAttempt(attempt);
+                    continue;
+                }
+
+                attempt = 0;
+
+                if (batchSize == 1) {
+                    mModel.processInput(inputs[0], outputs[0], context);
+                } else {
+                    mModel.processBatch(inputs, outputs, batchSize, context);
+                }
+
+                for (int b = 0; b < batchSize; b++) {
+                    mResponses.put(sequences[b], outputs[b]);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Interrupted by stop
+        }
+    }
+}
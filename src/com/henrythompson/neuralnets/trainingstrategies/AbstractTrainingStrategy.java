@@ -76,9 +76,10 @@ public abstract class AbstractTrainingStrategy implements ITrainingStrategy {
             epoch++;
             Collections.shuffle(trainingSet);
 
-            for (TrainingSample sample: trainingSet) {
-                double[] output = mNetwork.processInput(sample.getInput());
-                condition.onSampleTested(sample, output);
+            double[][] outputs = mNetwork.processBatch(getInputs(trainingSet));
+
+            for (int i = 0; i < outputs.length; i++) {
+                condition.onSampleTested(trainingSet.get(i), outputs[i]);
             }
 
             if (condition.shouldStop()) {
@@ -143,6 +144,20 @@ public abstract class AbstractTrainingStrategy implements ITrainingStrategy {
         }
     }
 
+    /**
+     * @param samples The samples whose inputs are required
+     * @return The input of each sample, in the same order as the samples
+     */
+    private static double[][] getInputs(List<TrainingSample> samples) {
+        double[][] inputs = new double[samples.size()][];
+
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = samples.get(i).getInput();
+        }
+
+        return inputs;
+    }
+
     /**
      * Trains each synapse, starting at the final synapse
      * and moving its way forwards. The actual implementation
@@ -22,40 +22,31 @@ public class GradientDescentStrategy extends AbstractTrainingStrategy {
         int fromLayerSize = fromLayer.size();
 
         AbstractLayer toLayer = synapse.getToLayer();
-        int toLayerSize = toLayer.size();
 
         double[] lastInput = fromLayer.getLastOutput();
+        double[] delta_k = toLayer.getErrorGradients();
 
         // Learning rate may be varied over time, but it must be
         // constant over an epoch
         double learningRate = getLearningRate();
 
-        for (int i = 0; i <= fromLayerSize; i++) {
-            // If i == fromLayerSize then we want the bias neuron,
-            // which always outputs 1
-            double z_i = (i != fromLayerSize) ? lastInput[i] : 1;
-
-            for (int j = 0; j < toLayerSize; j++) {
-                double error = toLayer.getErrorGradient(j);
-                double deltaw_ij = learningRate * error * z_i;
-
-                weights.adjustWeight(i, j, deltaw_ij);
-            }
-        }
+        // deltaw_ij = learningRate * delta_j * z_i for every weight,
+        // where the bias neuron always outputs z_i = 1
+        weights.adjustByOuterProduct(learningRate, lastInput, delta_k);
 
         // Now set the error for the previous layer
-        double[] delta_k = toLayer.getErrorGradients();
         double[] derivatives = fromLayer.getActivationDerivative();
+        double[] delta_j = fromLayer.getErrorGradients();
 
-        for (int i = 0; i < fromLayerSize; i++) {
-            double delta_j = 0;
+        if (delta_j == null) {
+            delta_j = new double[fromLayerSize];
+            fromLayer.setErrorGradients(delta_j);
+        }
 
-            for (int j = 0; j < toLayerSize; j++) {
-                double w_jk = weights.getWeight(i, j);
-                delta_j += derivatives[i] * delta_k[j] * w_jk;
-            }
+        weights.multiplyTransposed(delta_k, delta_j);
 
-            fromLayer.setErrorGradient(i, delta_j);
+        for (int i = 0; i < fromLayerSize; i++) {
+            delta_j[i] *= derivatives[i];
         }
     }
 